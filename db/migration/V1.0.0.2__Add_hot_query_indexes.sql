@@ -0,0 +1,16 @@
+-- Arrived guest could arrive only once, remove duplicated arrivals (keep the earliest one) before adding the key.
+DELETE FROM arrived_guests
+WHERE name IS NULL;
+
+DELETE FROM arrived_guests a
+    USING arrived_guests b
+WHERE a.name = b.name
+  AND (a.time_arrived, a.ctid) > (b.time_arrived, b.ctid);
+
+-- Used by the arrival checks and by the guest removal.
+ALTER TABLE arrived_guests
+    ADD CONSTRAINT arrived_guests_pkey PRIMARY KEY (name);
+
+-- Used by the taken places aggregates of the specific table (index only scan for booked places).
+CREATE INDEX IF NOT EXISTS guests_table_number_idx
+    ON guests (table_number) INCLUDE (total_guests);
@@ -0,0 +1,14 @@
+-- Used by the guest list filtered by table and ordered by name. It replaces guests_table_number_idx
+-- and is still used by the taken places aggregates of the specific table.
+CREATE INDEX IF NOT EXISTS guests_table_number_name_idx
+    ON guests (table_number, name) INCLUDE (total_guests);
+
+DROP INDEX IF EXISTS guests_table_number_idx;
+
+-- Used by the name prefix filter (LIKE 'prefix%') regardless of the database collation.
+CREATE INDEX IF NOT EXISTS guests_name_pattern_idx
+    ON guests (name text_pattern_ops);
+
+-- Used by the arrived guests list ordered by arrival time and name and by the arrival time filter.
+CREATE INDEX IF NOT EXISTS arrived_guests_time_arrived_name_idx
+    ON arrived_guests (time_arrived, name);
@@ -0,0 +1,15 @@
+-- Booked and arrived people per table. Registration and check-in reserve seats with a conditional update
+-- of these counters, so concurrent requests for the same table wait for the row lock and re-check
+-- the condition against the committed counters instead of overbooking the table.
+ALTER TABLE tables
+    ADD COLUMN IF NOT EXISTS booked INT NOT NULL DEFAULT 0;
+
+ALTER TABLE tables
+    ADD COLUMN IF NOT EXISTS arrived INT NOT NULL DEFAULT 0;
+
+UPDATE tables t
+SET booked  = COALESCE((SELECT SUM(g.total_guests) FROM guests g WHERE g.table_number = t.id), 0),
+    arrived = COALESCE((SELECT SUM(a.count)
+                        FROM arrived_guests a
+                                 JOIN guests g ON a.name = g.name
+                        WHERE g.table_number = t.id), 0);
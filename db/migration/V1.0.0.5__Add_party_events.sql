@@ -0,0 +1,94 @@
+-- Log of party events. Every change of tables, guests and arrivals adds an event in the same transaction,
+-- so the in-memory projection of the party is loaded from a snapshot and the events after it.
+CREATE TABLE IF NOT EXISTS party_events
+(
+    seq         BIGSERIAL PRIMARY KEY,
+    type        VARCHAR(16) NOT NULL,
+    table_id    INT,
+    capacity    INT,
+    name        VARCHAR(255),
+    guests      INT,
+    occurred_at TIMESTAMP   NOT NULL DEFAULT LOCALTIMESTAMP
+);
+
+ALTER TABLE IF EXISTS party_events
+    OWNER TO exercise;
+
+CREATE OR REPLACE FUNCTION add_table_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (type, table_id, capacity) VALUES ('TABLE_ADDED', NEW.id, NEW.capacity);
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO party_events (type, table_id) VALUES ('TABLE_REMOVED', OLD.id);
+    ELSIF NEW.capacity <> OLD.capacity THEN
+        INSERT INTO party_events (type, table_id, capacity) VALUES ('TABLE_RESIZED', NEW.id, NEW.capacity);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION add_guest_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (type, table_id, name, guests)
+        VALUES ('GUEST_BOOKED', NEW.table_number, NEW.name, NEW.total_guests);
+    ELSE
+        INSERT INTO party_events (type, table_id, name) VALUES ('GUEST_CANCELLED', OLD.table_number, OLD.name);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION add_arrival_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (type, name, guests, occurred_at)
+        VALUES ('GUEST_ARRIVED', NEW.name, NEW.count, NEW.time_arrived);
+    ELSE
+        INSERT INTO party_events (type, name, guests) VALUES ('GUEST_LEFT', OLD.name, OLD.count);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Updates of the seat counters do not change capacity and do not add events. The API does not remove tables
+-- and bookings, but removals in DB are logged too, so the projection does not keep them.
+DROP TRIGGER IF EXISTS tables_party_events ON tables;
+CREATE TRIGGER tables_party_events
+    AFTER INSERT OR UPDATE OF capacity OR DELETE
+    ON tables
+    FOR EACH ROW
+EXECUTE FUNCTION add_table_event();
+
+DROP TRIGGER IF EXISTS guests_party_events ON guests;
+CREATE TRIGGER guests_party_events
+    AFTER INSERT OR DELETE
+    ON guests
+    FOR EACH ROW
+EXECUTE FUNCTION add_guest_event();
+
+DROP TRIGGER IF EXISTS arrived_guests_party_events ON arrived_guests;
+CREATE TRIGGER arrived_guests_party_events
+    AFTER INSERT OR DELETE
+    ON arrived_guests
+    FOR EACH ROW
+EXECUTE FUNCTION add_arrival_event();
+
+-- The current state of the party is the first events of the log.
+INSERT INTO party_events (type, table_id, capacity)
+SELECT 'TABLE_ADDED', id, capacity
+FROM tables
+ORDER BY id;
+
+INSERT INTO party_events (type, table_id, name, guests)
+SELECT 'GUEST_BOOKED', table_number, name, total_guests
+FROM guests
+ORDER BY name;
+
+INSERT INTO party_events (type, name, guests, occurred_at)
+SELECT 'GUEST_ARRIVED', name, count, time_arrived
+FROM arrived_guests
+ORDER BY time_arrived, name;
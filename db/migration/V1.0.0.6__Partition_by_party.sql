@@ -0,0 +1,182 @@
+-- Many parties are served at the same time. Tables, guests and arrivals are partitioned by party ID,
+-- so the statements of a party touch only its partitions. The existing data is the default party 1.
+CREATE TABLE IF NOT EXISTS parties
+(
+    id         INT PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP
+);
+
+ALTER TABLE IF EXISTS parties
+    OWNER TO exercise;
+
+-- Partitions of a new party are created by the application with this function in the same transaction
+-- as the party. Returns false if the party already exists.
+CREATE OR REPLACE FUNCTION add_party(party INT) RETURNS BOOLEAN AS
+$$
+DECLARE
+    parent TEXT;
+BEGIN
+    INSERT INTO parties (id) VALUES (party) ON CONFLICT DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN FALSE;
+    END IF;
+    FOREACH parent IN ARRAY ARRAY ['tables', 'guests', 'arrived_guests']
+        LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES IN (%s)',
+                           parent || '_party_' || party, parent, party);
+        END LOOP;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Rows are copied to the new partitioned tables before the keys, indexes and event triggers are created,
+-- so the copy does not add events to the log.
+ALTER TABLE arrived_guests
+    RENAME TO arrived_guests_unpartitioned;
+ALTER TABLE guests
+    RENAME TO guests_unpartitioned;
+ALTER TABLE tables
+    RENAME TO tables_unpartitioned;
+
+CREATE TABLE tables
+(
+    party_id INT NOT NULL,
+    id       INT NOT NULL,
+    capacity INT NOT NULL DEFAULT 0,
+    booked   INT NOT NULL DEFAULT 0,
+    arrived  INT NOT NULL DEFAULT 0
+) PARTITION BY LIST (party_id);
+
+ALTER TABLE tables
+    OWNER TO exercise;
+
+CREATE TABLE guests
+(
+    party_id     INT          NOT NULL,
+    name         VARCHAR(255) NOT NULL,
+    table_number INT          NOT NULL,
+    total_guests INT          NOT NULL DEFAULT 1
+) PARTITION BY LIST (party_id);
+
+ALTER TABLE guests
+    OWNER TO exercise;
+
+CREATE TABLE arrived_guests
+(
+    party_id     INT          NOT NULL,
+    name         VARCHAR(255) NOT NULL,
+    count        INT          NOT NULL DEFAULT 1,
+    time_arrived TIMESTAMP    NOT NULL DEFAULT LOCALTIMESTAMP
+) PARTITION BY LIST (party_id);
+
+ALTER TABLE arrived_guests
+    OWNER TO exercise;
+
+SELECT add_party(1);
+
+INSERT INTO tables (party_id, id, capacity, booked, arrived)
+SELECT 1, id, capacity, booked, arrived
+FROM tables_unpartitioned;
+
+INSERT INTO guests (party_id, name, table_number, total_guests)
+SELECT 1, name, table_number, total_guests
+FROM guests_unpartitioned;
+
+INSERT INTO arrived_guests (party_id, name, count, time_arrived)
+SELECT 1, name, count, time_arrived
+FROM arrived_guests_unpartitioned;
+
+DROP TABLE arrived_guests_unpartitioned;
+DROP TABLE guests_unpartitioned;
+DROP TABLE tables_unpartitioned;
+
+-- Keys and indexes start with the party ID, they are created on every partition of the table.
+ALTER TABLE tables
+    ADD CONSTRAINT tables_pkey PRIMARY KEY (party_id, id),
+    ADD CONSTRAINT tables_party_id_fkey FOREIGN KEY (party_id) REFERENCES parties (id);
+
+ALTER TABLE guests
+    ADD CONSTRAINT guests_pkey PRIMARY KEY (party_id, name),
+    ADD CONSTRAINT guests_table_number_fkey FOREIGN KEY (party_id, table_number) REFERENCES tables (party_id, id);
+
+ALTER TABLE arrived_guests
+    ADD CONSTRAINT arrived_guests_pkey PRIMARY KEY (party_id, name),
+    ADD CONSTRAINT arrived_guests_name_fkey FOREIGN KEY (party_id, name) REFERENCES guests (party_id, name);
+
+CREATE INDEX IF NOT EXISTS guests_table_number_name_idx
+    ON guests (party_id, table_number, name) INCLUDE (total_guests);
+
+CREATE INDEX IF NOT EXISTS guests_name_pattern_idx
+    ON guests (party_id, name text_pattern_ops);
+
+CREATE INDEX IF NOT EXISTS arrived_guests_time_arrived_name_idx
+    ON arrived_guests (party_id, time_arrived, name);
+
+-- Events of the log belong to a party, the existing events are events of the default party.
+ALTER TABLE party_events
+    ADD COLUMN IF NOT EXISTS party_id INT NOT NULL DEFAULT 1;
+
+ALTER TABLE party_events
+    ALTER COLUMN party_id DROP DEFAULT;
+
+CREATE OR REPLACE FUNCTION add_table_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (party_id, type, table_id, capacity)
+        VALUES (NEW.party_id, 'TABLE_ADDED', NEW.id, NEW.capacity);
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO party_events (party_id, type, table_id) VALUES (OLD.party_id, 'TABLE_REMOVED', OLD.id);
+    ELSIF NEW.capacity <> OLD.capacity THEN
+        INSERT INTO party_events (party_id, type, table_id, capacity)
+        VALUES (NEW.party_id, 'TABLE_RESIZED', NEW.id, NEW.capacity);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION add_guest_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (party_id, type, table_id, name, guests)
+        VALUES (NEW.party_id, 'GUEST_BOOKED', NEW.table_number, NEW.name, NEW.total_guests);
+    ELSE
+        INSERT INTO party_events (party_id, type, table_id, name)
+        VALUES (OLD.party_id, 'GUEST_CANCELLED', OLD.table_number, OLD.name);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION add_arrival_event() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO party_events (party_id, type, name, guests, occurred_at)
+        VALUES (NEW.party_id, 'GUEST_ARRIVED', NEW.name, NEW.count, NEW.time_arrived);
+    ELSE
+        INSERT INTO party_events (party_id, type, name, guests) VALUES (OLD.party_id, 'GUEST_LEFT', OLD.name, OLD.count);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Triggers of the partitioned tables are cloned to every partition, including partitions of new parties.
+CREATE TRIGGER tables_party_events
+    AFTER INSERT OR UPDATE OF capacity OR DELETE
+    ON tables
+    FOR EACH ROW
+EXECUTE FUNCTION add_table_event();
+
+CREATE TRIGGER guests_party_events
+    AFTER INSERT OR DELETE
+    ON guests
+    FOR EACH ROW
+EXECUTE FUNCTION add_guest_event();
+
+CREATE TRIGGER arrived_guests_party_events
+    AFTER INSERT OR DELETE
+    ON arrived_guests
+    FOR EACH ROW
+EXECUTE FUNCTION add_arrival_event();
@@ -0,0 +1,89 @@
+-- The party event log is written only while the party projection is enabled. The application stops the event
+-- triggers on startup if the projection is disabled, and restarts the log from the current tables, guests and
+-- arrivals if the triggers were stopped or the snapshot of the projection does not match the log.
+-- Events up to the last written snapshot are pruned, the log keeps the sequence number of the last removed event:
+-- a snapshot before it can not be completed from the log.
+CREATE TABLE IF NOT EXISTS party_event_log
+(
+    id         BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    pruned_seq BIGINT NOT NULL
+);
+
+ALTER TABLE IF EXISTS party_event_log
+    OWNER TO exercise;
+
+INSERT INTO party_event_log (pruned_seq)
+VALUES (0)
+ON CONFLICT DO NOTHING;
+
+-- Returns true if the event triggers are enabled. The state of a partitioned table trigger is cloned to the triggers
+-- of its partitions, including partitions of new parties.
+CREATE OR REPLACE FUNCTION party_events_enabled() RETURNS BOOLEAN AS
+$$
+SELECT COALESCE(bool_and(tgenabled <> 'D'), FALSE)
+FROM pg_trigger
+WHERE (tgrelid, tgname) IN (('tables'::REGCLASS, 'tables_party_events'),
+                            ('guests'::REGCLASS, 'guests_party_events'),
+                            ('arrived_guests'::REGCLASS, 'arrived_guests_party_events'));
+$$ LANGUAGE sql STABLE;
+
+-- Stops the event triggers and removes the events, changes are not logged until the log is restarted.
+CREATE OR REPLACE FUNCTION stop_party_events() RETURNS VOID AS
+$$
+BEGIN
+    IF NOT party_events_enabled() THEN
+        RETURN;
+    END IF;
+    ALTER TABLE tables DISABLE TRIGGER tables_party_events;
+    ALTER TABLE guests DISABLE TRIGGER guests_party_events;
+    ALTER TABLE arrived_guests DISABLE TRIGGER arrived_guests_party_events;
+    DELETE FROM party_events;
+    UPDATE party_event_log SET pruned_seq = COALESCE(pg_sequence_last_value('party_events_seq_seq'), 0);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Starts the event triggers and replaces the log with the current state of all parties as the first events.
+-- Enabling the triggers locks the tables, so writes wait until the new log is committed and every change is either
+-- in the copied state or in a later event. Returns the sequence number of the last removed event.
+CREATE OR REPLACE FUNCTION restart_party_events() RETURNS BIGINT AS
+$$
+DECLARE
+    pruned BIGINT;
+BEGIN
+    ALTER TABLE tables ENABLE TRIGGER tables_party_events;
+    ALTER TABLE guests ENABLE TRIGGER guests_party_events;
+    ALTER TABLE arrived_guests ENABLE TRIGGER arrived_guests_party_events;
+    DELETE FROM party_events;
+    pruned := nextval('party_events_seq_seq');
+
+    INSERT INTO party_events (party_id, type, table_id, capacity)
+    SELECT party_id, 'TABLE_ADDED', id, capacity
+    FROM tables
+    ORDER BY party_id, id;
+
+    INSERT INTO party_events (party_id, type, table_id, name, guests)
+    SELECT party_id, 'GUEST_BOOKED', table_number, name, total_guests
+    FROM guests
+    ORDER BY party_id, name;
+
+    INSERT INTO party_events (party_id, type, name, guests, occurred_at)
+    SELECT party_id, 'GUEST_ARRIVED', name, count, time_arrived
+    FROM arrived_guests
+    ORDER BY party_id, time_arrived, name;
+
+    UPDATE party_event_log SET pruned_seq = pruned;
+    RETURN pruned;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Guest names are ordered by code points (the C collation), the order of the party projection, so the lists
+-- read from DB and from the projection are the same whatever the collation of the database is.
+ALTER TABLE arrived_guests
+    DROP CONSTRAINT arrived_guests_name_fkey;
+
+ALTER TABLE guests
+    ALTER COLUMN name TYPE VARCHAR(255) COLLATE "C";
+
+ALTER TABLE arrived_guests
+    ALTER COLUMN name TYPE VARCHAR(255) COLLATE "C",
+    ADD CONSTRAINT arrived_guests_name_fkey FOREIGN KEY (party_id, name) REFERENCES guests (party_id, name);
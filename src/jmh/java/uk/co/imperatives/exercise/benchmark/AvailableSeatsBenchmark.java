@@ -0,0 +1,108 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.imperatives.exercise.service.GuestNameIndex;
+import uk.co.imperatives.exercise.service.GuestService;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.SeatLedger;
+import uk.co.imperatives.exercise.service.TableLocks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Count of available seats: GuestService reads it from the seat ledger,
+ * the repository aggregates tables and arrived guests in DB (H2 and the local PostgreSQL).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailableSeatsBenchmark {
+
+    private static final int TABLES = 100;
+
+    private static final int GUESTS = 10_000;
+
+    /**
+     * Party with arrived guests in DB.
+     */
+    @State(Scope.Benchmark)
+    public static class Party {
+
+        @Param({BenchmarkDatabase.H2, BenchmarkDatabase.POSTGRES})
+        private String database;
+
+        private BenchmarkDatabase db;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            db = open(database);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            db.close();
+        }
+    }
+
+    /**
+     * Seat ledger loaded from the party. The ledger does not call DB, so the party is kept in H2 only.
+     */
+    @State(Scope.Benchmark)
+    public static class Ledger {
+
+        private BenchmarkDatabase db;
+
+        private GuestService guestService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            db = open(BenchmarkDatabase.H2);
+            var seatLedger = new SeatLedger(db.getTableRepository(), db.getPartyRepository());
+            seatLedger.rebuild();
+            var meterRegistry = new SimpleMeterRegistry();
+            guestService = new GuestService(db.getGuestRepository(), seatLedger,
+                    new PartyEventBroadcaster(seatLedger, meterRegistry, 1000, 1),
+                    new GuestNameIndex(db.getGuestRepository(), db.getPartyRepository(), meterRegistry),
+                    new TableLocks(64, 1000, meterRegistry),
+                    db.newDisabledArrivalJournal(meterRegistry), db.newPartyProjection(meterRegistry));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            db.close();
+        }
+    }
+
+    private static BenchmarkDatabase open(String database) {
+        var db = BenchmarkDatabase.open(database);
+        db.insertTables(TABLES, GUESTS);
+        db.insertGuests(GUESTS, TABLES, 2, true);
+        return db;
+    }
+
+    @Benchmark
+    public int service(Ledger ledger) {
+        return ledger.guestService.getAvailableSeats(PartyService.DEFAULT_PARTY);
+    }
+
+    @Benchmark
+    public int repository(Party party) {
+        return party.db.getTableRepository().getAvailableSeats(PartyService.DEFAULT_PARTY);
+    }
+}
@@ -0,0 +1,244 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyEventRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.service.ArrivalJournal;
+import uk.co.imperatives.exercise.service.PartyProjection;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Database of a benchmark with the repositories on top of it.
+ * PostgreSQL is the local one (see docker-compose.yml), the schema is migrated by Flyway in a separate
+ * schema and dropped on close. Connection could be changed with -Dparty.benchmark.postgres.url/user/password.
+ * H2 is in-memory in PostgreSQL mode with the same tables but without PostgreSQL-only indexes, so it runs only
+ * portable queries: guest registration, check-in and removal statements are written for PostgreSQL.
+ * All rows belong to the default party, H2 tables are not partitioned.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    public static final String H2 = "h2";
+
+    public static final String POSTGRES = "postgres";
+
+    private static final String POSTGRES_URL = System.getProperty("party.benchmark.postgres.url",
+            "jdbc:postgresql://localhost:5432/exercisedb");
+
+    private static final String POSTGRES_USER = System.getProperty("party.benchmark.postgres.user", "exercise");
+
+    private static final String POSTGRES_PASSWORD = System.getProperty("party.benchmark.postgres.password",
+            "password");
+
+    private static final String POSTGRES_SCHEMA = "party_benchmark";
+
+    private static final String H2_SCHEMA = """
+            CREATE TABLE parties (id INT PRIMARY KEY, created_at TIMESTAMP NOT NULL DEFAULT NOW());
+            INSERT INTO parties (id) VALUES (1);
+            CREATE TABLE tables (party_id INT NOT NULL REFERENCES parties (id), id INT NOT NULL,
+                capacity INT NOT NULL DEFAULT 0, booked INT NOT NULL DEFAULT 0, arrived INT NOT NULL DEFAULT 0,
+                PRIMARY KEY (party_id, id));
+            CREATE TABLE guests (party_id INT NOT NULL, name VARCHAR(255) NOT NULL, table_number INT NOT NULL,
+                total_guests INT NOT NULL DEFAULT 1, PRIMARY KEY (party_id, name),
+                FOREIGN KEY (party_id, table_number) REFERENCES tables (party_id, id));
+            CREATE INDEX guests_table_number_name_idx ON guests (party_id, table_number, name);
+            CREATE TABLE arrived_guests (party_id INT NOT NULL, name VARCHAR(255) NOT NULL,
+                count INT NOT NULL DEFAULT 1, time_arrived TIMESTAMP NOT NULL DEFAULT NOW(),
+                PRIMARY KEY (party_id, name), FOREIGN KEY (party_id, name) REFERENCES guests (party_id, name));
+            """;
+
+    // Seat counters of the tables for the guests inserted without the registration and check-in statements
+    private static final String SQL_COUNT_SEATS = """
+            UPDATE tables SET
+                booked = COALESCE((SELECT SUM(g.total_guests) FROM guests g
+                        WHERE g.party_id = tables.party_id AND g.table_number = tables.id), 0),
+                arrived = COALESCE((SELECT SUM(a.count) FROM arrived_guests a
+                        JOIN guests g ON a.party_id = g.party_id AND a.name = g.name
+                        WHERE g.party_id = tables.party_id AND g.table_number = tables.id), 0)
+            """;
+
+    private final String type;
+
+    private final HikariDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final JpaGuestRepository guestRepository;
+
+    private final JpaTableRepository tableRepository;
+
+    private final JpaPartyRepository partyRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private BenchmarkDatabase(String type, HikariDataSource dataSource) {
+        this.type = type;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        var namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.guestRepository = new JpaGuestRepository(jdbcTemplate, namedParameterJdbcTemplate);
+        this.tableRepository = new JpaTableRepository(jdbcTemplate, namedParameterJdbcTemplate);
+        this.partyRepository = new JpaPartyRepository(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Opens the database with empty tables.
+     *
+     * @param type {@link #H2} or {@link #POSTGRES}
+     * @return database of the benchmark
+     */
+    public static BenchmarkDatabase open(String type) {
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("benchmark-pool");
+        hikariConfig.setMaximumPoolSize(2);
+        switch (type) {
+            case H2 -> {
+                hikariConfig.setJdbcUrl("jdbc:h2:mem:party_benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1");
+                hikariConfig.setUsername("sa");
+                var database = new BenchmarkDatabase(type, new HikariDataSource(hikariConfig));
+                database.jdbcTemplate.execute("DROP ALL OBJECTS");
+                database.jdbcTemplate.execute(H2_SCHEMA);
+                return database;
+            }
+            case POSTGRES -> {
+                hikariConfig.setJdbcUrl(POSTGRES_URL);
+                hikariConfig.setUsername(POSTGRES_USER);
+                hikariConfig.setPassword(POSTGRES_PASSWORD);
+                hikariConfig.setSchema(POSTGRES_SCHEMA);
+                // The same driver settings as the application data source
+                hikariConfig.addDataSourceProperty("prepareThreshold", 1);
+                hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", 256);
+                hikariConfig.addDataSourceProperty("preparedStatementCacheSizeMiB", 5);
+                var dataSource = new HikariDataSource(hikariConfig);
+                new JdbcTemplate(dataSource).execute("DROP SCHEMA IF EXISTS " + POSTGRES_SCHEMA + " CASCADE");
+                Flyway.configure()
+                        .dataSource(dataSource)
+                        .schemas(POSTGRES_SCHEMA)
+                        .locations("filesystem:db/migration")
+                        .load()
+                        .migrate();
+                var database = new BenchmarkDatabase(type, dataSource);
+                database.clear();
+                return database;
+            }
+            default -> throw new IllegalArgumentException("Unknown database " + type);
+        }
+    }
+
+    /**
+     * Removes all arrivals, guests and tables, the default party stays.
+     */
+    public void clear() {
+        if (POSTGRES.equals(type)) {
+            jdbcTemplate.execute("TRUNCATE arrived_guests, guests, tables, party_events");
+        } else {
+            jdbcTemplate.execute("DELETE FROM arrived_guests");
+            jdbcTemplate.execute("DELETE FROM guests");
+            jdbcTemplate.execute("DELETE FROM tables");
+        }
+    }
+
+    /**
+     * Inserts tables of the default party with IDs from 1 to the given count.
+     *
+     * @param count    count of tables
+     * @param capacity capacity of every table
+     */
+    public void insertTables(int count, int capacity) {
+        List<Object[]> batch = new ArrayList<>();
+        for (int id = 1; id <= count; id++) {
+            batch.add(new Object[]{PartyService.DEFAULT_PARTY, id, capacity});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tables (party_id, id, capacity) VALUES (?, ?, ?)", batch);
+    }
+
+    /**
+     * Inserts guests of the default party named by {@link #guestName(int)} round robin over the tables.
+     *
+     * @param count       count of guests
+     * @param tables      count of tables
+     * @param totalGuests people per guest
+     * @param arrived     true if the guests also arrived
+     */
+    public void insertGuests(int count, int tables, int totalGuests, boolean arrived) {
+        List<Object[]> guests = new ArrayList<>();
+        List<Object[]> arrivals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            guests.add(new Object[]{PartyService.DEFAULT_PARTY, guestName(i), tableNumber(i, tables), totalGuests});
+            arrivals.add(new Object[]{PartyService.DEFAULT_PARTY, guestName(i), totalGuests});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO guests (party_id, name, table_number, total_guests) VALUES (?, ?, ?, ?)", guests);
+        if (arrived) {
+            jdbcTemplate.batchUpdate("INSERT INTO arrived_guests (party_id, name, count) VALUES (?, ?, ?)", arrivals);
+        }
+        jdbcTemplate.update(SQL_COUNT_SEATS);
+    }
+
+    /**
+     * Creates an arrival journal which is not enabled, so check-ins are stored in DB by the check-in statement.
+     *
+     * @param meterRegistry registry for the journal metrics
+     * @return disabled arrival journal
+     */
+    public ArrivalJournal newDisabledArrivalJournal(MeterRegistry meterRegistry) {
+        return new ArrivalJournal(false, Path.of("target", "benchmark-arrivals.journal"), 50, 1000, 10_000,
+                guestRepository, tableRepository, transactionTemplate, meterRegistry);
+    }
+
+    /**
+     * Creates a disabled party projection, like the default of the application (H2 does not have the event log).
+     *
+     * @param meterRegistry registry for the projection metrics
+     * @return disabled party projection
+     */
+    public PartyProjection newPartyProjection(MeterRegistry meterRegistry) {
+        return new PartyProjection(false, Path.of("target", "benchmark-party.snapshot"),
+                new JpaPartyEventRepository(jdbcTemplate), transactionTemplate, meterRegistry);
+    }
+
+    public static String guestName(int i) {
+        return "Guest " + i;
+    }
+
+    public static int tableNumber(int i, int tables) {
+        return i % tables + 1;
+    }
+
+    public JpaGuestRepository getGuestRepository() {
+        return guestRepository;
+    }
+
+    public JpaTableRepository getTableRepository() {
+        return tableRepository;
+    }
+
+    public JpaPartyRepository getPartyRepository() {
+        return partyRepository;
+    }
+
+    public TransactionTemplate getTransactionTemplate() {
+        return transactionTemplate;
+    }
+
+    @Override
+    public void close() {
+        if (POSTGRES.equals(type)) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + POSTGRES_SCHEMA + " CASCADE");
+        }
+        dataSource.close();
+    }
+}
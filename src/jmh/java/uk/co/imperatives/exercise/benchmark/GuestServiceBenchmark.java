@@ -0,0 +1,144 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.co.imperatives.exercise.service.GuestNameIndex;
+import uk.co.imperatives.exercise.service.GuestService;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.SeatLedger;
+import uk.co.imperatives.exercise.service.TableLocks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guest registration, check-in and removal through GuestService. Every invocation calls the service
+ * {@value #OPERATIONS} times for different guests, the score is time per call.
+ * The statements are written for PostgreSQL, so the benchmark runs only against the local PostgreSQL.
+ * DB state is prepared before every invocation and is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GuestServiceBenchmark {
+
+    static final int OPERATIONS = 1000;
+
+    private static final int TABLES = 100;
+
+    private static final int TABLE_CAPACITY = 100;
+
+    @Param({BenchmarkDatabase.POSTGRES})
+    private String database;
+
+    private BenchmarkDatabase db;
+
+    private SeatLedger seatLedger;
+
+    private GuestNameIndex guestNameIndex;
+
+    private GuestService guestService;
+
+    private final String[] names = new String[OPERATIONS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchmarkDatabase.open(database);
+        seatLedger = new SeatLedger(db.getTableRepository(), db.getPartyRepository());
+        var meterRegistry = new SimpleMeterRegistry();
+        guestNameIndex = new GuestNameIndex(db.getGuestRepository(), db.getPartyRepository(), meterRegistry);
+        guestService = new GuestService(db.getGuestRepository(), seatLedger,
+                new PartyEventBroadcaster(seatLedger, meterRegistry, 1000, 1), guestNameIndex,
+                new TableLocks(64, 1000, meterRegistry), db.newDisabledArrivalJournal(meterRegistry),
+                db.newPartyProjection(meterRegistry));
+        for (int i = 0; i < OPERATIONS; i++) {
+            names[i] = BenchmarkDatabase.guestName(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.close();
+    }
+
+    /**
+     * Empty tables before registration.
+     */
+    @Setup(Level.Invocation)
+    public void prepare() {
+        db.clear();
+        db.insertTables(TABLES, TABLE_CAPACITY);
+        seatLedger.rebuild();
+        guestNameIndex.rebuild();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void addGuest(Blackhole blackhole) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            blackhole.consume(guestService.addGuest(PartyService.DEFAULT_PARTY, names[i],
+                    BenchmarkDatabase.tableNumber(i, TABLES), 1));
+        }
+    }
+
+    /**
+     * Booked guests who did not arrive yet.
+     */
+    @State(Scope.Benchmark)
+    public static class Booked {
+
+        @Setup(Level.Invocation)
+        public void prepare(GuestServiceBenchmark benchmark) {
+            benchmark.db.insertGuests(OPERATIONS, TABLES, 2, false);
+            benchmark.seatLedger.rebuild();
+            benchmark.guestNameIndex.rebuild();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void checkInGuest(Booked booked, Blackhole blackhole) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            blackhole.consume(guestService.checkInGuest(PartyService.DEFAULT_PARTY, names[i], 1));
+        }
+    }
+
+    /**
+     * Arrived guests who are going to leave.
+     */
+    @State(Scope.Benchmark)
+    public static class Arrived {
+
+        @Setup(Level.Invocation)
+        public void prepare(GuestServiceBenchmark benchmark) {
+            benchmark.db.insertGuests(OPERATIONS, TABLES, 2, true);
+            benchmark.seatLedger.rebuild();
+            benchmark.guestNameIndex.rebuild();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public void delete(Arrived arrived, Blackhole blackhole) {
+        for (int i = 0; i < OPERATIONS; i++) {
+            blackhole.consume(guestService.delete(PartyService.DEFAULT_PARTY, names[i]));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON results (for example, of two commits) and prints the change of every score.
+ * A benchmark is a regression if its score is worse than the baseline by more than the threshold:
+ * lower throughput or higher time per operation.
+ * Arguments: baseline result file, current result file, threshold in percents.
+ * Exit code is 1 if there is at least one regression.
+ */
+public final class ResultComparison {
+
+    private ResultComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: ResultComparison <baseline.json> <current.json> <threshold %>");
+            System.exit(2);
+        }
+        var baseline = read(new File(args[0]));
+        var current = read(new File(args[1]));
+        var threshold = Double.parseDouble(args[2]);
+        var regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (var entry : current.entrySet()) {
+            var result = entry.getValue();
+            var metric = result.get("primaryMetric");
+            var score = metric.get("score").asDouble();
+            var base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %s%n", entry.getKey(), "-", score, "-",
+                        metric.get("scoreUnit").asText());
+                continue;
+            }
+            var baseScore = base.get("primaryMetric").get("score").asDouble();
+            var change = (score - baseScore) / baseScore * 100;
+            // Throughput is better when higher, the other modes measure time
+            var worse = "thrpt".equals(result.get("mode").asText()) ? -change : change;
+            var regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(), baseScore, score, change,
+                    metric.get("scoreUnit").asText(), regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) worse than %.1f%%%n", regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    /**
+     * Reads results by benchmark name with parameters.
+     */
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(),
+                    param.getValue().asText()));
+            results.put(result.get("benchmark").asText() + (params.isEmpty() ? "" : " " + params), result);
+        }
+        return results;
+    }
+}
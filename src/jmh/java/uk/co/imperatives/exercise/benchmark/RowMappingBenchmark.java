@@ -0,0 +1,93 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import uk.co.imperatives.exercise.repository.RowMappers;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the guest list from in-memory H2 with the former map-per-row conversion and with the row mapper.
+ * One operation reads all rows: rows per second = ops/s * rows,
+ * bytes allocated per row = gc.alloc.rate.norm / rows (run with -prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RowMappingBenchmark {
+
+    private static final String SQL_SELECT_ALL_FROM_GUESTS = "SELECT name, table_number, total_guests FROM guests";
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private SingleConnectionDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:row_mapping", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE guests (name VARCHAR(255) PRIMARY KEY, table_number INT NOT NULL, "
+                + "total_guests INT NOT NULL)");
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{"Guest " + i, i % 100, i % 5 + 1});
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO guests VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO guests VALUES (?, ?, ?)", batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE guests");
+        dataSource.destroy();
+    }
+
+    /**
+     * Former conversion: queryForList builds a case-insensitive map per row, values are cast by column name.
+     */
+    @Benchmark
+    public List<Guest> queryForList() {
+        List<Guest> guestList = new ArrayList<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(SQL_SELECT_ALL_FROM_GUESTS)) {
+            guestList.add(new Guest((String) row.get("name"), (Integer) row.get("table_number"),
+                    (Integer) row.get("total_guests")));
+        }
+        return guestList;
+    }
+
+    /**
+     * Row mapper reads columns by index straight into the entity.
+     */
+    @Benchmark
+    public List<Guest> rowMapper() {
+        return jdbcTemplate.query(SQL_SELECT_ALL_FROM_GUESTS, RowMappers.GUEST);
+    }
+}
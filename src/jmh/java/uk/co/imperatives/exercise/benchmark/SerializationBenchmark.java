@@ -0,0 +1,84 @@
+package uk.co.imperatives.exercise.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import uk.co.imperatives.exercise.dto.GuestListResponse;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.TableListResponse;
+import uk.co.imperatives.exercise.dto.TableRequest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of the list responses with the object mapper configured like the Spring Boot one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int size;
+
+    private ObjectWriter writer;
+
+    private GuestListResponse guestList;
+
+    private GuestListResponse arrivedGuestList;
+
+    private TableListResponse tableList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json().build().writer();
+        var now = new Date();
+        List<GuestRequest> guests = new ArrayList<>();
+        List<GuestRequest> arrivedGuests = new ArrayList<>();
+        List<TableRequest> tables = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            guests.add(new GuestRequest(BenchmarkDatabase.guestName(i), i % 100 + 1, i % 5));
+            arrivedGuests.add(new GuestRequest(BenchmarkDatabase.guestName(i), i % 5 + 1, now));
+            tables.add(new TableRequest(i + 1, 10));
+        }
+        guestList = new GuestListResponse(guests, "R3Vlc3QgOTk");
+        arrivedGuestList = new GuestListResponse(arrivedGuests);
+        tableList = new TableListResponse(tables);
+    }
+
+    @Benchmark
+    public byte[] guestList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(guestList);
+    }
+
+    /**
+     * Arrived guests have arrival time formatted with a pattern.
+     */
+    @Benchmark
+    public byte[] arrivedGuestList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(arrivedGuestList);
+    }
+
+    @Benchmark
+    public byte[] tableList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(tableList);
+    }
+}
@@ -0,0 +1,76 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and counters of one endpoint during one phase.
+ * Latencies are recorded in microseconds from 1 us to 1 minute with 3 significant digits.
+ */
+public class EndpointStats {
+
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private final String endpoint;
+
+    private final Recorder recorder = new Recorder(1, MAX_LATENCY_US, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private Histogram histogram;
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Record a finished request.
+     *
+     * @param latencyNanos latency of the request
+     * @param error        true if the request failed or returned an unexpected status
+     */
+    public void record(long latencyNanos, boolean error) {
+        recorder.recordValue(Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 1), MAX_LATENCY_US));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Stop recording. Must be called when all requests of the phase are finished.
+     */
+    public void close() {
+        histogram = recorder.getIntervalHistogram();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequests() {
+        return histogram.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getErrorRate() {
+        return getRequests() == 0 ? 0 : (double) getErrors() / getRequests();
+    }
+
+    /**
+     * @param percentile percentile from 0 to 100
+     * @return latency in milliseconds
+     */
+    public double getLatencyMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double getMaxLatencyMillis() {
+        return histogram.getMaxValue() / 1000.0;
+    }
+}
@@ -0,0 +1,387 @@
+package uk.co.imperatives.exercise.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP load test of the running application. It drives the REST API through the phases of a party:
+ * <ol>
+ *     <li>tables - new tables are added;</li>
+ *     <li>registration - mass registration of guests at the new tables;</li>
+ *     <li>arrival surge - all guests arrive at once while a few clients poll empty seats and arrived guests;</li>
+ *     <li>polling - steady-state reading of empty seats, guest lists and tables for a fixed time;</li>
+ *     <li>check-in cycles - arrived guests leave and arrive again through /guests/{name} for a fixed time,
+ *     every request is a DB statement, so the latency shows the cost of getting a DB connection;</li>
+ *     <li>departures - all guests leave while a few clients poll empty seats.</li>
+ * </ol>
+ * Every phase is run by a fixed number of concurrent clients (closed model: a client sends the next request
+ * when the previous one is finished). Throughput, latency percentiles and error rate are reported per endpoint
+ * and phase, printed and written to a JSON file, so results of different commits could be compared.
+ * Names of the guests and IDs of the tables are new for every run, so the test could be repeated against
+ * the same DB. With the party option the requests go to the routes of the party, which is added if it does
+ * not exist, otherwise to the routes of the default party.
+ * <p>
+ * Options (--name=value): base-url, party, tables, table-capacity, guests, concurrency, polling-seconds,
+ * check-in-seconds, output.
+ */
+public class PartyLoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "base-url", "http://localhost:8080",
+            "party", "",
+            "tables", "100",
+            "table-capacity", "20",
+            "guests", "1000",
+            "concurrency", "64",
+            "polling-seconds", "30",
+            "check-in-seconds", "30",
+            "output", "target/loadtest-result.json");
+
+    /**
+     * Every guest comes with one friend.
+     */
+    private static final int ACCOMPANYING_GUESTS = 1;
+
+    private static final int PAGE_LIMIT = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final Map<String, String> options;
+
+    private final String baseUrl;
+
+    private final String partyPath;
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final List<Map<String, Object>> phaseResults = new ArrayList<>();
+
+    private Map<String, EndpointStats> stats;
+
+    public PartyLoadTest(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = options.get("base-url");
+        this.partyPath = options.get("party").isEmpty() ? "" : "/parties/" + options.get("party");
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Option must be --name=value: " + arg);
+            }
+            var name = arg.substring(2, arg.indexOf('='));
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + name + ", options: " + DEFAULTS.keySet());
+            }
+            options.put(name, arg.substring(arg.indexOf('=') + 1));
+        }
+        new PartyLoadTest(options).run();
+    }
+
+    private int option(String name) {
+        return Integer.parseInt(options.get(name));
+    }
+
+    public void run() throws Exception {
+        int tables = option("tables");
+        int guests = option("guests");
+        int concurrency = option("concurrency");
+        int pollers = Math.max(1, concurrency / 8);
+        if ((long) guests * (ACCOMPANYING_GUESTS + 1) > (long) tables * option("table-capacity")) {
+            throw new IllegalArgumentException("Tables do not have enough seats for all guests");
+        }
+        addParty();
+        int firstTable = getMaxTableId() + 1;
+        System.out.printf("Run %s against %s%s: %d tables from ID %d, %d guests, %d clients%n",
+                runId, baseUrl, partyPath, tables, firstTable, guests, concurrency);
+
+        var tableIndex = new AtomicInteger();
+        runPhase("tables", concurrency, 0, () -> {
+            int i = tableIndex.getAndIncrement();
+            if (i >= tables) {
+                return false;
+            }
+            send("POST /table", post("/table", Map.of("table_id", firstTable + i,
+                    "capacity", option("table-capacity"))), 201);
+            return true;
+        }, null);
+
+        // Guests are distributed round robin, so concurrent registrations compete for the same tables
+        var registered = new AtomicInteger();
+        runPhase("registration", concurrency, 0, () -> {
+            int i = registered.getAndIncrement();
+            if (i >= guests) {
+                return false;
+            }
+            send("POST /guest_list/{name}", post("/guest_list/" + guestName(i), Map.of(
+                    "table", firstTable + i % tables, "accompanying_guests", ACCOMPANYING_GUESTS)), 201);
+            return true;
+        }, null);
+
+        var arrived = new AtomicInteger();
+        runPhase("arrival surge", concurrency, pollers, () -> {
+            int i = arrived.getAndIncrement();
+            if (i >= guests) {
+                return false;
+            }
+            send("PUT /guests/{name}", put("/guests/" + guestName(i), Map.of(
+                    "accompanying_guests", ACCOMPANYING_GUESTS)), 200);
+            return true;
+        }, () -> {
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                send("GET /seats_empty", get("/seats_empty"), 200);
+            } else {
+                send("GET /guests", get("/guests?limit=" + PAGE_LIMIT), 200);
+            }
+        });
+
+        var pollingEnd = System.nanoTime() + Duration.ofSeconds(option("polling-seconds")).toNanos();
+        runPhase("polling", concurrency, 0, () -> {
+            if (System.nanoTime() > pollingEnd) {
+                return false;
+            }
+            int dice = ThreadLocalRandom.current().nextInt(10);
+            if (dice < 5) {
+                send("GET /seats_empty", get("/seats_empty"), 200);
+            } else if (dice < 7) {
+                send("GET /guest_list", get("/guest_list?limit=" + PAGE_LIMIT), 200);
+            } else if (dice < 9) {
+                send("GET /guests", get("/guests?limit=" + PAGE_LIMIT), 200);
+            } else {
+                send("GET /tables_list", get("/tables_list?limit=" + PAGE_LIMIT), 200);
+            }
+            return true;
+        }, null);
+
+        // Every guest is taken by one client at a time, so the guest is arrived again when it is returned
+        var arrivedGuests = new ConcurrentLinkedQueue<Integer>();
+        for (int i = 0; i < guests; i++) {
+            arrivedGuests.add(i);
+        }
+        var checkInEnd = System.nanoTime() + Duration.ofSeconds(option("check-in-seconds")).toNanos();
+        runPhase("check-in cycles", Math.min(concurrency, guests), 0, () -> {
+            if (System.nanoTime() > checkInEnd) {
+                return false;
+            }
+            // There are not more clients than guests, so a guest is always available
+            int i = arrivedGuests.remove();
+            send("DELETE /guests/{name}", HttpRequest.newBuilder(uri("/guests/" + guestName(i))).DELETE(), 200);
+            send("PUT /guests/{name}", put("/guests/" + guestName(i), Map.of(
+                    "accompanying_guests", ACCOMPANYING_GUESTS)), 200);
+            arrivedGuests.add(i);
+            return true;
+        }, null);
+
+        var departed = new AtomicInteger();
+        runPhase("departures", concurrency, pollers, () -> {
+            int i = departed.getAndIncrement();
+            if (i >= guests) {
+                return false;
+            }
+            send("DELETE /guests/{name}", HttpRequest.newBuilder(uri("/guests/" + guestName(i))).DELETE(), 200);
+            return true;
+        }, () -> send("GET /seats_empty", get("/seats_empty"), 200));
+
+        writeResult();
+    }
+
+    private String guestName(int i) {
+        return "lt-" + runId + "-" + i;
+    }
+
+    private void addParty() throws IOException, InterruptedException {
+        if (partyPath.isEmpty()) {
+            return;
+        }
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + partyPath)).POST(HttpRequest.BodyPublishers.noBody());
+        var response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        // 409 means the party was added by one of the previous runs
+        if (response.statusCode() != 201 && response.statusCode() != 409) {
+            throw new IllegalStateException("Party is not added: POST " + partyPath + " returned "
+                    + response.statusCode());
+        }
+    }
+
+    private int getMaxTableId() throws IOException, InterruptedException {
+        var response = client.send(get("/tables_list").build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Application is not available: GET /tables_list returned "
+                    + response.statusCode());
+        }
+        int maxId = 0;
+        for (JsonNode table : objectMapper.readTree(response.body()).path("tables_list")) {
+            maxId = Math.max(maxId, table.path("table_id").asInt());
+        }
+        return maxId;
+    }
+
+    /**
+     * Runs a phase. Workers call the task until it returns false, background workers call the background task
+     * until all workers are finished.
+     */
+    private void runPhase(String name, int workers, int backgroundWorkers, Task task, Runnable backgroundTask)
+            throws InterruptedException, ExecutionException {
+        stats = new ConcurrentHashMap<>();
+        var stop = new AtomicBoolean();
+        var start = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> background = new ArrayList<>();
+            for (int i = 0; i < backgroundWorkers; i++) {
+                background.add(executor.submit(() -> {
+                    while (!stop.get()) {
+                        backgroundTask.run();
+                    }
+                }));
+            }
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    while (task.next()) {
+                        // next request
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            stop.set(true);
+            for (Future<?> future : background) {
+                future.get();
+            }
+        }
+        var seconds = (System.nanoTime() - start) / 1e9;
+        report(name, seconds);
+    }
+
+    private void send(String endpoint, HttpRequest.Builder request, int expectedStatus) {
+        var endpointStats = stats.computeIfAbsent(endpoint, EndpointStats::new);
+        var start = System.nanoTime();
+        boolean error;
+        try {
+            var response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            error = response.statusCode() != expectedStatus;
+        } catch (IOException e) {
+            error = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        endpointStats.record(System.nanoTime() - start, error);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + partyPath + path);
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)));
+    }
+
+    private HttpRequest.Builder put(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(toJson(body)));
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private void report(String phase, double seconds) {
+        System.out.printf("%nPhase '%s': %.1f s%n", phase, seconds);
+        System.out.printf("%-26s %9s %10s %8s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Req/s", "Errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        for (EndpointStats endpoint : new TreeMap<>(stats).values()) {
+            endpoint.close();
+            System.out.printf("%-26s %9d %10.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.getEndpoint(), endpoint.getRequests(), endpoint.getRequests() / seconds,
+                    endpoint.getErrorRate() * 100, endpoint.getLatencyMillis(50), endpoint.getLatencyMillis(99),
+                    endpoint.getLatencyMillis(99.9), endpoint.getMaxLatencyMillis());
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("endpoint", endpoint.getEndpoint());
+            result.put("requests", endpoint.getRequests());
+            result.put("throughput", endpoint.getRequests() / seconds);
+            result.put("errors", endpoint.getErrors());
+            result.put("error_rate", endpoint.getErrorRate());
+            result.put("p50_ms", endpoint.getLatencyMillis(50));
+            result.put("p99_ms", endpoint.getLatencyMillis(99));
+            result.put("p999_ms", endpoint.getLatencyMillis(99.9));
+            result.put("max_ms", endpoint.getMaxLatencyMillis());
+            endpoints.add(result);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("phase", phase);
+        result.put("seconds", seconds);
+        result.put("endpoints", endpoints);
+        phaseResults.add(result);
+    }
+
+    private void writeResult() throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("run", runId);
+        result.put("started", Instant.ofEpochMilli(Long.parseLong(runId, 36)).toString());
+        result.put("options", new TreeMap<>(options));
+        result.put("phases", phaseResults);
+        var output = new File(options.get("output"));
+        if (output.getParentFile() != null) {
+            output.getParentFile().mkdirs();
+        }
+        objectMapper.writeValue(output, result);
+        System.out.printf("%nResult is saved to %s%n", output);
+    }
+
+    /**
+     * Step of a phase.
+     */
+    @FunctionalInterface
+    private interface Task {
+
+        /**
+         * Sends the next request.
+         *
+         * @return false if the phase is finished
+         */
+        boolean next();
+    }
+}
@@ -0,0 +1,165 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data source which limits the number of connections used at the same time (bulkhead).
+ * Every connection takes a permit which is returned when the connection is closed.
+ * Requests wait for a permit in FIFO order up to the maximum wait time, and are rejected at once if
+ * too many requests are already waiting, so a burst of requests (for example, on virtual threads)
+ * fails fast instead of piling up on the connection pool.
+ * Rejection is reported as SQLTransientConnectionException like a connection pool timeout.
+ */
+@Slf4j
+public class BulkheadDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore permits;
+
+    private final int maxConcurrent;
+
+    private final int maxWaiting;
+
+    private final long maxWaitMillis;
+
+    private final Timer waitTimer;
+
+    private final Counter rejectedCounter;
+
+    /**
+     * @param targetDataSource data source which provides connections
+     * @param maxConcurrent    maximum number of connections used at the same time
+     * @param maxWaiting       maximum number of requests waiting for a connection
+     * @param maxWaitMillis    maximum time to wait for a connection
+     * @param meterRegistry    registry for the bulkhead metrics
+     */
+    public BulkheadDataSource(DataSource targetDataSource, int maxConcurrent, int maxWaiting, long maxWaitMillis,
+                              MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitMillis = maxWaitMillis;
+        Gauge.builder("party.db.bulkhead.active", this, BulkheadDataSource::getActive)
+                .description("Connections used at the moment")
+                .register(meterRegistry);
+        Gauge.builder("party.db.bulkhead.waiting", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for a connection")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("party.db.bulkhead.wait")
+                .description("Time spent waiting for a connection permit")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("party.db.bulkhead.rejected")
+                .description("Requests rejected because there was no connection available in time")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return withPermit(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return withPermit(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Get a number of connections used at the moment.
+     *
+     * @return number of taken permits
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (permits.getQueueLength() >= maxWaiting) {
+            rejectedCounter.increment();
+            var errorMessage = String.format("DB bulkhead is full: %d requests are waiting for a connection",
+                    maxWaiting);
+            log.error(errorMessage);
+            throw new SQLTransientConnectionException(errorMessage);
+        }
+        var start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a DB connection", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            rejectedCounter.increment();
+            var errorMessage = String.format("DB connection is not available, request timed out after %d ms",
+                    maxWaitMillis);
+            log.error(errorMessage);
+            throw new SQLTransientConnectionException(errorMessage);
+        }
+    }
+
+    /**
+     * Wraps the connection to return the permit when the connection is closed.
+     */
+    private Connection withPermit(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    } finally {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
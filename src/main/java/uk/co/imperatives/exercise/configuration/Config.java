@@ -1,5 +1,8 @@
 package uk.co.imperatives.exercise.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,7 +11,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyEventRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
 
 import javax.sql.DataSource;
 
@@ -27,33 +33,114 @@ public class Config {
     @Value("${spring.datasource.driverclassname}")
     private String driverClassName;
 
+    @Value("${spring.datasource.hikari.pool-name:exercise-pool}")
+    private String poolName;
+
+    @Value("${spring.datasource.hikari.minimum-idle:5}")
+    private int minimumIdle;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:20}")
+    private int maximumPoolSize;
+
+    @Value("${spring.datasource.hikari.connection-timeout:3000}")
+    private long connectionTimeout;
+
+    @Value("${spring.datasource.hikari.validation-timeout:1000}")
+    private long validationTimeout;
+
+    @Value("${spring.datasource.hikari.idle-timeout:600000}")
+    private long idleTimeout;
+
+    @Value("${spring.datasource.hikari.max-lifetime:1800000}")
+    private long maxLifetime;
+
+    @Value("${spring.datasource.hikari.leak-detection-threshold:0}")
+    private long leakDetectionThreshold;
+
+    @Value("${spring.datasource.hikari.prepared-statement-cache-queries:256}")
+    private int preparedStatementCacheQueries;
+
+    @Value("${spring.datasource.hikari.prepared-statement-cache-size-mib:5}")
+    private int preparedStatementCacheSizeMiB;
+
+    @Value("${spring.datasource.hikari.prepare-threshold:1}")
+    private int prepareThreshold;
+
+    @Value("${party.db.bulkhead.max-concurrent:${spring.datasource.hikari.maximum-pool-size:20}}")
+    private int bulkheadMaxConcurrent;
+
+    @Value("${party.db.bulkhead.max-waiting:1000}")
+    private int bulkheadMaxWaiting;
+
+    @Value("${party.db.bulkhead.max-wait:3000}")
+    private long bulkheadMaxWait;
+
+    @Value("${party.db.slow-query.threshold:200}")
+    private long slowQueryThreshold;
+
+    @Value("${party.db.slow-query.explain-sample-rate:0}")
+    private double explainSampleRate;
+
     @Bean(initMethod = "migrate")
-    public Flyway flyway() {
+    public Flyway flyway(DataSource dataSource) {
         FluentConfiguration fluentConfiguration = Flyway.configure();
         fluentConfiguration.baselineOnMigrate(true);
-        fluentConfiguration.dataSource(dataSource());
+        fluentConfiguration.dataSource(dataSource);
         fluentConfiguration.locations("filesystem:db/migration");
         return fluentConfiguration.load();
     }
 
     @Bean
-    public JdbcTemplate jdbcTemplate() {
-        return new JdbcTemplate(dataSource());
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
     }
 
     @Bean
-    public NamedParameterJdbcTemplate namedParameterJdbcTemplate() {
-        return new NamedParameterJdbcTemplate(dataSource());
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
     }
 
+    /**
+     * Pooled data source. Every repository call borrows a connection from the pool instead of opening
+     * a new PostgreSQL backend. Pool metrics (active, idle, pending connections and acquire time) are
+     * published to the meter registry under the "hikaricp" prefix.
+     * The pool is wrapped by the bulkhead which limits connections used at the same time (the pool size by default)
+     * and rejects requests which could not get a connection in time. With virtual threads the number of
+     * request threads is not limited, so the bulkhead keeps them from queueing on the pool without a bound.
+     * Every prepared statement is measured by the name of its SQL constant in the repositories, statements slower
+     * than the threshold are logged (with a sample of their plans).
+     *
+     * @param meterRegistry registry for the pool, bulkhead and statement metrics
+     * @return pooled data source
+     */
     @Primary
-    @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(driverClassName);
-        dataSource.setUrl(url);
-        dataSource.setUsername(userName);
-        dataSource.setPassword(password);
-        return dataSource;
+    @Bean(destroyMethod = "close")
+    public StatementMetricsDataSource dataSource(MeterRegistry meterRegistry) {
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName(poolName);
+        hikariConfig.setDriverClassName(driverClassName);
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername(userName);
+        hikariConfig.setPassword(password);
+        hikariConfig.setMinimumIdle(minimumIdle);
+        hikariConfig.setMaximumPoolSize(maximumPoolSize);
+        hikariConfig.setConnectionTimeout(connectionTimeout);
+        hikariConfig.setValidationTimeout(validationTimeout);
+        hikariConfig.setIdleTimeout(idleTimeout);
+        hikariConfig.setMaxLifetime(maxLifetime);
+        hikariConfig.setLeakDetectionThreshold(leakDetectionThreshold);
+        hikariConfig.setRegisterMbeans(true);
+        hikariConfig.setMetricRegistry(meterRegistry);
+        // PostgreSQL driver keeps server-side prepared statements per connection, so the hot queries
+        // are parsed and planned once per pooled connection rather than on every call.
+        hikariConfig.addDataSourceProperty("prepareThreshold", prepareThreshold);
+        hikariConfig.addDataSourceProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+        hikariConfig.addDataSourceProperty("preparedStatementCacheSizeMiB", preparedStatementCacheSizeMiB);
+        var bulkheadDataSource = new BulkheadDataSource(new HikariDataSource(hikariConfig), bulkheadMaxConcurrent,
+                bulkheadMaxWaiting, bulkheadMaxWait, meterRegistry);
+        return new StatementMetricsDataSource(bulkheadDataSource,
+                StatementMetricsDataSource.getStatements(JpaGuestRepository.class, JpaTableRepository.class,
+                        JpaPartyEventRepository.class, JpaPartyRepository.class),
+                slowQueryThreshold, explainSampleRate, meterRegistry);
     }
 }
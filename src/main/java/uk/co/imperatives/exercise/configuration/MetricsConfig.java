@@ -0,0 +1,99 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+import org.springframework.web.servlet.DispatcherServlet;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
+
+/**
+ * Metrics of endpoints and repositories. Every endpoint timer ("http.server.requests") gets the "result" tag
+ * with the outcome of the request in terms of the API: created, conflict, not_found, no_capacity, etc.
+ * Metrics are available for Prometheus at /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    static final String RESULT_TAG = "result";
+
+    /**
+     * Servlet API: exceptions handled by ExerciseExceptionHandler are exposed by DispatcherServlet
+     * as a request attribute, so no_capacity is told apart from other bad requests.
+     *
+     * @return observation convention of the servlet requests
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public ServerRequestObservationConvention serverRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                var error = context.getError() != null ? context.getError()
+                        : context.getCarrier().getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+                int status = context.getResponse() != null ? context.getResponse().getStatus() : 0;
+                return super.getLowCardinalityKeyValues(context).and(RESULT_TAG, getResult(status, error));
+            }
+        };
+    }
+
+    /**
+     * Reactive API: handled exceptions are not exposed by WebFlux, so the result is taken from the response status.
+     *
+     * @return observation convention of the reactive requests
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public org.springframework.http.server.reactive.observation.ServerRequestObservationConvention
+    reactiveServerRequestObservationConvention() {
+        return new org.springframework.http.server.reactive.observation.DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(
+                    org.springframework.http.server.reactive.observation.ServerRequestObservationContext context) {
+                HttpStatusCode status = context.getResponse() != null ? context.getResponse().getStatusCode() : null;
+                return super.getLowCardinalityKeyValues(context)
+                        .and(RESULT_TAG, getResult(status != null ? status.value() : 200, context.getError()));
+            }
+        };
+    }
+
+    /**
+     * Timers of repository methods. The registry is looked up on the first call, so it is configured
+     * by Spring Boot before it is used.
+     *
+     * @param meterRegistry registry for the repository timers
+     * @return post processor which adds timers to repositories
+     */
+    @Bean
+    public static RepositoryMetrics repositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new RepositoryMetrics(meterRegistry::getObject);
+    }
+
+    /**
+     * Result of the request in terms of the API, it follows the statuses of ExerciseExceptionHandler.
+     *
+     * @param status HTTP status of the response
+     * @param error  exception thrown by the request handler or null
+     * @return result tag value
+     */
+    static String getResult(int status, Object error) {
+        if (error instanceof ExerciseNoCapacityException) {
+            return "no_capacity";
+        }
+        return switch (status) {
+            case 200 -> "ok";
+            case 201 -> "created";
+            case 400 -> "bad_request";
+            case 404 -> "not_found";
+            case 409 -> "conflict";
+            case 503 -> "unavailable";
+            default -> status >= 500 || error != null ? "error" : status >= 400 ? "client_error" : "ok";
+        };
+    }
+}
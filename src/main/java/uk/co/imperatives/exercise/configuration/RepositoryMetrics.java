@@ -0,0 +1,78 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyEventRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Adds a timer to every public method of the JDBC repositories. Every method runs one SQL statement
+ * (or one batch), so the "party.repository.calls" timer tagged by repository, method and exception shows which
+ * statement dominates latency. Streaming methods are timed until the last row is passed to the consumer.
+ */
+public class RepositoryMetrics implements BeanPostProcessor {
+
+    private static final Set<Class<?>> REPOSITORIES = Set.of(JpaGuestRepository.class, JpaTableRepository.class,
+            JpaPartyEventRepository.class, JpaPartyRepository.class);
+
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    public RepositoryMetrics(Supplier<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        var targetClass = AopUtils.getTargetClass(bean);
+        if (!REPOSITORIES.contains(targetClass)) {
+            return bean;
+        }
+        var proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TimingInterceptor(targetClass.getSimpleName()));
+        return proxyFactory.getProxy(targetClass.getClassLoader());
+    }
+
+    private class TimingInterceptor implements MethodInterceptor {
+
+        private final String repository;
+
+        private TimingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            String exception = "none";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                Timer.builder("party.repository.calls")
+                        .description("Calls of repository methods, one SQL statement per call")
+                        .tag("repository", repository)
+                        .tag("method", invocation.getMethod().getName())
+                        .tag("exception", exception)
+                        .register(meterRegistry.get())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
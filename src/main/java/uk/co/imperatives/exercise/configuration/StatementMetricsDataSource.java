@@ -0,0 +1,416 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Data source which measures every prepared SQL statement by the name of its SQL constant in the repositories
+ * ("SQL_INSERT_GUEST", "SQL_CHECK_IN_GUEST", etc.): execution time, rows returned or affected and the time
+ * it took to get the connection for the statement. Statements slower than the threshold are logged
+ * with their SQL and, for a sample of them, with the plan from EXPLAIN.
+ * Connections are wrapped here rather than in JdbcTemplate, so statements run in transactions are measured too.
+ */
+@Slf4j
+public class StatementMetricsDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    static final String OTHER_STATEMENT = "other";
+
+    private static final int MAX_CACHED_NAMES = 1000;
+
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, String> statementNames = new HashMap<>();
+
+    private final Map<String, String> prefixNames = new HashMap<>();
+
+    private final Map<String, String> cachedNames = new ConcurrentHashMap<>();
+
+    private final Map<String, StatementMeters> cachedMeters = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+
+    private final long slowThresholdNanos;
+
+    private final double explainSampleRate;
+
+    /**
+     * @param targetDataSource    data source which provides connections
+     * @param statements          names of the statements by their SQL, SQL without ';' at the end is matched
+     *                            as a prefix of the statements built at runtime
+     * @param slowThresholdMillis statements which run longer are logged
+     * @param explainSampleRate   share of the logged statements which are logged with their plan (0 to 1)
+     * @param meterRegistry       registry for the statement metrics
+     */
+    public StatementMetricsDataSource(DataSource targetDataSource, Map<String, String> statements,
+                                      long slowThresholdMillis, double explainSampleRate,
+                                      MeterRegistry meterRegistry) {
+        super(targetDataSource);
+        statements.forEach((sql, name) -> {
+            var normalizedSql = normalize(NamedParameterUtils.parseSqlStatementIntoString(sql));
+            (sql.strip().endsWith(";") ? statementNames : prefixNames).put(normalizedSql, name);
+        });
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.explainSampleRate = explainSampleRate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Collect SQL constants ("SQL_*" static string fields) of the repositories.
+     *
+     * @param repositories repository classes
+     * @return names of the constants by their SQL
+     */
+    public static Map<String, String> getStatements(Class<?>... repositories) {
+        Map<String, String> statements = new HashMap<>();
+        for (var repository : repositories) {
+            for (var field : repository.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class
+                        && field.getName().startsWith("SQL_")) {
+                    try {
+                        field.setAccessible(true);
+                        statements.put((String) field.get(null), field.getName());
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("SQL constant is not accessible: " + field, e);
+                    }
+                }
+            }
+        }
+        return statements;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        var connection = super.getConnection();
+        return withMetrics(connection, System.nanoTime() - start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        var connection = super.getConnection(username, password);
+        return withMetrics(connection, System.nanoTime() - start);
+    }
+
+    /**
+     * Get the name of the statement. Lists of parameters (IN lists) are collapsed to one parameter,
+     * so they match the SQL constant whatever the number of values. Unknown statements are named "other".
+     *
+     * @param sql SQL of the statement
+     * @return name of the statement
+     */
+    String getStatementName(String sql) {
+        var name = cachedNames.get(sql);
+        if (name != null) {
+            return name;
+        }
+        var normalizedSql = normalize(sql);
+        name = statementNames.get(normalizedSql);
+        if (name == null) {
+            int longestPrefix = -1;
+            for (var prefix : prefixNames.entrySet()) {
+                if (prefix.getKey().length() > longestPrefix && normalizedSql.startsWith(prefix.getKey())) {
+                    longestPrefix = prefix.getKey().length();
+                    name = prefix.getValue();
+                }
+            }
+        }
+        name = name != null ? name : OTHER_STATEMENT;
+        if (cachedNames.size() < MAX_CACHED_NAMES) {
+            cachedNames.put(sql, name);
+        }
+        return name;
+    }
+
+    /**
+     * Get the meters of the statement. They are registered once per statement name, so executions
+     * do not look them up in the registry.
+     */
+    private StatementMeters getMeters(String name) {
+        var meters = cachedMeters.get(name);
+        if (meters != null) {
+            return meters;
+        }
+        return cachedMeters.computeIfAbsent(name, StatementMeters::new);
+    }
+
+    private static String normalize(String sql) {
+        var normalizedSql = WHITESPACE.matcher(PARAMETER_LIST.matcher(sql).replaceAll("?")).replaceAll(" ").strip();
+        return normalizedSql.endsWith(";") ? normalizedSql.substring(0, normalizedSql.length() - 1) : normalizedSql;
+    }
+
+    /**
+     * Wraps the connection to measure its prepared statements. The acquire time is recorded
+     * for the first statement run on the connection.
+     */
+    private Connection withMetrics(Connection connection, long acquireNanos) {
+        var acquire = new AtomicLong(acquireNanos);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                    }
+                    var result = invoke(connection, method, args);
+                    if ("prepareStatement".equals(method.getName()) && result instanceof PreparedStatement statement) {
+                        var execution = new Execution((String) args[0], connection, acquire.getAndSet(-1));
+                        return execution.withMetrics(statement);
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    /**
+     * Measurement of one prepared statement. Queries are finished when their result set is closed,
+     * so the number of rows is known; the execution time is the time until the first rows are returned.
+     */
+    private class Execution {
+
+        private final String sql;
+
+        private final String name;
+
+        private final Connection connection;
+
+        private final long acquireNanos;
+
+        private final List<Parameter> parameters = new ArrayList<>();
+
+        private boolean batch;
+
+        private long executionNanos = -1;
+
+        private long rows;
+
+        private Execution(String sql, Connection connection, long acquireNanos) {
+            this.sql = sql;
+            this.name = getStatementName(sql);
+            this.connection = connection;
+            this.acquireNanos = acquireNanos;
+        }
+
+        private PreparedStatement withMetrics(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        var methodName = method.getName();
+                        switch (methodName) {
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                            case "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "execute" -> {
+                                return execute(statement, method, args);
+                            }
+                            case "addBatch" -> batch = true;
+                            case "clearParameters" -> parameters.clear();
+                            case "close" -> finish("none");
+                        }
+                        if (explainSampleRate > 0 && methodName.startsWith("set") && args != null && args.length > 1
+                                && args[0] instanceof Integer) {
+                            parameters.add(new Parameter(method, args));
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private Object execute(PreparedStatement statement, Method method, Object[] args) throws Throwable {
+            rows = 0;
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invoke(statement, method, args);
+            } catch (Throwable e) {
+                executionNanos = System.nanoTime() - start;
+                finish(e.getClass().getSimpleName());
+                throw e;
+            }
+            executionNanos = System.nanoTime() - start;
+            if (result instanceof ResultSet resultSet) {
+                return withRowCount(resultSet);
+            }
+            if (result instanceof int[] counts) {
+                rows = Arrays.stream(counts).filter(count -> count > 0).sum();
+            } else if (result instanceof long[] counts) {
+                rows = Arrays.stream(counts).filter(count -> count > 0).sum();
+            } else if (result instanceof Number count) {
+                rows = count.longValue();
+            } else if (Boolean.FALSE.equals(result)) {
+                rows = Math.max(statement.getUpdateCount(), 0);
+            }
+            finish("none");
+            return result;
+        }
+
+        private ResultSet withRowCount(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "equals" -> {
+                                return proxy == args[0];
+                            }
+                            case "hashCode" -> {
+                                return System.identityHashCode(proxy);
+                            }
+                        }
+                        var result = invoke(resultSet, method, args);
+                        if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                            rows++;
+                        } else if ("close".equals(method.getName())) {
+                            finish("none");
+                        }
+                        return result;
+                    });
+        }
+
+        /**
+         * Record the metrics once, after the statement is executed and its rows are read.
+         */
+        private void finish(String exception) {
+            if (executionNanos < 0) {
+                return;
+            }
+            var meters = getMeters(name);
+            meters.getExecution(exception).record(executionNanos, TimeUnit.NANOSECONDS);
+            meters.rows.record(rows);
+            if (acquireNanos >= 0) {
+                meters.getAcquire().record(acquireNanos, TimeUnit.NANOSECONDS);
+            }
+            if (executionNanos > slowThresholdNanos) {
+                log.warn(String.format("Slow query: statement=%s duration_ms=%.3f rows=%d acquire_ms=%.3f "
+                                + "exception=%s sql=\"%s\"", name, executionNanos / 1e6, rows,
+                        Math.max(acquireNanos, 0) / 1e6, exception, WHITESPACE.matcher(sql).replaceAll(" ").strip()));
+                if ("none".equals(exception) && !OTHER_STATEMENT.equals(name)
+                        && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+                    explain();
+                }
+            }
+            executionNanos = -1;
+        }
+
+        /**
+         * Log the plan of the named statement with the same parameters. Statements in transactions are not explained,
+         * so a failed EXPLAIN could not abort the transaction. Batches have different parameters for every row,
+         * so they are not explained either.
+         */
+        private void explain() {
+            try {
+                if (batch || !connection.getAutoCommit()) {
+                    return;
+                }
+                try (var explainStatement = connection.prepareStatement("EXPLAIN " + sql)) {
+                    for (var parameter : parameters) {
+                        parameter.method.invoke(explainStatement, parameter.args);
+                    }
+                    var plan = new StringBuilder();
+                    try (var resultSet = explainStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            plan.append('\n').append(resultSet.getString(1));
+                        }
+                    }
+                    log.warn(String.format("Plan of slow query: statement=%s%s", name, plan));
+                }
+            } catch (SQLException | ReflectiveOperationException e) {
+                log.warn(String.format("Failed to explain slow query: statement=%s error=%s", name, e));
+            }
+        }
+    }
+
+    /**
+     * Meters of one statement name. The execution timers are registered per exception and the acquire timer
+     * with the first acquire time, so statements which never failed or never got a new connection
+     * do not publish empty meters.
+     */
+    private class StatementMeters {
+
+        private final String name;
+
+        private final DistributionSummary rows;
+
+        private final Map<String, Timer> executions = new ConcurrentHashMap<>();
+
+        private volatile Timer acquire;
+
+        private StatementMeters(String name) {
+            this.name = name;
+            this.rows = DistributionSummary.builder("party.db.statement.rows")
+                    .description("Rows returned or affected by SQL statements")
+                    .tag("statement", name)
+                    .register(meterRegistry);
+        }
+
+        private Timer getExecution(String exception) {
+            var timer = executions.get(exception);
+            if (timer != null) {
+                return timer;
+            }
+            return executions.computeIfAbsent(exception, key -> Timer.builder("party.db.statements")
+                    .description("Execution of SQL statements until the first rows are returned")
+                    .tag("statement", name)
+                    .tag("exception", key)
+                    .register(meterRegistry));
+        }
+
+        private Timer getAcquire() {
+            var timer = acquire;
+            if (timer == null) {
+                // Registration is idempotent, so threads racing here get the same timer
+                timer = Timer.builder("party.db.statement.acquire")
+                        .description("Time to get a DB connection for SQL statements")
+                        .tag("statement", name)
+                        .register(meterRegistry);
+                acquire = timer;
+            }
+            return timer;
+        }
+    }
+
+    private record Parameter(Method method, Object[] args) {
+    }
+}
@@ -0,0 +1,80 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Publishes virtual thread diagnostics from JFR events as metrics when requests are handled on virtual threads.
+ * A virtual thread is pinned if it blocks inside a synchronized block or a native call, so it keeps
+ * its carrier thread. Pinned periods longer than the threshold are published as the "jvm.threads.virtual.pinned"
+ * timer and logged with the stack trace at debug level. Failures to start or unpark a virtual thread are counted
+ * by "jvm.threads.virtual.submit.failed".
+ */
+@Slf4j
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadMetrics {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final String SUBMIT_FAILED_EVENT = "jdk.VirtualThreadSubmitFailed";
+
+    private final Timer pinnedTimer;
+
+    private final Counter submitFailedCounter;
+
+    private final long pinnedThresholdMillis;
+
+    private RecordingStream recordingStream;
+
+    public VirtualThreadMetrics(MeterRegistry meterRegistry,
+                                @Value("${party.virtual-threads.pinned-threshold:20}") long pinnedThresholdMillis) {
+        this.pinnedThresholdMillis = pinnedThresholdMillis;
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Periods when a virtual thread was pinned to its carrier thread")
+                .register(meterRegistry);
+        this.submitFailedCounter = Counter.builder("jvm.threads.virtual.submit.failed")
+                .description("Failures to start or unpark a virtual thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Start listening to JFR events in the background.
+     */
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(pinnedThresholdMillis))
+                .withStackTrace();
+        recordingStream.enable(SUBMIT_FAILED_EVENT);
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.onEvent(SUBMIT_FAILED_EVENT, event -> submitFailedCounter.increment());
+        recordingStream.startAsync();
+        log.debug(String.format("Listen to virtual thread pinning longer than %d ms", pinnedThresholdMillis));
+    }
+
+    @PreDestroy
+    public void stop() {
+        recordingStream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedTimer.record(event.getDuration());
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Virtual thread was pinned for %d ms: %s", event.getDuration().toMillis(),
+                    event.getStackTrace()));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package uk.co.imperatives.exercise.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+
+@Tag(name = "Events Controller", description = "Controller to push live party events")
+public interface EventController {
+
+    @Operation(summary = "Subscribe to live party events",
+            description = "Server-Sent Events stream. The first event is the current count of available seats. " +
+                    "Then \"arrival\" and \"departure\" events are sent for every guest and \"seats\" event after " +
+                    "every change of available seats. Events of a slow client are coalesced: only the last event " +
+                    "per guest and the current count of seats are sent. The \"reset\" event means that some events " +
+                    "were dropped and the lists must be reloaded.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Stream of events",
+                    content = {@Content(
+                            mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            examples = @ExampleObject(
+                                    name = "Events are sent while the connection is open",
+                                    summary = "Events",
+                                    value = "event:seats\ndata:{\"seats_empty\":15}\n\n" +
+                                            "event:arrival\ndata:{\"name\":\"Jon Snow\",\"table\":1,\"accompanying_guests\":2}\n\n" +
+                                            "event:seats\ndata:{\"seats_empty\":12}\n\n"
+                            )
+                    )}
+            )
+    })
+    SseEmitter getEvents(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId);
+}
@@ -0,0 +1,54 @@
+package uk.co.imperatives.exercise.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+
+/**
+ * Controller to push live party events to dashboards with Server-Sent Events.
+ */
+@Slf4j
+@Profile("!reactive")
+@RestController
+public class EventControllerImpl implements EventController {
+
+    private final PartyEventBroadcaster partyEvents;
+
+    private final PartyService partyService;
+
+    private final long timeout;
+
+    public EventControllerImpl(PartyEventBroadcaster partyEvents, PartyService partyService,
+                               @Value("${party.events.timeout:1800000}") long timeout) {
+        this.partyEvents = partyEvents;
+        this.partyService = partyService;
+        this.timeout = timeout;
+    }
+
+    /**
+     * This method subscribes the client to live party events until the connection is closed or timed out
+     * (the client reconnects then).
+     *
+     * @param partyId party ID, the default party if not set
+     * @return stream of events
+     */
+    @GetMapping(value = {"/events", "/parties/{party_id}/events"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents(@PathVariable(name = "party_id", required = false) Integer partyId) {
+        log.debug("Receive a new GET request to subscribe to party events.");
+        int party = PartyRoutes.resolve(partyService, partyId);
+        var emitter = new SseEmitter(timeout);
+        var unsubscribe = partyEvents.subscribe(party, (name, data) ->
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
+    }
+}
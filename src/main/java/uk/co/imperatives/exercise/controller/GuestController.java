@@ -11,11 +11,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.co.imperatives.exercise.dto.GuestImportResponse;
 import uk.co.imperatives.exercise.dto.GuestListResponse;
 import uk.co.imperatives.exercise.dto.GuestRequest;
 import uk.co.imperatives.exercise.dto.GuestResponse;
 import uk.co.imperatives.exercise.dto.SeatsResponse;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 
 @Tag(name = "Guests Controller", description = "Controller to manage guests")
 public interface GuestController {
@@ -62,6 +67,8 @@ public interface GuestController {
             )
     })
     ResponseEntity<GuestResponse> addGuest(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
             @Parameter(description = "Name of the guest", required = true, example = "Jon Snow")
             String name,
             @RequestBody(description = "Guest information", required = true, content = @Content(
@@ -75,7 +82,63 @@ public interface GuestController {
             )
             GuestRequest guestRequest);
 
-    @Operation(summary = "Get the guest list who booked the table", description = "Provides a list with information about all guests who booked a table")
+    @Operation(summary = "Import a guest list",
+            description = "Add many guests at once. Every row is validated separately and the result of every row is returned.")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Import summary",
+            content = {@Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = GuestImportResponse.class),
+                    examples = @ExampleObject(
+                            name = "Status 200 and the result of every row will be returned",
+                            summary = "import summary",
+                            value = "{\"imported\": 1, \"rejected\": 1, \"rows\":["
+                                    + "{\"row\":1, \"name\":\"Jon Snow\", \"status\":\"OK\"}, "
+                                    + "{\"row\":2, \"name\":\"Arya Stark\", \"status\":\"NO_CAPACITY\", "
+                                    + "\"error_message\":\"There is no free space at the table with ID = 2\"}]}"
+                    )
+            )}
+    )
+    GuestImportResponse importGuestList(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @RequestBody(description = "Guest list", required = true, content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    examples = @ExampleObject(
+                            name = "Import 2 guests",
+                            summary = "2 guests",
+                            value = "[{\"name\": \"Jon Snow\", \"table\": 1, \"accompanying_guests\": 3}, "
+                                    + "{\"name\": \"Arya Stark\", \"table\": 2, \"accompanying_guests\": 1}]"
+                    ))
+            )
+            List<GuestRequest> guestRequests);
+
+    @Operation(summary = "Import a guest list from CSV",
+            description = "Add many guests at once from CSV with columns name,table,accompanying_guests. Header line is optional.")
+    @ApiResponse(
+            responseCode = "200",
+            description = "Import summary",
+            content = {@Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = GuestImportResponse.class)
+            )}
+    )
+    GuestImportResponse importGuestListCsv(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @RequestBody(description = "Guest list in CSV format", required = true, content = @Content(
+                    mediaType = "text/csv",
+                    examples = @ExampleObject(
+                            name = "Import 2 guests",
+                            summary = "2 guests",
+                            value = "name,table,accompanying_guests\nJon Snow,1,3\nArya Stark,2,1"
+                    ))
+            )
+            String csv);
+
+    @Operation(summary = "Get the guest list who booked the table", description = "Provides a list with information about all guests who booked a table. "
+            + "The list is ordered by name and could be filtered and read by pages")
     @ApiResponse(
             responseCode = "200",
             description = "A guests list",
@@ -92,7 +155,18 @@ public interface GuestController {
                     )
             )}
     )
-    GuestListResponse getGuestList();
+    ResponseEntity<StreamingResponseBody> getGuestList(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @Parameter(description = "Maximum number of guests in the response (1-1000). All guests are returned if not set. "
+                    + "If there are more guests, the response contains next_cursor", example = "100")
+            Integer limit,
+            @Parameter(description = "Value of next_cursor from the previous response")
+            String cursor,
+            @Parameter(description = "Number of the booked table", example = "1")
+            Integer table,
+            @Parameter(description = "Beginning of the guest's name", example = "Jon")
+            String namePrefix);
 
     @Operation(summary = "Check in an arrived guest", description = "Manages an arrived guest. Allows extra friends if space is available.")
     @ApiResponses(value = {
@@ -135,6 +209,8 @@ public interface GuestController {
             )
     })
     GuestResponse arrivedGuest(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
             @Parameter(description = "Name of the guest", required = true, example = "Jon Snow")
             String name,
             @RequestBody(description = "Guest information", required = true, content = @Content(
@@ -189,9 +265,14 @@ public interface GuestController {
                     )}
             )
     })
-    GuestResponse deleteGuest(@Parameter(description = "Name of the guest", required = true, example = "Jon Snow") String name);
+    GuestResponse deleteGuest(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @Parameter(description = "Name of the guest", required = true, example = "Jon Snow")
+            String name);
 
-    @Operation(summary = "Get the arrived guest list", description = "Provides a list with information about all guests who have arrived to the party")
+    @Operation(summary = "Get the arrived guest list", description = "Provides a list with information about all guests who have arrived to the party. "
+            + "The list is ordered by arrival time and name and could be filtered and read by pages")
     @ApiResponse(
             responseCode = "200",
             description = "An arrived guests list",
@@ -208,7 +289,22 @@ public interface GuestController {
                     )
             )}
     )
-    GuestListResponse getArrivedGuestsList();
+    ResponseEntity<StreamingResponseBody> getArrivedGuestsList(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @Parameter(description = "Maximum number of guests in the response (1-1000). All guests are returned if not set. "
+                    + "If there are more guests, the response contains next_cursor", example = "100")
+            Integer limit,
+            @Parameter(description = "Value of next_cursor from the previous response")
+            String cursor,
+            @Parameter(description = "Number of the booked table", example = "1")
+            Integer table,
+            @Parameter(description = "Beginning of the guest's name", example = "Jon")
+            String namePrefix,
+            @Parameter(description = "Arrival time from, inclusive (UTC)", example = "2024-01-01T05:00:00")
+            LocalDateTime arrivedFrom,
+            @Parameter(description = "Arrival time to, exclusive (UTC)", example = "2024-01-01T06:00:00")
+            LocalDateTime arrivedTo);
 
     @Operation(summary = "Get count of empty seats", description = "Returns the count of available seats")
     @ApiResponses(value = {
@@ -237,5 +333,7 @@ public interface GuestController {
                     )}
             )
     })
-    SeatsResponse getEmptySeats();
+    SeatsResponse getEmptySeats(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId);
 }
@@ -0,0 +1,105 @@
+package uk.co.imperatives.exercise.controller;
+
+import uk.co.imperatives.exercise.dto.GuestImportResponse;
+import uk.co.imperatives.exercise.dto.GuestImportRowResponse;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion of imported guest lists (JSON or CSV) to guests and of import statuses to the response.
+ */
+final class GuestImports {
+
+    private GuestImports() {
+    }
+
+    /**
+     * Converts JSON rows to guests. A null row is passed as a guest without fields, so it is rejected as invalid.
+     */
+    static List<Guest> fromRequests(List<GuestRequest> guestRequests) {
+        List<Guest> guests = new ArrayList<>();
+        for (var request : guestRequests) {
+            if (request == null) {
+                guests.add(new Guest(null));
+            } else {
+                guests.add(new Guest(request.getName(), request.getTable(),
+                        request.getAccompanyingGuests() == null ? null : request.getAccompanyingGuests() + 1));
+            }
+        }
+        return guests;
+    }
+
+    static GuestImportResponse createResponse(List<Guest> guests, List<RegistrationStatus> statuses) {
+        List<GuestImportRowResponse> rows = new ArrayList<>();
+        int imported = 0;
+        for (int i = 0; i < guests.size(); i++) {
+            var guest = guests.get(i);
+            var status = statuses.get(i);
+            String errorMessage = switch (status) {
+                case OK -> null;
+                case DUPLICATE_NAME -> String.format("Guest with name %s already exists", guest.getName());
+                case UNKNOWN_TABLE -> String.format("There is no table with ID = %d", guest.getTableNumber());
+                case NO_CAPACITY -> String.format("There is no free space at the table with ID = %d",
+                        guest.getTableNumber());
+                case INVALID -> "Name, table and accompanying guests must be set, numbers must not be negative";
+            };
+            if (status == RegistrationStatus.OK) {
+                imported++;
+            }
+            rows.add(new GuestImportRowResponse(i + 1, guest.getName(), status.name(), errorMessage));
+        }
+        return new GuestImportResponse(imported, guests.size() - imported, rows);
+    }
+
+    /**
+     * Parses CSV with columns "name,table,accompanying_guests". The header line is optional.
+     */
+    static List<Guest> parseCsv(String csv) {
+        List<Guest> guests = new ArrayList<>();
+        var lines = csv.lines().filter(line -> !line.isBlank()).toList();
+        for (int i = 0; i < lines.size(); i++) {
+            var columns = splitCsvLine(lines.get(i));
+            if (i == 0 && columns.get(0).equalsIgnoreCase("name")) {
+                continue;
+            }
+            var table = columns.size() > 1 ? parseInteger(columns.get(1)) : null;
+            var accompanyingGuests = columns.size() > 2 ? parseInteger(columns.get(2)) : null;
+            guests.add(new Guest(columns.get(0), table, accompanyingGuests == null ? null : accompanyingGuests + 1));
+        }
+        return guests;
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        List<String> columns = new ArrayList<>();
+        var column = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"' && quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                column.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                columns.add(column.toString().trim());
+                column.setLength(0);
+            } else {
+                column.append(c);
+            }
+        }
+        columns.add(column.toString().trim());
+        return columns;
+    }
+
+    private static Integer parseInteger(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
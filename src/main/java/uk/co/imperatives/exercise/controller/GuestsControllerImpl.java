@@ -1,9 +1,15 @@
 package uk.co.imperatives.exercise.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,58 +17,140 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
-import uk.co.imperatives.exercise.dto.GuestListResponse;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.co.imperatives.exercise.dto.GuestImportResponse;
 import uk.co.imperatives.exercise.dto.GuestRequest;
 import uk.co.imperatives.exercise.dto.GuestResponse;
 import uk.co.imperatives.exercise.dto.SeatsResponse;
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.service.GuestImportService;
 import uk.co.imperatives.exercise.service.GuestService;
+import uk.co.imperatives.exercise.service.PartyService;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Controller to manage guests.
  */
 @Slf4j
+@Profile("!reactive")
 @AllArgsConstructor
 @RestController
 public class GuestsControllerImpl implements GuestController {
 
+    private final static String TEXT_CSV_VALUE = "text/csv";
+
     private GuestService guestService;
 
+    private GuestImportService guestImportService;
+
+    private PartyService partyService;
+
+    private ObjectMapper objectMapper;
+
     /**
      * This method аdd a guest to the guests list.
      * If there is insufficient space at the specified table, then an error should be thrown.
      *
+     * @param partyId      party ID, the default party if not set
      * @param name         name of a new guest
      * @param guestRequest information about guest: table's number and count of accompanying guests
      * @return response with created guest's name
      */
-    @PostMapping("/guest_list/{name}")
-    public ResponseEntity<GuestResponse> addGuest(@PathVariable(name = "name") String name,
+    @PostMapping({"/guest_list/{name}", "/parties/{party_id}/guest_list/{name}"})
+    public ResponseEntity<GuestResponse> addGuest(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                                  @PathVariable(name = "name") String name,
                                                   @RequestBody @Valid GuestRequest guestRequest) {
         log.debug("Receive a new POST request to add a new guest.");
+        int party = PartyRoutes.resolve(partyService, partyId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
-                .body(new GuestResponse(guestService.addGuest(name, guestRequest.getTable(),
+                .body(new GuestResponse(guestService.addGuest(party, name, guestRequest.getTable(),
                         guestRequest.getAccompanyingGuests())));
     }
 
+    /**
+     * This method imports a guest list from JSON array. Every row is validated separately,
+     * so invalid rows do not prevent other rows from being imported.
+     *
+     * @param partyId       party ID, the default party if not set
+     * @param guestRequests guests with name, table's number and count of accompanying guests
+     * @return summary with the result of every row
+     */
+    @PostMapping(value = {"/guest_list", "/parties/{party_id}/guest_list"}, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody GuestImportResponse importGuestList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestBody List<GuestRequest> guestRequests) {
+        log.debug("Receive a new POST request to import guest list.");
+        int party = PartyRoutes.resolve(partyService, partyId);
+        var guests = GuestImports.fromRequests(guestRequests);
+        return GuestImports.createResponse(guests, guestImportService.importGuests(party, guests));
+    }
+
+    /**
+     * This method imports a guest list from CSV with columns "name,table,accompanying_guests".
+     * The header line is optional.
+     *
+     * @param partyId party ID, the default party if not set
+     * @param csv     guest list in CSV format
+     * @return summary with the result of every row
+     */
+    @PostMapping(value = {"/guest_list", "/parties/{party_id}/guest_list"}, consumes = TEXT_CSV_VALUE)
+    public @ResponseBody GuestImportResponse importGuestListCsv(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestBody String csv) {
+        log.debug("Receive a new POST request to import guest list in CSV format.");
+        int party = PartyRoutes.resolve(partyService, partyId);
+        var guests = GuestImports.parseCsv(csv);
+        return GuestImports.createResponse(guests, guestImportService.importGuests(party, guests));
+    }
+
     /**
      * This method provide a list with information about all guests who booked a table for the party.
+     * Guests are written to the response while they are read from DB, so the list is not collected in memory.
+     * The list is ordered by name. If limit is set, the response contains the cursor of the next page.
      *
+     * @param partyId    party ID, the default party if not set
+     * @param limit      maximum number of guests in the response, all guests if not set
+     * @param cursor     cursor of the page from the previous response
+     * @param table      table's number to filter guests
+     * @param namePrefix beginning of guest's name to filter guests
      * @return a guests list with information about each guest: name, booked table, accompanying guests.
      */
-    @GetMapping("/guest_list")
-    public @ResponseBody GuestListResponse getGuestList() {
+    @GetMapping({"/guest_list", "/parties/{party_id}/guest_list"})
+    public ResponseEntity<StreamingResponseBody> getGuestList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "table", required = false) Integer table,
+            @RequestParam(name = "name_prefix", required = false) String namePrefix) {
         log.debug("Receive a new GET request to provide guest list.");
-        List<GuestRequest> guestList = new ArrayList<>();
-        guestService.getGuestList().forEach(guest -> guestList.add(new GuestRequest(guest.getName(),
-                guest.getTableNumber(), guest.getTotalGuests() - 1))
-        );
-        return new GuestListResponse(guestList);
+        int party = PartyRoutes.resolve(partyService, partyId);
+        var filter = new GuestFilter();
+        filter.setTableNumber(table);
+        filter.setNamePrefix(namePrefix);
+        if (cursor != null) {
+            filter.setAfterName(PageCursor.decode(cursor, 1)[0]);
+        }
+        return streamGuestList(filter, limit,
+                (guestFilter, consumer) -> guestService.streamGuestList(party, guestFilter, consumer),
+                guest -> new GuestRequest(guest.getName(), guest.getTableNumber(), guest.getTotalGuests() - 1),
+                guest -> PageCursor.encode(guest.getName()));
     }
 
     /**
@@ -71,52 +159,143 @@ public class GuestsControllerImpl implements GuestController {
      * If the table is expected to have space for the extras, allow them to come.
      * Otherwise, this method should throw an error.
      *
+     * @param partyId      party ID, the default party if not set
      * @param name         name of arrived guest
      * @param guestRequest request with the number of accompanying guests
      * @return response with guest's name
      */
-    @PutMapping("/guests/{name}")
-    public @ResponseBody GuestResponse arrivedGuest(@PathVariable(name = "name") String name,
+    @PutMapping({"/guests/{name}", "/parties/{party_id}/guests/{name}"})
+    public @ResponseBody GuestResponse arrivedGuest(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                                    @PathVariable(name = "name") String name,
                                                     @RequestBody @Valid GuestRequest guestRequest) {
         log.debug("Receive a new PUT request to check in an arrived guest.");
-        return new GuestResponse(guestService.checkInGuest(name, guestRequest.getAccompanyingGuests()));
+        int party = PartyRoutes.resolve(partyService, partyId);
+        return new GuestResponse(guestService.checkInGuest(party, name, guestRequest.getAccompanyingGuests()));
     }
 
     /**
      * This method removes guest who leaves the party
      *
-     * @param name guest's name who leaves the party.
+     * @param partyId party ID, the default party if not set
+     * @param name    guest's name who leaves the party.
      * @return response with guest's name
      */
-    @DeleteMapping("/guests/{name}")
-    public @ResponseBody GuestResponse deleteGuest(@PathVariable(name = "name") String name) {
+    @DeleteMapping({"/guests/{name}", "/parties/{party_id}/guests/{name}"})
+    public @ResponseBody GuestResponse deleteGuest(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                                   @PathVariable(name = "name") String name) {
         log.debug("Receive a new DELETE request to remove guest who leaves the party.");
-        return new GuestResponse(guestService.delete(name));
+        int party = PartyRoutes.resolve(partyService, partyId);
+        return new GuestResponse(guestService.delete(party, name));
     }
 
     /**
      * This method provides a list of arrived guests.
+     * Guests are written to the response while they are read from DB, so the list is not collected in memory.
+     * The list is ordered by arrival time and name. If limit is set, the response contains the cursor of the next page.
      *
+     * @param partyId     party ID, the default party if not set
+     * @param limit       maximum number of guests in the response, all guests if not set
+     * @param cursor      cursor of the page from the previous response
+     * @param table       booked table's number to filter guests
+     * @param namePrefix  beginning of guest's name to filter guests
+     * @param arrivedFrom arrival time from (inclusive, UTC as time_arrived in the response)
+     * @param arrivedTo   arrival time to (exclusive, UTC as time_arrived in the response)
      * @return a list of arrived guests
      */
-    @GetMapping("/guests")
-    public @ResponseBody GuestListResponse getArrivedGuestsList() {
+    @GetMapping({"/guests", "/parties/{party_id}/guests"})
+    public ResponseEntity<StreamingResponseBody> getArrivedGuestsList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "table", required = false) Integer table,
+            @RequestParam(name = "name_prefix", required = false) String namePrefix,
+            @RequestParam(name = "arrived_from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivedFrom,
+            @RequestParam(name = "arrived_to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivedTo) {
         log.debug("Receive a new GET request for arrived guests list.");
-        List<GuestRequest> guestList = new ArrayList<>();
-        guestService.getArrivedGuestList().forEach(guest -> guestList.add(new GuestRequest(guest.getName(),
-                guest.getTotalGuests() - 1, guest.getTimeArrived()))
-        );
-        return new GuestListResponse(guestList);
+        int party = PartyRoutes.resolve(partyService, partyId);
+        var filter = new GuestFilter();
+        filter.setTableNumber(table);
+        filter.setNamePrefix(namePrefix);
+        if (arrivedFrom != null) {
+            filter.setArrivedFrom(Date.from(arrivedFrom.toInstant(ZoneOffset.UTC)));
+        }
+        if (arrivedTo != null) {
+            filter.setArrivedTo(Date.from(arrivedTo.toInstant(ZoneOffset.UTC)));
+        }
+        if (cursor != null) {
+            var values = PageCursor.decode(cursor, 2);
+            filter.setAfterTimeArrived(PageCursor.toTimestamp(values[0], cursor));
+            filter.setAfterName(values[1]);
+        }
+        return streamGuestList(filter, limit,
+                (guestFilter, consumer) -> guestService.streamArrivedGuestList(party, guestFilter, consumer),
+                guest -> new GuestRequest(guest.getName(), guest.getTotalGuests() - 1, guest.getTimeArrived()),
+                guest -> PageCursor.encode(guest.getTimeArrived().toString(), guest.getName()));
     }
 
     /**
      * This method returns a count of available seats
      *
+     * @param partyId party ID, the default party if not set
      * @return response with available seats
      */
-    @GetMapping("/seats_empty")
-    public @ResponseBody SeatsResponse getEmptySeats() {
+    @GetMapping({"/seats_empty", "/parties/{party_id}/seats_empty"})
+    public @ResponseBody SeatsResponse getEmptySeats(
+            @PathVariable(name = "party_id", required = false) Integer partyId) {
         log.debug("Receive a new GET request for empty seats.");
-        return new SeatsResponse(guestService.getAvailableSeats());
+        return new SeatsResponse(guestService.getAvailableSeats(PartyRoutes.resolve(partyService, partyId)));
+    }
+
+    /**
+     * Writes guests in the same format as GuestListResponse: {"guests": [...], "next_cursor": "..."}.
+     * One more guest than the limit is read from DB to find out whether the next page exists.
+     *
+     * @param filter     filter and keyset position of the list
+     * @param limit      maximum number of guests in the response, all guests if not set
+     * @param source     passes every guest of the list to the given consumer
+     * @param toResponse converts a guest to the response row
+     * @param toCursor   creates the cursor of the next page from the last guest of the page
+     * @return streaming response
+     */
+    private ResponseEntity<StreamingResponseBody> streamGuestList(GuestFilter filter, Integer limit,
+                                                                  BiConsumer<GuestFilter, Consumer<Guest>> source,
+                                                                  Function<Guest, GuestRequest> toResponse,
+                                                                  Function<Guest, String> toCursor) {
+        PageCursor.validateLimit(limit);
+        if (limit != null) {
+            filter.setLimit(limit + 1);
+        }
+        // Flush is left to the generator buffer instead of every row
+        var writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                var count = new AtomicInteger();
+                var last = new AtomicReference<Guest>();
+                var hasNext = new AtomicBoolean();
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("guests");
+                source.accept(filter, guest -> {
+                    if (limit != null && count.get() == limit) {
+                        hasNext.set(true);
+                        return;
+                    }
+                    count.incrementAndGet();
+                    last.set(guest);
+                    try {
+                        writer.writeValue(generator, toResponse.apply(guest));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+                if (hasNext.get()) {
+                    generator.writeStringField("next_cursor", toCursor.apply(last.get()));
+                }
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 }
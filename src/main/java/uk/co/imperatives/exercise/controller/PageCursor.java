@@ -0,0 +1,86 @@
+package uk.co.imperatives.exercise.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination. The cursor contains sort key values of the last row of a page.
+ */
+@Slf4j
+final class PageCursor {
+
+    /**
+     * Maximum number of rows on a page.
+     */
+    static final int MAX_LIMIT = 1000;
+
+    private static final char SEPARATOR = '\n';
+
+    private PageCursor() {
+    }
+
+    static String encode(String... values) {
+        var cursor = String.join(String.valueOf(SEPARATOR), values);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor, int size) {
+        try {
+            var values = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARATOR), size);
+            if (values.length == size) {
+                return values;
+            }
+        } catch (IllegalArgumentException e) {
+            // invalid Base64, handled below
+        }
+        var errorMessage = String.format("Invalid cursor %s", cursor);
+        log.error(errorMessage);
+        throw new ExerciseServiceBadRequestException(errorMessage);
+    }
+
+    /**
+     * Decodes the cursor which contains one integer value (for example, table ID).
+     *
+     * @param cursor cursor from the previous response
+     * @return decoded value
+     */
+    static int decodeInt(String cursor) {
+        try {
+            return Integer.parseInt(decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            var errorMessage = String.format("Invalid cursor %s", cursor);
+            log.error(errorMessage);
+            throw new ExerciseServiceBadRequestException(errorMessage);
+        }
+    }
+
+    static void validateLimit(Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            var errorMessage = String.format("Limit must be between 1 and %d", MAX_LIMIT);
+            log.error(errorMessage);
+            throw new ExerciseServiceBadRequestException(errorMessage);
+        }
+    }
+
+    /**
+     * Converts the arrival time value of the cursor.
+     *
+     * @param value  arrival time in Timestamp.toString() format
+     * @param cursor cursor for the error message
+     * @return arrival time with microseconds
+     */
+    static Timestamp toTimestamp(String value, String cursor) {
+        try {
+            return Timestamp.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            var errorMessage = String.format("Invalid cursor %s", cursor);
+            log.error(errorMessage);
+            throw new ExerciseServiceBadRequestException(errorMessage);
+        }
+    }
+}
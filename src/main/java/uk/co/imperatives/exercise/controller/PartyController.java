@@ -0,0 +1,81 @@
+package uk.co.imperatives.exercise.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import uk.co.imperatives.exercise.dto.PartyListResponse;
+import uk.co.imperatives.exercise.dto.PartyResponse;
+
+
+@Tag(name = "Party Controller", description = "Controller to manage parties")
+public interface PartyController {
+
+    @Operation(summary = "Add a new party",
+            description = "Add a new party with its own tables, guests and arrivals. "
+                    + "Routes of the party start with /parties/{party_id}, routes without it belong to the party 1.")
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "201",
+                    description = "Created a new party",
+                    content = {@Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PartyResponse.class),
+                            examples = @ExampleObject(
+                                    name = "Status 201 will be returned if a new party was created",
+                                    summary = "New party was created",
+                                    value = "{\"party_id\": 2}"
+                            )
+                    )}
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid request",
+                    content = {@Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            examples = @ExampleObject(
+                                    name = "Status 400 will be returned in case invalid party ID",
+                                    summary = "Invalid party ID",
+                                    value = "{\"timestamp\": \"2024-01-01 05:20:22\", \"status\": 400, " +
+                                            "\"error_message\":\"Party ID must be more than 0\"}"
+                            )
+                    )}
+            ),
+            @ApiResponse(responseCode = "409", description = "Party already exists",
+                    content = {@Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            examples = @ExampleObject(
+                                    name = "Status 409 will be returned if the requested party already exists",
+                                    summary = "Party already exists",
+                                    value = "{\"timestamp\": \"2024-01-01 05:20:22\", \"status\": 409, " +
+                                            "\"error_message\":\"Party with ID = 2 already exists\"}"
+                            )
+                    )}
+            )
+    })
+    ResponseEntity<PartyResponse> addParty(
+            @Parameter(description = "Party ID", required = true, example = "2")
+            Integer partyId);
+
+    @Operation(summary = "Get the party list", description = "Provides IDs of all parties in ascending order")
+    @ApiResponse(
+            responseCode = "200",
+            description = "A party list",
+            content = {@Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    schema = @Schema(implementation = PartyListResponse.class),
+                    examples = @ExampleObject(
+                            name = "Status 200 and a list of parties will be returned",
+                            summary = "party list",
+                            value = "{\"parties\":[{\"party_id\":1}, {\"party_id\":2}]}"
+                    )
+            )}
+    )
+    PartyListResponse getParties();
+}
@@ -0,0 +1,53 @@
+package uk.co.imperatives.exercise.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+import uk.co.imperatives.exercise.dto.PartyListResponse;
+import uk.co.imperatives.exercise.dto.PartyResponse;
+import uk.co.imperatives.exercise.service.PartyService;
+
+/**
+ * Controller to manage parties.
+ */
+@Slf4j
+@Profile("!reactive")
+@AllArgsConstructor
+@RestController
+public class PartyControllerImpl implements PartyController {
+
+    private PartyService partyService;
+
+    /**
+     * This method adds a new party with its own tables, guests and arrivals.
+     * If the party with the same ID already exists, an exception will be thrown.
+     *
+     * @param partyId party ID
+     * @return created party's ID
+     */
+    @PostMapping("/parties/{party_id}")
+    public ResponseEntity<PartyResponse> addParty(@PathVariable(name = "party_id") Integer partyId) {
+        log.debug("Receive a new POST request to add a new party (party ID = " + partyId + ")");
+        return ResponseEntity
+                .status(HttpStatus.CREATED)
+                .body(new PartyResponse(partyService.addParty(partyId)));
+    }
+
+    /**
+     * This method provides the party list ordered by party ID.
+     *
+     * @return party list
+     */
+    @GetMapping("/parties")
+    public @ResponseBody PartyListResponse getParties() {
+        log.debug("Receive a new GET request to provide a party list");
+        return new PartyListResponse(partyService.getPartyIds().stream().map(PartyResponse::new).toList());
+    }
+}
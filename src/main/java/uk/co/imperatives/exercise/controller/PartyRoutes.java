@@ -0,0 +1,26 @@
+package uk.co.imperatives.exercise.controller;
+
+import uk.co.imperatives.exercise.service.PartyService;
+
+/**
+ * Party of a request. Every route has a variant with the party ID ("/parties/{party_id}/..."),
+ * routes without the party ID belong to the default party.
+ */
+final class PartyRoutes {
+
+    private PartyRoutes() {
+    }
+
+    /**
+     * Resolve the party of the route and check that it exists.
+     *
+     * @param partyService service of parties
+     * @param partyId      party ID from the route, null if the route has no party ID
+     * @return party ID
+     */
+    static int resolve(PartyService partyService, Integer partyId) {
+        int id = partyId == null ? PartyService.DEFAULT_PARTY : partyId;
+        partyService.requireParty(id);
+        return id;
+    }
+}
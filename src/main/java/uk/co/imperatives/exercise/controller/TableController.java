@@ -63,6 +63,8 @@ public interface TableController {
             )
     })
     ResponseEntity<TableResponse> addTable(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
             @RequestBody(description = "Table information", required = true, content = @Content(
                     mediaType = MediaType.APPLICATION_JSON_VALUE,
                     schema = @Schema(implementation = GuestRequest.class),
@@ -74,7 +76,7 @@ public interface TableController {
             )
             TableRequest tableRequest);
 
-    @Operation(summary = "Get the table list", description = "Provides a list with information about all tables")
+    @Operation(summary = "Get the table list", description = "Provides a list with information about all tables ordered by ID")
     @ApiResponse(
             responseCode = "200",
             description = "A tables list",
@@ -91,7 +93,15 @@ public interface TableController {
                     )
             )}
     )
-    TableListResponse getTablesList();
+    TableListResponse getTablesList(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
+            @Parameter(description = "Maximum number of tables in the response (1-1000). All tables are returned "
+                    + "if neither limit nor cursor is set. If there are more tables, the response contains next_cursor",
+                    example = "100")
+            Integer limit,
+            @Parameter(description = "Value of next_cursor from the previous response")
+            String cursor);
 
     @Operation(summary = "Update table",
             description = "Update table capacity")
@@ -135,6 +145,8 @@ public interface TableController {
             )
     })
     TableResponse updateTable(
+            @Parameter(description = "Party ID, the default party if not set", example = "1")
+            Integer partyId,
             @Parameter(description = "Table ID", required = true, example = "1")
             Integer id,
             @RequestBody(description = "Table information", required = true, content = @Content(
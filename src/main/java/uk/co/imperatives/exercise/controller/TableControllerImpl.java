@@ -3,6 +3,7 @@ package uk.co.imperatives.exercise.controller;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,61 +11,94 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 import uk.co.imperatives.exercise.dto.TableListResponse;
 import uk.co.imperatives.exercise.dto.TableRequest;
 import uk.co.imperatives.exercise.dto.TableResponse;
+import uk.co.imperatives.exercise.service.PartyService;
 import uk.co.imperatives.exercise.service.TableService;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
+@Profile("!reactive")
 @AllArgsConstructor
 @RestController
 public class TableControllerImpl implements TableController {
 
     private TableService tableService;
 
+    private PartyService partyService;
+
     /**
      * This method аdd a new table to the table list.
      * If the table with the same ID already exists, an exception will be thrown.
      *
+     * @param partyId      party ID, the default party if not set
      * @param tableRequest information about table: table's number and count of accompanying guests
      * @return created table's ID
      */
-    @PostMapping("/table")
-    public ResponseEntity<TableResponse> addTable(@RequestBody @Valid TableRequest tableRequest) {
+    @PostMapping({"/table", "/parties/{party_id}/table"})
+    public ResponseEntity<TableResponse> addTable(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                                  @RequestBody @Valid TableRequest tableRequest) {
         log.debug("Receive a new POST request to add a new table (table ID = " + tableRequest.getTableId()
                 + ", capacity = " + tableRequest.getCapacity() + ")");
+        int party = PartyRoutes.resolve(partyService, partyId);
         return ResponseEntity
                 .status(HttpStatus.CREATED)
-                .body(new TableResponse(tableService.addTable(tableRequest.getTableId(), tableRequest.getCapacity())));
+                .body(new TableResponse(tableService.addTable(party, tableRequest.getTableId(),
+                        tableRequest.getCapacity())));
     }
 
     /**
-     * This method provides the tables list.
+     * This method provides the tables list ordered by table ID.
+     * If limit or cursor is set, the response contains one page and the cursor of the next page.
      *
+     * @param partyId party ID, the default party if not set
+     * @param limit   maximum number of tables in the response
+     * @param cursor  cursor of the page from the previous response
      * @return tables list
      */
-    @GetMapping("/tables_list")
-    public @ResponseBody TableListResponse getTablesList() {
+    @GetMapping({"/tables_list", "/parties/{party_id}/tables_list"})
+    public @ResponseBody TableListResponse getTablesList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
         log.debug("Receive a new GET request to provide a table list");
+        int party = PartyRoutes.resolve(partyService, partyId);
         List<TableRequest> tablesList = new ArrayList<>();
-        tableService.getTablesList()
+        if (limit == null && cursor == null) {
+            tableService.getTablesList(party)
+                    .forEach(table -> tablesList.add(new TableRequest(table.getId(), table.getCapacity())));
+            return new TableListResponse(tablesList);
+        }
+        PageCursor.validateLimit(limit);
+        int pageSize = limit == null ? PageCursor.MAX_LIMIT : limit;
+        int afterId = cursor == null ? Integer.MIN_VALUE : PageCursor.decodeInt(cursor);
+        // One more table shows that the next page exists
+        var tables = tableService.getTablesList(party, afterId, pageSize + 1);
+        tables.stream().limit(pageSize)
                 .forEach(table -> tablesList.add(new TableRequest(table.getId(), table.getCapacity())));
-        return new TableListResponse(tablesList);
+        String nextCursor = tables.size() > pageSize
+                ? PageCursor.encode(String.valueOf(tables.get(pageSize - 1).getId())) : null;
+        return new TableListResponse(tablesList, nextCursor);
     }
 
     /**
      * This method provides the tables list.
      *
+     * @param partyId party ID, the default party if not set
      * @return tables list
      */
-    @PutMapping("/table/{id}")
-    public @ResponseBody TableResponse updateTable(@PathVariable(name = "id") Integer id, @RequestBody @Valid TableRequest tableRequest) {
+    @PutMapping({"/table/{id}", "/parties/{party_id}/table/{id}"})
+    public @ResponseBody TableResponse updateTable(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                                   @PathVariable(name = "id") Integer id,
+                                                   @RequestBody @Valid TableRequest tableRequest) {
         log.debug("Receive a new PUT request to update table capacity");
-        return new TableResponse(tableService.updateTable(id, tableRequest.getCapacity()));
+        int party = PartyRoutes.resolve(partyService, partyId);
+        return new TableResponse(tableService.updateTable(party, id, tableRequest.getCapacity()));
     }
 }
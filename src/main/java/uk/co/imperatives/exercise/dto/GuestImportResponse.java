@@ -0,0 +1,17 @@
+package uk.co.imperatives.exercise.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class GuestImportResponse {
+
+    private Integer imported;
+
+    private Integer rejected;
+
+    private List<GuestImportRowResponse> rows;
+}
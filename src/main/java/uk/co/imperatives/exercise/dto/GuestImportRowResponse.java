@@ -0,0 +1,26 @@
+package uk.co.imperatives.exercise.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of one imported row. Rows are numbered from 1 in the order of the request.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"row", "name", "status", "error_message"})
+public class GuestImportRowResponse {
+
+    private Integer row;
+
+    private String name;
+
+    private String status;
+
+    @JsonProperty("error_message")
+    private String errorMessage;
+}
@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class PartyListResponse {
+
+    @JsonProperty("parties")
+    private List<PartyResponse> parties;
+}
@@ -0,0 +1,13 @@
+package uk.co.imperatives.exercise.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class PartyResponse {
+
+    @JsonProperty("party_id")
+    private int partyId;
+}
@@ -1,5 +1,6 @@
 package uk.co.imperatives.exercise.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -12,4 +13,12 @@ public class TableListResponse {
 
     @JsonProperty("tables_list")
     private List<TableRequest> tablesList;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("next_cursor")
+    private String nextCursor;
+
+    public TableListResponse(List<TableRequest> tablesList) {
+        this.tablesList = tablesList;
+    }
 }
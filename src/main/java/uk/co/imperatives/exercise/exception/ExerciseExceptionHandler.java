@@ -2,9 +2,12 @@ package uk.co.imperatives.exercise.exception;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -14,7 +17,8 @@ import java.util.Map;
 @ControllerAdvice
 public class ExerciseExceptionHandler {
 
-    @ExceptionHandler({MethodArgumentNotValidException.class, ExerciseServiceBadRequestException.class})
+    @ExceptionHandler({MethodArgumentNotValidException.class, WebExchangeBindException.class,
+            ExerciseServiceBadRequestException.class})
     public ResponseEntity<Object> handleValidationException(Exception ex) {
         return createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
@@ -24,6 +28,16 @@ public class ExerciseExceptionHandler {
         return createErrorResponse(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
     }
 
+    /**
+     * DB connection or table lock is not available in time: the connection pool, the DB bulkhead
+     * or the queue of the table is full.
+     */
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class,
+            ExerciseServiceUnavailableException.class})
+    public ResponseEntity<Object> handleConnectionException(Exception ex) {
+        return createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Service is overloaded, try again later");
+    }
+
     @ExceptionHandler({ExerciseAlreadyExistsException.class})
     public ResponseEntity<Object> handleAlreadyExistsException(ExerciseAlreadyExistsException ex) {
         return createErrorResponse(HttpStatus.CONFLICT, ex.getMessage());
@@ -0,0 +1,11 @@
+package uk.co.imperatives.exercise.exception;
+
+/**
+ * The table does not have available space for the guests. It is a bad request, but is counted separately in metrics.
+ */
+public class ExerciseNoCapacityException extends ExerciseServiceBadRequestException {
+
+    public ExerciseNoCapacityException(String message) {
+        super(message);
+    }
+}
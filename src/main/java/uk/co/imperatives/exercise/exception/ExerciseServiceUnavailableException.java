@@ -0,0 +1,12 @@
+package uk.co.imperatives.exercise.exception;
+
+/**
+ * The request was rejected to shed load, the client could try again later.
+ */
+public class ExerciseServiceUnavailableException extends RuntimeException {
+
+    public ExerciseServiceUnavailableException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("uk.co.imperatives.exercise.GuestCheckIn")
+@Label("Guest Check-In")
+@Description("Arrival of a guest to the party (GuestService.checkInGuest)")
+public class GuestCheckInEvent extends PartyOperationEvent {
+
+    public GuestCheckInEvent(int partyId, String guestName) {
+        super(partyId, guestName, 0);
+    }
+}
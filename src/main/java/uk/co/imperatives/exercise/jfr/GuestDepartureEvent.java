@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("uk.co.imperatives.exercise.GuestDeparture")
+@Label("Guest Departure")
+@Description("Departure of a guest from the party (GuestService.delete)")
+public class GuestDepartureEvent extends PartyOperationEvent {
+
+    public GuestDepartureEvent(int partyId, String guestName) {
+        super(partyId, guestName, 0);
+    }
+}
@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("uk.co.imperatives.exercise.GuestRegistration")
+@Label("Guest Registration")
+@Description("Registration of a guest at a table (GuestService.addGuest)")
+public class GuestRegistrationEvent extends PartyOperationEvent {
+
+    public GuestRegistrationEvent(int partyId, String guestName, int tableNumber) {
+        super(partyId, guestName, tableNumber);
+    }
+}
@@ -0,0 +1,102 @@
+package uk.co.imperatives.exercise.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Base of the Java Flight Recorder events of booking operations. An event is started when it is created
+ * and committed by the service when the operation is finished, so GC pauses and lock contention
+ * recorded by JFR at the same time could be tied to the operation.
+ * The operation marks the end of every phase: validation of the input, existence checks (in-memory indexes
+ * and DB lookups) and the write to DB. Guest names are not recorded, only their hash codes.
+ * The party ID tells which party an operation belongs to, so one busy party can be told apart from the others.
+ */
+@Category({"Party", "Bookings"})
+@StackTrace(false)
+public abstract class PartyOperationEvent extends Event {
+
+    static final String ERROR = "ERROR";
+
+    @Label("Party ID")
+    protected int partyId;
+
+    @Label("Guest Name Hash")
+    protected int guestNameHash;
+
+    @Label("Table ID")
+    protected int tableId;
+
+    @Label("Outcome")
+    protected String outcome = ERROR;
+
+    @Label("Validation Time")
+    @Timespan
+    protected long validationTime;
+
+    @Label("Existence Check Time")
+    @Timespan
+    protected long existenceCheckTime;
+
+    @Label("Write Time")
+    @Timespan
+    protected long writeTime;
+
+    private transient long phaseStart;
+
+    protected PartyOperationEvent(int partyId, String guestName, int tableId) {
+        this.partyId = partyId;
+        this.guestNameHash = guestName != null ? guestName.hashCode() : 0;
+        this.tableId = tableId;
+        begin();
+        this.phaseStart = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of the validation phase.
+     */
+    public void validated() {
+        validationTime = endPhase();
+    }
+
+    /**
+     * Mark the end of the existence checks.
+     */
+    public void checked() {
+        existenceCheckTime = endPhase();
+    }
+
+    /**
+     * Mark the end of the write to DB.
+     */
+    public void written() {
+        writeTime = endPhase();
+    }
+
+    /**
+     * Set the table ID when it is known only after the write (check-in and departure of a guest).
+     *
+     * @param tableId table ID
+     */
+    public void setTableId(Integer tableId) {
+        this.tableId = tableId != null ? tableId : 0;
+    }
+
+    /**
+     * Set the outcome of the operation. Operations which failed with an unexpected error keep "ERROR".
+     *
+     * @param outcome outcome of the operation (registration or check-in status, etc.)
+     */
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    private long endPhase() {
+        long now = System.nanoTime();
+        long elapsed = now - phaseStart;
+        phaseStart = now;
+        return elapsed;
+    }
+}
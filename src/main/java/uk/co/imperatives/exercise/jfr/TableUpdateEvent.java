@@ -0,0 +1,15 @@
+package uk.co.imperatives.exercise.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("uk.co.imperatives.exercise.TableUpdate")
+@Label("Table Update")
+@Description("Change of a table capacity (TableService.updateTable)")
+public class TableUpdateEvent extends PartyOperationEvent {
+
+    public TableUpdateEvent(int partyId, int tableId) {
+        super(partyId, null, tableId);
+    }
+}
@@ -0,0 +1,14 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of the single statement check-in: status and the guest's booked table (null if the guest did not book).
+ */
+@Getter
+@AllArgsConstructor
+public class CheckInResult {
+    private CheckInStatus status;
+    private Integer tableNumber;
+}
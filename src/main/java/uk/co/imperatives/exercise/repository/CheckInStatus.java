@@ -0,0 +1,23 @@
+package uk.co.imperatives.exercise.repository;
+
+/**
+ * Outcome of the single statement check-in of an arrived guest.
+ */
+public enum CheckInStatus {
+    /**
+     * The arrival was saved.
+     */
+    OK,
+    /**
+     * The guest did not book a table.
+     */
+    NOT_BOOKED,
+    /**
+     * The guest already arrived to the party.
+     */
+    ALREADY_ARRIVED,
+    /**
+     * The booked table does not have enough free seats.
+     */
+    NO_CAPACITY
+}
@@ -0,0 +1,61 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Filter and keyset position for guest lists. Fields which are not set are not used.
+ * Guest list is ordered by name, arrived guests list is ordered by arrival time and name.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class GuestFilter {
+
+    private Integer tableNumber;
+
+    private String namePrefix;
+
+    /**
+     * Arrival time from (inclusive), arrived guests list only.
+     */
+    private Date arrivedFrom;
+
+    /**
+     * Arrival time to (exclusive), arrived guests list only.
+     */
+    private Date arrivedTo;
+
+    /**
+     * Name of the last guest of the previous page.
+     */
+    private String afterName;
+
+    /**
+     * Arrival time of the last guest of the previous page, arrived guests list only.
+     */
+    private Date afterTimeArrived;
+
+    /**
+     * Maximum number of rows, all rows if not set.
+     */
+    private Integer limit;
+
+    /**
+     * Creates a copy of the filter.
+     *
+     * @param filter filter to copy
+     */
+    public GuestFilter(GuestFilter filter) {
+        this.tableNumber = filter.tableNumber;
+        this.namePrefix = filter.namePrefix;
+        this.arrivedFrom = filter.arrivedFrom;
+        this.arrivedTo = filter.arrivedTo;
+        this.afterName = filter.afterName;
+        this.afterTimeArrived = filter.afterTimeArrived;
+        this.limit = filter.limit;
+    }
+}
@@ -1,165 +1,432 @@
 package uk.co.imperatives.exercise.repository;
 
 import lombok.AllArgsConstructor;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import uk.co.imperatives.exercise.repository.entity.Guest;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Repository works with an information about guests in application's DB.
+ * Guests and arrivals are partitioned by party, every statement is limited to one party ID,
+ * so PostgreSQL reads and locks only the partitions of the party.
  */
 @AllArgsConstructor
 @Repository
 public class JpaGuestRepository {
 
-    private final static String SQL_INSERT_GUEST = """
-                    WITH taken_places AS
-                    	(SELECT SUM(total_guests)::int AS people, table_number 
-                    	    FROM guests 
-                    	    GROUP BY table_number)
-                    INSERT INTO guests (name, table_number, total_guests)
-                    SELECT :name, :tableId, :guests
-                    WHERE :guests <= (SELECT (capacity - COALESCE(people, 0)) 
-                                    FROM tables LEFT JOIN taken_places 
-                                    ON table_number = id 
-                                    WHERE id = :tableId);
+    final static String SQL_INSERT_GUEST = """
+            WITH
+                existing AS
+                    (SELECT 1 FROM guests WHERE party_id = :partyId AND name = :name),
+                reserved AS
+                    (UPDATE tables SET booked = booked + :guests
+                        WHERE party_id = :partyId AND id = :tableId
+                            AND booked + :guests <= capacity
+                            AND NOT EXISTS (SELECT 1 FROM existing)
+                        RETURNING id),
+                inserted AS
+                    (INSERT INTO guests (party_id, name, table_number, total_guests)
+                        SELECT :partyId, :name, :tableId, :guests
+                        WHERE EXISTS (SELECT 1 FROM reserved)
+                        RETURNING name)
+            SELECT
+                CASE
+                    WHEN EXISTS (SELECT 1 FROM existing) THEN 'DUPLICATE_NAME'
+                    WHEN NOT EXISTS (SELECT 1 FROM tables WHERE party_id = :partyId AND id = :tableId) THEN 'UNKNOWN_TABLE'
+                    WHEN EXISTS (SELECT 1 FROM inserted) THEN 'OK'
+                    ELSE 'NO_CAPACITY'
+                END AS status;
             """;
 
-    private final static String SQL_EXISTS_GUEST_NAME = "SELECT EXISTS (SELECT 1 FROM guests WHERE name=?);";
-
-    private final static String SQL_EXISTS_ARRIVAL_GUEST_NAME = "SELECT EXISTS (SELECT 1 FROM arrived_guests WHERE name=?);";
-
-    private final static String SQL_SELECT_ALL_FROM_GUESTS = "SELECT * FROM guests;";
-
-    private final static String SQL_SELECT_ALL_FROM_ARRIVED_GUESTS = "SELECT * FROM arrived_guests;";
-
-    private final static String SQL_INSERT_ARRIVAL_GUEST = """
-            WITH 
-                taken_places AS
-                    (SELECT SUM(count)::int AS people, table_number
-                    	    FROM arrived_guests a RIGHT JOIN guests g ON a.name = g.name
-                    	    GROUP BY table_number),
-                guest_table_info AS
-                    (SELECT name, table_number, capacity
-                    	    FROM guests JOIN tables ON table_number=id)
-            INSERT INTO arrived_guests (name, count)
-                SELECT :name, :guests
-                WHERE :guests <= (SELECT (capacity - COALESCE(people, 0)) 
-                                    FROM guest_table_info g LEFT JOIN taken_places t
-                                    ON g.table_number = t.table_number
-                                    WHERE name = :name);
+    final static String SQL_EXISTS_GUEST_NAME = "SELECT EXISTS (SELECT 1 FROM guests WHERE party_id=? AND name=?);";
+
+    final static String SQL_EXISTS_ARRIVAL_GUEST_NAME =
+            "SELECT EXISTS (SELECT 1 FROM arrived_guests WHERE party_id=? AND name=?);";
+
+    private final static String SQL_SELECT_ALL_FROM_GUESTS =
+            "SELECT name, table_number, total_guests FROM guests WHERE party_id=?;";
+
+    private final static String SQL_SELECT_ALL_FROM_ARRIVED_GUESTS =
+            "SELECT name, count, time_arrived FROM arrived_guests WHERE party_id=?;";
+
+    private final static String SQL_SELECT_ARRIVED_GUEST_NAMES = "SELECT name FROM arrived_guests WHERE party_id=?;";
+
+    private final static String SQL_STREAM_GUESTS =
+            "SELECT name, table_number, total_guests FROM guests WHERE party_id = ?";
+
+    private final static String SQL_STREAM_ARRIVED_GUESTS = "SELECT a.name, a.count, a.time_arrived FROM arrived_guests a";
+
+    /**
+     * Rows read by one query while streaming lists.
+     */
+    private final static int STREAM_PAGE_SIZE = 500;
+
+    final static String SQL_CHECK_IN_GUEST = """
+            WITH
+                booking AS
+                    (SELECT table_number FROM guests WHERE party_id = :partyId AND name = :name),
+                arrival AS
+                    (SELECT 1 FROM arrived_guests WHERE party_id = :partyId AND name = :name),
+                reserved AS
+                    (UPDATE tables SET arrived = arrived + :guests
+                        WHERE party_id = :partyId AND id = (SELECT table_number FROM booking)
+                            AND arrived + :guests <= capacity
+                            AND NOT EXISTS (SELECT 1 FROM arrival)
+                        RETURNING id),
+                inserted AS
+                    (INSERT INTO arrived_guests (party_id, name, count, time_arrived)
+                        SELECT :partyId, :name, :guests, COALESCE(CAST(:time AS TIMESTAMP), LOCALTIMESTAMP)
+                        WHERE EXISTS (SELECT 1 FROM reserved)
+                        RETURNING name)
+            SELECT
+                CASE
+                    WHEN NOT EXISTS (SELECT 1 FROM booking) THEN 'NOT_BOOKED'
+                    WHEN EXISTS (SELECT 1 FROM arrival) THEN 'ALREADY_ARRIVED'
+                    WHEN EXISTS (SELECT 1 FROM inserted) THEN 'OK'
+                    ELSE 'NO_CAPACITY'
+                END AS status,
+                (SELECT table_number FROM booking) AS table_number;
             """;
 
-    private final static String SQL_DELETE_GUEST = "DELETE FROM arrived_guests WHERE name = ?;";
+    final static String SQL_DELETE_GUEST = """
+            WITH
+                removed AS
+                    (DELETE FROM arrived_guests a USING guests g
+                        WHERE a.party_id = g.party_id AND a.name = g.name AND a.party_id = ? AND a.name = ?
+                        RETURNING a.name, g.table_number, a.count),
+                released AS
+                    (UPDATE tables t SET arrived = t.arrived - r.count
+                        FROM removed r
+                        WHERE t.party_id = ? AND t.id = r.table_number)
+            SELECT name, table_number, count FROM removed;
+            """;
+
+    private final static String SQL_SELECT_EXISTING_NAMES =
+            "SELECT name FROM guests WHERE party_id = :partyId AND name IN (:names);";
+
+    private final static String SQL_BATCH_INSERT_GUEST = """
+            INSERT INTO guests (party_id, name, table_number, total_guests)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (party_id, name) DO NOTHING;
+            """;
+
+    private final static String SQL_BATCH_INSERT_ARRIVAL = """
+            INSERT INTO arrived_guests (party_id, name, count, time_arrived)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (party_id, name) DO NOTHING;
+            """;
+
+    private final static int BATCH_SIZE = 1000;
 
     private JdbcTemplate jdbcTemplate;
 
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     /**
-     * Insert a new guest to DB table and return its name.
+     * Insert a new guest to DB table with one statement: checks that the name is unique, the table exists
+     * and has available space. Seats are reserved by the conditional update of the booked counter of the table,
+     * so concurrent registrations at the same table are serialized by the table row lock and cannot overbook it.
      *
-     * @param guest information about guest (name, table number, accompanying guests)
-     * @return number of inserted rows
+     * @param partyId party ID
+     * @param guest   information about guest (name, table number, accompanying guests)
+     * @return registration status
      */
-    public int saveGuest(Guest guest) {
-        return namedParameterJdbcTemplate.update(SQL_INSERT_GUEST,
-                new MapSqlParameterSource()
-                        .addValue("name", guest.getName())
-                        .addValue("tableId", guest.getTableNumber())
-                        .addValue("guests", guest.getTotalGuests())
-        );
+    public RegistrationStatus saveGuest(int partyId, Guest guest) {
+        try {
+            return namedParameterJdbcTemplate.queryForObject(SQL_INSERT_GUEST,
+                    new MapSqlParameterSource()
+                            .addValue("partyId", partyId)
+                            .addValue("name", guest.getName())
+                            .addValue("tableId", guest.getTableNumber())
+                            .addValue("guests", guest.getTotalGuests()),
+                    RowMappers.REGISTRATION_STATUS
+            );
+        } catch (DuplicateKeyException e) {
+            // The same guest was registered by a concurrent request
+            return RegistrationStatus.DUPLICATE_NAME;
+        }
     }
 
     /**
      * Check if guest exists in DB.
      *
-     * @param guest information about guest.
+     * @param partyId party ID
+     * @param guest   information about guest.
      * @return true if guest exists else false.
      */
-    public boolean exists(Guest guest) {
-        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_GUEST_NAME, Boolean.class, guest.getName()))
+    public boolean exists(int partyId, Guest guest) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_GUEST_NAME, Boolean.class, partyId,
+                        guest.getName()))
                 .orElse(false);
     }
 
-    public boolean arrived(Guest guest) {
-        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_ARRIVAL_GUEST_NAME, Boolean.class, guest.getName()))
+    public boolean arrived(int partyId, Guest guest) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_ARRIVAL_GUEST_NAME, Boolean.class, partyId,
+                        guest.getName()))
                 .orElse(false);
     }
 
+    /**
+     * This method selects names of all guests who arrived to the party.
+     *
+     * @param partyId party ID
+     * @return arrived guest names
+     */
+    public List<String> getArrivedGuestNames(int partyId) {
+        return jdbcTemplate.queryForList(SQL_SELECT_ARRIVED_GUEST_NAMES, String.class, partyId);
+    }
+
     /**
      * This method go to the DB and return guests list from DB.
      *
+     * @param partyId party ID
      * @return guests list from DB. If there is nothing in DB, this method returns an empty array list.
      */
-    public List<Guest> getGuestList() {
-        List<Guest> guestList = new ArrayList<>();
-        try {
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(SQL_SELECT_ALL_FROM_GUESTS);
-            for (Map<String, Object> row : rows) {
-                Guest guest = new Guest((String) row.get("name"), (Integer) row.get("table_number"),
-                        (Integer) row.get("total_guests"));
-                guestList.add(guest);
-            }
-            return guestList;
-        } catch (EmptyResultDataAccessException e) {
-            // return empty array list
-            return guestList;
+    public List<Guest> getGuestList(int partyId) {
+        return jdbcTemplate.query(SQL_SELECT_ALL_FROM_GUESTS, RowMappers.GUEST, partyId);
+    }
+
+    /**
+     * This method reads guests ordered by name from DB in keyset pages and passes every guest to the consumer.
+     * Every page is a separate query, so the DB connection is returned to the pool while the consumer
+     * writes the page to a slow client.
+     *
+     * @param partyId  party ID
+     * @param filter   filter and keyset position
+     * @param consumer consumer of guests
+     */
+    public void streamGuestList(int partyId, GuestFilter filter, Consumer<Guest> consumer) {
+        streamPages(filter, page -> {
+            List<Object> args = new ArrayList<>();
+            var sql = createGuestListQuery(partyId, page, args);
+            return jdbcTemplate.query(sql, RowMappers.GUEST, args.toArray());
+        }, (page, last) -> page.setAfterName(last.getName()), consumer);
+    }
+
+    static String createGuestListQuery(int partyId, GuestFilter filter, List<Object> args) {
+        var sql = new StringBuilder(SQL_STREAM_GUESTS);
+        args.add(partyId);
+        if (filter.getTableNumber() != null) {
+            sql.append(" AND table_number = ?");
+            args.add(filter.getTableNumber());
+        }
+        if (filter.getNamePrefix() != null) {
+            sql.append(" AND name LIKE ?");
+            args.add(toLikePrefix(filter.getNamePrefix()));
         }
+        if (filter.getAfterName() != null) {
+            sql.append(" AND name > ?");
+            args.add(filter.getAfterName());
+        }
+        sql.append(" ORDER BY name");
+        return appendLimit(sql, filter, args);
     }
 
     /**
-     * This method checks available space at the booked table for arrived guest and accompanying friends
-     * and update an information about arrived guest.
+     * This method checks in an arrived guest with one statement: checks that the guest booked a table,
+     * did not arrive yet and the booked table has available space for the guest and accompanying friends.
+     * The arrival is saved only if all checks pass. Seats are reserved by the conditional update of the arrived
+     * counter of the table, as in {@link #saveGuest(int, Guest)}. The arrival time of the guest is saved,
+     * the current DB time is used if it is not set.
      *
-     * @param guest an arrived guest
-     * @return update rows. 1 in case success update else 0.
+     * @param partyId party ID
+     * @param guest   an arrived guest
+     * @return check-in status and the guest's booked table
      */
-    public int updateArrivedGuest(Guest guest) {
-        return namedParameterJdbcTemplate.update(SQL_INSERT_ARRIVAL_GUEST,
-                new MapSqlParameterSource()
-                        .addValue("name", guest.getName())
-                        .addValue("guests", guest.getTotalGuests())
-        );
+    public CheckInResult checkInGuest(int partyId, Guest guest) {
+        try {
+            return namedParameterJdbcTemplate.queryForObject(SQL_CHECK_IN_GUEST,
+                    new MapSqlParameterSource()
+                            .addValue("partyId", partyId)
+                            .addValue("name", guest.getName())
+                            .addValue("guests", guest.getTotalGuests())
+                            .addValue("time", guest.getTimeArrived() == null ? null
+                                    : toTimestamp(guest.getTimeArrived())),
+                    RowMappers.CHECK_IN_RESULT
+            );
+        } catch (DuplicateKeyException e) {
+            // The same guest was checked in by a concurrent request
+            return new CheckInResult(CheckInStatus.ALREADY_ARRIVED, null);
+        }
     }
 
     /**
-     * This method removes the guest from DB.
+     * This method removes the arrival of the guest from DB and releases the arrived seats of the table.
      *
-     * @param guest guest to delete
-     * @return affected rows
+     * @param partyId party ID
+     * @param guest   guest to delete
+     * @return removed arrivals (name, table number, total arrived guests)
      */
-    public int deleteGuest(Guest guest) {
-        return jdbcTemplate.update(SQL_DELETE_GUEST, guest.getName());
+    public List<Guest> deleteGuest(int partyId, Guest guest) {
+        return jdbcTemplate.query(SQL_DELETE_GUEST, RowMappers.GUEST, partyId, guest.getName(), partyId);
     }
 
     /**
      * This method go to the DB and return arrived guests list from DB.
      *
+     * @param partyId party ID
      * @return arrived guests list from DB. If there is nothing in DB, this method returns an empty array list.
      */
-    public List<Guest> getArrivedGuestList() {
-        List<Guest> guestList = new ArrayList<>();
-        try {
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(SQL_SELECT_ALL_FROM_ARRIVED_GUESTS);
-            for (Map<String, Object> row : rows) {
-                Guest guest = new Guest((String) row.get("name"), (Integer) row.get("count"),
-                        (Date) row.get("time_arrived"));
-                guestList.add(guest);
+    public List<Guest> getArrivedGuestList(int partyId) {
+        return jdbcTemplate.query(SQL_SELECT_ALL_FROM_ARRIVED_GUESTS, RowMappers.ARRIVED_GUEST, partyId);
+    }
+
+    /**
+     * This method reads arrived guests ordered by arrival time and name from DB in keyset pages and passes every
+     * guest to the consumer, the DB connection is not held between pages as in
+     * {@link #streamGuestList(int, GuestFilter, Consumer)}.
+     *
+     * @param partyId  party ID
+     * @param filter   filter and keyset position
+     * @param consumer consumer of arrived guests
+     */
+    public void streamArrivedGuestList(int partyId, GuestFilter filter, Consumer<Guest> consumer) {
+        streamPages(filter, page -> {
+            List<Object> args = new ArrayList<>();
+            var sql = createArrivedGuestListQuery(partyId, page, args);
+            return jdbcTemplate.query(sql, RowMappers.ARRIVED_GUEST, args.toArray());
+        }, (page, last) -> {
+            page.setAfterTimeArrived(last.getTimeArrived());
+            page.setAfterName(last.getName());
+        }, consumer);
+    }
+
+    private static void streamPages(GuestFilter filter, Function<GuestFilter, List<Guest>> query,
+                                    BiConsumer<GuestFilter, Guest> moveAfter, Consumer<Guest> consumer) {
+        var page = new GuestFilter(filter);
+        Integer remaining = filter.getLimit();
+        while (remaining == null || remaining > 0) {
+            int pageSize = remaining == null ? STREAM_PAGE_SIZE : Math.min(remaining, STREAM_PAGE_SIZE);
+            page.setLimit(pageSize);
+            var guests = query.apply(page);
+            guests.forEach(consumer);
+            if (guests.size() < pageSize) {
+                return;
+            }
+            if (remaining != null) {
+                remaining -= pageSize;
             }
-            return guestList;
-        } catch (EmptyResultDataAccessException e) {
-            // return empty array list
-            return guestList;
+            moveAfter.accept(page, guests.get(guests.size() - 1));
+        }
+    }
+
+    static String createArrivedGuestListQuery(int partyId, GuestFilter filter, List<Object> args) {
+        var sql = new StringBuilder(SQL_STREAM_ARRIVED_GUESTS);
+        if (filter.getTableNumber() != null) {
+            // The party of the join is derived from the party of arrivals, so only its partitions are read
+            sql.append(" JOIN guests g ON g.party_id = a.party_id AND g.name = a.name"
+                    + " WHERE a.party_id = ? AND g.table_number = ?");
+            args.add(partyId);
+            args.add(filter.getTableNumber());
+        } else {
+            sql.append(" WHERE a.party_id = ?");
+            args.add(partyId);
+        }
+        if (filter.getNamePrefix() != null) {
+            sql.append(" AND a.name LIKE ?");
+            args.add(toLikePrefix(filter.getNamePrefix()));
+        }
+        if (filter.getArrivedFrom() != null) {
+            sql.append(" AND a.time_arrived >= ?");
+            args.add(toTimestamp(filter.getArrivedFrom()));
+        }
+        if (filter.getArrivedTo() != null) {
+            sql.append(" AND a.time_arrived < ?");
+            args.add(toTimestamp(filter.getArrivedTo()));
+        }
+        if (filter.getAfterTimeArrived() != null && filter.getAfterName() != null) {
+            sql.append(" AND (a.time_arrived, a.name) > (?, ?)");
+            args.add(toTimestamp(filter.getAfterTimeArrived()));
+            args.add(filter.getAfterName());
+        }
+        sql.append(" ORDER BY a.time_arrived, a.name");
+        return appendLimit(sql, filter, args);
+    }
+
+    private static String appendLimit(StringBuilder sql, GuestFilter filter, List<Object> args) {
+        if (filter.getLimit() != null) {
+            sql.append(" LIMIT ?");
+            args.add(filter.getLimit());
+        }
+        return sql.append(';').toString();
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        // Timestamp keeps microseconds of the keyset position
+        return date instanceof Timestamp timestamp ? timestamp : new Timestamp(date.getTime());
+    }
+
+    private static String toLikePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * This method selects names which already exist in the guest list.
+     *
+     * @param partyId party ID
+     * @param names   guest names to check
+     * @return existing guest names
+     */
+    public Set<String> findExistingNames(int partyId, Collection<String> names) {
+        Set<String> existingNames = new HashSet<>();
+        List<String> nameList = new ArrayList<>(names);
+        for (int from = 0; from < nameList.size(); from += BATCH_SIZE) {
+            var chunk = nameList.subList(from, Math.min(from + BATCH_SIZE, nameList.size()));
+            existingNames.addAll(namedParameterJdbcTemplate.queryForList(SQL_SELECT_EXISTING_NAMES,
+                    new MapSqlParameterSource("partyId", partyId).addValue("names", chunk), String.class));
         }
+        return existingNames;
+    }
+
+    /**
+     * This method inserts guests with JDBC batches. Available space at the tables must be checked before the call.
+     * Guests whose names already exist are skipped.
+     *
+     * @param partyId party ID
+     * @param guests  guests to insert
+     * @return inserted rows for every guest (1 if the guest was inserted else 0)
+     */
+    public int[] saveGuests(int partyId, List<Guest> guests) {
+        int[][] batches = jdbcTemplate.batchUpdate(SQL_BATCH_INSERT_GUEST, guests, BATCH_SIZE, (ps, guest) -> {
+            ps.setInt(1, partyId);
+            ps.setString(2, guest.getName());
+            ps.setInt(3, guest.getTableNumber());
+            ps.setInt(4, guest.getTotalGuests());
+        });
+        return Arrays.stream(batches).flatMapToInt(Arrays::stream).toArray();
+    }
+
+    /**
+     * This method inserts arrivals with JDBC batches. Available space at the tables must be checked before the call,
+     * the arrived counters of the tables are not changed. Arrivals of guests who already arrived are skipped.
+     *
+     * @param partyId  party ID
+     * @param arrivals arrived guests (name, table number, total arrived guests and arrival time)
+     * @return inserted rows for every arrival (1 if the arrival was inserted else 0)
+     */
+    public int[] saveArrivals(int partyId, List<Guest> arrivals) {
+        int[][] batches = jdbcTemplate.batchUpdate(SQL_BATCH_INSERT_ARRIVAL, arrivals, BATCH_SIZE, (ps, guest) -> {
+            ps.setInt(1, partyId);
+            ps.setString(2, guest.getName());
+            ps.setInt(3, guest.getTotalGuests());
+            ps.setTimestamp(4, new Timestamp(guest.getTimeArrived().getTime()));
+        });
+        return Arrays.stream(batches).flatMapToInt(Arrays::stream).toArray();
     }
 }
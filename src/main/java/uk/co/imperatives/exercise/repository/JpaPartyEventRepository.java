@@ -0,0 +1,157 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import uk.co.imperatives.exercise.repository.entity.PartyEvent;
+
+import java.sql.ResultSet;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Repository reads the party event log. Events are added by DB triggers in the same transaction as the changes
+ * of tables, guests and arrivals, so the repository does not write them. The log is shared by all parties,
+ * every event has the party ID. The triggers are started and stopped with the party projection, events up to
+ * the last snapshot of the projection are pruned.
+ */
+@AllArgsConstructor
+@Repository
+public class JpaPartyEventRepository {
+
+    private final static String SQL_SELECT_ISSUED_SEQUENCE =
+            "SELECT COALESCE(pg_sequence_last_value('party_events_seq_seq'), 0);";
+
+    private final static String SQL_SELECT_NEXT_TRANSACTION =
+            "SELECT pg_snapshot_xmax(pg_current_snapshot())::TEXT::BIGINT;";
+
+    private final static String SQL_SELECT_OLDEST_TRANSACTION =
+            "SELECT pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT;";
+
+    private final static String SQL_SELECT_PRUNED_SEQUENCE = "SELECT pruned_seq FROM party_event_log;";
+
+    private final static String SQL_DELETE_PARTY_EVENTS = "DELETE FROM party_events WHERE seq <= ?;";
+
+    private final static String SQL_UPDATE_PRUNED_SEQUENCE =
+            "UPDATE party_event_log SET pruned_seq = GREATEST(pruned_seq, ?);";
+
+    private final static String SQL_SELECT_EVENTS_ENABLED = "SELECT party_events_enabled();";
+
+    private final static String SQL_STOP_PARTY_EVENTS = "SELECT stop_party_events();";
+
+    private final static String SQL_RESTART_PARTY_EVENTS = "SELECT restart_party_events();";
+
+    private final static String SQL_STREAM_PARTY_EVENTS = """
+            SELECT seq, party_id, type, table_id, capacity, name, guests, occurred_at
+            FROM party_events
+            WHERE seq > ? AND seq <= ?
+            ORDER BY seq;
+            """;
+
+    /**
+     * Rows fetched from DB cursor per round trip while streaming events.
+     */
+    private final static int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Delay between checks of the writing transactions while the last committed event is waited for.
+     */
+    private final static long COMMIT_POLL_MILLIS = 10;
+
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * This method returns the sequence number of the last event whose transaction is finished. Sequence numbers
+     * are taken before commit, so a transaction could still add an event with a lower number. An event gets its
+     * number after its transaction got an ID, so every number issued so far belongs to a transaction older than
+     * the next transaction ID. The method waits until all these transactions are finished without locking the log:
+     * new transactions write events while it waits. Every event up to the returned number is visible after it.
+     * The method must be called outside a transaction.
+     *
+     * @return sequence number of the last committed event, 0 if no events were added
+     */
+    public long getLastSequence() {
+        long issued = queryForLong(SQL_SELECT_ISSUED_SEQUENCE);
+        long nextTransaction = queryForLong(SQL_SELECT_NEXT_TRANSACTION);
+        while (queryForLong(SQL_SELECT_OLDEST_TRANSACTION) < nextTransaction) {
+            try {
+                Thread.sleep(COMMIT_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for transactions of party events", e);
+            }
+        }
+        return issued;
+    }
+
+    /**
+     * This method returns the sequence number of the last pruned event. The events up to it are not in the log.
+     *
+     * @return sequence number of the last pruned event, 0 if no events were pruned
+     */
+    public long getPrunedSequence() {
+        return queryForLong(SQL_SELECT_PRUNED_SEQUENCE);
+    }
+
+    /**
+     * This method removes events up to the sequence number. The method must be called inside a transaction.
+     *
+     * @param sequence sequence number of the last event to remove (inclusive)
+     */
+    public void prune(long sequence) {
+        jdbcTemplate.update(SQL_DELETE_PARTY_EVENTS, sequence);
+        jdbcTemplate.update(SQL_UPDATE_PRUNED_SEQUENCE, sequence);
+    }
+
+    /**
+     * Check if the event triggers add events.
+     *
+     * @return true if changes are logged else false
+     */
+    public boolean isEnabled() {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_SELECT_EVENTS_ENABLED, Boolean.class))
+                .orElse(false);
+    }
+
+    /**
+     * This method stops the event triggers and removes the events, if the triggers are enabled.
+     */
+    public void stop() {
+        jdbcTemplate.execute(SQL_STOP_PARTY_EVENTS);
+    }
+
+    /**
+     * This method starts the event triggers and replaces the log with the current state of all parties.
+     * Writes of tables, guests and arrivals wait until the new log is committed.
+     *
+     * @return sequence number of the last removed event
+     */
+    public long restart() {
+        return queryForLong(SQL_RESTART_PARTY_EVENTS);
+    }
+
+    /**
+     * This method reads events in sequence order from DB cursor and passes every event to the consumer
+     * without collecting a list. PostgreSQL driver uses the cursor only inside a transaction,
+     * otherwise the whole result is fetched at once.
+     *
+     * @param after    sequence number of the last known event (exclusive)
+     * @param to       sequence number of the last event to read (inclusive)
+     * @param consumer consumer of events
+     */
+    public void streamEvents(long after, long to, Consumer<PartyEvent> consumer) {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SQL_STREAM_PARTY_EVENTS, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setLong(1, after);
+            statement.setLong(2, to);
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(RowMappers.PARTY_EVENT.mapRow(rs, 0)));
+    }
+
+    private long queryForLong(String sql) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(sql, Long.class)).orElse(0L);
+    }
+}
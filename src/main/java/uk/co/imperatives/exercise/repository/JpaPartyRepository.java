@@ -0,0 +1,55 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for parties. Every party has its own partitions of tables, guests and arrivals.
+ */
+@AllArgsConstructor
+@Repository
+public class JpaPartyRepository {
+
+    private final static String SQL_SELECT_PARTY_IDS = "SELECT id FROM parties ORDER BY id;";
+
+    private final static String SQL_EXISTS_PARTY = "SELECT EXISTS (SELECT 1 FROM parties WHERE id=?);";
+
+    private final static String SQL_ADD_PARTY = "SELECT add_party(?);";
+
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * This method selects IDs of all parties.
+     *
+     * @return party IDs in ascending order
+     */
+    public List<Integer> getPartyIds() {
+        return jdbcTemplate.queryForList(SQL_SELECT_PARTY_IDS, Integer.class);
+    }
+
+    /**
+     * Check if party exists in DB.
+     *
+     * @param id party ID
+     * @return true if party exists else false
+     */
+    public boolean exists(int id) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_PARTY, Boolean.class, id)).orElse(false);
+    }
+
+    /**
+     * This method saves a new party and creates its partitions of tables, guests and arrivals in the same
+     * transaction. Creating a partition locks the partitioned table for a moment, so requests of other parties
+     * wait for it.
+     *
+     * @param id party ID
+     * @return true if the party was added, false if it already exists
+     */
+    public boolean saveParty(int id) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_ADD_PARTY, Boolean.class, id)).orElse(false);
+    }
+}
@@ -2,98 +2,200 @@ package uk.co.imperatives.exercise.repository;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import uk.co.imperatives.exercise.exception.ExerciseServiceException;
 import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 /**
- * Repository for table entity in DB
+ * Repository for table entity in DB. Tables are partitioned by party, every statement is limited to one party ID.
  */
 @Slf4j
 @AllArgsConstructor
 @Repository
 public class JpaTableRepository {
 
-    private final static String SQL_GET_TABLE_LIST = "SELECT * FROM tables;";
+    private final static String SQL_GET_TABLE_LIST = "SELECT id, capacity FROM tables WHERE party_id=?;";
 
-    private final static String SQL_EXISTS_TABLE = "SELECT EXISTS (SELECT 1 FROM tables WHERE id=?);";
+    final static String SQL_GET_TABLE_PAGE =
+            "SELECT id, capacity FROM tables WHERE party_id=? AND id > ? ORDER BY id LIMIT ?;";
 
-    private final static String SQL_INSERT_TABLE = "INSERT INTO tables (id, capacity) VALUES (?, ?);";
+    final static String SQL_EXISTS_TABLE = "SELECT EXISTS (SELECT 1 FROM tables WHERE party_id=? AND id=?);";
 
-    private final static String SQL_UPDATE_TABLE = "UPDATE tables SET capacity=? WHERE id=?;";
+    private final static String SQL_INSERT_TABLE = "INSERT INTO tables (party_id, id, capacity) VALUES (?, ?, ?);";
 
-    private final static String SQL_SELECT_AVAILABLE_SEATS = """
+    final static String SQL_UPDATE_TABLE = "UPDATE tables SET capacity=? WHERE party_id=? AND id=?;";
+
+    final static String SQL_SELECT_AVAILABLE_SEATS = """
             WITH
-                t AS (SELECT SUM(capacity) capacity FROM tables),
-                a AS (SELECT COALESCE(SUM(count), 0) taken_seats FROM arrived_guests)
+                t AS (SELECT COALESCE(SUM(capacity), 0) capacity FROM tables WHERE party_id = ?),
+                a AS (SELECT COALESCE(SUM(count), 0) taken_seats FROM arrived_guests WHERE party_id = ?)
             SELECT t.capacity - a.taken_seats FROM a, t;
             """;
 
+    private final static String SQL_SELECT_TABLE_OCCUPANCY =
+            "SELECT id, capacity, booked, arrived FROM tables WHERE party_id = :partyId;";
+
+    private final static String SQL_SELECT_ONE_TABLE_OCCUPANCY =
+            "SELECT id, capacity, booked, arrived FROM tables WHERE party_id = :partyId AND id = :id;";
+
+    private final static String SQL_LOCK_TABLE_BOOKINGS = """
+            SELECT id, capacity, booked FROM tables
+            WHERE party_id = :partyId AND id IN (:ids)
+            ORDER BY id
+            FOR UPDATE;
+            """;
+
+    private final static String SQL_ADD_BOOKED_SEATS =
+            "UPDATE tables SET booked = booked + ? WHERE party_id = ? AND id = ?;";
+
+    private final static String SQL_ADD_ARRIVED_SEATS =
+            "UPDATE tables SET arrived = arrived + ? WHERE party_id = ? AND id = ?;";
+
     private JdbcTemplate jdbcTemplate;
 
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
     /**
-     * Makes a call to DB and select all records from tables.
+     * Makes a call to DB and select all records from tables of the party.
      *
+     * @param partyId party ID
      * @return a list of all tables from DB
      */
-    public List<Table> getTableList() {
-        List<Table> tableList = new ArrayList<>();
-        try {
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(SQL_GET_TABLE_LIST);
-            for (Map<String, Object> row : rows) {
-                tableList.add(new Table((Integer) row.get("id"), (Integer) row.get("capacity")));
-            }
-            return tableList;
-        } catch (EmptyResultDataAccessException e) {
-            // return empty array list
-            return tableList;
-        }
+    public List<Table> getTableList(int partyId) {
+        return jdbcTemplate.query(SQL_GET_TABLE_LIST, RowMappers.TABLE, partyId);
+    }
+
+    /**
+     * This method returns tables ordered by ID after the given table.
+     *
+     * @param partyId party ID
+     * @param afterId ID of the last table of the previous page
+     * @param limit   maximum number of tables
+     * @return tables list from DB. If there is nothing in DB, this method returns an empty array list.
+     */
+    public List<Table> getTablePage(int partyId, int afterId, int limit) {
+        return jdbcTemplate.query(SQL_GET_TABLE_PAGE, RowMappers.TABLE, partyId, afterId, limit);
     }
 
     /**
-     * Saves a new table to DB
+     * Saves a new table of the party to DB
      *
      * @return number of inserted rows
      */
-    public int saveTable(Table table) {
-        return jdbcTemplate.update(SQL_INSERT_TABLE, table.getId(), table.getCapacity());
+    public int saveTable(int partyId, Table table) {
+        return jdbcTemplate.update(SQL_INSERT_TABLE, partyId, table.getId(), table.getCapacity());
     }
 
     /**
      * Check if table exists in DB.
      *
-     * @param id table ID.
+     * @param partyId party ID
+     * @param id      table ID.
      * @return true if table exists else false.
      */
-    public boolean exists(int id) {
-        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_TABLE, Boolean.class, id))
+    public boolean exists(int partyId, int id) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_EXISTS_TABLE, Boolean.class, partyId, id))
                 .orElse(false);
     }
 
     /**
      * Updates table's capacity in DB by table ID.
      *
-     * @param table information about table
+     * @param partyId party ID
+     * @param table   information about table
      * @return number of updated rows
      */
-    public int updateTable(Table table) {
-        return jdbcTemplate.update(SQL_UPDATE_TABLE, table.getCapacity(), table.getId());
+    public int updateTable(int partyId, Table table) {
+        return jdbcTemplate.update(SQL_UPDATE_TABLE, table.getCapacity(), partyId, table.getId());
     }
 
     /**
-     * Get a count of available seats from DB
+     * Get a count of available seats of the party from DB
      *
+     * @param partyId party ID
      * @return count of available seats
      */
-    public int getAvailableSeats() {
-        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_SELECT_AVAILABLE_SEATS, Integer.class))
+    public int getAvailableSeats(int partyId) {
+        return Optional.ofNullable(jdbcTemplate.queryForObject(SQL_SELECT_AVAILABLE_SEATS, Integer.class,
+                        partyId, partyId))
                 .orElseThrow(() -> new ExerciseServiceException("Something goes wrong while calculating available seats"));
     }
+
+    /**
+     * Makes a call to DB and select capacity, booked and arrived people for every table of the party.
+     * Booked and arrived people are read from the counters of the tables, guests are not aggregated.
+     *
+     * @param partyId party ID
+     * @return a list of tables occupancy
+     */
+    public List<TableOccupancy> getTableOccupancy(int partyId) {
+        return namedParameterJdbcTemplate.query(SQL_SELECT_TABLE_OCCUPANCY,
+                new MapSqlParameterSource("partyId", partyId), RowMappers.TABLE_OCCUPANCY);
+    }
+
+    /**
+     * Makes a call to DB and select capacity, booked and arrived people for one table of the party.
+     *
+     * @param partyId party ID
+     * @param id      table ID
+     * @return occupancy of the table, empty if the table does not exist
+     */
+    public Optional<TableOccupancy> getTableOccupancy(int partyId, int id) {
+        return namedParameterJdbcTemplate.query(SQL_SELECT_ONE_TABLE_OCCUPANCY,
+                        new MapSqlParameterSource("partyId", partyId).addValue("id", id), RowMappers.TABLE_OCCUPANCY)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Locks the requested tables until the end of the current transaction and selects their capacity
+     * and booked places. Must be called inside a transaction.
+     *
+     * @param partyId party ID
+     * @param ids     table IDs
+     * @return capacity and booked places of the existing tables (arrived people are not selected)
+     */
+    public List<TableOccupancy> lockTableBookings(int partyId, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return namedParameterJdbcTemplate.query(SQL_LOCK_TABLE_BOOKINGS,
+                new MapSqlParameterSource("partyId", partyId).addValue("ids", ids), RowMappers.TABLE_BOOKINGS);
+    }
+
+    /**
+     * Adds booked places to the counters of the tables. Used after guests are inserted without
+     * the registration statement, the tables must be locked by {@link #lockTableBookings(int, Collection)}.
+     *
+     * @param partyId     party ID
+     * @param bookedSeats booked places by table ID
+     */
+    public void addBookedSeats(int partyId, Map<Integer, Integer> bookedSeats) {
+        List<Object[]> batch = new ArrayList<>();
+        bookedSeats.forEach((id, seats) -> batch.add(new Object[]{seats, partyId, id}));
+        jdbcTemplate.batchUpdate(SQL_ADD_BOOKED_SEATS, batch);
+    }
+
+    /**
+     * Adds arrived people to the counters of the tables. Used after arrivals are inserted without
+     * the check-in statement, available space must be checked before the call.
+     *
+     * @param partyId      party ID
+     * @param arrivedSeats arrived people by table ID
+     */
+    public void addArrivedSeats(int partyId, Map<Integer, Integer> arrivedSeats) {
+        List<Object[]> batch = new ArrayList<>();
+        arrivedSeats.forEach((id, seats) -> batch.add(new Object[]{seats, partyId, id}));
+        jdbcTemplate.batchUpdate(SQL_ADD_ARRIVED_SEATS, batch);
+    }
 }
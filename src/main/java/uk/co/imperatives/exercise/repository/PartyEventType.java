@@ -0,0 +1,36 @@
+package uk.co.imperatives.exercise.repository;
+
+/**
+ * Type of an event in the party event log. Events are added by DB triggers on every change of tables,
+ * guests and arrivals.
+ */
+public enum PartyEventType {
+    /**
+     * A table was added (table ID and capacity).
+     */
+    TABLE_ADDED,
+    /**
+     * Capacity of a table was changed (table ID and new capacity).
+     */
+    TABLE_RESIZED,
+    /**
+     * A table was removed (table ID).
+     */
+    TABLE_REMOVED,
+    /**
+     * A guest booked a table (name, table ID and total guests).
+     */
+    GUEST_BOOKED,
+    /**
+     * A booking was removed (name and table ID).
+     */
+    GUEST_CANCELLED,
+    /**
+     * A guest arrived to the party (name, total arrived guests and arrival time).
+     */
+    GUEST_ARRIVED,
+    /**
+     * A guest left the party (name and total arrived guests).
+     */
+    GUEST_LEFT
+}
@@ -0,0 +1,27 @@
+package uk.co.imperatives.exercise.repository;
+
+/**
+ * Outcome of the single statement registration of a new guest.
+ */
+public enum RegistrationStatus {
+    /**
+     * The guest was added to the guest list.
+     */
+    OK,
+    /**
+     * A guest with the same name already exists.
+     */
+    DUPLICATE_NAME,
+    /**
+     * There is no table with the requested ID.
+     */
+    UNKNOWN_TABLE,
+    /**
+     * The requested table does not have enough free seats.
+     */
+    NO_CAPACITY,
+    /**
+     * The request row is not valid (used by the bulk import).
+     */
+    INVALID
+}
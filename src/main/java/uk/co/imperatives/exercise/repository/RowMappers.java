@@ -0,0 +1,67 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.springframework.jdbc.core.RowMapper;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.PartyEvent;
+import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+/**
+ * Row mappers of the repositories. Columns are read by index straight into the entities,
+ * so the queries must select the columns in the documented order.
+ */
+public final class RowMappers {
+
+    /**
+     * Columns: name, table_number, total_guests (or count for removed arrivals).
+     */
+    public static final RowMapper<Guest> GUEST = (rs, rowNum) ->
+            new Guest(rs.getString(1), rs.getInt(2), rs.getInt(3));
+
+    /**
+     * Columns: name, count, time_arrived.
+     */
+    public static final RowMapper<Guest> ARRIVED_GUEST = (rs, rowNum) ->
+            new Guest(rs.getString(1), rs.getInt(2), rs.getTimestamp(3));
+
+    /**
+     * Columns: id, capacity.
+     */
+    public static final RowMapper<Table> TABLE = (rs, rowNum) ->
+            new Table(rs.getInt(1), rs.getInt(2));
+
+    /**
+     * Columns: id, capacity, booked, arrived.
+     */
+    public static final RowMapper<TableOccupancy> TABLE_OCCUPANCY = (rs, rowNum) ->
+            new TableOccupancy(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+
+    /**
+     * Columns: id, capacity, booked. Arrived people are not selected.
+     */
+    public static final RowMapper<TableOccupancy> TABLE_BOOKINGS = (rs, rowNum) ->
+            new TableOccupancy(rs.getInt(1), rs.getInt(2), rs.getInt(3), null);
+
+    /**
+     * Columns: status.
+     */
+    public static final RowMapper<RegistrationStatus> REGISTRATION_STATUS = (rs, rowNum) ->
+            RegistrationStatus.valueOf(rs.getString(1));
+
+    /**
+     * Columns: status, table_number (null if the guest did not book a table).
+     */
+    public static final RowMapper<CheckInResult> CHECK_IN_RESULT = (rs, rowNum) ->
+            new CheckInResult(CheckInStatus.valueOf(rs.getString(1)), rs.getObject(2, Integer.class));
+
+    /**
+     * Columns: seq, party_id, type, table_id, capacity, name, guests, occurred_at.
+     */
+    public static final RowMapper<PartyEvent> PARTY_EVENT = (rs, rowNum) ->
+            new PartyEvent(rs.getLong(1), rs.getInt(2), PartyEventType.valueOf(rs.getString(3)),
+                    rs.getObject(4, Integer.class), rs.getObject(5, Integer.class), rs.getString(6),
+                    rs.getObject(7, Integer.class), rs.getTimestamp(8));
+
+    private RowMappers() {
+    }
+}
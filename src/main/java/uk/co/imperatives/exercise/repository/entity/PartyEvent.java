@@ -0,0 +1,23 @@
+package uk.co.imperatives.exercise.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.co.imperatives.exercise.repository.PartyEventType;
+
+import java.sql.Timestamp;
+
+/**
+ * Event of the party event log. Fields which are not used by the event type are null.
+ */
+@Getter
+@AllArgsConstructor
+public class PartyEvent {
+    private long seq;
+    private int partyId;
+    private PartyEventType type;
+    private Integer tableId;
+    private Integer capacity;
+    private String name;
+    private Integer guests;
+    private Timestamp occurredAt;
+}
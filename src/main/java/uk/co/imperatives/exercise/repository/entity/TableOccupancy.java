@@ -0,0 +1,16 @@
+package uk.co.imperatives.exercise.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Table's capacity together with the number of booked and arrived people at this table.
+ */
+@Getter
+@AllArgsConstructor
+public class TableOccupancy {
+    private Integer id;
+    private Integer capacity;
+    private Integer booked;
+    private Integer arrived;
+}
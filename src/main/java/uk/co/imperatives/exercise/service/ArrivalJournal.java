@@ -0,0 +1,507 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.exception.ExerciseServiceUnavailableException;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind journal of guest arrivals. When it is enabled, check-in is decided in memory (by the guest name index
+ * and the seat ledger) and acknowledged after the arrival is appended to a local journal file and forced to disk.
+ * Arrivals of concurrent requests are written and forced by one writer thread as a group, so one fsync acknowledges
+ * many check-ins. Acknowledged arrivals are inserted into DB in batches (one transaction per batch) in the background,
+ * after every batch a checkpoint record tells which arrivals are in DB. If all journaled arrivals are in DB
+ * the file is truncated.
+ * On startup arrivals after the last checkpoint are written to DB before the seat ledger and the guest name index
+ * are loaded, a torn record at the end of the file (crash during a write) is ignored, it was never acknowledged.
+ * Arrivals of all parties share the journal, every record has the party ID and a DB batch is stored per party.
+ * The journal assumes one application instance, the file is locked while the application is running.
+ */
+@Slf4j
+@Component
+@DependsOn("flyway")
+public class ArrivalJournal {
+
+    private static final byte ARRIVAL = 'P';
+
+    /**
+     * Arrival written before parties were added, it belongs to the default party.
+     */
+    private static final byte DEFAULT_PARTY_ARRIVAL = 'A';
+
+    private static final byte CHECKPOINT = 'C';
+
+    /**
+     * Record header: length and CRC32 of the record body.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    private static final int MAX_RECORD_SIZE = 4096;
+
+    private final boolean enabled;
+
+    private final Path path;
+
+    private final long flushInterval;
+
+    private final int batchSize;
+
+    private final long writeTimeout;
+
+    private final JpaGuestRepository guestRepository;
+
+    private final JpaTableRepository tableRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<Entry> appends = new LinkedBlockingQueue<>();
+
+    /**
+     * Arrivals written to the journal and not stored in DB yet, in the order of the journal.
+     */
+    private final BlockingQueue<Entry> durable = new LinkedBlockingQueue<>();
+
+    /**
+     * Arrivals which are not in DB by party and guest name.
+     */
+    private final Map<PartyGuest, Entry> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Durable arrivals taken for the DB batch, kept for the next flush if DB failed. Guarded by the flush lock.
+     */
+    private final List<Entry> unflushed = new ArrayList<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Timer syncTimer;
+
+    private final DistributionSummary groupSize;
+
+    private final Timer flushTimer;
+
+    private FileChannel channel;
+
+    private FileLock fileLock;
+
+    private Thread writer;
+
+    private ScheduledExecutorService flusher;
+
+    private volatile boolean accepting;
+
+    private volatile boolean running;
+
+    /**
+     * Sequence of the last arrival in the journal, used by the writer thread only.
+     */
+    private long lastSequence;
+
+    /**
+     * @param enabled             whether check-ins are acknowledged by the journal (the file is replayed anyway)
+     * @param path                journal file
+     * @param flushInterval       delay between DB flushes of journaled arrivals (ms)
+     * @param batchSize           maximum arrivals per DB transaction and per journal write
+     * @param writeTimeout        maximum wait for a record to be written and forced to disk (ms)
+     * @param guestRepository     repository for arrivals
+     * @param tableRepository     repository for arrived counters of the tables
+     * @param transactionTemplate transaction of a DB batch
+     * @param meterRegistry       registry for the journal metrics
+     */
+    public ArrivalJournal(@Value("${party.arrival-journal.enabled:false}") boolean enabled,
+                          @Value("${party.arrival-journal.path:journal/arrivals.journal}") Path path,
+                          @Value("${party.arrival-journal.flush-interval:50}") long flushInterval,
+                          @Value("${party.arrival-journal.batch-size:1000}") int batchSize,
+                          @Value("${party.arrival-journal.write-timeout:10000}") long writeTimeout,
+                          JpaGuestRepository guestRepository, JpaTableRepository tableRepository,
+                          TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.path = path;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.writeTimeout = writeTimeout;
+        this.guestRepository = guestRepository;
+        this.tableRepository = tableRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.syncTimer = Timer.builder("party.arrival-journal.sync")
+                .description("Writes and forces of a group of journal records to disk")
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("party.arrival-journal.group-size")
+                .description("Journal records acknowledged by one force to disk")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("party.arrival-journal.flush")
+                .description("DB transactions of journaled arrivals")
+                .register(meterRegistry);
+        Gauge.builder("party.arrival-journal.pending", pending, Map::size)
+                .description("Journaled arrivals which are not stored in DB yet")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replay arrivals which were journaled but not stored in DB, then open the journal if it is enabled.
+     *
+     * @throws IOException if the journal could not be read or opened
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (Files.exists(path)) {
+            replay();
+        }
+        if (!enabled) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        fileLock = channel.tryLock();
+        if (fileLock == null) {
+            channel.close();
+            throw new IllegalStateException(String.format("Arrival journal %s is used by another process", path));
+        }
+        running = true;
+        accepting = true;
+        writer = new CustomizableThreadFactory("arrival-journal-writer-").newThread(this::write);
+        writer.start();
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("arrival-journal-flusher-"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        log.info(String.format("Arrival journal is enabled: %s", path));
+    }
+
+    /**
+     * Stop accepting arrivals and store journaled arrivals in DB.
+     *
+     * @throws Exception if the journal could not be closed
+     */
+    @PreDestroy
+    public void stop() throws Exception {
+        if (!accepting) {
+            return;
+        }
+        accepting = false;
+        flusher.shutdown();
+        flusher.awaitTermination(writeTimeout, TimeUnit.MILLISECONDS);
+        try {
+            flush();
+        } finally {
+            // Arrivals appended during the flush are written by the writer and replayed on the next start
+            running = false;
+            writer.join();
+            fileLock.release();
+            channel.close();
+        }
+    }
+
+    /**
+     * Whether check-ins are acknowledged by the journal.
+     *
+     * @return true if the journal is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Append the arrival to the journal and wait until it is forced to disk.
+     *
+     * @param partyId party ID
+     * @param arrival arrived guest (name, table number, total arrived guests and arrival time)
+     */
+    public void append(int partyId, Guest arrival) {
+        if (!accepting) {
+            var errorMessage = "Arrival journal is closed";
+            log.error(errorMessage);
+            throw new ExerciseServiceUnavailableException(errorMessage);
+        }
+        var entry = new Entry(ARRIVAL, partyId, arrival, new CompletableFuture<>());
+        var key = new PartyGuest(partyId, arrival.getName());
+        pending.put(key, entry);
+        appends.add(entry);
+        try {
+            entry.written.get(writeTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            pending.remove(key, entry);
+            var errorMessage = String.format("Arrival of the guest with name = %s was not written to the journal",
+                    arrival.getName());
+            log.error(errorMessage, e);
+            throw new ExerciseServiceException(errorMessage);
+        }
+    }
+
+    /**
+     * Whether the arrival of the guest is journaled but not stored in DB.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     * @return true if the arrival is not in DB yet
+     */
+    public boolean isPending(int partyId, String name) {
+        return pending.containsKey(new PartyGuest(partyId, name));
+    }
+
+    /**
+     * Store all journaled arrivals in DB, so statements which read arrivals see them.
+     */
+    public void flush() {
+        // Not synchronized: request threads are virtual and must not be pinned while DB is called
+        flushLock.lock();
+        try {
+            durable.drainTo(unflushed);
+            while (!unflushed.isEmpty()) {
+                var batch = unflushed.subList(0, Math.min(batchSize, unflushed.size()));
+                flushTimer.record(() -> store(batch));
+                // The checkpoint is forced before the guests may leave, so their arrivals are not replayed.
+                // If it is not written, the batch stays pending: departures flush it again and fail until it is.
+                checkpoint(batch.get(batch.size() - 1).sequence);
+                batch.forEach(entry -> pending.remove(new PartyGuest(entry.partyId, entry.arrival.getName()), entry));
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Arrivals stay in the journal and in the batch, the next flush retries them
+            log.error("Journaled arrivals were not stored in DB", e);
+        }
+    }
+
+    private void checkpoint(long sequence) {
+        var entry = new Entry(CHECKPOINT, 0, null, new CompletableFuture<>());
+        entry.sequence = sequence;
+        appends.add(entry);
+        try {
+            entry.written.get(writeTimeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            var errorMessage = "Checkpoint was not written to the arrival journal";
+            log.error(errorMessage, e);
+            throw new ExerciseServiceException(errorMessage);
+        }
+    }
+
+    /**
+     * Insert arrivals and add arrived people to the tables in one transaction. Arrivals which are in DB already
+     * (stored before a crash, but not checkpointed) are skipped. Every party's arrivals are inserted with
+     * their own statements, so only the partitions of the party are written.
+     */
+    private void store(List<Entry> entries) {
+        Map<Integer, List<Guest>> arrivalsByParty = new TreeMap<>();
+        entries.forEach(entry -> arrivalsByParty.computeIfAbsent(entry.partyId, id -> new ArrayList<>())
+                .add(entry.arrival));
+        transactionTemplate.executeWithoutResult(status -> arrivalsByParty.forEach((partyId, arrivals) -> {
+            int[] inserted = guestRepository.saveArrivals(partyId, arrivals);
+            // Tables are updated in the order of IDs, like the guest list import locks them
+            Map<Integer, Integer> arrivedSeats = new TreeMap<>();
+            for (int i = 0; i < arrivals.size(); i++) {
+                if (inserted[i] > 0) {
+                    arrivedSeats.merge(arrivals.get(i).getTableNumber(), arrivals.get(i).getTotalGuests(), Integer::sum);
+                }
+            }
+            if (!arrivedSeats.isEmpty()) {
+                tableRepository.addArrivedSeats(partyId, arrivedSeats);
+            }
+        }));
+    }
+
+    /**
+     * Writer thread: writes all appended records at once and forces them to disk with one call.
+     */
+    private void write() {
+        List<Entry> group = new ArrayList<>();
+        while (running || !appends.isEmpty()) {
+            try {
+                var first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group, batchSize - 1);
+                long start = System.nanoTime();
+                writeGroup(group);
+                syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                groupSize.record(group.size());
+                for (var entry : group) {
+                    if (entry.type == ARRIVAL) {
+                        durable.add(entry);
+                    }
+                    entry.written.complete(null);
+                }
+            } catch (IOException e) {
+                log.error(String.format("Write to the arrival journal %s failed", path), e);
+                group.forEach(entry -> entry.written.completeExceptionally(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            group.clear();
+        }
+    }
+
+    private void writeGroup(List<Entry> group) throws IOException {
+        var records = new ByteArrayOutputStream();
+        var output = new DataOutputStream(records);
+        boolean truncate = false;
+        for (var entry : group) {
+            if (entry.type == ARRIVAL) {
+                entry.sequence = ++lastSequence;
+                writeRecord(output, entry);
+            } else if (entry.sequence == lastSequence && entry == group.get(group.size() - 1)) {
+                // All arrivals are in DB, the journal could start from scratch
+                truncate = true;
+            } else {
+                writeRecord(output, entry);
+            }
+        }
+        if (truncate) {
+            channel.truncate(0);
+            lastSequence = 0;
+        } else {
+            var buffer = ByteBuffer.wrap(records.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, channel.size());
+            }
+        }
+        // Data sync also persists the file size, so appended records are read after a crash
+        channel.force(false);
+    }
+
+    private static void writeRecord(DataOutputStream output, Entry entry) throws IOException {
+        var body = new ByteArrayOutputStream();
+        var bodyOutput = new DataOutputStream(body);
+        bodyOutput.writeByte(entry.type);
+        bodyOutput.writeLong(entry.sequence);
+        if (entry.type == ARRIVAL) {
+            var arrival = entry.arrival;
+            bodyOutput.writeInt(entry.partyId);
+            bodyOutput.writeUTF(arrival.getName());
+            bodyOutput.writeInt(arrival.getTableNumber());
+            bodyOutput.writeInt(arrival.getTotalGuests());
+            bodyOutput.writeLong(arrival.getTimeArrived().getTime());
+        }
+        var crc = new CRC32();
+        crc.update(body.toByteArray());
+        output.writeInt(body.size());
+        output.writeInt((int) crc.getValue());
+        body.writeTo(output);
+    }
+
+    /**
+     * Store arrivals after the last checkpoint in DB and remove the journal.
+     */
+    private void replay() throws IOException {
+        List<Entry> arrivals = new ArrayList<>();
+        long checkpoint = 0;
+        try (var input = new DataInputStream(Files.newInputStream(path))) {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = input.readInt();
+                    int crc = input.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE - HEADER_SIZE) {
+                        break;
+                    }
+                    body = input.readNBytes(length);
+                    var bodyCrc = new CRC32();
+                    bodyCrc.update(body);
+                    if (body.length != length || (int) bodyCrc.getValue() != crc) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                var record = new DataInputStream(new ByteArrayInputStream(body));
+                byte type = record.readByte();
+                long sequence = record.readLong();
+                if (type == CHECKPOINT) {
+                    checkpoint = sequence;
+                } else {
+                    int partyId = type == DEFAULT_PARTY_ARRIVAL ? PartyService.DEFAULT_PARTY : record.readInt();
+                    var entry = new Entry(ARRIVAL, partyId, new Guest(record.readUTF(), record.readInt(),
+                            record.readInt(), new Date(record.readLong())), null);
+                    entry.sequence = sequence;
+                    arrivals.add(entry);
+                }
+            }
+        }
+        List<Entry> replayed = new ArrayList<>();
+        for (var entry : arrivals) {
+            if (entry.sequence > checkpoint) {
+                replayed.add(entry);
+            }
+        }
+        for (int from = 0; from < replayed.size(); from += batchSize) {
+            store(replayed.subList(from, Math.min(from + batchSize, replayed.size())));
+        }
+        log.info(String.format("Arrival journal %s is replayed: %d arrivals stored in DB", path, replayed.size()));
+        Files.delete(path);
+    }
+
+    private record PartyGuest(int partyId, String name) {
+    }
+
+    private static final class Entry {
+        private final byte type;
+        private final int partyId;
+        private final Guest arrival;
+        private final CompletableFuture<Void> written;
+        private long sequence;
+
+        private Entry(byte type, int partyId, Guest arrival, CompletableFuture<Void> written) {
+            this.type = type;
+            this.partyId = partyId;
+            this.arrival = arrival;
+            this.written = written;
+        }
+    }
+}
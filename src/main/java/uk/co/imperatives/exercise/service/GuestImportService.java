@@ -0,0 +1,157 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Service to import a guest list with many guests at once.
+ * Capacity of the tables is validated in memory and guests are stored with JDBC batches in one transaction.
+ */
+@Slf4j
+@Service
+public class GuestImportService {
+
+    /**
+     * Length of the guests.name column, longer names would fail the whole batch insert
+     */
+    static final int MAX_NAME_LENGTH = 255;
+
+    private final JpaGuestRepository guestRepository;
+
+    private final JpaTableRepository tableRepository;
+
+    private final SeatLedger seatLedger;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final GuestNameIndex guestNameIndex;
+
+    private final PartyProjection partyProjection;
+
+    private final int maxRows;
+
+    public GuestImportService(JpaGuestRepository guestRepository, JpaTableRepository tableRepository,
+                              SeatLedger seatLedger, TransactionTemplate transactionTemplate,
+                              GuestNameIndex guestNameIndex, PartyProjection partyProjection,
+                              @Value("${party.import.max-rows:50000}") int maxRows) {
+        this.guestRepository = guestRepository;
+        this.tableRepository = tableRepository;
+        this.seatLedger = seatLedger;
+        this.transactionTemplate = transactionTemplate;
+        this.guestNameIndex = guestNameIndex;
+        this.partyProjection = partyProjection;
+        this.maxRows = maxRows;
+    }
+
+    /**
+     * Import guests to the guest list. Rows are processed in the given order: a row is stored in case its name
+     * is new and the table still has space after the previous rows of the import.
+     *
+     * @param partyId party ID
+     * @param guests  guests to import (total number of guests per row)
+     * @return registration status for every row in the same order
+     */
+    public List<RegistrationStatus> importGuests(int partyId, List<Guest> guests) {
+        if (guests.size() > maxRows) {
+            var errorMessage = String.format("Guest list contains %d rows, but maximum is %d", guests.size(), maxRows);
+            log.error(errorMessage);
+            throw new ExerciseServiceBadRequestException(errorMessage);
+        }
+        var statuses = new RegistrationStatus[guests.size()];
+        Set<String> names = new HashSet<>();
+        Set<Integer> tableIds = new TreeSet<>();
+        for (int i = 0; i < guests.size(); i++) {
+            var guest = guests.get(i);
+            if (!isValid(guest)) {
+                statuses[i] = RegistrationStatus.INVALID;
+            } else if (!names.add(guest.getName())) {
+                statuses[i] = RegistrationStatus.DUPLICATE_NAME;
+            } else {
+                tableIds.add(guest.getTableNumber());
+            }
+        }
+        log.debug(String.format("Import %d guests for %d tables", names.size(), tableIds.size()));
+        List<Guest> inserted = transactionTemplate.execute(status -> {
+            // Tables are locked in ID order, so concurrent imports and registrations wait for each other
+            // instead of overbooking
+            Map<Integer, int[]> freeSeats = new HashMap<>();
+            for (TableOccupancy table : tableRepository.lockTableBookings(partyId, tableIds)) {
+                freeSeats.put(table.getId(), new int[]{table.getCapacity() - table.getBooked()});
+            }
+            // Names from the index are duplicates without DB, only unknown names are checked in DB
+            Set<String> existingNames = new HashSet<>();
+            Set<String> unknownNames = new HashSet<>();
+            names.forEach(name -> (guestNameIndex.isBooked(partyId, name) ? existingNames : unknownNames).add(name));
+            if (!unknownNames.isEmpty()) {
+                existingNames.addAll(guestRepository.findExistingNames(partyId, unknownNames));
+            }
+            List<Guest> toInsert = new ArrayList<>();
+            List<Integer> rows = new ArrayList<>();
+            for (int i = 0; i < guests.size(); i++) {
+                if (statuses[i] != null) {
+                    continue;
+                }
+                var guest = guests.get(i);
+                var seats = freeSeats.get(guest.getTableNumber());
+                if (existingNames.contains(guest.getName())) {
+                    statuses[i] = RegistrationStatus.DUPLICATE_NAME;
+                } else if (seats == null) {
+                    statuses[i] = RegistrationStatus.UNKNOWN_TABLE;
+                } else if (seats[0] < guest.getTotalGuests()) {
+                    statuses[i] = RegistrationStatus.NO_CAPACITY;
+                } else {
+                    seats[0] -= guest.getTotalGuests();
+                    toInsert.add(guest);
+                    rows.add(i);
+                }
+            }
+            int[] counts = guestRepository.saveGuests(partyId, toInsert);
+            List<Guest> saved = new ArrayList<>();
+            Map<Integer, Integer> bookedSeats = new HashMap<>();
+            for (int i = 0; i < toInsert.size(); i++) {
+                // A guest with the same name could be added by a single request after the names check
+                statuses[rows.get(i)] = counts[i] > 0 ? RegistrationStatus.OK : RegistrationStatus.DUPLICATE_NAME;
+                if (counts[i] > 0) {
+                    var guest = toInsert.get(i);
+                    saved.add(guest);
+                    bookedSeats.merge(guest.getTableNumber(), guest.getTotalGuests(), Integer::sum);
+                }
+            }
+            if (!bookedSeats.isEmpty()) {
+                tableRepository.addBookedSeats(partyId, bookedSeats);
+            }
+            return saved;
+        });
+        inserted.forEach(guest -> {
+            seatLedger.book(partyId, guest.getTableNumber(), guest.getTotalGuests());
+            guestNameIndex.book(partyId, guest.getName(), guest.getTableNumber());
+            partyProjection.book(partyId, guest);
+        });
+        log.debug(String.format("Imported %d guests from %d rows", inserted.size(), guests.size()));
+        return Arrays.asList(statuses);
+    }
+
+    private boolean isValid(Guest guest) {
+        return guest.getName() != null && !guest.getName().isBlank()
+                && guest.getName().codePointCount(0, guest.getName().length()) <= MAX_NAME_LENGTH
+                && guest.getTableNumber() != null && guest.getTableNumber() >= 0
+                && guest.getTotalGuests() != null && guest.getTotalGuests() > 0;
+    }
+}
@@ -0,0 +1,219 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of booked and arrived guest names, so duplicate registrations, arrivals of guests
+ * who did not book a table and departures of guests who did not arrive are rejected without DB.
+ * Booked names are kept with their tables, so the table of an arriving guest is known before DB.
+ * Like the seat ledger, the index is rebuilt from DB on startup and updated by services after every
+ * successful change (see the single instance note of {@link SeatLedger}).
+ * Booked names are never removed, so a positive answer of the booked index is always right.
+ * Names are kept per party, the same name could be booked at different parties.
+ */
+@Slf4j
+@Component
+@DependsOn({"flyway", "arrivalJournal"})
+public class GuestNameIndex {
+
+    /**
+     * Table of the names which were found in DB by a registration of the same name, the table is not known.
+     */
+    private static final Integer UNKNOWN_TABLE = Integer.MIN_VALUE;
+
+    private volatile Map<Integer, PartyNames> parties = new ConcurrentHashMap<>();
+
+    private final JpaGuestRepository guestRepository;
+
+    private final JpaPartyRepository partyRepository;
+
+    private final Counter bookedHits;
+
+    private final Counter bookedMisses;
+
+    private final Counter arrivedHits;
+
+    private final Counter arrivedMisses;
+
+    private final Counter falsePositives;
+
+    public GuestNameIndex(JpaGuestRepository guestRepository, JpaPartyRepository partyRepository,
+                          MeterRegistry meterRegistry) {
+        this.guestRepository = guestRepository;
+        this.partyRepository = partyRepository;
+        this.bookedHits = lookupCounter(meterRegistry, "booked", "hit");
+        this.bookedMisses = lookupCounter(meterRegistry, "booked", "miss");
+        this.arrivedHits = lookupCounter(meterRegistry, "arrived", "hit");
+        this.arrivedMisses = lookupCounter(meterRegistry, "arrived", "miss");
+        this.falsePositives = Counter.builder("party.guest-names.false-positives")
+                .description("Names found in the index which were not found in DB")
+                .register(meterRegistry);
+        // The gauges read the current index, the map is replaced by every rebuild
+        Gauge.builder("party.guest-names.size", this, index -> index.parties.values().stream()
+                        .mapToInt(party -> party.bookedNames.size()).sum())
+                .tag("index", "booked")
+                .description("Names in the guest name index")
+                .register(meterRegistry);
+        Gauge.builder("party.guest-names.size", this, index -> index.parties.values().stream()
+                        .mapToInt(party -> party.arrivedNames.size()).sum())
+                .tag("index", "arrived")
+                .description("Names in the guest name index")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String index, String result) {
+        return Counter.builder("party.guest-names.lookups")
+                .tag("index", index)
+                .tag("result", result)
+                .description("Lookups in the guest name index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load booked and arrived names of all parties from DB and replace the current index state. The new index
+     * is built aside and swapped in at once, so lookups during the rebuild still see the previous names.
+     */
+    @PostConstruct
+    public void rebuild() {
+        log.debug("Rebuild guest name index from DB");
+        Map<Integer, PartyNames> rebuilt = new ConcurrentHashMap<>();
+        for (int partyId : partyRepository.getPartyIds()) {
+            var names = new PartyNames();
+            guestRepository.getGuestList(partyId)
+                    .forEach(guest -> names.bookedNames.put(guest.getName(), guest.getTableNumber()));
+            names.arrivedNames.addAll(guestRepository.getArrivedGuestNames(partyId));
+            rebuilt.put(partyId, names);
+        }
+        parties = rebuilt;
+    }
+
+    /**
+     * Check if the guest booked a table.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     * @return true if the guest booked a table else false
+     */
+    public boolean isBooked(int partyId, String name) {
+        boolean booked = getParty(partyId).bookedNames.containsKey(name);
+        (booked ? bookedHits : bookedMisses).increment();
+        return booked;
+    }
+
+    /**
+     * Check if the guest arrived to the party.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     * @return true if the guest arrived else false
+     */
+    public boolean isArrived(int partyId, String name) {
+        boolean arrived = getParty(partyId).arrivedNames.contains(name);
+        (arrived ? arrivedHits : arrivedMisses).increment();
+        return arrived;
+    }
+
+    /**
+     * Get the table booked by the guest.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     * @return table ID or null if the guest is not in the index or the table is not known
+     */
+    public Integer getTable(int partyId, String name) {
+        var table = getParty(partyId).bookedNames.get(name);
+        return UNKNOWN_TABLE.equals(table) ? null : table;
+    }
+
+    /**
+     * Register a booked guest.
+     *
+     * @param partyId     party ID
+     * @param name        guest name
+     * @param tableNumber booked table
+     */
+    public void book(int partyId, String name, int tableNumber) {
+        getParty(partyId).bookedNames.put(name, tableNumber);
+    }
+
+    /**
+     * Remove a booking of the table which was registered before it was saved and then not saved to DB.
+     * The name stays in the index if it is registered with another table meanwhile.
+     *
+     * @param partyId     party ID
+     * @param name        guest name
+     * @param tableNumber table of the removed booking
+     */
+    public void cancel(int partyId, String name, int tableNumber) {
+        getParty(partyId).bookedNames.remove(name, tableNumber);
+    }
+
+    /**
+     * Register a name which is already booked in DB when the table is not known.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     */
+    public void book(int partyId, String name) {
+        getParty(partyId).bookedNames.putIfAbsent(name, UNKNOWN_TABLE);
+    }
+
+    /**
+     * Register an arrived guest.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     */
+    public void arrive(int partyId, String name) {
+        getParty(partyId).arrivedNames.add(name);
+    }
+
+    /**
+     * Remove a guest who left the party.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     */
+    public void leave(int partyId, String name) {
+        getParty(partyId).arrivedNames.remove(name);
+    }
+
+    /**
+     * Remove a name which was found in the index but not in DB.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     * @param arrived true if the name was not found in arrived guests, false if in booked guests
+     */
+    public void evict(int partyId, String name, boolean arrived) {
+        falsePositives.increment();
+        log.warn(String.format("Guest name index is out of sync with DB for the guest with name = %s (party %d)",
+                name, partyId));
+        if (arrived) {
+            getParty(partyId).arrivedNames.remove(name);
+        } else {
+            getParty(partyId).bookedNames.remove(name);
+        }
+    }
+
+    private PartyNames getParty(int partyId) {
+        return parties.computeIfAbsent(partyId, id -> new PartyNames());
+    }
+
+    private static class PartyNames {
+        private final Map<String, Integer> bookedNames = new ConcurrentHashMap<>();
+        private final Set<String> arrivedNames = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -4,145 +4,433 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
 import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.jfr.GuestCheckInEvent;
+import uk.co.imperatives.exercise.jfr.GuestDepartureEvent;
+import uk.co.imperatives.exercise.jfr.GuestRegistrationEvent;
+import uk.co.imperatives.exercise.repository.CheckInResult;
+import uk.co.imperatives.exercise.repository.CheckInStatus;
+import uk.co.imperatives.exercise.repository.GuestFilter;
 import uk.co.imperatives.exercise.repository.JpaGuestRepository;
-import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
 import uk.co.imperatives.exercise.repository.entity.Guest;
 
+import java.sql.Timestamp;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @AllArgsConstructor
 @Service
 public class GuestService {
 
+    private static final String OK = "OK";
+
+    private static final String NOT_ARRIVED = "NOT_ARRIVED";
+
     private JpaGuestRepository guestRepository;
 
-    private JpaTableRepository tableRepository;
+    private SeatLedger seatLedger;
+
+    private PartyEventBroadcaster partyEvents;
+
+    private GuestNameIndex guestNameIndex;
+
+    private TableLocks tableLocks;
+
+    private ArrivalJournal arrivalJournal;
+
+    private PartyProjection partyProjection;
 
     /**
      * Save a new guest to DB in case if there are seats available for specific table.
      *
+     * @param partyId            party ID
      * @param name               new guest name
      * @param tableNumber        table number for reservation
      * @param accompanyingGuests main guest's accompanying guests
      * @return guest name in case success processing.
      */
-    public String addGuest(String name, int tableNumber, int accompanyingGuests) {
-        // We always store a total number of guests
-        var guest = new Guest(name, tableNumber, accompanyingGuests + 1);
-        log.debug(String.format("Create a new guest entity for DB: name = %s, table ID = %d, total guests = %d",
-                guest.getName(), guest.getTableNumber(), guest.getTotalGuests()));
-        // Check if the guest already exists
-        if (guestRepository.exists(guest)) {
-            var errorMessage = String.format("Guest with name %s already exists", guest.getName());
-            log.error(errorMessage);
-            throw new ExerciseAlreadyExistsException(errorMessage);
-        }
-        // Check if the table exists
-        if (!tableRepository.exists(tableNumber)) {
-            var errorMessage = String.format("There is no table with ID = %d", tableNumber);
-            log.error(errorMessage);
-            throw new ExerciseServiceBadRequestException(errorMessage);
+    public String addGuest(int partyId, String name, int tableNumber, int accompanyingGuests) {
+        var event = new GuestRegistrationEvent(partyId, name, tableNumber);
+        try {
+            // We always store a total number of guests
+            var guest = new Guest(name, tableNumber, accompanyingGuests + 1);
+            log.debug(String.format("Create a new guest entity for DB: name = %s, table ID = %d, total guests = %d",
+                    guest.getName(), guest.getTableNumber(), guest.getTotalGuests()));
+            event.validated();
+            // Booked names are never removed, so a name from the index is a duplicate without DB.
+            // Otherwise one statement checks the name, the table and available space at the table
+            boolean booked = guestNameIndex.isBooked(partyId, name);
+            event.checked();
+            var status = booked ? RegistrationStatus.DUPLICATE_NAME : registerInDb(partyId, guest);
+            event.written();
+            event.setOutcome(status.name());
+            switch (status) {
+                case DUPLICATE_NAME -> {
+                    guestNameIndex.book(partyId, name);
+                    var errorMessage = String.format("Guest with name %s already exists", guest.getName());
+                    log.error(errorMessage);
+                    throw new ExerciseAlreadyExistsException(errorMessage);
+                }
+                case UNKNOWN_TABLE -> {
+                    var errorMessage = String.format("There is no table with ID = %d", tableNumber);
+                    log.error(errorMessage);
+                    throw new ExerciseServiceBadRequestException(errorMessage);
+                }
+                case NO_CAPACITY -> {
+                    var errorMessage = String.format("There is no free space at the table with ID = %d", tableNumber);
+                    log.error(errorMessage);
+                    throw new ExerciseNoCapacityException(errorMessage);
+                }
+            }
+            log.debug(String.format("Add a new guest (%s, %d, %d) to guest list.",
+                    name, tableNumber, accompanyingGuests));
+            return name;
+        } finally {
+            event.commit();
         }
+    }
 
-        var rowsAffected = guestRepository.saveGuest(guest);
-        if (rowsAffected == 0) {
-            var errorMessage = String.format("There is no free space at the table with ID = %d", tableNumber);
-            log.error(errorMessage);
-            throw new ExerciseServiceBadRequestException(errorMessage);
+    /**
+     * Registration admitted in memory and saved by the DB statement. Registrations at the same table are admitted
+     * one by one under the table lock: a name from the index is a duplicate, otherwise the seats are reserved
+     * in the seat ledger and the name is registered in the index, so a full table or a second registration
+     * of the name at the table is rejected without DB. The statement runs after the lock is released and still checks
+     * the name and available space at the table, the seats and the name are released if the guest was not saved.
+     *
+     * @param partyId party ID
+     * @param guest   new guest with the table number
+     * @return registration status
+     */
+    private RegistrationStatus registerInDb(int partyId, Guest guest) {
+        int tableNumber = guest.getTableNumber();
+        var admitted = tableLocks.withLock(partyId, tableNumber, () -> {
+            if (guestNameIndex.isBooked(partyId, guest.getName())) {
+                return RegistrationStatus.DUPLICATE_NAME;
+            }
+            var reserved = seatLedger.tryBook(partyId, tableNumber, guest.getTotalGuests());
+            if (reserved == RegistrationStatus.OK) {
+                guestNameIndex.book(partyId, guest.getName(), tableNumber);
+            }
+            return reserved;
+        });
+        if (admitted != RegistrationStatus.OK) {
+            return admitted;
+        }
+        RegistrationStatus status;
+        try {
+            status = guestRepository.saveGuest(partyId, guest);
+        } catch (RuntimeException e) {
+            seatLedger.unbook(partyId, tableNumber, guest.getTotalGuests());
+            guestNameIndex.cancel(partyId, guest.getName(), tableNumber);
+            throw e;
+        }
+        if (status == RegistrationStatus.OK) {
+            // A check-in which did not find the guest in DB yet could evict the name meanwhile
+            guestNameIndex.book(partyId, guest.getName(), tableNumber);
+            partyProjection.book(partyId, guest);
+        } else {
+            seatLedger.unbook(partyId, tableNumber, guest.getTotalGuests());
+            guestNameIndex.cancel(partyId, guest.getName(), tableNumber);
         }
-        log.debug(String.format("Add a new guest (%s, %d, %d) to guest list.", name, tableNumber, accompanyingGuests));
-        return name;
+        return status;
     }
 
     /**
      * Method provides a guests list who booked tables.
      *
+     * @param partyId party ID
      * @return a guests list.
      */
-    public List<Guest> getGuestList() {
+    public List<Guest> getGuestList(int partyId) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Get guests list from the party projection");
+            return partyProjection.streamGuests(partyId, new GuestFilter()).toList();
+        }
         log.debug("Call DB to get guests list");
-        return guestRepository.getGuestList();
+        return guestRepository.getGuestList(partyId);
+    }
+
+    /**
+     * Method passes guests who booked tables to the consumer one by one from the party projection if it is enabled,
+     * else while they are read from DB in keyset pages. DB connection is not held while the consumer processes a page.
+     *
+     * @param partyId  party ID
+     * @param filter   filter and keyset position of the list
+     * @param consumer consumer of guests
+     */
+    public void streamGuestList(int partyId, GuestFilter filter, Consumer<Guest> consumer) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Stream guests list from the party projection");
+            partyProjection.streamGuests(partyId, filter).forEach(consumer);
+            return;
+        }
+        log.debug("Call DB to stream guests list");
+        guestRepository.streamGuestList(partyId, filter, consumer);
     }
 
     /**
      * Method checks availability of the table's space for arrived guests and return the guest's name in case success.
      * Throw an exception in case unavailable space at the table.
      *
+     * @param partyId            party ID
      * @param name               main guest's name
      * @param accompanyingGuests main guest's accompanying friends.
      * @return main guest's name or throw an axception.
      */
-    public String checkInGuest(String name, int accompanyingGuests) {
-        // We always store a total number of guests
-        var guest = new Guest(name, null, accompanyingGuests + 1);
-        log.debug(String.format("A new guest arrived. Create an entity for DB: name = %s, total guests = %d",
-                guest.getName(), guest.getTotalGuests()));
-        // Check if the guest booked a table
-        if (!guestRepository.exists(guest)) {
-            var errorMessage = String.format("Guest with name %s did not book a table", guest.getName());
-            log.error(errorMessage);
-            throw new ExerciseNotFoundException(errorMessage);
+    public String checkInGuest(int partyId, String name, int accompanyingGuests) {
+        var event = new GuestCheckInEvent(partyId, name);
+        try {
+            // We always store a total number of guests, the arrival time is the same in DB and in the projection
+            var guest = new Guest(name, null, accompanyingGuests + 1, new Timestamp(System.currentTimeMillis()));
+            log.debug(String.format("A new guest arrived. Create an entity for DB: name = %s, total guests = %d",
+                    guest.getName(), guest.getTotalGuests()));
+            event.validated();
+            // The name index rejects guests who did not book or already arrived without DB.
+            // Otherwise one statement checks the booking, previous arrival and available space at the booked table
+            CheckInResult result = null;
+            if (!guestNameIndex.isBooked(partyId, name)) {
+                result = new CheckInResult(CheckInStatus.NOT_BOOKED, null);
+            } else if (guestNameIndex.isArrived(partyId, name)) {
+                result = new CheckInResult(CheckInStatus.ALREADY_ARRIVED, null);
+            }
+            event.checked();
+            if (result == null) {
+                // The table of a booked guest is known from the index, check-ins at the table are admitted
+                // one by one under the table lock
+                var tableNumber = guestNameIndex.getTable(partyId, name);
+                if (arrivalJournal.isEnabled() && tableNumber != null) {
+                    result = checkInToJournal(partyId, guest, tableNumber);
+                } else {
+                    if (arrivalJournal.isEnabled()) {
+                        // The statement checks the arrived counter in DB, it must include journaled arrivals
+                        arrivalJournal.flush();
+                    }
+                    result = checkInToDb(partyId, guest, tableNumber);
+                }
+                event.written();
+                if (result.getStatus() == CheckInStatus.NOT_BOOKED) {
+                    guestNameIndex.evict(partyId, name, false);
+                }
+            }
+            event.setTableId(result.getTableNumber());
+            event.setOutcome(result.getStatus().name());
+            switch (result.getStatus()) {
+                case NOT_BOOKED -> {
+                    var errorMessage = String.format("Guest with name %s did not book a table", guest.getName());
+                    log.error(errorMessage);
+                    throw new ExerciseNotFoundException(errorMessage);
+                }
+                case ALREADY_ARRIVED -> {
+                    guestNameIndex.arrive(partyId, name);
+                    var errorMessage = String.format("Guest with name %s already arrived to the party",
+                            guest.getName());
+                    log.error(errorMessage);
+                    throw new ExerciseAlreadyExistsException(errorMessage);
+                }
+                case NO_CAPACITY -> {
+                    var errorMessage = String.format(
+                            "Booked table does not have available space for %d people (main guest name is %s)",
+                            guest.getTotalGuests(), name);
+                    log.error(errorMessage);
+                    throw new ExerciseNoCapacityException(errorMessage);
+                }
+                case OK -> partyEvents.guestArrived(partyId, name, result.getTableNumber(), guest.getTotalGuests());
+            }
+            return name;
+        } finally {
+            event.commit();
         }
-        // Check if the guest already arrived
-        if (guestRepository.arrived(guest)) {
-            var errorMessage = String.format("Guest with name %s already arrived to the party", guest.getName());
-            log.error(errorMessage);
-            throw new ExerciseAlreadyExistsException(errorMessage);
+    }
+
+    /**
+     * Check-in admitted in memory and saved by the DB statement. Check-ins at the booked table are admitted one by one
+     * under the table lock: an arrived name is rejected, otherwise the seats are reserved in the seat ledger
+     * and the guest is registered as arrived in the index, so a full table or a second check-in of the guest
+     * is rejected without DB. The statement runs after the lock is released and still checks the booking,
+     * previous arrival and available space, the seats and the arrival are released if the arrival was not saved.
+     * If the table of the guest is not known (the name was seen only through a duplicate registration),
+     * the statement alone decides the check-in without the lock.
+     *
+     * @param partyId     party ID
+     * @param guest       arriving guest
+     * @param tableNumber booked table of the guest from the name index, null if it is not known
+     * @return check-in status and the booked table
+     */
+    private CheckInResult checkInToDb(int partyId, Guest guest, Integer tableNumber) {
+        boolean reserved = tableNumber != null;
+        if (reserved) {
+            var admitted = tableLocks.withLock(partyId, tableNumber, () -> {
+                if (guestNameIndex.isArrived(partyId, guest.getName())) {
+                    return CheckInStatus.ALREADY_ARRIVED;
+                }
+                if (!seatLedger.tryArrive(partyId, tableNumber, guest.getTotalGuests())) {
+                    return CheckInStatus.NO_CAPACITY;
+                }
+                guestNameIndex.arrive(partyId, guest.getName());
+                return CheckInStatus.OK;
+            });
+            if (admitted != CheckInStatus.OK) {
+                return new CheckInResult(admitted, tableNumber);
+            }
         }
-        var rowsAffected = guestRepository.updateArrivedGuest(guest);
-        if (rowsAffected == 0) {
-            var errorMessage = String.format("Booked table does not have available space for %d people (main guest name is %s)",
-                    guest.getTotalGuests(), name);
-            log.error(errorMessage);
-            throw new ExerciseServiceBadRequestException(errorMessage);
+        CheckInResult result;
+        try {
+            result = guestRepository.checkInGuest(partyId, guest);
+        } catch (RuntimeException e) {
+            if (reserved) {
+                seatLedger.leave(partyId, tableNumber, guest.getTotalGuests());
+                guestNameIndex.leave(partyId, guest.getName());
+            }
+            throw e;
+        }
+        if (result.getStatus() == CheckInStatus.OK) {
+            if (!reserved) {
+                seatLedger.arrive(partyId, result.getTableNumber(), guest.getTotalGuests());
+            }
+            // A departure which did not find the arrival in DB yet could evict the name meanwhile
+            guestNameIndex.arrive(partyId, guest.getName());
+            partyProjection.arrive(partyId, guest);
+        } else if (reserved) {
+            seatLedger.leave(partyId, tableNumber, guest.getTotalGuests());
+            if (result.getStatus() != CheckInStatus.ALREADY_ARRIVED) {
+                guestNameIndex.leave(partyId, guest.getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check-in decided in memory: the name index and the seat ledger include journaled arrivals which are not in DB.
+     * The arrival is acknowledged after it is forced to the journal, the seats are released if it was not written.
+     *
+     * @param partyId     party ID
+     * @param guest       arriving guest
+     * @param tableNumber booked table of the guest
+     * @return check-in status and the booked table
+     */
+    private CheckInResult checkInToJournal(int partyId, Guest guest, int tableNumber) {
+        var status = tableLocks.withLock(partyId, tableNumber, () -> {
+            if (guestNameIndex.isArrived(partyId, guest.getName())) {
+                return CheckInStatus.ALREADY_ARRIVED;
+            }
+            if (!seatLedger.tryArrive(partyId, tableNumber, guest.getTotalGuests())) {
+                return CheckInStatus.NO_CAPACITY;
+            }
+            guestNameIndex.arrive(partyId, guest.getName());
+            partyProjection.arrive(partyId, guest);
+            return CheckInStatus.OK;
+        });
+        if (status == CheckInStatus.OK) {
+            try {
+                arrivalJournal.append(partyId, new Guest(guest.getName(), tableNumber, guest.getTotalGuests(),
+                        guest.getTimeArrived()));
+            } catch (RuntimeException e) {
+                seatLedger.leave(partyId, tableNumber, guest.getTotalGuests());
+                guestNameIndex.leave(partyId, guest.getName());
+                partyProjection.leave(partyId, guest.getName());
+                throw e;
+            }
         }
-        return name;
+        return new CheckInResult(status, tableNumber);
     }
 
     /**
      * This method removes guest who leaves the party.
      *
-     * @param name guest's name who leaves a party.
+     * @param partyId party ID
+     * @param name    guest's name who leaves a party.
      * @return guest's name in case successful removing from DB, else throw an exception.
      */
-    public String delete(String name) {
-        var guest = new Guest(name);
-        log.debug(String.format("Start removing process for the guest with name = %s", name));
-        if (!guestRepository.arrived(guest)) {
-            var errorMessage = String.format("Guest with name %s did not arrive to the party", guest.getName());
-            log.error(errorMessage);
-            throw new ExerciseNotFoundException(errorMessage);
-        }
-        var rowsAffected = guestRepository.deleteGuest(guest);
-        if (rowsAffected == 0) {
-            var errorMessage = String.format("Some errors occurs while removing the guest with name = %s", name);
-            log.error(errorMessage);
-            throw new ExerciseServiceException(errorMessage);
+    public String delete(int partyId, String name) {
+        var event = new GuestDepartureEvent(partyId, name);
+        try {
+            var guest = new Guest(name);
+            log.debug(String.format("Start removing process for the guest with name = %s", name));
+            event.validated();
+            boolean arrived = guestNameIndex.isArrived(partyId, name);
+            event.checked();
+            if (!arrived) {
+                event.setOutcome(NOT_ARRIVED);
+                var errorMessage = String.format("Guest with name %s did not arrive to the party", guest.getName());
+                log.error(errorMessage);
+                throw new ExerciseNotFoundException(errorMessage);
+            }
+            if (arrivalJournal.isPending(partyId, name)) {
+                // The arrival is only in the journal yet, it is stored in DB before it is removed
+                arrivalJournal.flush();
+            }
+            // A departure only releases seats, so it is not admitted under the table lock
+            var removedList = guestRepository.deleteGuest(partyId, guest);
+            if (!removedList.isEmpty()) {
+                guestNameIndex.leave(partyId, name);
+                partyProjection.leave(partyId, name);
+                removedList.forEach(left -> seatLedger.leave(partyId, left.getTableNumber(), left.getTotalGuests()));
+            }
+            event.written();
+            if (removedList.isEmpty()) {
+                guestNameIndex.evict(partyId, name, true);
+                var errorMessage = String.format("Some errors occurs while removing the guest with name = %s", name);
+                log.error(errorMessage);
+                throw new ExerciseServiceException(errorMessage);
+            }
+            removedList.forEach(removed -> {
+                event.setTableId(removed.getTableNumber());
+                partyEvents.guestLeft(partyId, name, removed.getTableNumber(), removed.getTotalGuests());
+            });
+            event.setOutcome(OK);
+            return name;
+        } finally {
+            event.commit();
         }
-        return name;
     }
 
     /**
      * Method provides a guests list who arrived to the party.
      *
+     * @param partyId party ID
      * @return an arrived guests list.
      */
-    public List<Guest> getArrivedGuestList() {
+    public List<Guest> getArrivedGuestList(int partyId) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Get arrived guests list from the party projection");
+            return partyProjection.streamArrivals(partyId, new GuestFilter()).toList();
+        }
         log.debug("Call DB to get arrived guests list");
-        return guestRepository.getArrivedGuestList();
+        return guestRepository.getArrivedGuestList(partyId);
+    }
+
+    /**
+     * Method passes guests who arrived to the party to the consumer one by one from the party projection
+     * if it is enabled, else while they are read from DB in keyset pages. DB connection is not held while
+     * the consumer processes a page.
+     *
+     * @param partyId  party ID
+     * @param filter   filter and keyset position of the list
+     * @param consumer consumer of arrived guests
+     */
+    public void streamArrivedGuestList(int partyId, GuestFilter filter, Consumer<Guest> consumer) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Stream arrived guests list from the party projection");
+            partyProjection.streamArrivals(partyId, filter).forEach(consumer);
+            return;
+        }
+        log.debug("Call DB to stream arrived guests list");
+        guestRepository.streamArrivedGuestList(partyId, filter, consumer);
     }
 
     /**
      * Method returns a count of available seats
      *
+     * @param partyId party ID
      * @return count of available seats
      */
-    public int getAvailableSeats() {
-        log.debug("Call DB to get available seats");
-        return tableRepository.getAvailableSeats();
+    public int getAvailableSeats(int partyId) {
+        log.debug("Get available seats from the seat ledger");
+        return seatLedger.getAvailableSeats(partyId);
     }
 }
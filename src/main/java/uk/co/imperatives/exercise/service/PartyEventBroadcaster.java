@@ -0,0 +1,280 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.SeatsResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pushes live party events to subscribed clients (dashboards) instead of polling:
+ * guest arrivals and departures and the count of available seats after every change.
+ * Services publish events after the change was saved to DB. Every client has its own pending events which are
+ * coalesced while the client is slow: only the last event per guest and the current count of available seats
+ * (read from the seat ledger when it is sent) are kept. If too many guests are pending, they are dropped and
+ * the client gets a "reset" event to reload the lists.
+ * Events are sent by a small pool of sender threads, one client is served by at most one thread at a time.
+ * Clients subscribe to one party, events of a party are sent only to its subscribers.
+ */
+@Slf4j
+@Component
+public class PartyEventBroadcaster {
+
+    public static final String SEATS_EVENT = "seats";
+
+    public static final String ARRIVAL_EVENT = "arrival";
+
+    public static final String DEPARTURE_EVENT = "departure";
+
+    public static final String RESET_EVENT = "reset";
+
+    private final Map<Integer, Set<Subscriber>> parties = new ConcurrentHashMap<>();
+
+    private final SeatLedger seatLedger;
+
+    private final Executor senders;
+
+    private final int maxPending;
+
+    private final Counter sentCounter;
+
+    private final Counter coalescedCounter;
+
+    private final Counter resetCounter;
+
+    @Autowired
+    public PartyEventBroadcaster(SeatLedger seatLedger, MeterRegistry meterRegistry,
+                                 @Value("${party.events.max-pending:1000}") int maxPending,
+                                 @Value("${party.events.sender-threads:4}") int senderThreads) {
+        this(seatLedger, meterRegistry, maxPending,
+                Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("party-events-")));
+    }
+
+    /**
+     * @param seatLedger    source of the count of available seats
+     * @param meterRegistry registry for the event metrics
+     * @param maxPending    maximum number of pending guest events per client
+     * @param senders       executor which sends events to clients
+     */
+    PartyEventBroadcaster(SeatLedger seatLedger, MeterRegistry meterRegistry, int maxPending, Executor senders) {
+        this.seatLedger = seatLedger;
+        this.maxPending = maxPending;
+        this.senders = senders;
+        Gauge.builder("party.events.subscribers", parties, subscribers -> subscribers.values().stream()
+                        .mapToInt(Set::size).sum())
+                .description("Clients subscribed to live party events")
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("party.events.sent")
+                .description("Events sent to clients")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("party.events.coalesced")
+                .description("Guest events replaced by a later event of the same guest before they were sent")
+                .register(meterRegistry);
+        this.resetCounter = Counter.builder("party.events.resets")
+                .description("Clients which had too many pending events and were asked to reload the lists")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Receiver of events of one client.
+     */
+    @FunctionalInterface
+    public interface EventSink {
+        /**
+         * Send the event to the client. The call may block while the client is reading previous events.
+         *
+         * @param name event name
+         * @param data event data
+         * @throws IOException if the client is disconnected
+         */
+        void send(String name, Object data) throws IOException;
+    }
+
+    /**
+     * Subscribe a client to events of the party. The current count of available seats is sent first.
+     *
+     * @param partyId party ID
+     * @param sink    receiver of events
+     * @return action which removes the subscription
+     */
+    public Runnable subscribe(int partyId, EventSink sink) {
+        var subscriber = new Subscriber(partyId, sink);
+        var subscribers = parties.computeIfAbsent(partyId, id -> ConcurrentHashMap.newKeySet());
+        subscribers.add(subscriber);
+        log.debug(String.format("Subscribe a client to events of the party %d, %d clients", partyId,
+                subscribers.size()));
+        subscriber.seatsChanged();
+        return subscriber::close;
+    }
+
+    /**
+     * Publish the arrival of the guest, the count of available seats is changed as well.
+     *
+     * @param partyId     party ID
+     * @param name        guest's name
+     * @param tableNumber booked table
+     * @param totalGuests arrived people including the guest
+     */
+    public void guestArrived(int partyId, String name, int tableNumber, int totalGuests) {
+        var event = new GuestEvent(ARRIVAL_EVENT, new GuestRequest(name, tableNumber, totalGuests - 1));
+        getSubscribers(partyId).forEach(subscriber -> subscriber.guestChanged(name, event));
+    }
+
+    /**
+     * Publish the departure of the guest, the count of available seats is changed as well.
+     *
+     * @param partyId     party ID
+     * @param name        guest's name
+     * @param tableNumber booked table
+     * @param totalGuests people who left including the guest
+     */
+    public void guestLeft(int partyId, String name, int tableNumber, int totalGuests) {
+        var event = new GuestEvent(DEPARTURE_EVENT, new GuestRequest(name, tableNumber, totalGuests - 1));
+        getSubscribers(partyId).forEach(subscriber -> subscriber.guestChanged(name, event));
+    }
+
+    /**
+     * Publish the change of the count of available seats (for example, table capacity was changed).
+     *
+     * @param partyId party ID
+     */
+    public void seatsChanged(int partyId) {
+        getSubscribers(partyId).forEach(Subscriber::seatsChanged);
+    }
+
+    @PreDestroy
+    public void stop() {
+        parties.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+        if (senders instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private Set<Subscriber> getSubscribers(int partyId) {
+        return parties.getOrDefault(partyId, Set.of());
+    }
+
+    private record GuestEvent(String name, GuestRequest data) {
+    }
+
+    /**
+     * Pending events of one client. Guarded by its own monitor, events are sent outside of it.
+     */
+    private class Subscriber {
+
+        private final int partyId;
+
+        private final EventSink sink;
+
+        private final Map<String, GuestEvent> pendingGuests = new LinkedHashMap<>();
+
+        private boolean seatsChanged;
+
+        private boolean reset;
+
+        private boolean sending;
+
+        private boolean closed;
+
+        private Subscriber(int partyId, EventSink sink) {
+            this.partyId = partyId;
+            this.sink = sink;
+        }
+
+        private synchronized void guestChanged(String guestName, GuestEvent event) {
+            if (!reset) {
+                // The last event of the guest is sent at the position of the latest change
+                if (pendingGuests.remove(guestName) != null) {
+                    coalescedCounter.increment();
+                }
+                pendingGuests.put(guestName, event);
+                if (pendingGuests.size() > maxPending) {
+                    pendingGuests.clear();
+                    reset = true;
+                    resetCounter.increment();
+                }
+            }
+            seatsChanged();
+        }
+
+        private synchronized void seatsChanged() {
+            seatsChanged = true;
+            if (!sending && !closed) {
+                sending = true;
+                try {
+                    senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // Application is stopping
+                    sending = false;
+                }
+            }
+        }
+
+        private void send() {
+            while (true) {
+                boolean sendReset;
+                boolean sendSeats;
+                List<GuestEvent> events;
+                synchronized (this) {
+                    if (closed || (!reset && !seatsChanged && pendingGuests.isEmpty())) {
+                        sending = false;
+                        return;
+                    }
+                    sendReset = reset;
+                    sendSeats = seatsChanged;
+                    events = new ArrayList<>(pendingGuests.values());
+                    reset = false;
+                    seatsChanged = false;
+                    pendingGuests.clear();
+                }
+                try {
+                    if (sendReset) {
+                        sink.send(RESET_EVENT, Map.of());
+                        sentCounter.increment();
+                    }
+                    for (var event : events) {
+                        sink.send(event.name(), event.data());
+                        sentCounter.increment();
+                    }
+                    if (sendSeats) {
+                        sink.send(SEATS_EVENT, new SeatsResponse(seatLedger.getAvailableSeats(partyId)));
+                        sentCounter.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug(String.format("Client is disconnected from party events: %s", e.getMessage()));
+                    close();
+                    synchronized (this) {
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void close() {
+            synchronized (this) {
+                closed = true;
+                pendingGuests.clear();
+            }
+            getSubscribers(partyId).remove(this);
+        }
+    }
+}
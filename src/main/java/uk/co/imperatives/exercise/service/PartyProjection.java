@@ -0,0 +1,270 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.JpaPartyEventRepository;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * In-memory projection of guests and arrivals built from the party event log, so guest lists are read without DB.
+ * On startup the projection is loaded from the last snapshot file and the events after it, the whole log is
+ * replayed if there is no valid snapshot. Like the seat ledger, the projection is updated by services after every
+ * successful change (see the single instance note of {@link SeatLedger}).
+ * Snapshots are built from the previous snapshot and the log, not from the live projection, because the live
+ * projection has journaled arrivals which are not in the log yet. Every snapshot is written to a temporary file
+ * and moved over the previous one, so a crash leaves the previous snapshot.
+ * Every party has its own guests and arrivals, one snapshot file keeps all parties at the same event of the log.
+ * Events up to a written snapshot are pruned from the log. If there is no snapshot which the log continues,
+ * the log is restarted from the current state of the parties.
+ * The projection orders names by code points, like the {@code C} collation of the name columns.
+ * A disabled projection is neither loaded nor updated, and the event triggers are stopped, so changes are not logged.
+ */
+@Slf4j
+@Component
+@DependsOn({"flyway", "arrivalJournal"})
+public class PartyProjection {
+
+    private final boolean enabled;
+
+    private final Path snapshotPath;
+
+    private final JpaPartyEventRepository eventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Timer snapshotTimer;
+
+    private volatile PartyStates state = new PartyStates();
+
+    /**
+     * @param enabled             whether guest lists are served from the projection
+     * @param snapshotPath        snapshot file
+     * @param eventRepository     repository of the party event log
+     * @param transactionTemplate transactions of the log cursor and of the log changes
+     * @param meterRegistry       registry of the projection metrics
+     */
+    public PartyProjection(@Value("${party.projection.enabled:true}") boolean enabled,
+                           @Value("${party.projection.snapshot-path:snapshots/party.snapshot}") Path snapshotPath,
+                           JpaPartyEventRepository eventRepository, TransactionTemplate transactionTemplate,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.snapshotPath = snapshotPath;
+        this.eventRepository = eventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.snapshotTimer = Timer.builder("party.projection.snapshot")
+                .description("Time to build and write a snapshot of the party projection")
+                .register(meterRegistry);
+        Gauge.builder("party.projection.size", this, projection -> projection.state.getGuestCount())
+                .tag("list", "guests")
+                .description("Guests and arrivals in the party projection")
+                .register(meterRegistry);
+        Gauge.builder("party.projection.size", this, projection -> projection.state.getArrivalCount())
+                .tag("list", "arrivals")
+                .description("Guests and arrivals in the party projection")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load the last snapshot and apply the events after it, write a new snapshot if events were applied.
+     * Stop the event log if the projection is disabled.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            transactionTemplate.executeWithoutResult(status -> eventRepository.stop());
+            return;
+        }
+        long start = System.nanoTime();
+        long last = eventRepository.getLastSequence();
+        var loaded = readSnapshot(last).orElse(null);
+        if (loaded == null) {
+            loaded = restartLog();
+            last = eventRepository.getLastSequence();
+        }
+        long snapshotSequence = loaded.getSequence();
+        replay(loaded, last);
+        state = loaded;
+        log.info(String.format("Party projection loaded from snapshot at event %d and %d events in %d ms",
+                snapshotSequence, last - snapshotSequence, (System.nanoTime() - start) / 1_000_000));
+        if (last > snapshotSequence) {
+            // Nothing was changed since the replay, the loaded projection is the state at the last event
+            writeSnapshot(loaded);
+        }
+    }
+
+    /**
+     * Write a snapshot of the state at the last event of the log if there are new events.
+     */
+    @Scheduled(fixedDelayString = "${party.projection.snapshot-interval:60000}",
+            initialDelayString = "${party.projection.snapshot-interval:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        snapshotTimer.record(() -> {
+            long last = eventRepository.getLastSequence();
+            var next = readSnapshot(last).orElse(null);
+            if (next == null) {
+                next = restartLog();
+                last = eventRepository.getLastSequence();
+            }
+            if (next.getSequence() >= last) {
+                return;
+            }
+            replay(next, last);
+            writeSnapshot(next);
+        });
+    }
+
+    /**
+     * Whether guest lists are served from the projection.
+     *
+     * @return true if the projection is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add a guest who booked a table.
+     *
+     * @param partyId party ID
+     * @param guest   guest (name, table number, total guests)
+     */
+    public void book(int partyId, Guest guest) {
+        if (enabled) {
+            state.getParty(partyId).book(guest);
+        }
+    }
+
+    /**
+     * Add an arrival.
+     *
+     * @param partyId party ID
+     * @param arrival arrived guest (name, total arrived guests, arrival time)
+     */
+    public void arrive(int partyId, Guest arrival) {
+        if (enabled) {
+            state.getParty(partyId).arrive(arrival);
+        }
+    }
+
+    /**
+     * Remove the arrival of a guest who left the party.
+     *
+     * @param partyId party ID
+     * @param name    guest name
+     */
+    public void leave(int partyId, String name) {
+        if (enabled) {
+            state.getParty(partyId).leave(name);
+        }
+    }
+
+    /**
+     * Guests of the party who booked tables ordered by name.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position of the list
+     * @return guests
+     */
+    public Stream<Guest> streamGuests(int partyId, GuestFilter filter) {
+        return state.getParty(partyId).streamGuests(filter);
+    }
+
+    /**
+     * Arrived guests of the party ordered by arrival time and name.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position of the list
+     * @return arrived guests
+     */
+    public Stream<Guest> streamArrivals(int partyId, GuestFilter filter) {
+        return state.getParty(partyId).streamArrivals(filter);
+    }
+
+    /**
+     * Read the snapshot which the log continues: no events after it were pruned and it is not ahead of the log.
+     * Without a snapshot the whole log is replayed, which is valid only while no events were pruned.
+     *
+     * @param last sequence number of the last committed event
+     * @return the snapshot or empty if the log does not continue it
+     */
+    private Optional<PartyStates> readSnapshot(long last) {
+        if (!eventRepository.isEnabled()) {
+            // The log misses the changes made while the projection was disabled
+            return Optional.empty();
+        }
+        long pruned = eventRepository.getPrunedSequence();
+        return Optional.of(readSnapshot().orElseGet(PartyStates::new))
+                .filter(snapshot -> snapshot.getSequence() >= pruned && snapshot.getSequence() <= last);
+    }
+
+    private PartyStates restartLog() {
+        long pruned = Optional.ofNullable(transactionTemplate.execute(status -> eventRepository.restart()))
+                .orElse(0L);
+        log.warn(String.format("Party event log does not continue the snapshot, the log is restarted after event %d",
+                pruned));
+        return new PartyStates();
+    }
+
+    private void replay(PartyStates target, long last) {
+        // Cursor-based fetching works only inside a transaction
+        transactionTemplate.executeWithoutResult(status ->
+                eventRepository.streamEvents(target.getSequence(), last, target::apply));
+    }
+
+    private Optional<PartyStates> readSnapshot() {
+        try (var in = Files.newInputStream(snapshotPath)) {
+            return Optional.of(PartyStates.readSnapshot(in));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.warn(String.format("Party snapshot %s is not valid, the event log is replayed: %s",
+                    snapshotPath, e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    private void writeSnapshot(PartyStates snapshot) {
+        var temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            if (snapshotPath.getParent() != null) {
+                Files.createDirectories(snapshotPath.getParent());
+            }
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                snapshot.writeSnapshot(Channels.newOutputStream(channel));
+                channel.force(true);
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.debug(String.format("Party snapshot at event %d is written", snapshot.getSequence()));
+            // Next snapshots are built from this one, so the events up to it are not read again
+            transactionTemplate.executeWithoutResult(status -> eventRepository.prune(snapshot.getSequence()));
+        } catch (IOException e) {
+            // The previous snapshot is kept, more events are replayed on the next start
+            log.error(String.format("Party snapshot at event %d is not written: %s", snapshot.getSequence(),
+                    e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package uk.co.imperatives.exercise.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service to manage parties. Every party has its own tables, guests and arrivals, stored in its own DB partitions.
+ * IDs of the known parties are kept in memory, so requests of a party are checked without DB.
+ * Routes without a party ID belong to the default party, which holds the data of the single-party schema.
+ */
+@Slf4j
+@Service
+@DependsOn("flyway")
+public class PartyService {
+
+    /**
+     * Party of the routes without a party ID.
+     */
+    public static final int DEFAULT_PARTY = 1;
+
+    private final Set<Integer> partyIds = ConcurrentHashMap.newKeySet();
+
+    private final JpaPartyRepository partyRepository;
+
+    public PartyService(JpaPartyRepository partyRepository) {
+        this.partyRepository = partyRepository;
+    }
+
+    /**
+     * Load IDs of all parties from DB.
+     */
+    @PostConstruct
+    public void load() {
+        log.debug("Load party IDs from DB");
+        partyIds.addAll(partyRepository.getPartyIds());
+    }
+
+    /**
+     * This method adds a new party with its own partitions of tables, guests and arrivals.
+     * If the party with the same ID already exists, an exception will be thrown.
+     *
+     * @param id party ID
+     * @return added party ID
+     */
+    public int addParty(int id) {
+        if (id <= 0) {
+            var errorMessage = "Party ID must be more than 0";
+            log.error(errorMessage);
+            throw new ExerciseServiceBadRequestException(errorMessage);
+        }
+        if (partyIds.contains(id) || !partyRepository.saveParty(id)) {
+            partyIds.add(id);
+            var errorMessage = String.format("Party with ID = %d already exists", id);
+            log.error(errorMessage);
+            throw new ExerciseAlreadyExistsException(errorMessage);
+        }
+        partyIds.add(id);
+        log.debug(String.format("Add a new party with ID = %d", id));
+        return id;
+    }
+
+    /**
+     * Check that the party exists. A party which is not known could be added by another application instance,
+     * so such parties are checked in DB.
+     *
+     * @param id party ID
+     */
+    public void requireParty(int id) {
+        if (partyIds.contains(id)) {
+            return;
+        }
+        if (!partyRepository.exists(id)) {
+            var errorMessage = String.format("Party with ID = %d does not exist", id);
+            log.error(errorMessage);
+            throw new ExerciseNotFoundException(errorMessage);
+        }
+        partyIds.add(id);
+    }
+
+    /**
+     * Check if the party is known without DB. A party which is not known could still be added
+     * by another application instance, {@link #requireParty(int)} checks such parties in DB.
+     *
+     * @param id party ID
+     * @return true if the party is known else false
+     */
+    public boolean isKnown(int id) {
+        return partyIds.contains(id);
+    }
+
+    /**
+     * Method provides IDs of all parties.
+     *
+     * @return party IDs in ascending order
+     */
+    public List<Integer> getPartyIds() {
+        return partyIds.stream().sorted().toList();
+    }
+}
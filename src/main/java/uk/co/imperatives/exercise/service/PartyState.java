@@ -0,0 +1,219 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.PartyEvent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Guests and arrivals of one party built from the party event log, ordered as the guest lists:
+ * guests by name, arrivals by arrival time and name. Names are compared by code points, the order of the
+ * {@code C} collation of the name columns (String.compareTo compares UTF-16 chars, which puts supplementary
+ * characters before some characters of the basic plane). Lists are streamed from the sorted collections
+ * without copying, concurrent changes may be seen or not by a running stream.
+ * Tables are not kept, they are served by the table cache and the seat ledger.
+ */
+class PartyState {
+
+    private static final Comparator<String> NAME_ORDER = PartyState::compareCodePoints;
+
+    private static final Comparator<Guest> ARRIVAL_ORDER = Comparator
+            .comparing((Guest guest) -> (Timestamp) guest.getTimeArrived())
+            .thenComparing(Guest::getName, NAME_ORDER);
+
+    private final NavigableMap<String, Guest> guests = new ConcurrentSkipListMap<>(NAME_ORDER);
+
+    private final NavigableSet<Guest> arrivals = new ConcurrentSkipListSet<>(ARRIVAL_ORDER);
+
+    private final Map<String, Guest> arrivalsByName = new ConcurrentHashMap<>();
+
+    int getGuestCount() {
+        return guests.size();
+    }
+
+    int getArrivalCount() {
+        return arrivalsByName.size();
+    }
+
+    /**
+     * Apply an event of the party. Table events do not change the state.
+     *
+     * @param event next event of the party in the log
+     */
+    void apply(PartyEvent event) {
+        switch (event.getType()) {
+            case GUEST_BOOKED -> book(new Guest(event.getName(), event.getTableId(), event.getGuests()));
+            case GUEST_CANCELLED -> {
+                leave(event.getName());
+                guests.remove(event.getName());
+            }
+            case GUEST_ARRIVED -> arrive(new Guest(event.getName(), event.getGuests(), event.getOccurredAt()));
+            case GUEST_LEFT -> leave(event.getName());
+        }
+    }
+
+    void book(Guest guest) {
+        guests.put(guest.getName(), new Guest(guest.getName(), guest.getTableNumber(), guest.getTotalGuests()));
+    }
+
+    void arrive(Guest arrival) {
+        // Timestamp keeps microseconds of the arrival order
+        var time = arrival.getTimeArrived() instanceof Timestamp timestamp ? timestamp
+                : new Timestamp(arrival.getTimeArrived().getTime());
+        var arrived = new Guest(arrival.getName(), arrival.getTotalGuests(), time);
+        var previous = arrivalsByName.put(arrived.getName(), arrived);
+        if (previous != null) {
+            arrivals.remove(previous);
+        }
+        arrivals.add(arrived);
+    }
+
+    void leave(String name) {
+        var arrived = arrivalsByName.remove(name);
+        if (arrived != null) {
+            arrivals.remove(arrived);
+        }
+    }
+
+    /**
+     * Guests who booked tables ordered by name, like the guest list query.
+     *
+     * @param filter filter and keyset position of the list
+     * @return guests
+     */
+    Stream<Guest> streamGuests(GuestFilter filter) {
+        var prefix = filter.getNamePrefix();
+        var from = prefix;
+        boolean inclusive = true;
+        if (filter.getAfterName() != null && (from == null || NAME_ORDER.compare(filter.getAfterName(), from) >= 0)) {
+            from = filter.getAfterName();
+            inclusive = false;
+        }
+        var view = from == null ? guests : guests.tailMap(from, inclusive);
+        var stream = view.values().stream();
+        if (prefix != null) {
+            stream = stream.takeWhile(guest -> guest.getName().startsWith(prefix));
+        }
+        if (filter.getTableNumber() != null) {
+            stream = stream.filter(guest -> filter.getTableNumber().equals(guest.getTableNumber()));
+        }
+        return filter.getLimit() == null ? stream : stream.limit(filter.getLimit());
+    }
+
+    /**
+     * Arrived guests ordered by arrival time and name, like the arrived guests list query.
+     *
+     * @param filter filter and keyset position of the list
+     * @return arrived guests
+     */
+    Stream<Guest> streamArrivals(GuestFilter filter) {
+        Guest from = null;
+        boolean inclusive = true;
+        if (filter.getArrivedFrom() != null) {
+            // An empty name is before all names of the same arrival time
+            from = new Guest("", null, toTimestamp(filter.getArrivedFrom()));
+        }
+        if (filter.getAfterTimeArrived() != null && filter.getAfterName() != null) {
+            var after = new Guest(filter.getAfterName(), null, toTimestamp(filter.getAfterTimeArrived()));
+            if (from == null || ARRIVAL_ORDER.compare(after, from) >= 0) {
+                from = after;
+                inclusive = false;
+            }
+        }
+        var view = from == null ? arrivals : arrivals.tailSet(from, inclusive);
+        var stream = view.stream();
+        if (filter.getArrivedTo() != null) {
+            var to = toTimestamp(filter.getArrivedTo());
+            stream = stream.takeWhile(arrived -> arrived.getTimeArrived().compareTo(to) < 0);
+        }
+        if (filter.getNamePrefix() != null) {
+            stream = stream.filter(arrived -> arrived.getName().startsWith(filter.getNamePrefix()));
+        }
+        if (filter.getTableNumber() != null) {
+            stream = stream.filter(arrived -> {
+                var guest = guests.get(arrived.getName());
+                return guest != null && filter.getTableNumber().equals(guest.getTableNumber());
+            });
+        }
+        return filter.getLimit() == null ? stream : stream.limit(filter.getLimit());
+    }
+
+    private static int compareCodePoints(String left, String right) {
+        int i = 0;
+        int j = 0;
+        while (i < left.length() && j < right.length()) {
+            int leftCodePoint = left.codePointAt(i);
+            int rightCodePoint = right.codePointAt(j);
+            if (leftCodePoint != rightCodePoint) {
+                return Integer.compare(leftCodePoint, rightCodePoint);
+            }
+            i += Character.charCount(leftCodePoint);
+            j += Character.charCount(rightCodePoint);
+        }
+        return Boolean.compare(i < left.length(), j < right.length());
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date instanceof Timestamp timestamp ? timestamp : new Timestamp(date.getTime());
+    }
+
+    /**
+     * Write guests and arrivals of the party.
+     *
+     * @param data snapshot stream
+     */
+    void writeTo(DataOutputStream data) throws IOException {
+        var guestList = guests.values().toArray(Guest[]::new);
+        data.writeInt(guestList.length);
+        for (var guest : guestList) {
+            data.writeUTF(guest.getName());
+            data.writeInt(guest.getTableNumber());
+            data.writeInt(guest.getTotalGuests());
+        }
+        var arrivalList = arrivals.toArray(Guest[]::new);
+        data.writeInt(arrivalList.length);
+        for (var arrived : arrivalList) {
+            var time = (Timestamp) arrived.getTimeArrived();
+            data.writeUTF(arrived.getName());
+            data.writeInt(arrived.getTotalGuests());
+            data.writeLong(time.getTime());
+            data.writeInt(time.getNanos());
+        }
+    }
+
+    /**
+     * Read guests and arrivals written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param data snapshot stream
+     * @return the state
+     */
+    static PartyState readFrom(DataInputStream data) throws IOException {
+        var state = new PartyState();
+        int guestCount = data.readInt();
+        for (int i = 0; i < guestCount; i++) {
+            state.book(new Guest(data.readUTF(), data.readInt(), data.readInt()));
+        }
+        int arrivalCount = data.readInt();
+        for (int i = 0; i < arrivalCount; i++) {
+            var name = data.readUTF();
+            int count = data.readInt();
+            var time = new Timestamp(data.readLong());
+            time.setNanos(data.readInt());
+            state.arrive(new Guest(name, count, time));
+        }
+        return state;
+    }
+}
@@ -0,0 +1,116 @@
+package uk.co.imperatives.exercise.service;
+
+import uk.co.imperatives.exercise.repository.entity.PartyEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * States of all parties built from the party event log, with the sequence number of the last applied event.
+ * The log is shared by the parties, every event is applied to the state of its party only.
+ */
+class PartyStates {
+
+    private static final int SNAPSHOT_MAGIC = 0x50534E32;
+
+    private final Map<Integer, PartyState> parties = new ConcurrentHashMap<>();
+
+    private long sequence;
+
+    /**
+     * @return sequence number of the last event in the states, 0 if no events were applied
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the state of the party, a party without events starts empty.
+     *
+     * @param partyId party ID
+     * @return state of the party
+     */
+    PartyState getParty(int partyId) {
+        return parties.computeIfAbsent(partyId, id -> new PartyState());
+    }
+
+    int getGuestCount() {
+        return parties.values().stream().mapToInt(PartyState::getGuestCount).sum();
+    }
+
+    int getArrivalCount() {
+        return parties.values().stream().mapToInt(PartyState::getArrivalCount).sum();
+    }
+
+    /**
+     * Apply an event of the log to the state of its party.
+     *
+     * @param event next event of the log
+     */
+    void apply(PartyEvent event) {
+        getParty(event.getPartyId()).apply(event);
+        sequence = event.getSeq();
+    }
+
+    /**
+     * Write the states with the sequence number of their last event and CRC32 of the content.
+     * Parties are written in the order of IDs.
+     *
+     * @param out snapshot stream, it is not closed
+     */
+    void writeSnapshot(OutputStream out) throws IOException {
+        var crc = new CRC32();
+        var data = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(out), crc));
+        data.writeInt(SNAPSHOT_MAGIC);
+        data.writeLong(sequence);
+        var sorted = new TreeMap<>(parties);
+        data.writeInt(sorted.size());
+        for (var party : sorted.entrySet()) {
+            data.writeInt(party.getKey());
+            party.getValue().writeTo(data);
+        }
+        data.flush();
+        // The checksum is not a part of its own content
+        new DataOutputStream(out).writeLong(crc.getValue());
+    }
+
+    /**
+     * Read states written by {@link #writeSnapshot(OutputStream)}. Snapshots of the single-party format
+     * are not read, the log is replayed instead.
+     *
+     * @param in snapshot stream
+     * @return the states
+     * @throws IOException if the snapshot cannot be read or its checksum does not match
+     */
+    static PartyStates readSnapshot(InputStream in) throws IOException {
+        var crc = new CRC32();
+        var buffered = new BufferedInputStream(in);
+        var data = new DataInputStream(new CheckedInputStream(buffered, crc));
+        if (data.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Party snapshot has an unknown format");
+        }
+        var states = new PartyStates();
+        states.sequence = data.readLong();
+        int partyCount = data.readInt();
+        for (int i = 0; i < partyCount; i++) {
+            int partyId = data.readInt();
+            states.parties.put(partyId, PartyState.readFrom(data));
+        }
+        long expected = crc.getValue();
+        if (new DataInputStream(buffered).readLong() != expected) {
+            throw new IOException("Party snapshot is corrupted, checksum does not match");
+        }
+        return states;
+    }
+}
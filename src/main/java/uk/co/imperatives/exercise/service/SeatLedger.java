@@ -0,0 +1,273 @@
+package uk.co.imperatives.exercise.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory seat ledger. Keeps capacity, booked and arrived people for every table, so it is possible to check
+ * whether arrived guests fit at their table without aggregating the guests tables in DB.
+ * The count of available seats at the whole party is maintained incrementally, so it can be read without SQL.
+ * Every party has its own shard of tables and seats, a party which is not in the ledger yet (a new party) starts empty.
+ * The ledger is rebuilt from DB on startup (after the arrival journal is replayed) and updated by services after every
+ * successful change.
+ * <p>
+ * Single instance: the ledger and the other in-memory state built from DB (guest name index, table cache,
+ * party projection) see only the changes made by this application instance. They assume one application
+ * instance changes tables and guests; another instance would make them stale until the next rebuild.
+ */
+@Slf4j
+@Component
+@DependsOn({"flyway", "arrivalJournal"})
+public class SeatLedger {
+
+    private volatile Map<Integer, PartySeats> parties = new ConcurrentHashMap<>();
+
+    private final JpaTableRepository tableRepository;
+
+    private final JpaPartyRepository partyRepository;
+
+    public SeatLedger(JpaTableRepository tableRepository, JpaPartyRepository partyRepository) {
+        this.tableRepository = tableRepository;
+        this.partyRepository = partyRepository;
+    }
+
+    /**
+     * Load tables occupancy of all parties from DB and replace the current ledger state. The new state is built
+     * aside and swapped in at once, so readers see either the previous ledger or the loaded one, never a partial one.
+     */
+    @PostConstruct
+    public void rebuild() {
+        log.debug("Rebuild seat ledger from DB");
+        Map<Integer, PartySeats> rebuilt = new ConcurrentHashMap<>();
+        partyRepository.getPartyIds().forEach(partyId ->
+                loadMissingTables(partyId, rebuilt.computeIfAbsent(partyId, id -> new PartySeats())));
+        parties = rebuilt;
+    }
+
+    /**
+     * Reserve seats for arrived people at the table. Only succeeds if the table has enough free seats.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of arrived people
+     * @return true if seats were reserved else false
+     */
+    public boolean tryArrive(int partyId, int tableId, int guests) {
+        var party = getParty(partyId);
+        var seats = getSeats(partyId, party, tableId);
+        if (seats == null) {
+            return false;
+        }
+        while (true) {
+            int arrived = seats.arrived.get();
+            if (arrived + guests > seats.capacity.get()) {
+                return false;
+            }
+            if (seats.arrived.compareAndSet(arrived, arrived + guests)) {
+                party.availableSeats.addAndGet(-guests);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Register people who arrived at the table. Available space must be checked before the call.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of arrived people
+     */
+    public void arrive(int partyId, int tableId, int guests) {
+        var party = getParty(partyId);
+        var seats = getSeats(partyId, party, tableId);
+        if (seats != null) {
+            seats.arrived.addAndGet(guests);
+            party.availableSeats.addAndGet(-guests);
+        }
+    }
+
+    /**
+     * Release seats of people who left the table (or whose arrival was not saved).
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of people
+     */
+    public void leave(int partyId, int tableId, int guests) {
+        var party = getParty(partyId);
+        var seats = getSeats(partyId, party, tableId);
+        if (seats != null) {
+            seats.arrived.addAndGet(-guests);
+            party.availableSeats.addAndGet(guests);
+        }
+    }
+
+    /**
+     * Register booked people at the table.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of booked people
+     */
+    public void book(int partyId, int tableId, int guests) {
+        var seats = getSeats(partyId, getParty(partyId), tableId);
+        if (seats != null) {
+            seats.booked.addAndGet(guests);
+        }
+    }
+
+    /**
+     * Reserve booked seats at the table. Only succeeds if the table has enough seats which are not booked yet.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of booked people
+     * @return OK if seats were reserved, NO_CAPACITY if the table does not have enough seats
+     * or UNKNOWN_TABLE if the table does not exist
+     */
+    public RegistrationStatus tryBook(int partyId, int tableId, int guests) {
+        var seats = getSeats(partyId, getParty(partyId), tableId);
+        if (seats == null) {
+            return RegistrationStatus.UNKNOWN_TABLE;
+        }
+        while (true) {
+            int booked = seats.booked.get();
+            if (booked + guests > seats.capacity.get()) {
+                return RegistrationStatus.NO_CAPACITY;
+            }
+            if (seats.booked.compareAndSet(booked, booked + guests)) {
+                return RegistrationStatus.OK;
+            }
+        }
+    }
+
+    /**
+     * Release booked seats of a registration which was not saved.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @param guests  number of booked people
+     */
+    public void unbook(int partyId, int tableId, int guests) {
+        var seats = getSeats(partyId, getParty(partyId), tableId);
+        if (seats != null) {
+            seats.booked.addAndGet(-guests);
+        }
+    }
+
+    /**
+     * Add a new table or change capacity of the existing one.
+     *
+     * @param partyId  party ID
+     * @param tableId  table ID
+     * @param capacity table capacity
+     */
+    public void putTable(int partyId, int tableId, int capacity) {
+        var party = getParty(partyId);
+        int previousCapacity = party.tables.computeIfAbsent(tableId, id -> new TableSeats(0, 0, 0))
+                .capacity.getAndSet(capacity);
+        party.availableSeats.addAndGet(capacity - previousCapacity);
+    }
+
+    /**
+     * Check if the table is in the ledger without DB.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @return true if the table is in the ledger else false
+     */
+    public boolean contains(int partyId, int tableId) {
+        return getParty(partyId).tables.containsKey(tableId);
+    }
+
+    /**
+     * Add a table read from DB by the caller, used by the reactive API which does not read tables with JDBC.
+     * A table which is already in the ledger is not changed.
+     *
+     * @param partyId   party ID
+     * @param occupancy capacity, booked and arrived people of the table
+     */
+    public void load(int partyId, TableOccupancy occupancy) {
+        putLoadedTable(getParty(partyId), occupancy);
+    }
+
+    /**
+     * Get a count of available seats at the party.
+     *
+     * @param partyId party ID
+     * @return count of available seats
+     */
+    public int getAvailableSeats(int partyId) {
+        return getParty(partyId).availableSeats.get();
+    }
+
+    /**
+     * Get a count of free seats at the table for arriving people.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @return count of free seats or 0 if the table is unknown
+     */
+    public int getAvailableSeats(int partyId, int tableId) {
+        var seats = getSeats(partyId, getParty(partyId), tableId);
+        return seats == null ? 0 : seats.capacity.get() - seats.arrived.get();
+    }
+
+    private PartySeats getParty(int partyId) {
+        return parties.computeIfAbsent(partyId, id -> new PartySeats());
+    }
+
+    private TableSeats getSeats(int partyId, PartySeats party, int tableId) {
+        var seats = party.tables.get(tableId);
+        if (seats == null) {
+            // The table could be added by another application instance, only this table is read from DB
+            seats = tableRepository.getTableOccupancy(partyId, tableId)
+                    .map(occupancy -> putLoadedTable(party, occupancy))
+                    .orElse(null);
+        }
+        return seats;
+    }
+
+    private void loadMissingTables(int partyId, PartySeats party) {
+        for (TableOccupancy occupancy : tableRepository.getTableOccupancy(partyId)) {
+            putLoadedTable(party, occupancy);
+        }
+    }
+
+    private TableSeats putLoadedTable(PartySeats party, TableOccupancy occupancy) {
+        var seats = new TableSeats(occupancy.getCapacity(), occupancy.getBooked(), occupancy.getArrived());
+        var previous = party.tables.putIfAbsent(occupancy.getId(), seats);
+        if (previous != null) {
+            return previous;
+        }
+        party.availableSeats.addAndGet(occupancy.getCapacity() - occupancy.getArrived());
+        return seats;
+    }
+
+    private static class PartySeats {
+        private final Map<Integer, TableSeats> tables = new ConcurrentHashMap<>();
+        private final AtomicInteger availableSeats = new AtomicInteger();
+    }
+
+    private static class TableSeats {
+        private final AtomicInteger capacity;
+        private final AtomicInteger booked;
+        private final AtomicInteger arrived;
+
+        private TableSeats(int capacity, int booked, int arrived) {
+            this.capacity = new AtomicInteger(capacity);
+            this.booked = new AtomicInteger(booked);
+            this.arrived = new AtomicInteger(arrived);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Periodically recomputes available seats of every party in DB and compares it with the seat ledger.
+ * The differences of all parties are summed up (regardless of their sign) and published as the "party.seats.drift"
+ * gauge. A non-zero value could be transient (check-in in progress) but a stable drift means the ledger is out
+ * of sync with DB.
+ */
+@Slf4j
+@Component
+public class SeatLedgerReconciler {
+
+    private final JpaTableRepository tableRepository;
+
+    private final JpaPartyRepository partyRepository;
+
+    private final SeatLedger seatLedger;
+
+    private final AtomicInteger drift = new AtomicInteger();
+
+    private final Counter driftCounter;
+
+    public SeatLedgerReconciler(JpaTableRepository tableRepository, JpaPartyRepository partyRepository,
+                                SeatLedger seatLedger, MeterRegistry meterRegistry) {
+        this.tableRepository = tableRepository;
+        this.partyRepository = partyRepository;
+        this.seatLedger = seatLedger;
+        Gauge.builder("party.seats.drift", drift, AtomicInteger::get)
+                .description("Available seats which differ between the seat ledger and DB, summed over parties")
+                .register(meterRegistry);
+        this.driftCounter = Counter.builder("party.seats.drift.detected")
+                .description("Reconciliations which found a difference between the seat ledger and DB")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Compare available seats of every party in the seat ledger with the DB aggregate of its partitions.
+     */
+    @Scheduled(fixedDelayString = "${party.seat-ledger.reconcile-interval:60000}",
+            initialDelayString = "${party.seat-ledger.reconcile-interval:60000}")
+    public void reconcile() {
+        int total = 0;
+        for (int partyId : partyRepository.getPartyIds()) {
+            int ledgerSeats = seatLedger.getAvailableSeats(partyId);
+            int dbSeats = tableRepository.getAvailableSeats(partyId);
+            if (ledgerSeats != dbSeats) {
+                total += Math.abs(ledgerSeats - dbSeats);
+                log.warn(String.format("Seat ledger drift detected for the party %d: ledger = %d, DB = %d",
+                        partyId, ledgerSeats, dbSeats));
+            }
+        }
+        drift.set(total);
+        if (total != 0) {
+            driftCounter.increment();
+        }
+    }
+
+    /**
+     * Get the difference found by the last reconciliation.
+     *
+     * @return available seats which differ between the seat ledger and DB, summed over parties
+     */
+    public int getDrift() {
+        return drift.get();
+    }
+}
@@ -0,0 +1,186 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.entity.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory cache of tables. Table IDs and capacities are kept in an immutable snapshot of sorted int arrays,
+ * which is replaced with a new copy after every change of a table, so readers never lock or see a half-done change.
+ * Tables change rarely, so copying the arrays is cheaper than reading tables from DB on every request.
+ * Every party has its own snapshot, so a change of a table copies only the tables of its party.
+ * The cache is loaded from DB on startup and updated by services after every successful change.
+ */
+@Slf4j
+@Component
+@DependsOn("flyway")
+public class TableCache {
+
+    private static final Snapshot EMPTY = new Snapshot(new int[0], new int[0]);
+
+    private volatile Map<Integer, AtomicReference<Snapshot>> parties = new ConcurrentHashMap<>();
+
+    private final JpaTableRepository tableRepository;
+
+    private final JpaPartyRepository partyRepository;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public TableCache(JpaTableRepository tableRepository, JpaPartyRepository partyRepository,
+                      MeterRegistry meterRegistry) {
+        this.tableRepository = tableRepository;
+        this.partyRepository = partyRepository;
+        FunctionCounter.builder("party.tables.cache.lookups", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Lookups of table IDs in the table cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("party.tables.cache.lookups", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Lookups of table IDs in the table cache")
+                .register(meterRegistry);
+        Gauge.builder("party.tables.cache.hit-ratio", this, TableCache::getHitRatio)
+                .description("Share of table ID lookups answered by the table cache")
+                .register(meterRegistry);
+        // The gauge reads the current snapshots, the map is replaced by every rebuild
+        Gauge.builder("party.tables.cache.size", this, cache -> cache.parties.values().stream()
+                        .mapToInt(reference -> reference.get().ids.length).sum())
+                .description("Tables of all parties in the table cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Load tables of all parties from DB and replace the current snapshots. The new snapshots are built aside
+     * and swapped in at once, so lookups during the rebuild still see the previous tables.
+     */
+    @PostConstruct
+    public void rebuild() {
+        log.debug("Rebuild table cache from DB");
+        Map<Integer, AtomicReference<Snapshot>> rebuilt = new ConcurrentHashMap<>();
+        for (int partyId : partyRepository.getPartyIds()) {
+            var tables = new ArrayList<>(tableRepository.getTableList(partyId));
+            tables.sort(Comparator.comparing(Table::getId));
+            var ids = new int[tables.size()];
+            var capacities = new int[tables.size()];
+            for (int i = 0; i < tables.size(); i++) {
+                ids[i] = tables.get(i).getId();
+                capacities[i] = tables.get(i).getCapacity();
+            }
+            rebuilt.put(partyId, new AtomicReference<>(new Snapshot(ids, capacities)));
+        }
+        parties = rebuilt;
+    }
+
+    /**
+     * Check if the table is in the cache. A table which is not in the cache could still be added
+     * by another application instance, so callers check such tables in DB.
+     *
+     * @param partyId party ID
+     * @param id      table ID
+     * @return true if the table is in the cache else false
+     */
+    public boolean contains(int partyId, int id) {
+        boolean found = Arrays.binarySearch(getSnapshot(partyId).ids, id) >= 0;
+        (found ? hits : misses).increment();
+        return found;
+    }
+
+    /**
+     * Add a new table or change capacity of the existing one.
+     *
+     * @param partyId  party ID
+     * @param id       table ID
+     * @param capacity table capacity
+     */
+    public void putTable(int partyId, int id, int capacity) {
+        parties.computeIfAbsent(partyId, key -> new AtomicReference<>(EMPTY))
+                .updateAndGet(current -> current.with(id, capacity));
+    }
+
+    /**
+     * Get all tables of the party ordered by ID.
+     *
+     * @param partyId party ID
+     * @return tables list
+     */
+    public List<Table> getTables(int partyId) {
+        return getTables(partyId, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get tables of the party ordered by ID after the given table.
+     *
+     * @param partyId party ID
+     * @param afterId ID of the last table of the previous page
+     * @param limit   maximum number of tables
+     * @return tables list
+     */
+    public List<Table> getTables(int partyId, int afterId, int limit) {
+        var current = getSnapshot(partyId);
+        int from = Arrays.binarySearch(current.ids, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min(current.ids.length, (long) from + limit);
+        List<Table> tables = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            tables.add(new Table(current.ids[i], current.capacities[i]));
+        }
+        return tables;
+    }
+
+    private Snapshot getSnapshot(int partyId) {
+        var reference = parties.get(partyId);
+        return reference == null ? EMPTY : reference.get();
+    }
+
+    private double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static class Snapshot {
+        private final int[] ids;
+        private final int[] capacities;
+
+        private Snapshot(int[] ids, int[] capacities) {
+            this.ids = ids;
+            this.capacities = capacities;
+        }
+
+        private Snapshot with(int id, int capacity) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0) {
+                var newCapacities = capacities.clone();
+                newCapacities[index] = capacity;
+                return new Snapshot(ids, newCapacities);
+            }
+            int insertAt = -index - 1;
+            var newIds = new int[ids.length + 1];
+            var newCapacities = new int[ids.length + 1];
+            System.arraycopy(ids, 0, newIds, 0, insertAt);
+            System.arraycopy(capacities, 0, newCapacities, 0, insertAt);
+            newIds[insertAt] = id;
+            newCapacities[insertAt] = capacity;
+            System.arraycopy(ids, insertAt, newIds, insertAt + 1, ids.length - insertAt);
+            System.arraycopy(capacities, insertAt, newCapacities, insertAt + 1, ids.length - insertAt);
+            return new Snapshot(newIds, newCapacities);
+        }
+    }
+}
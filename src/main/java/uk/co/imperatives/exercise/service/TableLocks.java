@@ -0,0 +1,141 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.co.imperatives.exercise.exception.ExerciseServiceUnavailableException;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks of tables. Admission decisions of the same table (registration and check-in) are made one by one
+ * in FIFO order, while decisions of different tables run in parallel unless their IDs share a stripe.
+ * Tables of different parties are different tables, the stripe is chosen by party and table ID.
+ * A request which could not get the lock in time is rejected, so a crowd of requests
+ * for one table does not hold request threads and DB connections.
+ * The lock guards the whole admission decision made in memory: the check of the guest name index, the reservation
+ * of seats in the seat ledger and the registration of the name or the arrival in the index, so a second request
+ * of the same guest at the table sees the first one. It is not held across the statement which saves the request.
+ * DB statements still check the name and the capacity of the table and are the only guarantee against overbooking,
+ * so requests which are decided without the lock (a guest whose table is not known, the reactive API)
+ * cannot overbook the table either.
+ */
+@Slf4j
+@Component
+public class TableLocks {
+
+    private final ReentrantLock[] stripes;
+
+    private final long timeoutMillis;
+
+    private final Counter uncontendedCounter;
+
+    private final Counter contendedCounter;
+
+    private final Counter timeoutCounter;
+
+    private final Timer waitTimer;
+
+    /**
+     * @param stripes       number of locks, rounded up to a power of two
+     * @param timeoutMillis maximum time to wait for a lock
+     * @param meterRegistry registry for the lock metrics
+     */
+    public TableLocks(@Value("${party.table-locks.stripes:64}") int stripes,
+                      @Value("${party.table-locks.timeout:1000}") long timeoutMillis,
+                      MeterRegistry meterRegistry) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            // Fair locks let the requests of a busy table in the order of their arrival
+            this.stripes[i] = new ReentrantLock(true);
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.uncontendedCounter = acquisitionCounter(meterRegistry, "uncontended");
+        this.contendedCounter = acquisitionCounter(meterRegistry, "contended");
+        this.timeoutCounter = acquisitionCounter(meterRegistry, "timeout");
+        this.waitTimer = Timer.builder("party.table-locks.wait")
+                .description("Time spent waiting for a table lock held by another request")
+                .register(meterRegistry);
+        Gauge.builder("party.table-locks.waiting", this, TableLocks::getWaiting)
+                .description("Requests waiting for table locks")
+                .register(meterRegistry);
+    }
+
+    private static Counter acquisitionCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("party.table-locks.acquisitions")
+                .tag("result", result)
+                .description("Requests for table locks")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run the action with the lock of the table.
+     *
+     * @param partyId party ID
+     * @param tableId table ID, the action runs without a lock if it is null (the table is not known)
+     * @param action  admission decision of the table made in memory
+     * @return result of the action
+     */
+    public <T> T withLock(int partyId, Integer tableId, Supplier<T> action) {
+        if (tableId == null) {
+            return action.get();
+        }
+        var lock = getLock(partyId, tableId);
+        acquire(lock, tableId);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a number of requests waiting for table locks.
+     *
+     * @return number of waiting requests
+     */
+    public int getWaiting() {
+        return Arrays.stream(stripes).mapToInt(ReentrantLock::getQueueLength).sum();
+    }
+
+    ReentrantLock getLock(int partyId, int tableId) {
+        int hash = 31 * partyId + tableId;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private void acquire(ReentrantLock lock, int tableId) {
+        try {
+            // Timed tryLock keeps the FIFO order of the fair lock, unlike tryLock() without arguments
+            if (lock.tryLock(0, TimeUnit.NANOSECONDS)) {
+                uncontendedCounter.increment();
+                return;
+            }
+            contendedCounter.increment();
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (acquired) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        timeoutCounter.increment();
+        var errorMessage = String.format("Table with ID = %d is busy, request timed out after %d ms",
+                tableId, timeoutMillis);
+        log.error(errorMessage);
+        throw new ExerciseServiceUnavailableException(errorMessage);
+    }
+}
@@ -6,13 +6,14 @@ import org.springframework.stereotype.Service;
 import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
 import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.jfr.TableUpdateEvent;
 import uk.co.imperatives.exercise.repository.JpaTableRepository;
 import uk.co.imperatives.exercise.repository.entity.Table;
 
 import java.util.List;
 
 /**
- * Service to manage tables.
+ * Service to manage tables. Every party has its own tables, table IDs are unique within the party.
  */
 @Slf4j
 @AllArgsConstructor
@@ -21,53 +22,98 @@ public class TableService {
 
     private JpaTableRepository tableRepository;
 
+    private SeatLedger seatLedger;
+
+    private PartyEventBroadcaster partyEvents;
+
+    private TableCache tableCache;
+
     /**
      * This method аdd a new table to the table list.
      * If the table with the same ID already exists, an exception will be thrown.
      *
+     * @param partyId  party ID
      * @param id       table ID
      * @param capacity table capacity
      * @return added table ID
      */
-    public int addTable(int id, int capacity) {
-        if (tableRepository.exists(id)) {
+    public int addTable(int partyId, int id, int capacity) {
+        // A table which is not in the cache could be added by another application instance
+        if (tableCache.contains(partyId, id) || tableRepository.exists(partyId, id)) {
             var errorMessage = String.format("Table with ID = %d already exists", id);
             log.error(errorMessage);
             throw new ExerciseAlreadyExistsException(errorMessage);
         }
-        var insertedRows = tableRepository.saveTable(new Table(id, capacity));
+        var insertedRows = tableRepository.saveTable(partyId, new Table(id, capacity));
         if (insertedRows == 0) {
             var errorMessage = "An error occurs while saving a new table";
             log.error(errorMessage);
             throw new ExerciseServiceException(errorMessage);
         }
+        seatLedger.putTable(partyId, id, capacity);
+        tableCache.putTable(partyId, id, capacity);
+        partyEvents.seatsChanged(partyId);
         return id;
     }
 
-    public List<Table> getTablesList() {
-        log.debug("Call DB to get table list");
-        return tableRepository.getTableList();
+    /**
+     * Method provides the tables list ordered by ID from the table cache.
+     *
+     * @param partyId party ID
+     * @return tables list
+     */
+    public List<Table> getTablesList(int partyId) {
+        log.debug("Get table list from the table cache");
+        return tableCache.getTables(partyId);
+    }
+
+    /**
+     * Method provides a page of the tables list ordered by ID.
+     *
+     * @param partyId party ID
+     * @param afterId ID of the last table of the previous page
+     * @param limit   maximum number of tables
+     * @return tables list
+     */
+    public List<Table> getTablesList(int partyId, int afterId, int limit) {
+        log.debug(String.format("Get table list after table ID = %d, limit = %d from the table cache", afterId, limit));
+        return tableCache.getTables(partyId, afterId, limit);
     }
 
     /**
      * Update table's capacity by ID.
      *
+     * @param partyId  party ID
      * @param id       table's ID
      * @param capacity new table's capacity
      * @return updated table ID
      */
-    public Integer updateTable(int id, int capacity) {
-        if (!tableRepository.exists(id)) {
-            var errorMessage = String.format("Table with ID = %d does not exist", id);
-            log.error(errorMessage);
-            throw new ExerciseNotFoundException(errorMessage);
+    public Integer updateTable(int partyId, int id, int capacity) {
+        var event = new TableUpdateEvent(partyId, id);
+        try {
+            event.validated();
+            boolean exists = tableCache.contains(partyId, id) || tableRepository.exists(partyId, id);
+            event.checked();
+            if (!exists) {
+                event.setOutcome("UNKNOWN_TABLE");
+                var errorMessage = String.format("Table with ID = %d does not exist", id);
+                log.error(errorMessage);
+                throw new ExerciseNotFoundException(errorMessage);
+            }
+            var updatedRows = tableRepository.updateTable(partyId, new Table(id, capacity));
+            event.written();
+            if (1 != updatedRows) {
+                var errorMessage = "Error in DB while table capacity update";
+                log.error(errorMessage);
+                throw new ExerciseServiceException(errorMessage);
+            }
+            seatLedger.putTable(partyId, id, capacity);
+            tableCache.putTable(partyId, id, capacity);
+            partyEvents.seatsChanged(partyId);
+            event.setOutcome("OK");
+            return id;
+        } finally {
+            event.commit();
         }
-        var updatedRows = tableRepository.updateTable(new Table(id, capacity));
-        if (1 != updatedRows) {
-            var errorMessage = "Error in DB while table capacity update";
-            log.error(errorMessage);
-            throw new ExerciseServiceException(errorMessage);
-        }
-        return id;
     }
 }
@@ -0,0 +1,101 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.test.StepVerifier;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.SeatsResponse;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for ReactiveEventController controller.
+ */
+public class ReactiveEventControllerTest {
+
+    private final PartyEventBroadcaster partyEvents = mock(PartyEventBroadcaster.class);
+
+    private final PartyService partyService = mock(PartyService.class);
+
+    private final Runnable unsubscribe = mock(Runnable.class);
+
+    private final AtomicReference<PartyEventBroadcaster.EventSink> sink = new AtomicReference<>();
+
+    private final ReactiveEventController controller = new ReactiveEventController(partyEvents, partyService, 2,
+            60_000);
+
+    /**
+     * Input: the client requests events, the broadcaster sends the count of seats and an arrival.
+     * Output: both events are in the stream, the client is unsubscribed when it cancels the stream.
+     */
+    @Test
+    public void givenSubscription_ReturnEvents() {
+        givenSubscriber(1);
+
+        StepVerifier.create(controller.getEvents(1))
+                .then(() -> send(PartyEventBroadcaster.SEATS_EVENT, new SeatsResponse(15)))
+                .expectNextMatches(event -> PartyEventBroadcaster.SEATS_EVENT.equals(event.event()))
+                .then(() -> send(PartyEventBroadcaster.ARRIVAL_EVENT, new GuestRequest("Jon Snow", 1, 2)))
+                .expectNextMatches(event -> PartyEventBroadcaster.ARRIVAL_EVENT.equals(event.event())
+                        && event.data() instanceof GuestRequest)
+                .thenCancel()
+                .verify();
+        verify(unsubscribe, times(1)).run();
+    }
+
+    /**
+     * Input: the client does not request events, the buffer of the response has space for 2 events,
+     * the broadcaster sends 3 events.
+     * Output: sending does not wait for the client, the third event fails the sender, so the client is unsubscribed,
+     * the client gets the 2 buffered events and the stream is completed.
+     */
+    @Test
+    public void givenSlowClient_DoNotBlockSender() {
+        givenSubscriber(PartyService.DEFAULT_PARTY);
+
+        StepVerifier.create(controller.getEvents(null), 0)
+                .then(() -> {
+                    send(PartyEventBroadcaster.SEATS_EVENT, new SeatsResponse(15));
+                    send(PartyEventBroadcaster.SEATS_EVENT, new SeatsResponse(14));
+                    assertThrows(IOException.class, () -> sink.get().send(PartyEventBroadcaster.SEATS_EVENT,
+                            new SeatsResponse(13)));
+                })
+                .thenRequest(3)
+                .expectNextMatches(event -> seatsEmpty(event) == 15)
+                .expectNextMatches(event -> seatsEmpty(event) == 14)
+                .verifyComplete();
+        verify(unsubscribe, times(1)).run();
+    }
+
+    private void givenSubscriber(int partyId) {
+        given(partyService.isKnown(partyId)).willReturn(true);
+        willAnswer(invocation -> {
+            sink.set(invocation.getArgument(1));
+            return unsubscribe;
+        }).given(partyEvents).subscribe(eq(partyId), any());
+    }
+
+    private void send(String name, Object data) {
+        try {
+            sink.get().send(name, data);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int seatsEmpty(ServerSentEvent<Object> event) {
+        return ((SeatsResponse) event.data()).getSeatsEmpty();
+    }
+}
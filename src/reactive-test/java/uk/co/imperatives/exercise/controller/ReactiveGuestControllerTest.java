@@ -0,0 +1,205 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.service.GuestImportService;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.ReactiveGuestService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Unit tests for ReactiveGuestController controller.
+ */
+@ActiveProfiles("reactive")
+@WebFluxTest(ReactiveGuestController.class)
+public class ReactiveGuestControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveGuestService guestService;
+
+    @MockBean
+    private GuestImportService guestImportService;
+
+    @MockBean
+    private PartyService partyService;
+
+    /**
+     * This test checks the POST method /guest_list/{name}
+     * In positive case it should return status 201 and response body with a name of guest.
+     */
+    @Test
+    public void givenCorrectPostGuestRequest_Return201AndName() {
+        given(guestService.addGuest(1, "Jon Snow", 1, 2)).willReturn(Mono.just("Jon Snow"));
+
+        webTestClient.post().uri("/guest_list/{name}", "Jon Snow")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"table\":1,\"accompanying_guests\":2}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"name\":\"Jon Snow\"}");
+    }
+
+    /**
+     * This test checks the POST method /guest_list/{name} with negative number of accompanying guests.
+     * It should return status 400 and response body with error.
+     */
+    @Test
+    public void givenNegativeAccompanyingGuests_Return400AndError() {
+        webTestClient.post().uri("/guest_list/{name}", "Jon Snow")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"table\":1,\"accompanying_guests\":-1}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("Number of accompanying guests must be more than 0"));
+    }
+
+    /**
+     * This test checks the POST method /guest_list with CSV
+     * The import is called with parsed rows and the result of every row is returned.
+     */
+    @Test
+    public void givenCsvGuestList_ParseRowsAndReturn200() {
+        given(guestImportService.importGuests(eq(1), argThat(guests -> guests.size() == 1
+                && "Snow, Jon".equals(guests.get(0).getName()) && guests.get(0).getTotalGuests() == 3)))
+                .willReturn(List.of(RegistrationStatus.OK));
+
+        webTestClient.post().uri("/guest_list")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("name,table,accompanying_guests\n\"Snow, Jon\",1,2\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.imported").isEqualTo(1)
+                .jsonPath("$.rows[0].status").isEqualTo("OK");
+    }
+
+    /**
+     * This test checks the GET method /guest_list with more guests than one written buffer.
+     * All guests are returned in one JSON array in the order of the service.
+     */
+    @Test
+    public void givenManyGuests_Return200AndWholeList() {
+        given(guestService.streamGuestList(eq(1), any())).willReturn(Flux.fromStream(IntStream.range(0, 250)
+                .mapToObj(i -> new Guest(String.format("guest-%03d", i), 1, 1))));
+
+        webTestClient.get().uri("/guest_list")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.guests.length()").isEqualTo(250)
+                .jsonPath("$.guests[0].name").isEqualTo("guest-000")
+                .jsonPath("$.guests[249].name").isEqualTo("guest-249")
+                .jsonPath("$.guests[249].accompanying_guests").isEqualTo(0)
+                .jsonPath("$.next_cursor").doesNotExist();
+    }
+
+    /**
+     * This test checks the GET method /guest_list with limit and filters.
+     * Filters are passed to the service with limit + 1, the extra guest is not returned but the next cursor is.
+     */
+    @Test
+    public void givenLimitAndFilters_Return200PageAndNextCursor() {
+        given(guestService.streamGuestList(eq(1), argThat(filter -> filter.getLimit() == 2
+                && filter.getTableNumber() == 1 && "Jon".equals(filter.getNamePrefix())
+                && "Arya Stark".equals(filter.getAfterName()))))
+                .willReturn(Flux.just(new Guest("Jon Snow", 1, 1), new Guest("Jon Stark", 1, 2)));
+        String cursor = encode("Arya Stark");
+
+        webTestClient.get().uri(uri -> uri.path("/guest_list")
+                        .queryParam("limit", 1)
+                        .queryParam("cursor", cursor)
+                        .queryParam("table", 1)
+                        .queryParam("name_prefix", "Jon")
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.guests.length()").isEqualTo(1)
+                .jsonPath("$.guests[0].name").isEqualTo("Jon Snow")
+                .jsonPath("$.next_cursor").isEqualTo(encode("Jon Snow"));
+    }
+
+    /**
+     * This test checks the GET method /guests with invalid cursor.
+     * It should return status 400 and response body with error.
+     */
+    @Test
+    public void givenInvalidCursor_Return400AndError() {
+        webTestClient.get().uri("/guests?cursor=bm90LWEtY3Vyc29y")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).value(containsString("Invalid cursor"));
+    }
+
+    /**
+     * This test checks the DELETE /guests/{name} method for a guest who did not arrive.
+     * It should return status 404 and response body with error.
+     */
+    @Test
+    public void givenNotArrivedGuest_Delete_Return404AndError() {
+        given(guestService.delete(1, "Jon Snow")).willReturn(
+                Mono.error(new ExerciseNotFoundException("Guest with name Jon Snow did not arrive to the party")));
+
+        webTestClient.delete().uri("/guests/{name}", "Jon Snow")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody(String.class).value(containsString("did not arrive to the party"));
+    }
+
+    /**
+     * This test checks GET /seats_empty method.
+     * It must return available seats, status 200.
+     */
+    @Test
+    public void givenAvailableSeatsCount_ReturnStatus200AndSeatsCount() {
+        given(guestService.getAvailableSeats(1)).willReturn(Mono.just(7));
+
+        webTestClient.get().uri("/seats_empty")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"seats_empty\":7}");
+    }
+
+    /**
+     * This test checks GET /parties/{party_id}/seats_empty method.
+     * It must return available seats of the party from the route, status 200.
+     */
+    @Test
+    public void givenPartyAvailableSeatsCount_ReturnStatus200AndSeatsCountOfParty() {
+        given(guestService.getAvailableSeats(1)).willReturn(Mono.just(7));
+        given(guestService.getAvailableSeats(2)).willReturn(Mono.just(3));
+
+        webTestClient.get().uri("/parties/{party_id}/seats_empty", 2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().json("{\"seats_empty\":3}");
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
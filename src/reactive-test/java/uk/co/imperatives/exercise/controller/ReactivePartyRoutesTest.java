@@ -0,0 +1,63 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for ReactivePartyRoutes.
+ */
+public class ReactivePartyRoutesTest {
+
+    private final JpaPartyRepository partyRepository = mock(JpaPartyRepository.class);
+
+    private final PartyService partyService = new PartyService(partyRepository);
+
+    /**
+     * Input: the default party is loaded on startup, the route has no party ID.
+     * Output: the default party without a DB call.
+     */
+    @Test
+    public void givenKnownParty_ResolveWithoutDb() {
+        given(partyRepository.getPartyIds()).willReturn(List.of(PartyService.DEFAULT_PARTY));
+        partyService.load();
+
+        StepVerifier.create(ReactivePartyRoutes.resolve(partyService, null))
+                .expectNext(PartyService.DEFAULT_PARTY)
+                .verifyComplete();
+        verify(partyRepository, never()).exists(anyInt());
+    }
+
+    /**
+     * Input: parties 5 and 6 are not known, party 5 exists in DB, the requests run on non-blocking threads
+     * and JDBC fails there.
+     * Output: party 5 and ExerciseNotFoundException for party 6, both are checked in DB off the non-blocking threads.
+     */
+    @Test
+    public void givenUnknownParty_CheckInDbWithoutBlocking() {
+        given(partyRepository.exists(anyInt())).willAnswer(invocation -> {
+            if (Schedulers.isInNonBlockingThread()) {
+                throw new IllegalStateException("JDBC is called on a non-blocking thread");
+            }
+            return invocation.getArgument(0, Integer.class) == 5;
+        });
+
+        StepVerifier.create(ReactivePartyRoutes.resolve(partyService, 5).subscribeOn(Schedulers.parallel()))
+                .expectNext(5)
+                .verifyComplete();
+        StepVerifier.create(ReactivePartyRoutes.resolve(partyService, 6).subscribeOn(Schedulers.parallel()))
+                .expectError(ExerciseNotFoundException.class)
+                .verify();
+    }
+}
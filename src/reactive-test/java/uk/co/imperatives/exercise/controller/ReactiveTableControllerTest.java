@@ -0,0 +1,107 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.ReactiveTableService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Unit tests for ReactiveTableController controller.
+ */
+@ActiveProfiles("reactive")
+@WebFluxTest(ReactiveTableController.class)
+public class ReactiveTableControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveTableService tableService;
+
+    @MockBean
+    private PartyService partyService;
+
+    /**
+     * This test checks the POST method /table.
+     * In positive case it should return status 201 and response body with a table ID.
+     */
+    @Test
+    public void givenCorrectPostTableRequest_Return201AndTableID() {
+        given(tableService.addTable(1, 1, 2)).willReturn(Mono.just(1));
+
+        webTestClient.post().uri("/table")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"table_id\":1,\"capacity\":2}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"table_id\":1}");
+    }
+
+    /**
+     * This test checks the POST method /table for the existing table.
+     * It should return status 409 and response body with error.
+     */
+    @Test
+    public void givenExistingTable_Return409AndError() {
+        given(tableService.addTable(1, 1, 2)).willReturn(
+                Mono.error(new ExerciseAlreadyExistsException("Table with ID = 1 already exists")));
+
+        webTestClient.post().uri("/table")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"table_id\":1,\"capacity\":2}")
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(String.class).value(containsString("Table with ID = 1 already exists"));
+    }
+
+    /**
+     * This test checks the POST method /parties/{party_id}/table.
+     * The table should be added to the party from the route.
+     */
+    @Test
+    public void givenPartyPostTableRequest_Return201AndTableID() {
+        given(tableService.addTable(2, 1, 2)).willReturn(Mono.just(1));
+
+        webTestClient.post().uri("/parties/2/table")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"table_id\":1,\"capacity\":2}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"table_id\":1}");
+    }
+
+    /**
+     * This test checks the GET method /tables_list with limit.
+     * One more table is requested from the service, the extra table is not returned but the next cursor is.
+     */
+    @Test
+    public void givenLimit_Return200PageAndNextCursor() {
+        given(tableService.getTablesList(1, Integer.MIN_VALUE, 3))
+                .willReturn(Flux.just(new Table(1, 5), new Table(2, 10), new Table(3, 12)));
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2".getBytes(StandardCharsets.UTF_8));
+
+        webTestClient.get().uri("/tables_list?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.tables_list.length()").isEqualTo(2)
+                .jsonPath("$.tables_list[1].table_id").isEqualTo(2)
+                .jsonPath("$.next_cursor").isEqualTo(nextCursor);
+    }
+}
@@ -0,0 +1,213 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
+import uk.co.imperatives.exercise.repository.CheckInResult;
+import uk.co.imperatives.exercise.repository.CheckInStatus;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.ReactiveArrivalRepository;
+import uk.co.imperatives.exercise.repository.ReactiveGuestRepository;
+import uk.co.imperatives.exercise.repository.ReactiveTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for ReactiveGuestService
+ */
+public class ReactiveGuestServiceTest {
+
+    private final ReactiveGuestRepository guestRepository = mock(ReactiveGuestRepository.class);
+
+    private final ReactiveArrivalRepository arrivalRepository = mock(ReactiveArrivalRepository.class);
+
+    private final ReactiveTableRepository tableRepository = mock(ReactiveTableRepository.class);
+
+    private final SeatLedger seatLedger = mock(SeatLedger.class);
+
+    private final PartyEventBroadcaster partyEvents = mock(PartyEventBroadcaster.class);
+
+    private final GuestNameIndex guestNameIndex = mock(GuestNameIndex.class);
+
+    private final PartyProjection partyProjection = mock(PartyProjection.class);
+
+    private final ReactiveGuestService guestService = new ReactiveGuestService(guestRepository, arrivalRepository,
+            tableRepository, seatLedger, partyEvents, guestNameIndex, partyProjection);
+
+    /**
+     * Input: guest "Jon Snow" at table 1 with 1 accompanying guest, the repository saves the guest.
+     * Output: guest name, the booking of 2 people is registered in the seat ledger.
+     */
+    @Test
+    public void givenGuestInfo_AvailableSeats_ReturnNameAndBook() {
+        given(seatLedger.contains(1, 1)).willReturn(true);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(Mono.just(RegistrationStatus.OK));
+
+        StepVerifier.create(guestService.addGuest(1, "Jon Snow", 1, 1))
+                .expectNext("Jon Snow")
+                .verifyComplete();
+        verify(seatLedger).book(1, 1, 2);
+        verify(guestNameIndex).book(1, "Jon Snow", 1);
+        verify(partyProjection).book(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Input: the repository returns DUPLICATE_NAME for the new guest.
+     * Output: ExerciseAlreadyExistsException, the seat ledger is not changed.
+     */
+    @Test
+    public void givenDuplicateName_ReturnAlreadyExistsError() {
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class)))
+                .willReturn(Mono.just(RegistrationStatus.DUPLICATE_NAME));
+
+        StepVerifier.create(guestService.addGuest(1, "Jon Snow", 1, 1))
+                .expectError(ExerciseAlreadyExistsException.class)
+                .verify();
+        verify(seatLedger, never()).book(anyInt(), anyInt(), anyInt());
+    }
+
+    /**
+     * Input: the guest booked table 3 and checks in with 2 accompanying guests.
+     * Output: guest name, 3 arrived people are registered at table 3 in the seat ledger and the arrival is published.
+     */
+    @Test
+    public void givenBookedGuest_CheckIn_ReturnNameAndArrive() {
+        given(seatLedger.contains(1, 3)).willReturn(true);
+        given(guestNameIndex.isBooked(1, "Jon Snow")).willReturn(true);
+        given(arrivalRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(Mono.just(new CheckInResult(CheckInStatus.OK, 3)));
+
+        StepVerifier.create(guestService.checkInGuest(1, "Jon Snow", 2))
+                .expectNext("Jon Snow")
+                .verifyComplete();
+        verify(seatLedger).arrive(1, 3, 3);
+        verify(partyEvents).guestArrived(1, "Jon Snow", 3, 3);
+        verify(guestNameIndex).arrive(1, "Jon Snow");
+        verify(partyProjection).arrive(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Input: the guest booked table 3, the check-in statement finds no space at the table.
+     * Output: ExerciseNoCapacityException, the statement alone decides the check-in: seats are neither reserved
+     * nor registered in the seat ledger.
+     */
+    @Test
+    public void givenFullTableInDb_CheckIn_ReturnNoCapacityError() {
+        given(guestNameIndex.isBooked(1, "Jon Snow")).willReturn(true);
+        given(guestNameIndex.getTable(1, "Jon Snow")).willReturn(3);
+        given(arrivalRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(Mono.just(new CheckInResult(CheckInStatus.NO_CAPACITY, 3)));
+
+        StepVerifier.create(guestService.checkInGuest(1, "Jon Snow", 2))
+                .expectError(ExerciseNoCapacityException.class)
+                .verify();
+        verify(seatLedger, never()).tryArrive(anyInt(), anyInt(), anyInt());
+        verify(seatLedger, never()).arrive(anyInt(), anyInt(), anyInt());
+        verify(guestNameIndex, never()).arrive(anyInt(), any());
+    }
+
+    /**
+     * Input: the guest is not in the guest name index.
+     * Output: ExerciseNotFoundException without a DB call.
+     */
+    @Test
+    public void givenNotIndexedGuest_CheckIn_ReturnNotFoundError() {
+        StepVerifier.create(guestService.checkInGuest(1, "Jon Snow", 2))
+                .expectErrorMessage("Guest with name Jon Snow did not book a table")
+                .verify();
+        verify(arrivalRepository, never()).checkInGuest(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Input: the guest arrived with 1 friend to table 2 and leaves the party.
+     * Output: guest name, the seats are released in the seat ledger.
+     */
+    @Test
+    public void givenArrivedGuest_Delete_ReturnNameAndLeave() {
+        given(seatLedger.contains(1, 2)).willReturn(true);
+        given(guestNameIndex.isArrived(1, "Jon Snow")).willReturn(true);
+        given(arrivalRepository.deleteArrival(anyInt(), any(Guest.class)))
+                .willReturn(Flux.just(new Guest("Jon Snow", 2, 2)));
+
+        StepVerifier.create(guestService.delete(1, "Jon Snow"))
+                .expectNext("Jon Snow")
+                .verifyComplete();
+        verify(seatLedger).leave(1, 2, 2);
+        verify(guestNameIndex).leave(1, "Jon Snow");
+    }
+
+    /**
+     * Input: the guest is in arrived guests of the guest name index, but nothing is deleted in DB.
+     * Output: ExerciseNotFoundException, the name is evicted from the index.
+     */
+    @Test
+    public void givenNotArrivedGuest_Delete_ReturnNotFoundError() {
+        given(guestNameIndex.isArrived(1, "Jon Snow")).willReturn(true);
+        given(arrivalRepository.deleteArrival(anyInt(), any(Guest.class))).willReturn(Flux.empty());
+
+        StepVerifier.create(guestService.delete(1, "Jon Snow"))
+                .expectErrorMessage("Guest with name Jon Snow did not arrive to the party")
+                .verify();
+        verify(guestNameIndex).evict(1, "Jon Snow", true);
+    }
+
+    /**
+     * Input: tables 1 and 2 with 10 seats are not in the seat ledger, requests run on non-blocking threads and
+     * JDBC fails there. A guest books table 1, another guest checks in with 2 friends at table 2 and leaves.
+     * Output: the tables are read with R2DBC after the statements and are not read with JDBC, the changes are not
+     * counted twice: 17 seats are available after the check-in and 20 after the guest leaves.
+     */
+    @Test
+    public void givenTablesNotInLedger_ReadTablesWithoutBlocking() {
+        var jdbcTables = mock(JpaTableRepository.class);
+        given(jdbcTables.getTableOccupancy(anyInt(), anyInt())).willAnswer(invocation -> {
+            if (Schedulers.isInNonBlockingThread()) {
+                throw new IllegalStateException("JDBC is called on a non-blocking thread");
+            }
+            return Optional.empty();
+        });
+        var ledger = new SeatLedger(jdbcTables, mock(JpaPartyRepository.class));
+        var service = new ReactiveGuestService(guestRepository, arrivalRepository, tableRepository, ledger,
+                partyEvents, guestNameIndex, partyProjection);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(Mono.just(RegistrationStatus.OK));
+        given(tableRepository.getTableOccupancy(1, 1)).willReturn(Mono.just(new TableOccupancy(1, 10, 2, 0)));
+        given(guestNameIndex.isBooked(1, "Arya Stark")).willReturn(true);
+        given(arrivalRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(Mono.just(new CheckInResult(CheckInStatus.OK, 2)));
+        given(tableRepository.getTableOccupancy(1, 2)).willReturn(Mono.just(new TableOccupancy(2, 10, 3, 3)));
+        given(arrivalRepository.deleteArrival(anyInt(), any(Guest.class)))
+                .willReturn(Flux.just(new Guest("Arya Stark", 2, 3)));
+
+        StepVerifier.create(service.addGuest(1, "Jon Snow", 1, 1).subscribeOn(Schedulers.parallel()))
+                .expectNext("Jon Snow")
+                .verifyComplete();
+        StepVerifier.create(service.checkInGuest(1, "Arya Stark", 2).subscribeOn(Schedulers.parallel()))
+                .expectNext("Arya Stark")
+                .verifyComplete();
+        assertEquals(17, ledger.getAvailableSeats(1));
+        given(guestNameIndex.isArrived(1, "Arya Stark")).willReturn(true);
+        StepVerifier.create(service.delete(1, "Arya Stark").subscribeOn(Schedulers.parallel()))
+                .expectNext("Arya Stark")
+                .verifyComplete();
+        assertEquals(20, ledger.getAvailableSeats(1));
+        assertEquals(RegistrationStatus.OK, ledger.tryBook(1, 1, 8));
+        assertEquals(RegistrationStatus.NO_CAPACITY, ledger.tryBook(1, 1, 1));
+        verify(jdbcTables, never()).getTableOccupancy(anyInt(), anyInt());
+    }
+}
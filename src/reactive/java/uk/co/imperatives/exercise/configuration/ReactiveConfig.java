@@ -0,0 +1,33 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Configuration of the reactive API variant. Guest and table endpoints use the R2DBC connection pool,
+ * JDBC data source is still used by Flyway migrations, the seat ledger and the guest list import.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Netty serves requests with a fixed number of event loop threads (one per CPU by default).
+     * Tomcat is on the classpath for the servlet API, so it would be chosen without this bean.
+     *
+     * @return reactive web server factory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
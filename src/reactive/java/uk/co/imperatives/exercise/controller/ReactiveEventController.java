@@ -0,0 +1,70 @@
+package uk.co.imperatives.exercise.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reactive variant of the events controller. Events are put into a bounded buffer of the response without waiting,
+ * so a slow client never blocks the sender threads of the broadcaster. If the buffer is full, the stream
+ * is completed and the client is unsubscribed, it reconnects and reloads the lists.
+ */
+@Slf4j
+@Profile("reactive")
+@RestController
+public class ReactiveEventController {
+
+    private final PartyEventBroadcaster partyEvents;
+
+    private final PartyService partyService;
+
+    private final int maxBuffered;
+
+    private final long timeout;
+
+    public ReactiveEventController(PartyEventBroadcaster partyEvents, PartyService partyService,
+                                   @Value("${party.events.max-pending:1000}") int maxBuffered,
+                                   @Value("${party.events.timeout:1800000}") long timeout) {
+        this.partyEvents = partyEvents;
+        this.partyService = partyService;
+        this.maxBuffered = maxBuffered;
+        this.timeout = timeout;
+    }
+
+    /**
+     * This method subscribes the client to live party events until the connection is closed or timed out.
+     *
+     * @param partyId party ID, the default party if not set
+     * @return stream of events
+     */
+    @GetMapping(value = {"/events", "/parties/{party_id}/events"}, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> getEvents(@PathVariable(name = "party_id", required = false) Integer partyId) {
+        log.debug("Receive a new GET request to subscribe to party events.");
+        return ReactivePartyRoutes.resolve(partyService, partyId).flatMapMany(party -> {
+            Sinks.Many<ServerSentEvent<Object>> events = Sinks.many().unicast()
+                    .onBackpressureBuffer(new ArrayBlockingQueue<>(maxBuffered));
+            var unsubscribe = partyEvents.subscribe(party, (name, data) -> {
+                // One sender thread at a time sends to the client, so emissions are serialized
+                if (events.tryEmitNext(ServerSentEvent.builder(data).event(name).build()).isFailure()) {
+                    // Buffered events are sent before the stream completes
+                    events.tryEmitComplete();
+                    throw new IOException("Client does not read events");
+                }
+            });
+            return events.asFlux().doFinally(signal -> unsubscribe.run());
+        }).take(Duration.ofMillis(timeout));
+    }
+}
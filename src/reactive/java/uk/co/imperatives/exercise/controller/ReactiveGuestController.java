@@ -0,0 +1,335 @@
+package uk.co.imperatives.exercise.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.co.imperatives.exercise.dto.GuestImportResponse;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.GuestResponse;
+import uk.co.imperatives.exercise.dto.SeatsResponse;
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.service.GuestImportService;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.ReactiveGuestService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Reactive variant of the guests controller with the same endpoints and responses.
+ * Requests are handled on a few event loop threads, so a slow client holds neither a thread nor a DB connection
+ * while it is not reading the response.
+ */
+@Slf4j
+@Profile("reactive")
+@AllArgsConstructor
+@RestController
+public class ReactiveGuestController {
+
+    private final static String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * Guests written to the response in one buffer.
+     */
+    private final static int STREAM_CHUNK_ROWS = 100;
+
+    private ReactiveGuestService guestService;
+
+    private GuestImportService guestImportService;
+
+    private PartyService partyService;
+
+    private ObjectMapper objectMapper;
+
+    /**
+     * This method аdd a guest to the guests list.
+     *
+     * @param partyId      party ID, the default party if not set
+     * @param name         name of a new guest
+     * @param guestRequest information about guest: table's number and count of accompanying guests
+     * @return response with created guest's name
+     */
+    @PostMapping({"/guest_list/{name}", "/parties/{party_id}/guest_list/{name}"})
+    public Mono<ResponseEntity<GuestResponse>> addGuest(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @PathVariable(name = "name") String name,
+            @RequestBody @Valid GuestRequest guestRequest) {
+        log.debug("Receive a new POST request to add a new guest.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> guestService.addGuest(party, name, guestRequest.getTable(),
+                        guestRequest.getAccompanyingGuests()))
+                .map(guestName -> ResponseEntity.status(HttpStatus.CREATED).body(new GuestResponse(guestName)));
+    }
+
+    /**
+     * This method imports a guest list from JSON array. Import uses JDBC batches in one transaction,
+     * so it runs on the bounded elastic scheduler instead of the event loop.
+     *
+     * @param partyId       party ID, the default party if not set
+     * @param guestRequests guests with name, table's number and count of accompanying guests
+     * @return summary with the result of every row
+     */
+    @PostMapping(value = {"/guest_list", "/parties/{party_id}/guest_list"}, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<GuestImportResponse> importGuestList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestBody List<GuestRequest> guestRequests) {
+        log.debug("Receive a new POST request to import guest list.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> importGuests(party, GuestImports.fromRequests(guestRequests)));
+    }
+
+    /**
+     * This method imports a guest list from CSV with columns "name,table,accompanying_guests".
+     * The header line is optional.
+     *
+     * @param partyId party ID, the default party if not set
+     * @param csv     guest list in CSV format
+     * @return summary with the result of every row
+     */
+    @PostMapping(value = {"/guest_list", "/parties/{party_id}/guest_list"}, consumes = TEXT_CSV_VALUE)
+    public Mono<GuestImportResponse> importGuestListCsv(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestBody String csv) {
+        log.debug("Receive a new POST request to import guest list in CSV format.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> importGuests(party, GuestImports.parseCsv(csv)));
+    }
+
+    /**
+     * This method provides guests who booked a table ordered by name. Guests are read from DB
+     * only as fast as the client reads the response.
+     *
+     * @param partyId    party ID, the default party if not set
+     * @param limit      maximum number of guests in the response, all guests if not set
+     * @param cursor     cursor of the page from the previous response
+     * @param table      table's number to filter guests
+     * @param namePrefix beginning of guest's name to filter guests
+     * @return a guests list with information about each guest: name, booked table, accompanying guests.
+     */
+    @GetMapping({"/guest_list", "/parties/{party_id}/guest_list"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getGuestList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "table", required = false) Integer table,
+            @RequestParam(name = "name_prefix", required = false) String namePrefix) {
+        log.debug("Receive a new GET request to provide guest list.");
+        var filter = new GuestFilter();
+        filter.setTableNumber(table);
+        filter.setNamePrefix(namePrefix);
+        if (cursor != null) {
+            filter.setAfterName(PageCursor.decode(cursor, 1)[0]);
+        }
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .map(party -> streamGuestList(filter, limit,
+                        guestFilter -> guestService.streamGuestList(party, guestFilter),
+                        guest -> new GuestRequest(guest.getName(), guest.getTableNumber(), guest.getTotalGuests() - 1),
+                        guest -> PageCursor.encode(guest.getName())));
+    }
+
+    /**
+     * This method manages an arrived guests.
+     *
+     * @param partyId      party ID, the default party if not set
+     * @param name         name of arrived guest
+     * @param guestRequest request with the number of accompanying guests
+     * @return response with guest's name
+     */
+    @PutMapping({"/guests/{name}", "/parties/{party_id}/guests/{name}"})
+    public Mono<GuestResponse> arrivedGuest(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                            @PathVariable(name = "name") String name,
+                                            @RequestBody @Valid GuestRequest guestRequest) {
+        log.debug("Receive a new PUT request to check in an arrived guest.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> guestService.checkInGuest(party, name, guestRequest.getAccompanyingGuests()))
+                .map(GuestResponse::new);
+    }
+
+    /**
+     * This method removes guest who leaves the party
+     *
+     * @param partyId party ID, the default party if not set
+     * @param name    guest's name who leaves the party.
+     * @return response with guest's name
+     */
+    @DeleteMapping({"/guests/{name}", "/parties/{party_id}/guests/{name}"})
+    public Mono<GuestResponse> deleteGuest(@PathVariable(name = "party_id", required = false) Integer partyId,
+                                           @PathVariable(name = "name") String name) {
+        log.debug("Receive a new DELETE request to remove guest who leaves the party.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> guestService.delete(party, name))
+                .map(GuestResponse::new);
+    }
+
+    /**
+     * This method provides arrived guests ordered by arrival time and name. Guests are read from DB
+     * only as fast as the client reads the response.
+     *
+     * @param partyId     party ID, the default party if not set
+     * @param limit       maximum number of guests in the response, all guests if not set
+     * @param cursor      cursor of the page from the previous response
+     * @param table       booked table's number to filter guests
+     * @param namePrefix  beginning of guest's name to filter guests
+     * @param arrivedFrom arrival time from (inclusive, UTC as time_arrived in the response)
+     * @param arrivedTo   arrival time to (exclusive, UTC as time_arrived in the response)
+     * @return a list of arrived guests
+     */
+    @GetMapping({"/guests", "/parties/{party_id}/guests"})
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getArrivedGuestsList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "table", required = false) Integer table,
+            @RequestParam(name = "name_prefix", required = false) String namePrefix,
+            @RequestParam(name = "arrived_from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivedFrom,
+            @RequestParam(name = "arrived_to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime arrivedTo) {
+        log.debug("Receive a new GET request for arrived guests list.");
+        var filter = new GuestFilter();
+        filter.setTableNumber(table);
+        filter.setNamePrefix(namePrefix);
+        if (arrivedFrom != null) {
+            filter.setArrivedFrom(Date.from(arrivedFrom.toInstant(ZoneOffset.UTC)));
+        }
+        if (arrivedTo != null) {
+            filter.setArrivedTo(Date.from(arrivedTo.toInstant(ZoneOffset.UTC)));
+        }
+        if (cursor != null) {
+            var values = PageCursor.decode(cursor, 2);
+            filter.setAfterTimeArrived(PageCursor.toTimestamp(values[0], cursor));
+            filter.setAfterName(values[1]);
+        }
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .map(party -> streamGuestList(filter, limit,
+                        guestFilter -> guestService.streamArrivedGuestList(party, guestFilter),
+                        guest -> new GuestRequest(guest.getName(), guest.getTotalGuests() - 1, guest.getTimeArrived()),
+                        guest -> PageCursor.encode(guest.getTimeArrived().toString(), guest.getName())));
+    }
+
+    /**
+     * This method returns a count of available seats
+     *
+     * @param partyId party ID, the default party if not set
+     * @return response with available seats
+     */
+    @GetMapping({"/seats_empty", "/parties/{party_id}/seats_empty"})
+    public Mono<SeatsResponse> getEmptySeats(@PathVariable(name = "party_id", required = false) Integer partyId) {
+        log.debug("Receive a new GET request for empty seats.");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(guestService::getAvailableSeats)
+                .map(SeatsResponse::new);
+    }
+
+    private Mono<GuestImportResponse> importGuests(int partyId, List<Guest> guests) {
+        return Mono.fromCallable(() ->
+                        GuestImports.createResponse(guests, guestImportService.importGuests(partyId, guests)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Writes guests in the same format as GuestListResponse: {"guests": [...], "next_cursor": "..."}.
+     * One more guest than the limit is read from DB to find out whether the next page exists.
+     * Guests are requested from DB when the previous buffers were written to the client (backpressure).
+     *
+     * @param filter     filter and keyset position of the list
+     * @param limit      maximum number of guests in the response, all guests if not set
+     * @param source     reads guests of the list from DB
+     * @param toResponse converts a guest to the response row
+     * @param toCursor   creates the cursor of the next page from the last guest of the page
+     * @return streaming response
+     */
+    private ResponseEntity<Flux<DataBuffer>> streamGuestList(GuestFilter filter, Integer limit,
+                                                             Function<GuestFilter, Flux<Guest>> source,
+                                                             Function<Guest, GuestRequest> toResponse,
+                                                             Function<Guest, String> toCursor) {
+        PageCursor.validateLimit(limit);
+        if (limit != null) {
+            filter.setLimit(limit + 1);
+        }
+        var body = Flux.defer(() -> {
+            var count = new AtomicInteger();
+            var last = new AtomicReference<Guest>();
+            var hasNext = new AtomicBoolean();
+            var first = new AtomicBoolean(true);
+            var rows = source.apply(filter)
+                    .filter(guest -> {
+                        if (limit != null && count.get() == limit) {
+                            hasNext.set(true);
+                            return false;
+                        }
+                        count.incrementAndGet();
+                        last.set(guest);
+                        return true;
+                    })
+                    .map(toResponse)
+                    .buffer(STREAM_CHUNK_ROWS)
+                    .map(chunk -> writeRows(chunk, first.getAndSet(false)));
+            return Flux.concat(
+                    Mono.fromSupplier(() -> wrap("{\"guests\":[".getBytes(StandardCharsets.UTF_8))),
+                    rows,
+                    Mono.fromSupplier(() -> wrap(writeEnd(hasNext.get() ? toCursor.apply(last.get()) : null))));
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private DataBuffer writeRows(List<GuestRequest> rows, boolean first) {
+        var output = new ByteArrayOutputStream(rows.size() * 64);
+        try {
+            for (var row : rows) {
+                if (!first) {
+                    output.write(',');
+                }
+                first = false;
+                output.writeBytes(objectMapper.writeValueAsBytes(row));
+            }
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return wrap(output.toByteArray());
+    }
+
+    private byte[] writeEnd(String nextCursor) {
+        try {
+            return nextCursor == null ? "]}".getBytes(StandardCharsets.UTF_8)
+                    : ("],\"next_cursor\":" + objectMapper.writeValueAsString(nextCursor) + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DataBuffer wrap(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
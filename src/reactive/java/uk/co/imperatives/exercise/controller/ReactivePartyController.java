@@ -0,0 +1,54 @@
+package uk.co.imperatives.exercise.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.co.imperatives.exercise.dto.PartyListResponse;
+import uk.co.imperatives.exercise.dto.PartyResponse;
+import uk.co.imperatives.exercise.service.PartyService;
+
+/**
+ * Reactive variant of the party controller with the same endpoints and responses.
+ */
+@Slf4j
+@Profile("reactive")
+@AllArgsConstructor
+@RestController
+public class ReactivePartyController {
+
+    private PartyService partyService;
+
+    /**
+     * This method adds a new party. Partitions of the party are created by JDBC,
+     * so it runs on the bounded elastic scheduler instead of the event loop.
+     *
+     * @param partyId party ID
+     * @return created party's ID
+     */
+    @PostMapping("/parties/{party_id}")
+    public Mono<ResponseEntity<PartyResponse>> addParty(@PathVariable(name = "party_id") Integer partyId) {
+        log.debug("Receive a new POST request to add a new party (party ID = " + partyId + ")");
+        return Mono.fromCallable(() -> partyService.addParty(partyId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(id -> ResponseEntity.status(HttpStatus.CREATED).body(new PartyResponse(id)));
+    }
+
+    /**
+     * This method provides the party list ordered by party ID.
+     *
+     * @return party list
+     */
+    @GetMapping("/parties")
+    public Mono<PartyListResponse> getParties() {
+        log.debug("Receive a new GET request to provide a party list");
+        return Mono.just(new PartyListResponse(partyService.getPartyIds().stream().map(PartyResponse::new).toList()));
+    }
+}
@@ -0,0 +1,31 @@
+package uk.co.imperatives.exercise.controller;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import uk.co.imperatives.exercise.service.PartyService;
+
+/**
+ * Party of a request of the reactive API, resolved as in PartyRoutes. A party which is not known in memory
+ * is checked in DB with JDBC, so the check runs on the bounded elastic scheduler instead of the event loop.
+ */
+final class ReactivePartyRoutes {
+
+    private ReactivePartyRoutes() {
+    }
+
+    /**
+     * Resolve the party of the route and check that it exists.
+     *
+     * @param partyService service of parties
+     * @param partyId      party ID from the route, null if the route has no party ID
+     * @return party ID or ExerciseNotFoundException if the party does not exist
+     */
+    static Mono<Integer> resolve(PartyService partyService, Integer partyId) {
+        int id = partyId == null ? PartyService.DEFAULT_PARTY : partyId;
+        if (partyService.isKnown(id)) {
+            return Mono.just(id);
+        }
+        return Mono.fromCallable(() -> PartyRoutes.resolve(partyService, partyId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
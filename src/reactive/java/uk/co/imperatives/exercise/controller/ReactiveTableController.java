@@ -0,0 +1,106 @@
+package uk.co.imperatives.exercise.controller;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.dto.TableListResponse;
+import uk.co.imperatives.exercise.dto.TableRequest;
+import uk.co.imperatives.exercise.dto.TableResponse;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.ReactiveTableService;
+
+/**
+ * Reactive variant of the table controller with the same endpoints and responses.
+ */
+@Slf4j
+@Profile("reactive")
+@AllArgsConstructor
+@RestController
+public class ReactiveTableController {
+
+    private ReactiveTableService tableService;
+
+    private PartyService partyService;
+
+    /**
+     * This method аdd a new table to the table list.
+     *
+     * @param partyId      party ID, the default party if not set
+     * @param tableRequest information about table: table's number and capacity
+     * @return created table's ID
+     */
+    @PostMapping({"/table", "/parties/{party_id}/table"})
+    public Mono<ResponseEntity<TableResponse>> addTable(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestBody @Valid TableRequest tableRequest) {
+        log.debug("Receive a new POST request to add a new table (table ID = " + tableRequest.getTableId()
+                + ", capacity = " + tableRequest.getCapacity() + ")");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> tableService.addTable(party, tableRequest.getTableId(), tableRequest.getCapacity()))
+                .map(id -> ResponseEntity.status(HttpStatus.CREATED).body(new TableResponse(id)));
+    }
+
+    /**
+     * This method provides the tables list ordered by table ID.
+     * If limit or cursor is set, the response contains one page and the cursor of the next page.
+     *
+     * @param partyId party ID, the default party if not set
+     * @param limit   maximum number of tables in the response
+     * @param cursor  cursor of the page from the previous response
+     * @return tables list
+     */
+    @GetMapping({"/tables_list", "/parties/{party_id}/tables_list"})
+    public Mono<TableListResponse> getTablesList(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor) {
+        log.debug("Receive a new GET request to provide a table list");
+        return ReactivePartyRoutes.resolve(partyService, partyId).flatMap(party -> {
+            if (limit == null && cursor == null) {
+                return tableService.getTablesList(party)
+                        .map(table -> new TableRequest(table.getId(), table.getCapacity()))
+                        .collectList()
+                        .map(TableListResponse::new);
+            }
+            PageCursor.validateLimit(limit);
+            int pageSize = limit == null ? PageCursor.MAX_LIMIT : limit;
+            int afterId = cursor == null ? Integer.MIN_VALUE : PageCursor.decodeInt(cursor);
+            // One more table shows that the next page exists
+            return tableService.getTablesList(party, afterId, pageSize + 1)
+                    .map(table -> new TableRequest(table.getId(), table.getCapacity()))
+                    .collectList()
+                    .map(tables -> tables.size() > pageSize
+                            ? new TableListResponse(tables.subList(0, pageSize),
+                            PageCursor.encode(String.valueOf(tables.get(pageSize - 1).getTableId())))
+                            : new TableListResponse(tables, null));
+        });
+    }
+
+    /**
+     * This method updates table's capacity.
+     *
+     * @param partyId party ID, the default party if not set
+     * @return updated table's ID
+     */
+    @PutMapping({"/table/{id}", "/parties/{party_id}/table/{id}"})
+    public Mono<TableResponse> updateTable(
+            @PathVariable(name = "party_id", required = false) Integer partyId,
+            @PathVariable(name = "id") Integer id,
+            @RequestBody @Valid TableRequest tableRequest) {
+        log.debug("Receive a new PUT request to update table capacity");
+        return ReactivePartyRoutes.resolve(partyService, partyId)
+                .flatMap(party -> tableService.updateTable(party, id, tableRequest.getCapacity()))
+                .map(TableResponse::new);
+    }
+}
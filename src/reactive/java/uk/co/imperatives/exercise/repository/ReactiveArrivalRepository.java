@@ -0,0 +1,88 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static uk.co.imperatives.exercise.repository.JpaGuestRepository.SQL_CHECK_IN_GUEST;
+import static uk.co.imperatives.exercise.repository.JpaGuestRepository.SQL_DELETE_GUEST;
+
+/**
+ * Non-blocking repository for arrived guests, used by the reactive API variant.
+ * Statements are the same as in JpaGuestRepository.
+ */
+@Profile("reactive")
+@AllArgsConstructor
+@Repository
+public class ReactiveArrivalRepository {
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * This method checks in an arrived guest with one statement: checks that the guest booked a table,
+     * did not arrive yet and the booked table has available space for the guest and accompanying friends.
+     * The arrival time of the guest is saved, the current DB time is used if it is not set.
+     *
+     * @param partyId party ID
+     * @param guest   an arrived guest
+     * @return check-in status and the guest's booked table
+     */
+    public Mono<CheckInResult> checkInGuest(int partyId, Guest guest) {
+        var statement = databaseClient.sql(SQL_CHECK_IN_GUEST)
+                .bind("partyId", partyId)
+                .bind("name", guest.getName())
+                .bind("guests", guest.getTotalGuests());
+        statement = guest.getTimeArrived() == null ? statement.bindNull("time", LocalDateTime.class)
+                : statement.bind("time", new Timestamp(guest.getTimeArrived().getTime()).toLocalDateTime());
+        return statement
+                .map(row -> new CheckInResult(CheckInStatus.valueOf(row.get(0, String.class)),
+                        row.get(1, Integer.class)))
+                .one()
+                // The same guest was checked in by a concurrent request
+                .onErrorReturn(DuplicateKeyException.class, new CheckInResult(CheckInStatus.ALREADY_ARRIVED, null));
+    }
+
+    /**
+     * This method removes the arrival of the guest.
+     *
+     * @param partyId party ID
+     * @param guest   guest to delete
+     * @return removed arrivals (name, table number, total arrived guests), empty if the guest did not arrive
+     */
+    public Flux<Guest> deleteArrival(int partyId, Guest guest) {
+        return databaseClient.sql(ReactiveStatements.toBindMarkers(SQL_DELETE_GUEST))
+                .bind(0, partyId)
+                .bind(1, guest.getName())
+                .bind(2, partyId)
+                .map(row -> new Guest(row.get(0, String.class), row.get(1, Integer.class), row.get(2, Integer.class)))
+                .all();
+    }
+
+    /**
+     * This method reads arrived guests ordered by arrival time and name. Rows are read from DB in portions
+     * while the subscriber requests them.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position
+     * @return arrived guests
+     */
+    public Flux<Guest> streamArrivedGuestList(int partyId, GuestFilter filter) {
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createArrivedGuestListQuery(partyId, filter, args);
+        return ReactiveStatements.prepareStream(databaseClient, sql, args)
+                .map(row -> new Guest(row.get(0, String.class), row.get(1, Integer.class),
+                        // Timestamp keeps microseconds of the keyset position
+                        Timestamp.valueOf(row.get(2, LocalDateTime.class))))
+                .all();
+    }
+}
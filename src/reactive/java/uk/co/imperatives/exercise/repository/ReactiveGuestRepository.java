@@ -0,0 +1,63 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static uk.co.imperatives.exercise.repository.JpaGuestRepository.SQL_INSERT_GUEST;
+
+/**
+ * Non-blocking repository for the guest list, used by the reactive API variant.
+ * Statements are the same as in JpaGuestRepository.
+ */
+@Profile("reactive")
+@AllArgsConstructor
+@Repository
+public class ReactiveGuestRepository {
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * Insert a new guest to DB table with one statement: checks that the name is unique, the table exists
+     * and has available space.
+     *
+     * @param partyId party ID
+     * @param guest   information about guest (name, table number, accompanying guests)
+     * @return registration status
+     */
+    public Mono<RegistrationStatus> saveGuest(int partyId, Guest guest) {
+        return databaseClient.sql(SQL_INSERT_GUEST)
+                .bind("partyId", partyId)
+                .bind("name", guest.getName())
+                .bind("tableId", guest.getTableNumber())
+                .bind("guests", guest.getTotalGuests())
+                .map(row -> RegistrationStatus.valueOf(row.get(0, String.class)))
+                .one()
+                // The same guest was registered by a concurrent request
+                .onErrorReturn(DuplicateKeyException.class, RegistrationStatus.DUPLICATE_NAME);
+    }
+
+    /**
+     * This method reads guests ordered by name. Rows are read from DB in portions while the subscriber
+     * requests them, so a slow client does not make the whole list to be held in memory.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position
+     * @return guests
+     */
+    public Flux<Guest> streamGuestList(int partyId, GuestFilter filter) {
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createGuestListQuery(partyId, filter, args);
+        return ReactiveStatements.prepareStream(databaseClient, sql, args)
+                .map(row -> new Guest(row.get(0, String.class), row.get(1, Integer.class), row.get(2, Integer.class)))
+                .all();
+    }
+}
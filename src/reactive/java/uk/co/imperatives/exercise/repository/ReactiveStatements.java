@@ -0,0 +1,56 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Runs the list queries of the JDBC repositories with R2DBC. JDBC "?" parameters are replaced by PostgreSQL
+ * "$n" bind markers in the same order, so the filter and keyset conditions are built only once.
+ */
+final class ReactiveStatements {
+
+    /**
+     * Rows fetched from DB per round trip while streaming lists.
+     */
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private ReactiveStatements() {
+    }
+
+    /**
+     * Creates a statement with positional arguments which fetches rows in portions of STREAM_FETCH_SIZE,
+     * so the next rows are read from DB only when the subscriber requests them.
+     *
+     * @param databaseClient reactive DB client
+     * @param sql            query with "?" parameters (no "?" inside string literals)
+     * @param args           query arguments in the order of parameters
+     * @return statement ready to be executed
+     */
+    static DatabaseClient.GenericExecuteSpec prepareStream(DatabaseClient databaseClient, String sql,
+                                                           List<Object> args) {
+        var spec = databaseClient.sql(toBindMarkers(sql))
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE));
+        for (int i = 0; i < args.size(); i++) {
+            var arg = args.get(i);
+            // R2DBC driver does not bind java.sql types, timestamp column is "timestamp without time zone"
+            spec = spec.bind(i, arg instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : arg);
+        }
+        return spec;
+    }
+
+    static String toBindMarkers(String sql) {
+        var result = new StringBuilder(sql.length() + 8);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                result.append('$').append(++index);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package uk.co.imperatives.exercise.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import static uk.co.imperatives.exercise.repository.JpaTableRepository.SQL_EXISTS_TABLE;
+import static uk.co.imperatives.exercise.repository.JpaTableRepository.SQL_GET_TABLE_PAGE;
+import static uk.co.imperatives.exercise.repository.JpaTableRepository.SQL_UPDATE_TABLE;
+import static uk.co.imperatives.exercise.repository.ReactiveStatements.toBindMarkers;
+
+/**
+ * Non-blocking repository for tables, used by the reactive API variant.
+ * Statements are the same as in JpaTableRepository.
+ */
+@Profile("reactive")
+@AllArgsConstructor
+@Repository
+public class ReactiveTableRepository {
+
+    private final static String SQL_GET_TABLE_LIST = "SELECT id, capacity FROM tables WHERE party_id = $1 ORDER BY id;";
+
+    private final static String SQL_INSERT_TABLE =
+            "INSERT INTO tables (party_id, id, capacity) VALUES ($1, $2, $3);";
+
+    private final static String SQL_SELECT_ONE_TABLE_OCCUPANCY =
+            "SELECT id, capacity, booked, arrived FROM tables WHERE party_id = $1 AND id = $2;";
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * Select all tables of the party ordered by ID.
+     *
+     * @param partyId party ID
+     * @return all tables from DB
+     */
+    public Flux<Table> getTableList(int partyId) {
+        return databaseClient.sql(SQL_GET_TABLE_LIST)
+                .bind(0, partyId)
+                .map(row -> new Table(row.get(0, Integer.class), row.get(1, Integer.class)))
+                .all();
+    }
+
+    /**
+     * This method returns tables ordered by ID after the given table.
+     *
+     * @param partyId party ID
+     * @param afterId ID of the last table of the previous page
+     * @param limit   maximum number of tables
+     * @return tables from DB
+     */
+    public Flux<Table> getTablePage(int partyId, int afterId, int limit) {
+        return databaseClient.sql(toBindMarkers(SQL_GET_TABLE_PAGE))
+                .bind(0, partyId)
+                .bind(1, afterId)
+                .bind(2, limit)
+                .map(row -> new Table(row.get(0, Integer.class), row.get(1, Integer.class)))
+                .all();
+    }
+
+    /**
+     * Saves a new table of the party to DB
+     *
+     * @return number of inserted rows
+     */
+    public Mono<Long> saveTable(int partyId, Table table) {
+        return databaseClient.sql(SQL_INSERT_TABLE)
+                .bind(0, partyId)
+                .bind(1, table.getId())
+                .bind(2, table.getCapacity())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Check if table exists in DB.
+     *
+     * @param partyId party ID
+     * @param id      table ID.
+     * @return true if table exists else false.
+     */
+    public Mono<Boolean> exists(int partyId, int id) {
+        return databaseClient.sql(toBindMarkers(SQL_EXISTS_TABLE))
+                .bind(0, partyId)
+                .bind(1, id)
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Select capacity, booked and arrived people for one table of the party.
+     *
+     * @param partyId party ID
+     * @param id      table ID
+     * @return occupancy of the table, empty if the table does not exist
+     */
+    public Mono<TableOccupancy> getTableOccupancy(int partyId, int id) {
+        return databaseClient.sql(SQL_SELECT_ONE_TABLE_OCCUPANCY)
+                .bind(0, partyId)
+                .bind(1, id)
+                .map(row -> new TableOccupancy(row.get(0, Integer.class), row.get(1, Integer.class),
+                        row.get(2, Integer.class), row.get(3, Integer.class)))
+                .one();
+    }
+
+    /**
+     * Updates table's capacity in DB by table ID.
+     *
+     * @param partyId party ID
+     * @param table   information about table
+     * @return number of updated rows
+     */
+    public Mono<Long> updateTable(int partyId, Table table) {
+        return databaseClient.sql(toBindMarkers(SQL_UPDATE_TABLE))
+                .bind(0, table.getCapacity())
+                .bind(1, partyId)
+                .bind(2, table.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+}
@@ -0,0 +1,271 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.CheckInResult;
+import uk.co.imperatives.exercise.repository.CheckInStatus;
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.ReactiveArrivalRepository;
+import uk.co.imperatives.exercise.repository.ReactiveGuestRepository;
+import uk.co.imperatives.exercise.repository.ReactiveTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.sql.Timestamp;
+
+/**
+ * Non-blocking variant of GuestService for the reactive API. Checks and error messages are the same,
+ * the seat ledger, the guest name index and the party projection are updated after every successful change.
+ * Requests are not admitted under the table locks (blocking waits are not allowed on the event loop threads)
+ * and do not reserve seats in the seat ledger, the DB statements alone check the available space.
+ * A table which is not in the seat ledger yet is read with R2DBC, the ledger never reads DB on the event loop threads.
+ * Guest lists are read from the party projection if it is enabled.
+ */
+@Slf4j
+@Profile("reactive")
+@AllArgsConstructor
+@Service
+public class ReactiveGuestService {
+
+    private ReactiveGuestRepository guestRepository;
+
+    private ReactiveArrivalRepository arrivalRepository;
+
+    private ReactiveTableRepository tableRepository;
+
+    private SeatLedger seatLedger;
+
+    private PartyEventBroadcaster partyEvents;
+
+    private GuestNameIndex guestNameIndex;
+
+    private PartyProjection partyProjection;
+
+    /**
+     * Save a new guest to DB in case if there are seats available for specific table.
+     *
+     * @param partyId            party ID
+     * @param name               new guest name
+     * @param tableNumber        table number for reservation
+     * @param accompanyingGuests main guest's accompanying guests
+     * @return guest name in case success processing.
+     */
+    public Mono<String> addGuest(int partyId, String name, int tableNumber, int accompanyingGuests) {
+        // We always store a total number of guests
+        var guest = new Guest(name, tableNumber, accompanyingGuests + 1);
+        if (guestNameIndex.isBooked(partyId, name)) {
+            return Mono.fromSupplier(() -> registered(partyId, guest, RegistrationStatus.DUPLICATE_NAME, false));
+        }
+        return guestRepository.saveGuest(partyId, guest)
+                .flatMap(status -> (status == RegistrationStatus.OK ? tableInLedger(partyId, tableNumber) : Mono.just(false))
+                        .map(inLedger -> registered(partyId, guest, status, inLedger)));
+    }
+
+    private String registered(int partyId, Guest guest, RegistrationStatus status, boolean inLedger) {
+        switch (status) {
+            case DUPLICATE_NAME -> {
+                guestNameIndex.book(partyId, guest.getName());
+                var errorMessage = String.format("Guest with name %s already exists", guest.getName());
+                log.error(errorMessage);
+                throw new ExerciseAlreadyExistsException(errorMessage);
+            }
+            case UNKNOWN_TABLE -> {
+                var errorMessage = String.format("There is no table with ID = %d", guest.getTableNumber());
+                log.error(errorMessage);
+                throw new ExerciseServiceBadRequestException(errorMessage);
+            }
+            case NO_CAPACITY -> {
+                var errorMessage = String.format("There is no free space at the table with ID = %d",
+                        guest.getTableNumber());
+                log.error(errorMessage);
+                throw new ExerciseNoCapacityException(errorMessage);
+            }
+            case OK -> {
+                if (inLedger) {
+                    seatLedger.book(partyId, guest.getTableNumber(), guest.getTotalGuests());
+                }
+                guestNameIndex.book(partyId, guest.getName(), guest.getTableNumber());
+                partyProjection.book(partyId, guest);
+            }
+        }
+        log.debug(String.format("Add a new guest (%s, %d, %d) to guest list.", guest.getName(),
+                guest.getTableNumber(), guest.getTotalGuests() - 1));
+        return guest.getName();
+    }
+
+    /**
+     * Method provides guests who booked tables from the party projection if it is enabled, else while they are
+     * read from DB.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position of the list
+     * @return guests
+     */
+    public Flux<Guest> streamGuestList(int partyId, GuestFilter filter) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Stream guests list from the party projection");
+            return Flux.fromStream(() -> partyProjection.streamGuests(partyId, filter));
+        }
+        log.debug("Call DB to stream guests list");
+        return guestRepository.streamGuestList(partyId, filter);
+    }
+
+    /**
+     * Method checks availability of the table's space for arrived guests and return the guest's name in case success.
+     *
+     * @param partyId            party ID
+     * @param name               main guest's name
+     * @param accompanyingGuests main guest's accompanying friends.
+     * @return main guest's name or an error.
+     */
+    public Mono<String> checkInGuest(int partyId, String name, int accompanyingGuests) {
+        // We always store a total number of guests, the arrival time is the same in DB and in the projection
+        var guest = new Guest(name, null, accompanyingGuests + 1, new Timestamp(System.currentTimeMillis()));
+        if (!guestNameIndex.isBooked(partyId, name)) {
+            return Mono.fromSupplier(() -> checkedIn(partyId, guest,
+                    new CheckInResult(CheckInStatus.NOT_BOOKED, null), false));
+        }
+        if (guestNameIndex.isArrived(partyId, name)) {
+            return Mono.fromSupplier(() -> checkedIn(partyId, guest,
+                    new CheckInResult(CheckInStatus.ALREADY_ARRIVED, null), false));
+        }
+        return arrivalRepository.checkInGuest(partyId, guest)
+                .doOnNext(result -> {
+                    if (result.getStatus() == CheckInStatus.NOT_BOOKED) {
+                        guestNameIndex.evict(partyId, name, false);
+                    }
+                })
+                .flatMap(result -> (result.getStatus() == CheckInStatus.OK
+                        ? tableInLedger(partyId, result.getTableNumber()) : Mono.just(false))
+                        .map(inLedger -> checkedIn(partyId, guest, result, inLedger)));
+    }
+
+    private String checkedIn(int partyId, Guest guest, CheckInResult result, boolean inLedger) {
+        switch (result.getStatus()) {
+            case NOT_BOOKED -> {
+                var errorMessage = String.format("Guest with name %s did not book a table", guest.getName());
+                log.error(errorMessage);
+                throw new ExerciseNotFoundException(errorMessage);
+            }
+            case ALREADY_ARRIVED -> {
+                guestNameIndex.arrive(partyId, guest.getName());
+                var errorMessage = String.format("Guest with name %s already arrived to the party", guest.getName());
+                log.error(errorMessage);
+                throw new ExerciseAlreadyExistsException(errorMessage);
+            }
+            case NO_CAPACITY -> {
+                var errorMessage = String.format("Booked table does not have available space for %d people (main guest name is %s)",
+                        guest.getTotalGuests(), guest.getName());
+                log.error(errorMessage);
+                throw new ExerciseNoCapacityException(errorMessage);
+            }
+            case OK -> {
+                if (inLedger) {
+                    seatLedger.arrive(partyId, result.getTableNumber(), guest.getTotalGuests());
+                }
+                guestNameIndex.arrive(partyId, guest.getName());
+                partyProjection.arrive(partyId, guest);
+                partyEvents.guestArrived(partyId, guest.getName(), result.getTableNumber(), guest.getTotalGuests());
+            }
+        }
+        return guest.getName();
+    }
+
+    /**
+     * This method removes guest who leaves the party. The arrival is deleted with one statement,
+     * so the guest did not arrive if nothing was deleted.
+     *
+     * @param partyId party ID
+     * @param name    guest's name who leaves a party.
+     * @return guest's name in case successful removing from DB, else an error.
+     */
+    public Mono<String> delete(int partyId, String name) {
+        log.debug(String.format("Start removing process for the guest with name = %s", name));
+        if (!guestNameIndex.isArrived(partyId, name)) {
+            return Mono.fromSupplier(() -> departed(name, 0));
+        }
+        return arrivalRepository.deleteArrival(partyId, new Guest(name))
+                .concatMap(removed -> tableInLedger(partyId, removed.getTableNumber())
+                        .doOnNext(inLedger -> {
+                            if (inLedger) {
+                                seatLedger.leave(partyId, removed.getTableNumber(), removed.getTotalGuests());
+                            }
+                            partyEvents.guestLeft(partyId, name, removed.getTableNumber(), removed.getTotalGuests());
+                        }))
+                .count()
+                .map(removed -> {
+                    if (removed == 0) {
+                        guestNameIndex.evict(partyId, name, true);
+                    } else {
+                        guestNameIndex.leave(partyId, name);
+                        partyProjection.leave(partyId, name);
+                    }
+                    return departed(name, removed);
+                });
+    }
+
+    /**
+     * Make sure the table is in the seat ledger. A missing table is read with R2DBC after the guest statement,
+     * so the loaded counters already include the change and the caller must not apply it to the ledger again.
+     *
+     * @param partyId party ID
+     * @param tableId table ID
+     * @return true if the table was in the ledger before, false if it was loaded or does not exist
+     */
+    private Mono<Boolean> tableInLedger(int partyId, int tableId) {
+        if (seatLedger.contains(partyId, tableId)) {
+            return Mono.just(true);
+        }
+        return tableRepository.getTableOccupancy(partyId, tableId)
+                .map(occupancy -> {
+                    seatLedger.load(partyId, occupancy);
+                    return false;
+                })
+                .defaultIfEmpty(false);
+    }
+
+    private String departed(String name, long removed) {
+        if (removed == 0) {
+            var errorMessage = String.format("Guest with name %s did not arrive to the party", name);
+            log.error(errorMessage);
+            throw new ExerciseNotFoundException(errorMessage);
+        }
+        return name;
+    }
+
+    /**
+     * Method provides guests who arrived to the party from the party projection if it is enabled, else while they
+     * are read from DB.
+     *
+     * @param partyId party ID
+     * @param filter  filter and keyset position of the list
+     * @return arrived guests
+     */
+    public Flux<Guest> streamArrivedGuestList(int partyId, GuestFilter filter) {
+        if (partyProjection.isEnabled()) {
+            log.debug("Stream arrived guests list from the party projection");
+            return Flux.fromStream(() -> partyProjection.streamArrivals(partyId, filter));
+        }
+        log.debug("Call DB to stream arrived guests list");
+        return arrivalRepository.streamArrivedGuestList(partyId, filter);
+    }
+
+    /**
+     * Method returns a count of available seats
+     *
+     * @param partyId party ID
+     * @return count of available seats
+     */
+    public Mono<Integer> getAvailableSeats(int partyId) {
+        log.debug("Get available seats from the seat ledger");
+        return Mono.fromSupplier(() -> seatLedger.getAvailableSeats(partyId));
+    }
+}
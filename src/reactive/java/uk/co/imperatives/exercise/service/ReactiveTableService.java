@@ -0,0 +1,123 @@
+package uk.co.imperatives.exercise.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.repository.ReactiveTableRepository;
+import uk.co.imperatives.exercise.repository.entity.Table;
+
+/**
+ * Non-blocking variant of TableService for the reactive API.
+ */
+@Slf4j
+@Profile("reactive")
+@AllArgsConstructor
+@Service
+public class ReactiveTableService {
+
+    private ReactiveTableRepository tableRepository;
+
+    private SeatLedger seatLedger;
+
+    private PartyEventBroadcaster partyEvents;
+
+    private TableCache tableCache;
+
+    /**
+     * This method аdd a new table to the table list.
+     * If the table with the same ID already exists, an error is returned.
+     *
+     * @param partyId  party ID
+     * @param id       table ID
+     * @param capacity table capacity
+     * @return added table ID
+     */
+    public Mono<Integer> addTable(int partyId, int id, int capacity) {
+        return exists(partyId, id)
+                .flatMap(exists -> {
+                    if (exists) {
+                        var errorMessage = String.format("Table with ID = %d already exists", id);
+                        log.error(errorMessage);
+                        return Mono.error(new ExerciseAlreadyExistsException(errorMessage));
+                    }
+                    return tableRepository.saveTable(partyId, new Table(id, capacity));
+                })
+                .map(insertedRows -> {
+                    if (insertedRows == 0) {
+                        var errorMessage = "An error occurs while saving a new table";
+                        log.error(errorMessage);
+                        throw new ExerciseServiceException(errorMessage);
+                    }
+                    seatLedger.putTable(partyId, id, capacity);
+                    tableCache.putTable(partyId, id, capacity);
+                    partyEvents.seatsChanged(partyId);
+                    return id;
+                });
+    }
+
+    /**
+     * Method provides the tables list ordered by ID from the table cache.
+     *
+     * @param partyId party ID
+     * @return tables
+     */
+    public Flux<Table> getTablesList(int partyId) {
+        log.debug("Get table list from the table cache");
+        return Flux.defer(() -> Flux.fromIterable(tableCache.getTables(partyId)));
+    }
+
+    /**
+     * Method provides a page of the tables list ordered by ID.
+     *
+     * @param partyId party ID
+     * @param afterId ID of the last table of the previous page
+     * @param limit   maximum number of tables
+     * @return tables
+     */
+    public Flux<Table> getTablesList(int partyId, int afterId, int limit) {
+        log.debug(String.format("Get table list after table ID = %d, limit = %d from the table cache", afterId, limit));
+        return Flux.defer(() -> Flux.fromIterable(tableCache.getTables(partyId, afterId, limit)));
+    }
+
+    /**
+     * Update table's capacity by ID.
+     *
+     * @param partyId  party ID
+     * @param id       table's ID
+     * @param capacity new table's capacity
+     * @return updated table ID
+     */
+    public Mono<Integer> updateTable(int partyId, int id, int capacity) {
+        return exists(partyId, id)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        var errorMessage = String.format("Table with ID = %d does not exist", id);
+                        log.error(errorMessage);
+                        return Mono.error(new ExerciseNotFoundException(errorMessage));
+                    }
+                    return tableRepository.updateTable(partyId, new Table(id, capacity));
+                })
+                .map(updatedRows -> {
+                    if (1 != updatedRows) {
+                        var errorMessage = "Error in DB while table capacity update";
+                        log.error(errorMessage);
+                        throw new ExerciseServiceException(errorMessage);
+                    }
+                    seatLedger.putTable(partyId, id, capacity);
+                    tableCache.putTable(partyId, id, capacity);
+                    partyEvents.seatsChanged(partyId);
+                    return id;
+                });
+    }
+
+    private Mono<Boolean> exists(int partyId, int id) {
+        // A table which is not in the cache could be added by another application instance
+        return tableCache.contains(partyId, id) ? Mono.just(true) : tableRepository.exists(partyId, id);
+    }
+}
@@ -0,0 +1,71 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for BulkheadDataSource
+ */
+public class BulkheadDataSourceTest {
+
+    private final DataSource targetDataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final BulkheadDataSource dataSource = new BulkheadDataSource(targetDataSource, 2, 10, 50, meterRegistry);
+
+    /**
+     * Input: two connections are taken (maximum is 2), the third one is requested.
+     * Output: the third request is rejected after the maximum wait time and counted.
+     */
+    @Test
+    public void givenAllConnectionsTaken_RejectAfterMaxWait() throws SQLException {
+        given(targetDataSource.getConnection()).willReturn(connection);
+        dataSource.getConnection();
+        dataSource.getConnection();
+        assertEquals(2, dataSource.getActive());
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(1.0, meterRegistry.get("party.db.bulkhead.rejected").counter().count());
+        verify(targetDataSource, times(2)).getConnection();
+    }
+
+    /**
+     * Input: connection is closed twice.
+     * Output: the permit is returned once, the connection is closed by the target data source.
+     */
+    @Test
+    public void givenClosedConnection_ReturnPermitOnce() throws SQLException {
+        given(targetDataSource.getConnection()).willReturn(connection);
+        var first = dataSource.getConnection();
+        dataSource.getConnection();
+        first.close();
+        first.close();
+        assertEquals(1, dataSource.getActive());
+        verify(connection, times(2)).close();
+    }
+
+    /**
+     * Input: the target data source fails to open a connection.
+     * Output: the error is passed to the caller and the permit is returned.
+     */
+    @Test
+    public void givenTargetError_ReturnPermit() throws SQLException {
+        given(targetDataSource.getConnection()).willThrow(new SQLException("Connection refused"));
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(0, dataSource.getActive());
+    }
+}
@@ -0,0 +1,83 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for endpoint and repository metrics
+ */
+public class MetricsConfigTest {
+
+    /**
+     * Input: statuses of ExerciseExceptionHandler and the no capacity exception with status 400.
+     * Output: result tag values of the API.
+     */
+    @Test
+    public void givenStatusAndException_ReturnResult() {
+        assertEquals("created", MetricsConfig.getResult(201, null));
+        assertEquals("conflict", MetricsConfig.getResult(409, new ExerciseAlreadyExistsException("exists")));
+        assertEquals("not_found", MetricsConfig.getResult(404, null));
+        assertEquals("no_capacity", MetricsConfig.getResult(400, new ExerciseNoCapacityException("no space")));
+        assertEquals("bad_request", MetricsConfig.getResult(400, null));
+        assertEquals("error", MetricsConfig.getResult(500, null));
+    }
+
+    /**
+     * Input: servlet request handled with the no capacity exception exposed by DispatcherServlet.
+     * Output: "result" tag is "no_capacity".
+     */
+    @Test
+    public void givenHandledNoCapacityException_TagRequestWithNoCapacity() {
+        var request = new MockHttpServletRequest("PUT", "/guests/Jon");
+        request.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new ExerciseNoCapacityException("no space"));
+        var response = new MockHttpServletResponse();
+        response.setStatus(400);
+        var keyValues = new MetricsConfig().serverRequestObservationConvention()
+                .getLowCardinalityKeyValues(new ServerRequestObservationContext(request, response));
+        assertTrue(keyValues.stream().anyMatch(KeyValue.of("result", "no_capacity")::equals));
+    }
+
+    /**
+     * Input: calls of the proxied table repository, the second call fails.
+     * Output: both calls are timed with the method name and the exception.
+     */
+    @Test
+    public void givenRepositoryCalls_RecordTimers() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        given(jdbcTemplate.queryForObject(any(String.class), eq(Boolean.class), anyInt(), anyInt()))
+                .willReturn(true)
+                .willThrow(new QueryTimeoutException("timeout"));
+        var repository = (JpaTableRepository) new RepositoryMetrics(() -> meterRegistry)
+                .postProcessAfterInitialization(new JpaTableRepository(jdbcTemplate,
+                        mock(NamedParameterJdbcTemplate.class)), "jpaTableRepository");
+
+        assertTrue(repository.exists(PartyService.DEFAULT_PARTY, 1));
+        assertThrows(QueryTimeoutException.class, () -> repository.exists(PartyService.DEFAULT_PARTY, 2));
+        assertEquals(1, meterRegistry.get("party.repository.calls").tags("repository", "JpaTableRepository",
+                "method", "exists", "exception", "none").timer().count());
+        assertEquals(1, meterRegistry.get("party.repository.calls")
+                .tags("method", "exists", "exception", "QueryTimeoutException").timer().count());
+    }
+}
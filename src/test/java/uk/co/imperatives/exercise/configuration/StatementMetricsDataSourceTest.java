@@ -0,0 +1,144 @@
+package uk.co.imperatives.exercise.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for StatementMetricsDataSource
+ */
+public class StatementMetricsDataSourceTest {
+
+    private static final String SQL_UPDATE_TABLE = "UPDATE tables SET capacity=? WHERE id=?;";
+
+    private final DataSource targetDataSource = mock(DataSource.class);
+
+    private final Connection connection = mock(Connection.class);
+
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Input: SQL constants of the repositories, SQL with an expanded IN list, SQL of a filtered stream, unknown SQL.
+     * Output: the IN list and the stream are matched to their constants, unknown SQL is named "other".
+     */
+    @Test
+    public void givenRepositoryConstants_NameStatements() {
+        var dataSource = new StatementMetricsDataSource(targetDataSource,
+                StatementMetricsDataSource.getStatements(JpaGuestRepository.class, JpaTableRepository.class),
+                200, 0, meterRegistry);
+
+        assertEquals("SQL_SELECT_EXISTING_NAMES",
+                dataSource.getStatementName("SELECT name FROM guests WHERE party_id = ? AND name IN (?, ?, ?);"));
+        assertEquals("SQL_STREAM_GUESTS", dataSource.getStatementName("SELECT name, table_number, total_guests"
+                + " FROM guests WHERE party_id = ? AND name > ? ORDER BY name LIMIT ?;"));
+        assertEquals("SQL_SELECT_ALL_FROM_GUESTS",
+                dataSource.getStatementName("SELECT name, table_number, total_guests FROM guests WHERE party_id=?;"));
+        assertEquals(StatementMetricsDataSource.OTHER_STATEMENT, dataSource.getStatementName("SELECT 1;"));
+    }
+
+    /**
+     * Input: two updates of a table on one connection, the first query returns 2 rows.
+     * Output: both statements are timed, rows are counted, the acquire time is recorded for the first statement only.
+     */
+    @Test
+    public void givenStatementsOnConnection_RecordTimeRowsAndAcquire() throws SQLException {
+        var resultSet = mock(ResultSet.class);
+        given(targetDataSource.getConnection()).willReturn(connection);
+        given(connection.prepareStatement(anyString())).willReturn(statement);
+        given(statement.executeUpdate()).willReturn(1);
+        given(statement.executeQuery()).willReturn(resultSet);
+        given(resultSet.next()).willReturn(true, true, false);
+        var dataSource = new StatementMetricsDataSource(targetDataSource,
+                Map.of(SQL_UPDATE_TABLE, "SQL_UPDATE_TABLE", "SELECT id FROM tables;", "SQL_GET_TABLE_IDS"),
+                200, 0, meterRegistry);
+
+        var metricsConnection = dataSource.getConnection();
+        metricsConnection.prepareStatement(SQL_UPDATE_TABLE).executeUpdate();
+        metricsConnection.prepareStatement(SQL_UPDATE_TABLE).executeUpdate();
+        var query = metricsConnection.prepareStatement("SELECT id FROM tables;");
+        try (var rows = query.executeQuery()) {
+            while (rows.next()) {
+                rows.getInt(1);
+            }
+        }
+        query.close();
+
+        assertEquals(2, meterRegistry.get("party.db.statements").tag("statement", "SQL_UPDATE_TABLE").timer().count());
+        assertEquals(2.0, meterRegistry.get("party.db.statement.rows")
+                .tag("statement", "SQL_UPDATE_TABLE").summary().totalAmount());
+        assertEquals(2.0, meterRegistry.get("party.db.statement.rows")
+                .tag("statement", "SQL_GET_TABLE_IDS").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("party.db.statement.acquire").timer().count());
+    }
+
+    /**
+     * Input: an update of a table succeeds twice and fails once on new connections.
+     * Output: successful and failed executions are timed apart, one meter of every kind is registered for the statement.
+     */
+    @Test
+    public void givenFailedStatement_RecordByException() throws SQLException {
+        given(targetDataSource.getConnection()).willReturn(connection);
+        given(connection.prepareStatement(anyString())).willReturn(statement);
+        given(statement.executeUpdate()).willReturn(1, 1).willThrow(new SQLException("deadlock"));
+        var dataSource = new StatementMetricsDataSource(targetDataSource, Map.of(SQL_UPDATE_TABLE, "SQL_UPDATE_TABLE"),
+                200, 0, meterRegistry);
+
+        dataSource.getConnection().prepareStatement(SQL_UPDATE_TABLE).executeUpdate();
+        dataSource.getConnection().prepareStatement(SQL_UPDATE_TABLE).executeUpdate();
+        var failed = dataSource.getConnection().prepareStatement(SQL_UPDATE_TABLE);
+        assertThrows(SQLException.class, failed::executeUpdate);
+
+        assertEquals(2, meterRegistry.get("party.db.statements").tag("exception", "none").timer().count());
+        assertEquals(1, meterRegistry.get("party.db.statements").tag("exception", "SQLException").timer().count());
+        assertEquals(2, meterRegistry.get("party.db.statements").timers().size());
+        assertEquals(3, meterRegistry.get("party.db.statement.rows").summary().count());
+        assertEquals(3, meterRegistry.get("party.db.statement.acquire").timer().count());
+    }
+
+    /**
+     * Input: every statement is slow (threshold 0) and explained (sample rate 1), the connection is in auto-commit.
+     * Output: EXPLAIN of the statement is run with the same parameters.
+     */
+    @Test
+    public void givenSlowStatement_ExplainWithSameParameters() throws SQLException {
+        var explainStatement = mock(PreparedStatement.class);
+        var plan = mock(ResultSet.class);
+        given(targetDataSource.getConnection()).willReturn(connection);
+        given(connection.getAutoCommit()).willReturn(true);
+        given(connection.prepareStatement(SQL_UPDATE_TABLE)).willReturn(statement);
+        given(connection.prepareStatement(startsWith("EXPLAIN"))).willReturn(explainStatement);
+        given(statement.executeUpdate()).willReturn(1);
+        given(explainStatement.executeQuery()).willReturn(plan);
+        given(plan.next()).willReturn(true, false);
+        given(plan.getString(1)).willReturn("Update on tables");
+        var dataSource = new StatementMetricsDataSource(targetDataSource, Map.of(SQL_UPDATE_TABLE, "SQL_UPDATE_TABLE"),
+                0, 1, meterRegistry);
+
+        var update = dataSource.getConnection().prepareStatement(SQL_UPDATE_TABLE);
+        update.setInt(1, 10);
+        update.setInt(2, 3);
+        update.executeUpdate();
+
+        verify(connection).prepareStatement("EXPLAIN " + SQL_UPDATE_TABLE);
+        verify(explainStatement).setInt(1, 10);
+        verify(explainStatement).setInt(2, 3);
+    }
+}
@@ -0,0 +1,77 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.SeatsResponse;
+import uk.co.imperatives.exercise.service.PartyEventBroadcaster;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for EventController controller.
+ */
+@WebMvcTest(EventControllerImpl.class)
+public class EventControllerImplTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PartyEventBroadcaster partyEvents;
+
+    @MockBean
+    private PartyService partyService;
+
+    /**
+     * This test checks the GET method /events.
+     * Events published by the broadcaster are written as Server-Sent Events with JSON data.
+     */
+    @Test
+    public void givenSubscription_ReturnEventStream() throws Exception {
+        willAnswer(invocation -> {
+            PartyEventBroadcaster.EventSink sink = invocation.getArgument(1);
+            sink.send(PartyEventBroadcaster.SEATS_EVENT, new SeatsResponse(15));
+            sink.send(PartyEventBroadcaster.ARRIVAL_EVENT, new GuestRequest("Jon Snow", 1, 2));
+            return (Runnable) () -> {
+            };
+        }).given(partyEvents).subscribe(eq(1), any());
+
+        mockMvc.perform(get("/events"))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:seats\ndata:{\"seats_empty\":15}\n\n")))
+                .andExpect(content().string(containsString(
+                        "event:arrival\ndata:{\"name\":\"Jon Snow\",\"table\":1,\"accompanying_guests\":2}\n\n")));
+    }
+
+    /**
+     * This test checks the GET method /parties/{party_id}/events.
+     * The client should be subscribed to events of the party from the route only.
+     */
+    @Test
+    public void givenPartySubscription_ReturnEventStreamOfParty() throws Exception {
+        willAnswer(invocation -> {
+            PartyEventBroadcaster.EventSink sink = invocation.getArgument(1);
+            sink.send(PartyEventBroadcaster.SEATS_EVENT, new SeatsResponse(7));
+            return (Runnable) () -> {
+            };
+        }).given(partyEvents).subscribe(eq(2), any());
+
+        mockMvc.perform(get("/parties/{party_id}/events", 2))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("event:seats\ndata:{\"seats_empty\":7}\n\n")));
+    }
+}
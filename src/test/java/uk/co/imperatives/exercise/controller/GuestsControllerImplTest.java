@@ -6,26 +6,42 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.test.web.servlet.MockMvc;
 import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
 import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.service.GuestImportService;
 import uk.co.imperatives.exercise.service.GuestService;
+import uk.co.imperatives.exercise.service.PartyService;
 
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -40,6 +56,74 @@ public class GuestsControllerImplTest {
     @MockBean
     private GuestService guestService;
 
+    @MockBean
+    private GuestImportService guestImportService;
+
+    @MockBean
+    private PartyService partyService;
+
+    /**
+     * This test checks the POST method /guest_list with JSON array
+     * It should return status 200 and the result of every row.
+     */
+    @Test
+    public void givenJsonGuestList_Return200AndRowResults() throws Exception {
+        List<GuestRequest> guestRequests = List.of(new GuestRequest("Jon Snow", 1, 2),
+                new GuestRequest("Arya Stark", 2, 1));
+        given(guestImportService.importGuests(anyInt(), any()))
+                .willReturn(List.of(RegistrationStatus.OK, RegistrationStatus.NO_CAPACITY));
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(guestRequests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.rows[0].status").value("OK"))
+                .andExpect(jsonPath("$.rows[1].error_message")
+                        .value("There is no free space at the table with ID = 2"));
+    }
+
+    /**
+     * This test checks the POST method /guest_list with a null row in JSON array
+     * The null row is passed as invalid guest, so it gets its own error instead of the whole request failing.
+     */
+    @Test
+    public void givenJsonGuestListWithNullRow_Return200AndInvalidRow() throws Exception {
+        given(guestImportService.importGuests(eq(1), argThat(guests -> guests.size() == 2
+                && guests.get(1).getName() == null && guests.get(1).getTableNumber() == null)))
+                .willReturn(List.of(RegistrationStatus.OK, RegistrationStatus.INVALID));
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\": \"Jon Snow\", \"table\": 1, \"accompanying_guests\": 2}, null]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rows[1].status").value("INVALID"))
+                .andExpect(jsonPath("$.rows[1].error_message").value(
+                        "Name, table and accompanying guests must be set, numbers must not be negative"));
+    }
+
+    /**
+     * This test checks the POST method /guest_list with CSV
+     * Header is skipped, quoted names are unquoted and a row with invalid number is passed as invalid guest.
+     */
+    @Test
+    public void givenCsvGuestList_ParseRowsAndReturn200() throws Exception {
+        String csv = "name,table,accompanying_guests\n\"Snow, Jon\",1,2\nArya Stark,two,1\n";
+        given(guestImportService.importGuests(eq(1), argThat(guests -> guests.size() == 2
+                && "Snow, Jon".equals(guests.get(0).getName()) && guests.get(0).getTotalGuests() == 3
+                && guests.get(1).getTableNumber() == null)))
+                .willReturn(List.of(RegistrationStatus.OK, RegistrationStatus.INVALID));
+
+        mockMvc.perform(post("/guest_list")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rows[1].status").value("INVALID"));
+    }
+
     /**
      * This test checks the POST method /guest_list/{name}
      * In positive case it should return status 200 and response body with a name of guest.
@@ -48,7 +132,7 @@ public class GuestsControllerImplTest {
     public void givenCorrectPostGuestRequest_Return201AndName() throws Exception {
         GuestRequest guestRequest = new GuestRequest(1, 2);
         String guestName = "Jon Snow";
-        given(guestService.addGuest(anyString(), anyInt(), anyInt())).willReturn(guestName);
+        given(guestService.addGuest(anyInt(), anyString(), anyInt(), anyInt())).willReturn(guestName);
 
         mockMvc.perform(post("/guest_list/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -65,7 +149,7 @@ public class GuestsControllerImplTest {
     public void givenNegativeTableInPostGuestRequest_Return400AndError() throws Exception {
         GuestRequest guestRequest = new GuestRequest(-1, 2);
         String guestName = "Jon Snow";
-        given(guestService.addGuest(anyString(), anyInt(), anyInt())).willReturn(guestName);
+        given(guestService.addGuest(anyInt(), anyString(), anyInt(), anyInt())).willReturn(guestName);
 
         mockMvc.perform(post("/guest_list/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -82,7 +166,7 @@ public class GuestsControllerImplTest {
     public void givenAccompanyingGuestsInPostGuestRequestNotGiven_Return400AndError() throws Exception {
         GuestRequest guestRequest = new GuestRequest(2, null);
         String guestName = "Jon Snow";
-        given(guestService.addGuest(anyString(), anyInt(), anyInt())).willReturn(guestName);
+        given(guestService.addGuest(anyInt(), anyString(), anyInt(), anyInt())).willReturn(guestName);
 
         mockMvc.perform(post("/guest_list/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -99,7 +183,7 @@ public class GuestsControllerImplTest {
     public void givenNegativeAccompanyingGuestsCountInPostGuestRequest_Return400AndError() throws Exception {
         GuestRequest guestRequest = new GuestRequest(1, -2);
         String guestName = "Jon Snow";
-        given(guestService.addGuest(anyString(), anyInt(), anyInt())).willReturn(guestName);
+        given(guestService.addGuest(anyInt(), anyString(), anyInt(), anyInt())).willReturn(guestName);
 
         mockMvc.perform(post("/guest_list/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -122,13 +206,20 @@ public class GuestsControllerImplTest {
         guestList.add(guest1);
         guestList.add(guest2);
         guestList.add(guest3);
-        given(guestService.getGuestList()).willReturn(guestList);
+        willAnswer(invocation -> {
+            Consumer<Guest> consumer = invocation.getArgument(2);
+            guestList.forEach(consumer);
+            return null;
+        }).given(guestService).streamGuestList(anyInt(), any(), any());
 
         String resultBodyResponse = "{\"guests\":[" +
                 "{\"name\":\"Jon Snow\",\"table\":1,\"accompanying_guests\":0}," +
                 "{\"name\":\"Arya Stark\",\"table\":1,\"accompanying_guests\":6}," +
                 "{\"name\":\"Tyrion Lannister\",\"table\":2,\"accompanying_guests\":1}]}";
-        mockMvc.perform(get("/guest_list"))
+        var result = mockMvc.perform(get("/guest_list"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().json(resultBodyResponse));
     }
@@ -142,7 +233,7 @@ public class GuestsControllerImplTest {
     public void givenCorrectPutGuestRequest_Return200AndGuestName() throws Exception {
         GuestRequest guestRequest = new GuestRequest(null, 2);
         String guestName = "Jon Snow";
-        given(guestService.checkInGuest(anyString(), anyInt())).willReturn(guestName);
+        given(guestService.checkInGuest(anyInt(), anyString(), anyInt())).willReturn(guestName);
 
         mockMvc.perform(put("/guests/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -160,7 +251,7 @@ public class GuestsControllerImplTest {
     public void givenCorrectPutGuestRequest_NotAvailableSpace_ReturnStatus400() throws Exception {
         GuestRequest guestRequest = new GuestRequest(null, 2);
         String guestName = "Jon Snow";
-        given(guestService.checkInGuest(anyString(), anyInt())).willThrow(ExerciseServiceBadRequestException.class);
+        given(guestService.checkInGuest(anyInt(), anyString(), anyInt())).willThrow(ExerciseServiceBadRequestException.class);
 
         mockMvc.perform(put("/guests/{name}", guestName)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -175,7 +266,7 @@ public class GuestsControllerImplTest {
     @Test
     public void givenExistedGuest_DeleteGuest_ReturnStatus200AndGuestName() throws Exception {
         String guestName = "Jon Snow";
-        given(guestService.delete(anyString())).willReturn(guestName);
+        given(guestService.delete(anyInt(), anyString())).willReturn(guestName);
 
         mockMvc.perform(delete("/guests/{name}", guestName))
                 .andExpect(status().isOk())
@@ -189,7 +280,7 @@ public class GuestsControllerImplTest {
     @Test
     public void givenNotExistedGuest_ReturnStatus400() throws Exception {
         String guestName = "Jon Snow";
-        given(guestService.delete(anyString())).willThrow(ExerciseServiceBadRequestException.class);
+        given(guestService.delete(anyInt(), anyString())).willThrow(ExerciseServiceBadRequestException.class);
 
         mockMvc.perform(delete("/guests/{name}", guestName))
                 .andExpect(status().isBadRequest());
@@ -212,27 +303,147 @@ public class GuestsControllerImplTest {
         guestList.add(guest1);
         guestList.add(guest2);
         guestList.add(guest3);
-        given(guestService.getArrivedGuestList()).willReturn(guestList);
+        willAnswer(invocation -> {
+            Consumer<Guest> consumer = invocation.getArgument(2);
+            guestList.forEach(consumer);
+            return null;
+        }).given(guestService).streamArrivedGuestList(anyInt(), any(), any());
 
         var dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
         var resultBodyResponse = "{\"guests\":[" +
                 "{\"name\":\"Jon Snow\",\"accompanying_guests\":1,\"time_arrived\":\"" + dateFormat.format(date1) + "\"}," +
                 "{\"name\":\"Arya Stark\",\"accompanying_guests\":1,\"time_arrived\":\"" + dateFormat.format(date2) + "\"}," +
                 "{\"name\":\"Tyrion Lannister\",\"accompanying_guests\":2,\"time_arrived\":\"" + dateFormat.format(date3) + "\"}]}";
-        mockMvc.perform(get("/guests"))
+        var result = mockMvc.perform(get("/guests"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().json(resultBodyResponse));
     }
 
+    /**
+     * This test checks the GET method /guest_list with limit and filters.
+     * Filters are passed to the service with limit + 1, the extra guest is not returned but the next cursor is.
+     */
+    @Test
+    public void givenLimitAndFilters_Return200PageAndNextCursor() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<Guest> consumer = invocation.getArgument(2);
+            consumer.accept(new Guest("Jon Snow", 1, 1));
+            consumer.accept(new Guest("Jon Stark", 1, 2));
+            return null;
+        }).given(guestService).streamGuestList(eq(1), argThat(filter -> filter.getLimit() == 2
+                && filter.getTableNumber() == 1 && "Jon".equals(filter.getNamePrefix())
+                && "Arya Stark".equals(filter.getAfterName())), any());
+        String cursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("Arya Stark".getBytes(StandardCharsets.UTF_8));
+
+        var result = mockMvc.perform(get("/guest_list")
+                        .param("limit", "1")
+                        .param("cursor", cursor)
+                        .param("table", "1")
+                        .param("name_prefix", "Jon"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String nextCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("Jon Snow".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.guests.length()").value(1))
+                .andExpect(jsonPath("$.guests[0].name").value("Jon Snow"))
+                .andExpect(jsonPath("$.next_cursor").value(nextCursor));
+    }
+
+    /**
+     * This test checks the GET method /guests with a limit out of range.
+     * It should return status 400 and response body with error.
+     */
+    @Test
+    public void givenTooBigLimit_Return400AndError() throws Exception {
+        mockMvc.perform(get("/guests").param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Limit must be between 1 and 1000")));
+    }
+
+    /**
+     * This test checks the GET method /guests with invalid cursor.
+     * It should return status 400 and response body with error.
+     */
+    @Test
+    public void givenInvalidCursor_Return400AndError() throws Exception {
+        mockMvc.perform(get("/guests").param("cursor", "bm90LWEtY3Vyc29y"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("Invalid cursor")));
+    }
+
     /**
      * This test checks GET /seats_empty method.
      * It must return available seats or 0, status 200.
      */
     @Test
     public void givenAvailableSeatsCount_ReturnStatus200AndSeatsCount() throws Exception {
-        given(guestService.getAvailableSeats()).willReturn(1);
+        given(guestService.getAvailableSeats(1)).willReturn(1);
         mockMvc.perform(get("/seats_empty"))
                 .andExpect(status().isOk())
                 .andExpect(content().string(containsString("\"seats_empty\":1")));
     }
+
+    /**
+     * This test checks GET /parties/{party_id}/seats_empty method.
+     * It must return available seats of the party from the route, status 200.
+     */
+    @Test
+    public void givenPartyAvailableSeatsCount_ReturnStatus200AndSeatsCountOfParty() throws Exception {
+        given(guestService.getAvailableSeats(1)).willReturn(1);
+        given(guestService.getAvailableSeats(2)).willReturn(7);
+        mockMvc.perform(get("/parties/{party_id}/seats_empty", 2))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"seats_empty\":7")));
+    }
+
+    /**
+     * This test checks the POST method /parties/{party_id}/guest_list/{name}
+     * The guest should be added to the party from the route.
+     */
+    @Test
+    public void givenPartyPostGuestRequest_Return201AndName() throws Exception {
+        GuestRequest guestRequest = new GuestRequest(1, 2);
+        String guestName = "Jon Snow";
+        given(guestService.addGuest(2, guestName, 1, 2)).willReturn(guestName);
+
+        mockMvc.perform(post("/parties/{party_id}/guest_list/{name}", 2, guestName)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(guestRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString(guestName)));
+    }
+
+    /**
+     * This test checks the GET method /parties/{party_id}/guests when the party does not exist.
+     * It should return status 404 before the response is streamed.
+     */
+    @Test
+    public void givenUnknownParty_Return404AndError() throws Exception {
+        willThrow(new ExerciseNotFoundException("Party with ID = 3 does not exist")).given(partyService).requireParty(3);
+        mockMvc.perform(get("/parties/{party_id}/guests", 3))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(containsString("Party with ID = 3 does not exist")));
+    }
+
+    /**
+     * This test checks the PUT method /guests/{name} when DB connection is not available in time
+     * (the connection pool or the DB bulkhead is full).
+     * It should return status 503 and response body with error.
+     */
+    @Test
+    public void givenNoDBConnection_Return503AndError() throws Exception {
+        given(guestService.checkInGuest(1, "Jon Snow", 1))
+                .willThrow(new CannotGetJdbcConnectionException("DB bulkhead is full"));
+        mockMvc.perform(put("/guests/Jon Snow")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accompanying_guests\":1}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string(containsString("Service is overloaded, try again later")));
+    }
 }
@@ -0,0 +1,70 @@
+package uk.co.imperatives.exercise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.service.PartyService;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Unit tests for PartyController controller.
+ */
+@WebMvcTest(PartyControllerImpl.class)
+public class PartyControllerImplTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PartyService partyService;
+
+    /**
+     * This test checks the POST method /parties/{party_id}.
+     * In positive case it should return status 201 and response body with a party ID.
+     */
+    @Test
+    public void givenNewParty_Return201AndPartyID() throws Exception {
+        given(partyService.addParty(2)).willReturn(2);
+
+        mockMvc.perform(post("/parties/{party_id}", 2))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("{\"party_id\":2}")));
+    }
+
+    /**
+     * This test checks the POST method /parties/{party_id} for the existing party.
+     * It should return status 409 and response body with error.
+     */
+    @Test
+    public void givenExistingParty_Return409AndError() throws Exception {
+        given(partyService.addParty(1)).willThrow(new ExerciseAlreadyExistsException("Party with ID = 1 already exists"));
+
+        mockMvc.perform(post("/parties/{party_id}", 1))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(containsString("Party with ID = 1 already exists")));
+    }
+
+    /**
+     * This test checks the GET method /parties.
+     * It should return status 200 and IDs of all parties.
+     */
+    @Test
+    public void givenParties_Return200AndPartyList() throws Exception {
+        given(partyService.getPartyIds()).willReturn(List.of(1, 2));
+
+        mockMvc.perform(get("/parties"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"parties\":[{\"party_id\":1},{\"party_id\":2}]}"));
+    }
+}
@@ -8,18 +8,24 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import uk.co.imperatives.exercise.dto.TableRequest;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
 import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.service.PartyService;
 import uk.co.imperatives.exercise.service.TableService;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -34,6 +40,9 @@ public class TableControllerImplTest {
     @MockBean
     private TableService tableService;
 
+    @MockBean
+    private PartyService partyService;
+
     /**
      * This test checks the POST method /table of TableController controller.
      * In positive case it should return status 201 and response body with a table ID.
@@ -41,7 +50,7 @@ public class TableControllerImplTest {
     @Test
     public void givenCorrectPostTableRequest_Return201AndTableID() throws Exception {
         TableRequest tableRequest = new TableRequest(1, 2);
-        given(tableService.addTable(1, 2)).willReturn(1);
+        given(tableService.addTable(1, 1, 2)).willReturn(1);
 
         mockMvc.perform(post("/table")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -50,6 +59,35 @@ public class TableControllerImplTest {
                 .andExpect(content().string(containsString("{\"table_id\":1}")));
     }
 
+    /**
+     * This test checks the POST method /parties/{party_id}/table of TableController controller.
+     * The table should be added to the party from the route.
+     */
+    @Test
+    public void givenPartyPostTableRequest_Return201AndTableID() throws Exception {
+        TableRequest tableRequest = new TableRequest(1, 2);
+        given(tableService.addTable(2, 1, 2)).willReturn(1);
+
+        mockMvc.perform(post("/parties/{party_id}/table", 2)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(tableRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("{\"table_id\":1}")));
+    }
+
+    /**
+     * This test checks the GET method /parties/{party_id}/tables_list of TableController controller.
+     * In negative case (party does not exist) it should return status 404 and error message.
+     */
+    @Test
+    public void givenUnknownParty_Return404AndErrorMessage() throws Exception {
+        willThrow(new ExerciseNotFoundException("Party with ID = 3 does not exist")).given(partyService).requireParty(3);
+
+        mockMvc.perform(get("/parties/{party_id}/tables_list", 3))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string(containsString("Party with ID = 3 does not exist")));
+    }
+
     /**
      * This test checks the POST method /table of TableController controller.
      * In negative case (capacity < 0) it should return status 400 and error message.
@@ -74,7 +112,7 @@ public class TableControllerImplTest {
         List<Table> tablesList = new ArrayList<>();
         tablesList.add(new Table(1, 2));
         tablesList.add(new Table(2, 3));
-        given(tableService.getTablesList()).willReturn(tablesList);
+        given(tableService.getTablesList(1)).willReturn(tablesList);
         //
         String resultBodyResponse = "{\"tables_list\":[" +
                 "{\"table_id\":1,\"capacity\":2}," +
@@ -84,6 +122,21 @@ public class TableControllerImplTest {
                 .andExpect(content().string(containsString(resultBodyResponse)));
     }
 
+    /**
+     * This test checks the GET method /tables_list with limit.
+     * Service returns limit + 1 tables, the extra table is not returned but the next cursor is.
+     */
+    @Test
+    public void givenLimit_Return200PageAndNextCursor() throws Exception {
+        given(tableService.getTablesList(1, Integer.MIN_VALUE, 2)).willReturn(List.of(new Table(1, 2), new Table(2, 3)));
+        String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString("1".getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(get("/tables_list").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tables_list.length()").value(1))
+                .andExpect(jsonPath("$.tables_list[0].table_id").value(1))
+                .andExpect(jsonPath("$.next_cursor").value(nextCursor));
+    }
+
     /**
      * This test checks the PUT method /table/{id} of TableController controller.
      * In positive case it should return status 200 and response body with table id.
@@ -92,7 +145,7 @@ public class TableControllerImplTest {
     public void givenCorrectPutTableRequest_Return200AndTableInfo() throws Exception {
         int tableId = 2;
         TableRequest tableRequest = new TableRequest(null, 5);
-        given(tableService.updateTable(tableId, 5)).willReturn(tableId);
+        given(tableService.updateTable(1, tableId, 5)).willReturn(tableId);
         //
         mockMvc.perform(put("/table/{id}", tableId)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -0,0 +1,239 @@
+package uk.co.imperatives.exercise.repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.service.ArrivalJournal;
+import uk.co.imperatives.exercise.service.PartyService;
+import uk.co.imperatives.exercise.service.SeatLedger;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Stress tests of concurrent registrations and check-ins at the same table. The tests run against the local
+ * PostgreSQL (see docker-compose.yml) in READ COMMITTED and are skipped if it is not available. The schema is
+ * migrated by Flyway in a separate schema, which is dropped after the tests, so the application data is not touched.
+ * Every client sends requests one by one without pauses, there are twice as many requests as the table
+ * has seats, so concurrent requests compete for the last seats.
+ */
+@EnabledIf("isPostgresAvailable")
+public class ConcurrentBookingTest {
+
+    private static final String URL = System.getProperty("party.test.postgres.url",
+            "jdbc:postgresql://localhost:5432/exercisedb");
+
+    private static final String USER = System.getProperty("party.test.postgres.user", "exercise");
+
+    private static final String PASSWORD = System.getProperty("party.test.postgres.password", "password");
+
+    private static final String SCHEMA = "concurrent_booking_test";
+
+    private static final int PARTY_ID = PartyService.DEFAULT_PARTY;
+
+    private static final int TABLE_ID = 1;
+
+    private static final int CAPACITY = 200;
+
+    private static final String GUEST_PREFIX = "Concurrent booking ";
+
+    private static HikariDataSource dataSource;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static JpaGuestRepository guestRepository;
+
+    private static JpaTableRepository tableRepository;
+
+    private static JpaPartyRepository partyRepository;
+
+    static boolean isPostgresAvailable() {
+        DriverManager.setLoginTimeout(2);
+        try (var ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @BeforeAll
+    public static void migrate() {
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setPoolName("concurrent-booking-pool");
+        hikariConfig.setJdbcUrl(URL);
+        hikariConfig.setUsername(USER);
+        hikariConfig.setPassword(PASSWORD);
+        hikariConfig.setSchema(SCHEMA);
+        hikariConfig.setMaximumPoolSize(64);
+        dataSource = new HikariDataSource(hikariConfig);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("filesystem:db/migration")
+                .load()
+                .migrate();
+        guestRepository = new JpaGuestRepository(jdbcTemplate, new NamedParameterJdbcTemplate(dataSource));
+        tableRepository = new JpaTableRepository(jdbcTemplate, new NamedParameterJdbcTemplate(dataSource));
+        partyRepository = new JpaPartyRepository(jdbcTemplate);
+    }
+
+    @AfterAll
+    public static void close() {
+        try {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    @BeforeEach
+    public void clear() {
+        jdbcTemplate.execute("TRUNCATE arrived_guests, guests, tables, party_events");
+    }
+
+    /**
+     * Input: the table has 200 seats, clients register 200 guests with 1 accompanying guest each.
+     * Output: exactly 100 guests are registered, booked places do not exceed the table capacity.
+     */
+    @ParameterizedTest(name = "{0} clients")
+    @ValueSource(ints = {1, 8, 64})
+    public void givenConcurrentRegistrations_DoNotOverbookTable(int clients) throws Exception {
+        jdbcTemplate.update("INSERT INTO tables (party_id, id, capacity) VALUES (?, ?, ?)", PARTY_ID, TABLE_ID,
+                CAPACITY);
+
+        int registered = run(clients, CAPACITY, i -> RegistrationStatus.OK ==
+                guestRepository.saveGuest(PARTY_ID, new Guest(GUEST_PREFIX + i, TABLE_ID, 2)));
+
+        assertEquals(CAPACITY / 2, registered);
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject(
+                "SELECT SUM(total_guests) FROM guests WHERE party_id = ? AND table_number = ?", Integer.class,
+                PARTY_ID, TABLE_ID));
+    }
+
+    /**
+     * Input: the table has 200 seats booked by 200 guests, every guest arrives with 1 accompanying guest.
+     * Output: exactly 100 guests are checked in, arrived people do not exceed the table capacity.
+     */
+    @ParameterizedTest(name = "{0} clients")
+    @ValueSource(ints = {1, 8, 64})
+    public void givenConcurrentCheckIns_DoNotExceedTableCapacity(int clients) throws Exception {
+        jdbcTemplate.update("INSERT INTO tables (party_id, id, capacity) VALUES (?, ?, ?)", PARTY_ID, TABLE_ID,
+                CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(RegistrationStatus.OK,
+                    guestRepository.saveGuest(PARTY_ID, new Guest(GUEST_PREFIX + i, TABLE_ID, 1)));
+        }
+
+        int arrived = run(clients, CAPACITY, i -> CheckInStatus.OK ==
+                guestRepository.checkInGuest(PARTY_ID, new Guest(GUEST_PREFIX + i, null, 2)).getStatus());
+
+        assertEquals(CAPACITY / 2, arrived);
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject("""
+                SELECT SUM(a.count) FROM arrived_guests a JOIN guests g ON a.party_id = g.party_id AND a.name = g.name
+                WHERE g.party_id = ? AND g.table_number = ?
+                """, Integer.class, PARTY_ID, TABLE_ID));
+    }
+
+    /**
+     * Input: the table has 200 seats booked by 200 guests, every guest arrives with 1 accompanying guest,
+     * check-ins are decided by the seat ledger and acknowledged by the arrival journal.
+     * Output: exactly 100 guests are checked in, their arrivals and arrived people are in DB after the journal stops.
+     */
+    @ParameterizedTest(name = "{0} clients")
+    @ValueSource(ints = {1, 8, 64})
+    public void givenJournaledCheckIns_StoreArrivalsInDb(int clients, @TempDir Path directory) throws Exception {
+        jdbcTemplate.update("INSERT INTO tables (party_id, id, capacity) VALUES (?, ?, ?)", PARTY_ID, TABLE_ID,
+                CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(RegistrationStatus.OK,
+                    guestRepository.saveGuest(PARTY_ID, new Guest(GUEST_PREFIX + i, TABLE_ID, 1)));
+        }
+        var seatLedger = new SeatLedger(tableRepository, partyRepository);
+        seatLedger.rebuild();
+        var journal = new ArrivalJournal(true, directory.resolve("arrivals.journal"), 50, 1000, 10_000,
+                guestRepository, tableRepository, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new SimpleMeterRegistry());
+        journal.start();
+
+        int arrived;
+        try {
+            arrived = run(clients, CAPACITY, i -> {
+                if (!seatLedger.tryArrive(PARTY_ID, TABLE_ID, 2)) {
+                    return false;
+                }
+                journal.append(PARTY_ID, new Guest(GUEST_PREFIX + i, TABLE_ID, 2, new Date()));
+                return true;
+            });
+        } finally {
+            journal.stop();
+        }
+
+        assertEquals(CAPACITY / 2, arrived);
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject("""
+                SELECT SUM(a.count) FROM arrived_guests a JOIN guests g ON a.party_id = g.party_id AND a.name = g.name
+                WHERE g.party_id = ? AND g.table_number = ?
+                """, Integer.class, PARTY_ID, TABLE_ID));
+        assertEquals(CAPACITY, jdbcTemplate.queryForObject("SELECT arrived FROM tables WHERE party_id = ? AND id = ?",
+                Integer.class, PARTY_ID, TABLE_ID));
+    }
+
+    /**
+     * Runs the requests by the clients at the same time.
+     *
+     * @return number of successful requests
+     */
+    private static int run(int clients, int requests, IntPredicate request) throws Exception {
+        var next = new AtomicInteger();
+        var succeeded = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        if (request.test(i)) {
+                            succeeded.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return succeeded.get();
+    }
+}
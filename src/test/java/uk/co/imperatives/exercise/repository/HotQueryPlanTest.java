@@ -0,0 +1,224 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regression tests for query plans of the hot queries. The tests run against the local PostgreSQL
+ * (see docker-compose.yml) and are skipped if it is not available. The schema is migrated by Flyway in a separate
+ * schema, which is dropped after the tests, so the application data is not touched.
+ * Sequential scans are disabled for the session, so the planner falls back to a sequential scan
+ * only if there is no index for the query.
+ */
+@EnabledIf("isPostgresAvailable")
+public class HotQueryPlanTest {
+
+    private static final String URL = System.getProperty("party.test.postgres.url",
+            "jdbc:postgresql://localhost:5432/exercisedb");
+
+    private static final String USER = System.getProperty("party.test.postgres.user", "exercise");
+
+    private static final String PASSWORD = System.getProperty("party.test.postgres.password", "password");
+
+    private static final String SCHEMA = "hot_query_plan_test";
+
+    private static final int PARTY_ID = 1;
+
+    private static final int OTHER_PARTY_ID = 2;
+
+    private static SingleConnectionDataSource dataSource;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    static boolean isPostgresAvailable() {
+        DriverManager.setLoginTimeout(2);
+        try (var ignored = DriverManager.getConnection(URL, USER, PASSWORD)) {
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @BeforeAll
+    public static void migrate() {
+        dataSource = new SingleConnectionDataSource(URL, USER, PASSWORD, true);
+        dataSource.setSchema(SCHEMA);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("filesystem:db/migration")
+                .load()
+                .migrate();
+        namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        // Partitions of another party must exist to check that the queries do not read them
+        jdbcTemplate.queryForObject("SELECT add_party(?)", Boolean.class, OTHER_PARTY_ID);
+        jdbcTemplate.execute("SET enable_seqscan = off");
+    }
+
+    @AfterAll
+    public static void close() {
+        try {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    /**
+     * Registration of a new guest must use indexes of tables and guests.
+     */
+    @Test
+    public void givenInsertGuestQuery_UseIndexes() {
+        assertNoSeqScan(explain(JpaGuestRepository.SQL_INSERT_GUEST, new MapSqlParameterSource()
+                .addValue("partyId", PARTY_ID)
+                .addValue("name", "Jon Snow")
+                .addValue("tableId", 1)
+                .addValue("guests", 2)));
+    }
+
+    /**
+     * Check-in of an arrived guest must use indexes of tables, guests and arrived guests.
+     */
+    @Test
+    public void givenCheckInGuestQuery_UseIndexes() {
+        assertNoSeqScan(explain(JpaGuestRepository.SQL_CHECK_IN_GUEST, new MapSqlParameterSource()
+                .addValue("partyId", PARTY_ID)
+                .addValue("name", "Jon Snow")
+                .addValue("guests", 2)
+                .addValue("time", new Timestamp(System.currentTimeMillis()))));
+    }
+
+    /**
+     * Removal of a guest must use indexes of guests and arrived guests.
+     */
+    @Test
+    public void givenDeleteGuestQuery_UseIndexes() {
+        assertNoSeqScan(explain(JpaGuestRepository.SQL_DELETE_GUEST, PARTY_ID, "Jon Snow", PARTY_ID));
+    }
+
+    /**
+     * Existence checks must use primary keys.
+     */
+    @Test
+    public void givenExistsQueries_UseIndexes() {
+        assertNoSeqScan(explain(JpaGuestRepository.SQL_EXISTS_GUEST_NAME, PARTY_ID, "Jon Snow"));
+        assertNoSeqScan(explain(JpaGuestRepository.SQL_EXISTS_ARRIVAL_GUEST_NAME, PARTY_ID, "Jon Snow"));
+        assertNoSeqScan(explain(JpaTableRepository.SQL_EXISTS_TABLE, PARTY_ID, 1));
+    }
+
+    /**
+     * Table capacity update must use the primary key.
+     */
+    @Test
+    public void givenUpdateTableQuery_UseIndexes() {
+        assertNoSeqScan(explain(JpaTableRepository.SQL_UPDATE_TABLE, 5, PARTY_ID, 1));
+    }
+
+    /**
+     * Pages of the guest list filtered by table or name prefix must use indexes of guests.
+     */
+    @Test
+    public void givenGuestListPageQueries_UseIndexes() {
+        var filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setAfterName("Jon Snow");
+        filter.setLimit(101);
+        List<Object> args = new ArrayList<>();
+        assertNoSeqScan(explain(JpaGuestRepository.createGuestListQuery(PARTY_ID, filter, args), args.toArray()));
+        filter = new GuestFilter();
+        filter.setNamePrefix("Jon");
+        filter.setLimit(101);
+        args = new ArrayList<>();
+        assertNoSeqScan(explain(JpaGuestRepository.createGuestListQuery(PARTY_ID, filter, args), args.toArray()));
+    }
+
+    /**
+     * Pages of the arrived guests list filtered by table and arrival time must use indexes.
+     */
+    @Test
+    public void givenArrivedGuestListPageQuery_UseIndexes() {
+        var filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setArrivedFrom(new Date(0));
+        filter.setAfterTimeArrived(new Date());
+        filter.setAfterName("Jon Snow");
+        filter.setLimit(101);
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createArrivedGuestListQuery(PARTY_ID, filter, args);
+        assertNoSeqScan(explain(sql, args.toArray()));
+    }
+
+    /**
+     * Pages of the tables list must use the primary key.
+     */
+    @Test
+    public void givenTablePageQuery_UseIndexes() {
+        assertNoSeqScan(explain(JpaTableRepository.SQL_GET_TABLE_PAGE, PARTY_ID, 1, 101));
+    }
+
+    /**
+     * Statements of a party must read and change only the partitions of the party.
+     */
+    @Test
+    public void givenPartyQueries_TouchOnlyPartitionsOfParty() {
+        assertOnlyPartyPartitions(explain(JpaTableRepository.SQL_SELECT_AVAILABLE_SEATS, PARTY_ID, PARTY_ID));
+        assertOnlyPartyPartitions(explain(JpaGuestRepository.SQL_INSERT_GUEST, new MapSqlParameterSource()
+                .addValue("partyId", PARTY_ID)
+                .addValue("name", "Jon Snow")
+                .addValue("tableId", 1)
+                .addValue("guests", 2)));
+        assertOnlyPartyPartitions(explain(JpaGuestRepository.SQL_DELETE_GUEST, PARTY_ID, "Jon Snow", PARTY_ID));
+        var filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setLimit(101);
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createArrivedGuestListQuery(PARTY_ID, filter, args);
+        assertOnlyPartyPartitions(explain(sql, args.toArray()));
+    }
+
+    private static String explain(String sql, Object... args) {
+        return toPlan(jdbcTemplate.queryForList("EXPLAIN " + sql, args));
+    }
+
+    private static String explain(String sql, MapSqlParameterSource parameters) {
+        return toPlan(namedParameterJdbcTemplate.queryForList("EXPLAIN " + sql, parameters));
+    }
+
+    private static String toPlan(List<Map<String, Object>> rows) {
+        return rows.stream()
+                .map(row -> String.valueOf(row.get("QUERY PLAN")))
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static void assertNoSeqScan(String plan) {
+        assertFalse(plan.contains("Seq Scan"), "Query plan contains a sequential scan:\n" + plan);
+    }
+
+    private static void assertOnlyPartyPartitions(String plan) {
+        assertTrue(plan.contains("_party_" + PARTY_ID), "Query plan does not read partitions of the party:\n" + plan);
+        assertFalse(plan.contains("_party_" + OTHER_PARTY_ID),
+                "Query plan reads partitions of another party:\n" + plan);
+    }
+}
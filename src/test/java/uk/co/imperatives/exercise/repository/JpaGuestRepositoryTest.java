@@ -4,7 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
@@ -13,17 +13,20 @@ import uk.co.imperatives.exercise.repository.entity.Guest;
 
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -50,9 +53,9 @@ public class JpaGuestRepositoryTest {
         var guestName = "Jon Snow";
         var tableId = 1;
         var totalGuests = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(guestName))).willReturn(true);
-        assertTrue(repository.exists(new Guest(guestName, tableId, totalGuests)));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(guestName));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName))).willReturn(true);
+        assertTrue(repository.exists(1, new Guest(guestName, tableId, totalGuests)));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName));
     }
 
     /**
@@ -66,9 +69,9 @@ public class JpaGuestRepositoryTest {
         var guestName = "Jon Snow";
         var tableId = 1;
         var totalGuests = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(guestName))).willReturn(null);
-        assertFalse(repository.exists(new Guest(guestName, tableId, totalGuests)));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(guestName));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName))).willReturn(null);
+        assertFalse(repository.exists(1, new Guest(guestName, tableId, totalGuests)));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName));
     }
 
     /**
@@ -82,9 +85,9 @@ public class JpaGuestRepositoryTest {
         var guestName = "Jon Snow";
         var tableId = 1;
         var totalGuests = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(guestName))).willReturn(true);
-        assertTrue(repository.arrived(new Guest(guestName, tableId, totalGuests)));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(guestName));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName))).willReturn(true);
+        assertTrue(repository.arrived(1, new Guest(guestName, tableId, totalGuests)));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName));
     }
 
     /**
@@ -98,37 +101,56 @@ public class JpaGuestRepositoryTest {
         var guestName = "Jon Snow";
         var tableId = 1;
         var totalGuests = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(guestName))).willReturn(null);
-        assertFalse(repository.arrived(new Guest(guestName, tableId, totalGuests)));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(guestName));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName))).willReturn(null);
+        assertFalse(repository.arrived(1, new Guest(guestName, tableId, totalGuests)));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(guestName));
     }
 
     /**
      * Test for the saveGuest() method
      * Input: guest Jon Snow, table ID = 1, total guest = 2.
-     * JDBC template returns 1 updated row.
-     * Output: returns 1.
+     * The statement returns status OK.
+     * Output: returns status OK.
      */
     @Test
-    public void givenGuestInfo_AvailableTableSeats_ReturnOneUpdatedRow() {
+    public void givenGuestInfo_AvailableTableSeats_ReturnStatusOk() {
         var guest = new Guest("Jon Snow", 1, 2);
-        given(namedParameterJdbcTemplate.update(anyString(), any(SqlParameterSource.class))).willReturn(1);
-        assertEquals(1, repository.saveGuest(guest));
-        verify(namedParameterJdbcTemplate, times(1)).update(anyString(), any(SqlParameterSource.class));
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.REGISTRATION_STATUS))).willReturn(RegistrationStatus.OK);
+        assertEquals(RegistrationStatus.OK, repository.saveGuest(1, guest));
+        verify(namedParameterJdbcTemplate, times(1)).queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.REGISTRATION_STATUS));
     }
 
     /**
      * Test for the saveGuest() method
      * Input: guest Jon Snow, table ID = 1, total guest = 2.
-     * JDBC template returns 0 updated row.
-     * Output: returns 0.
+     * The statement returns status NO_CAPACITY.
+     * Output: returns status NO_CAPACITY.
      */
     @Test
-    public void givenGuestInfo_AvailableTableSeats_ReturnZeroUpdatedRow() {
+    public void givenGuestInfo_NotAvailableTableSeats_ReturnStatusNoCapacity() {
         var guest = new Guest("Jon Snow", 1, 2);
-        given(namedParameterJdbcTemplate.update(anyString(), any(SqlParameterSource.class))).willReturn(0);
-        assertEquals(0, repository.saveGuest(guest));
-        verify(namedParameterJdbcTemplate, times(1)).update(anyString(), any(SqlParameterSource.class));
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.REGISTRATION_STATUS))).willReturn(RegistrationStatus.NO_CAPACITY);
+        assertEquals(RegistrationStatus.NO_CAPACITY, repository.saveGuest(1, guest));
+        verify(namedParameterJdbcTemplate, times(1)).queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.REGISTRATION_STATUS));
+    }
+
+    /**
+     * Test for the saveGuest() method
+     * Input: guest Jon Snow, table ID = 1, total guest = 2.
+     * The same guest is inserted by a concurrent request and the statement fails with a duplicate key.
+     * Output: returns status DUPLICATE_NAME.
+     */
+    @Test
+    public void givenGuestInfo_ConcurrentDuplicate_ReturnStatusDuplicateName() {
+        var guest = new Guest("Jon Snow", 1, 2);
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.REGISTRATION_STATUS)))
+                .willThrow(new DuplicateKeyException("duplicate key value violates unique constraint"));
+        assertEquals(RegistrationStatus.DUPLICATE_NAME, repository.saveGuest(1, guest));
     }
 
     /**
@@ -138,25 +160,15 @@ public class JpaGuestRepositoryTest {
      */
     @Test
     public void givenNotEmptyGuestsListInDB_ReturnListOfGuests() {
-        List<Map<String, Object>> rows = new ArrayList<>();
-        Map<String, Object> row1 = new HashMap<>();
-        row1.put("name", "Jon Snow");
-        row1.put("table_number", 1);
-        row1.put("total_guests", 2);
-        rows.add(row1);
-        Map<String, Object> row2 = new HashMap<>();
-        row2.put("name", "Arya Stark");
-        row2.put("table_number", 2);
-        row2.put("total_guests", 3);
-        rows.add(row2);
-        given(jdbcTemplate.queryForList(anyString())).willReturn(rows);
-        List<Guest> guestList = repository.getGuestList();
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.GUEST), eq(1)))
+                .willReturn(List.of(new Guest("Jon Snow", 1, 2), new Guest("Arya Stark", 2, 3)));
+        List<Guest> guestList = repository.getGuestList(1);
         assertEquals(2, guestList.size());
         assertTrue(guestList.stream().anyMatch(guest -> "Jon Snow".equals(guest.getName())
                 && 1 == guest.getTableNumber() && 2 == guest.getTotalGuests()));
         assertTrue(guestList.stream().anyMatch(guest -> "Arya Stark".equals(guest.getName())
                 && 2 == guest.getTableNumber() && 3 == guest.getTotalGuests()));
-        verify(jdbcTemplate, times(1)).queryForList(anyString());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.GUEST), eq(1));
     }
 
     /**
@@ -166,51 +178,76 @@ public class JpaGuestRepositoryTest {
      */
     @Test
     public void givenEmptyGuestsListInDB_ReturnEmptyList() {
-        given(jdbcTemplate.queryForList(anyString())).willThrow(new EmptyResultDataAccessException(1));
-        assertTrue(repository.getGuestList().isEmpty());
-        verify(jdbcTemplate, times(1)).queryForList(anyString());
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.GUEST), eq(1))).willReturn(List.of());
+        assertTrue(repository.getGuestList(1).isEmpty());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.GUEST), eq(1));
     }
 
     /**
-     * Test for updateArrivedGuest() method.
+     * Test for checkInGuest() method.
      * Input: guest Jon Snow, table ID = null, total guest = 2.
-     * JDBC template returns 1 updated row.
-     * Output: returns 1.
+     * The statement returns status OK and table number 1.
+     * Output: check-in result with status OK and table number 1.
      */
     @Test
-    public void givenGuestArrived_SuccessUpdateInfo_ReturnOneUpdatedRow() {
+    public void givenGuestArrived_SuccessCheckIn_ReturnStatusOk() {
         var guest = new Guest("Jon Snow", null, 2);
-        given(namedParameterJdbcTemplate.update(anyString(), any(SqlParameterSource.class))).willReturn(1);
-        assertEquals(1, repository.updateArrivedGuest(guest));
-        verify(namedParameterJdbcTemplate, times(1)).update(anyString(), any(SqlParameterSource.class));
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.CHECK_IN_RESULT))).willReturn(new CheckInResult(CheckInStatus.OK, 1));
+        var result = repository.checkInGuest(1, guest);
+        assertEquals(CheckInStatus.OK, result.getStatus());
+        assertEquals(1, result.getTableNumber());
+        verify(namedParameterJdbcTemplate, times(1)).queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.CHECK_IN_RESULT));
     }
 
     /**
-     * Test for updateArrivedGuest() method.
+     * Test for checkInGuest() method.
      * Input: guest Jon Snow, table ID = null, total guest = 2.
-     * JDBC template returns 0 updated row.
-     * Output: returns 0.
+     * The statement returns status NOT_BOOKED without table number.
+     * Output: check-in result with status NOT_BOOKED.
      */
     @Test
-    public void givenGuestArrived_SuccessUpdateInfo_ReturnZeroUpdatedRow() {
+    public void givenGuestArrived_NotBooked_ReturnStatusNotBooked() {
         var guest = new Guest("Jon Snow", null, 2);
-        given(namedParameterJdbcTemplate.update(anyString(), any(SqlParameterSource.class))).willReturn(0);
-        assertEquals(0, repository.updateArrivedGuest(guest));
-        verify(namedParameterJdbcTemplate, times(1)).update(anyString(), any(SqlParameterSource.class));
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.CHECK_IN_RESULT))).willReturn(new CheckInResult(CheckInStatus.NOT_BOOKED, null));
+        var result = repository.checkInGuest(1, guest);
+        assertEquals(CheckInStatus.NOT_BOOKED, result.getStatus());
+        assertNull(result.getTableNumber());
+    }
+
+    /**
+     * Test for checkInGuest() method.
+     * Input: guest Jon Snow, table ID = null, total guest = 2.
+     * The same guest is checked in by a concurrent request and the statement fails with a duplicate key.
+     * Output: check-in result with status ALREADY_ARRIVED.
+     */
+    @Test
+    public void givenGuestArrived_ConcurrentDuplicate_ReturnStatusAlreadyArrived() {
+        var guest = new Guest("Jon Snow", null, 2);
+        given(namedParameterJdbcTemplate.queryForObject(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.CHECK_IN_RESULT)))
+                .willThrow(new DuplicateKeyException("duplicate key value violates unique constraint"));
+        assertEquals(CheckInStatus.ALREADY_ARRIVED, repository.checkInGuest(1, guest).getStatus());
     }
 
     /**
      * Test for deleteGuest() method.
      * Input: guest Jon Snow, table ID = null, total guest = null.
      * JDBC template returns 1 removed row.
-     * Output: returns 1.
+     * Output: returns removed arrival with table number and count of guests.
      */
     @Test
     public void givenGuest_RemovedFromDB_ReturnOneAffectedRow() {
         var guest = new Guest("Jon Snow");
-        given(jdbcTemplate.update(anyString(), anyString())).willReturn(1);
-        assertEquals(1, repository.deleteGuest(guest));
-        verify(jdbcTemplate, times(1)).update(anyString(), anyString());
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.GUEST), eq(1), eq("Jon Snow"), eq(1)))
+                .willReturn(List.of(new Guest("Jon Snow", 1, 3)));
+        var removedList = repository.deleteGuest(1, guest);
+        assertEquals(1, removedList.size());
+        assertEquals(1, removedList.get(0).getTableNumber());
+        assertEquals(3, removedList.get(0).getTotalGuests());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.GUEST), eq(1), eq("Jon Snow"), eq(1));
     }
 
 
@@ -218,14 +255,15 @@ public class JpaGuestRepositoryTest {
      * Test for deleteGuest() method.
      * Input: guest Jon Snow, table ID = null, total guest = null.
      * JDBC template returns 0 removed row.
-     * Output: returns 0.
+     * Output: returns an empty list.
      */
     @Test
     public void givenGuest_NotRemovedFromDB_ReturnZeroAffectedRow() {
         var guest = new Guest("Jon Snow");
-        given(jdbcTemplate.update(anyString(), anyString())).willReturn(0);
-        assertEquals(0, repository.deleteGuest(guest));
-        verify(jdbcTemplate, times(1)).update(anyString(), anyString());
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.GUEST), eq(1), eq("Jon Snow"), eq(1)))
+                .willReturn(List.of());
+        assertTrue(repository.deleteGuest(1, guest).isEmpty());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.GUEST), eq(1), eq("Jon Snow"), eq(1));
     }
 
     /**
@@ -235,27 +273,17 @@ public class JpaGuestRepositoryTest {
      */
     @Test
     public void givenNotEmptyArrivedGuestsListInDB_ReturnListOfArrivedGuests() {
-        List<Map<String, Object>> rows = new ArrayList<>();
-        Map<String, Object> row1 = new HashMap<>();
-        row1.put("name", "Jon Snow");
-        row1.put("count", 2);
         var date1 = new Date();
-        row1.put("time_arrived", date1);
-        rows.add(row1);
-        Map<String, Object> row2 = new HashMap<>();
-        row2.put("name", "Arya Stark");
-        row2.put("count", 3);
         var date2 = new Date();
-        row2.put("time_arrived", date2);
-        rows.add(row2);
-        given(jdbcTemplate.queryForList(anyString())).willReturn(rows);
-        List<Guest> guestList = repository.getArrivedGuestList();
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.ARRIVED_GUEST), eq(1)))
+                .willReturn(List.of(new Guest("Jon Snow", 2, date1), new Guest("Arya Stark", 3, date2)));
+        List<Guest> guestList = repository.getArrivedGuestList(1);
         assertEquals(2, guestList.size());
         assertTrue(guestList.stream().anyMatch(guest -> "Jon Snow".equals(guest.getName())
                 && 2 == guest.getTotalGuests() && date1.equals(guest.getTimeArrived())));
         assertTrue(guestList.stream().anyMatch(guest -> "Arya Stark".equals(guest.getName())
                 && 3 == guest.getTotalGuests() && date2.equals(guest.getTimeArrived())));
-        verify(jdbcTemplate, times(1)).queryForList(anyString());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.ARRIVED_GUEST), eq(1));
     }
 
     /**
@@ -265,8 +293,121 @@ public class JpaGuestRepositoryTest {
      */
     @Test
     public void givenEmptyArrivedGuestsListInDB_ReturnEmptyList() {
-        given(jdbcTemplate.queryForList(anyString())).willThrow(new EmptyResultDataAccessException(1));
-        assertTrue(repository.getArrivedGuestList().isEmpty());
-        verify(jdbcTemplate, times(1)).queryForList(anyString());
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.ARRIVED_GUEST), eq(1))).willReturn(List.of());
+        assertTrue(repository.getArrivedGuestList(1).isEmpty());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.ARRIVED_GUEST), eq(1));
+    }
+
+    /**
+     * Test for the findExistingNames() method.
+     * Input: 2 names, DB contains one of them.
+     * Output: set with the existing name.
+     */
+    @Test
+    public void givenOneNameExists_ReturnExistingName() {
+        given(namedParameterJdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(String.class)))
+                .willReturn(List.of("Jon Snow"));
+        var existingNames = repository.findExistingNames(1, List.of("Jon Snow", "Arya Stark"));
+        assertEquals(Set.of("Jon Snow"), existingNames);
+        verify(namedParameterJdbcTemplate, times(1))
+                .queryForList(anyString(), any(SqlParameterSource.class), eq(String.class));
+    }
+
+    /**
+     * Test for the saveGuests() method.
+     * Input: 3 guests, JDBC batch returns counts in 2 batches.
+     * Output: flat array with inserted rows for every guest.
+     */
+    @Test
+    public void givenGuests_SaveWithBatchAndReturnCounts() {
+        var guests = List.of(new Guest("Jon Snow", 1, 2), new Guest("Arya Stark", 1, 1),
+                new Guest("Sansa Stark", 2, 1));
+        given(jdbcTemplate.batchUpdate(anyString(), eq(guests), anyInt(), any()))
+                .willReturn(new int[][]{{1, 0}, {1}});
+        assertArrayEquals(new int[]{1, 0, 1}, repository.saveGuests(1, guests));
+    }
+
+    /**
+     * Test for the streamGuestList() method.
+     * Input: limit = 501, DB returns a full page of 500 guests and then 1 guest.
+     * Output: consumer receives all guests, the second page is read after the last name of the first page
+     * with the rest of the limit.
+     */
+    @Test
+    public void givenGuestsInDB_StreamGuestsToConsumerByPages() {
+        List<Guest> firstPage = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            firstPage.add(new Guest(String.format("Guest %03d", i), 1, 1));
+        }
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.GUEST), any(Object[].class)))
+                .willReturn(firstPage, List.of(new Guest("Jon Snow", 1, 3)));
+        var filter = new GuestFilter();
+        filter.setLimit(501);
+        List<Guest> guests = new ArrayList<>();
+        repository.streamGuestList(1, filter, guests::add);
+        assertEquals(501, guests.size());
+        assertEquals("Jon Snow", guests.get(500).getName());
+        assertEquals(3, guests.get(500).getTotalGuests());
+        verify(jdbcTemplate).query(anyString(), eq(RowMappers.GUEST), eq(1), eq(500));
+        verify(jdbcTemplate).query(anyString(), eq(RowMappers.GUEST), eq(1), eq("Guest 499"), eq(1));
+        assertEquals(501, filter.getLimit());
+        assertNull(filter.getAfterName());
+    }
+
+    /**
+     * Test for the streamArrivedGuestList() method.
+     * Input: DB returns a short page of arrived guests.
+     * Output: consumer receives the guests, DB is queried once.
+     */
+    @Test
+    public void givenArrivedGuestsInDB_StreamGuestsToConsumer() {
+        var arrivals = List.of(new Guest("Jon Snow", 3, new Date(1000)), new Guest("Arya Stark", 1, new Date(2000)));
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.ARRIVED_GUEST), any(Object[].class)))
+                .willReturn(arrivals);
+        List<Guest> guests = new ArrayList<>();
+        repository.streamArrivedGuestList(1, new GuestFilter(), guests::add);
+        assertEquals(arrivals, guests);
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.ARRIVED_GUEST), any(Object[].class));
+    }
+
+    /**
+     * Test for the guest list query.
+     * Input: filter by table and name prefix with special characters, keyset position and limit.
+     * Output: query with the conditions in the order of arguments, LIKE special characters are escaped.
+     */
+    @Test
+    public void givenGuestFilter_CreateKeysetQuery() {
+        var filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setNamePrefix("Jon_");
+        filter.setAfterName("Jon_A");
+        filter.setLimit(11);
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createGuestListQuery(2, filter, args);
+        assertTrue(sql.contains(
+                "party_id = ? AND table_number = ? AND name LIKE ? AND name > ? ORDER BY name LIMIT ?"));
+        assertEquals(List.of(2, 1, "Jon\\_%", "Jon_A", 11), args);
+    }
+
+    /**
+     * Test for the arrived guests list query.
+     * Input: filter by table, arrival time range and keyset position.
+     * Output: query joins guests for the table filter and compares arrival time and name as a row.
+     */
+    @Test
+    public void givenArrivedGuestFilter_CreateKeysetQuery() {
+        var filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setArrivedFrom(new Date(0));
+        filter.setArrivedTo(new Date(1000));
+        filter.setAfterTimeArrived(new Date(500));
+        filter.setAfterName("Jon Snow");
+        List<Object> args = new ArrayList<>();
+        var sql = JpaGuestRepository.createArrivedGuestListQuery(2, filter, args);
+        assertTrue(sql.contains("JOIN guests g ON g.party_id = a.party_id AND g.name = a.name"
+                + " WHERE a.party_id = ? AND g.table_number = ?"));
+        assertTrue(sql.contains("(a.time_arrived, a.name) > (?, ?) ORDER BY a.time_arrived, a.name;"));
+        assertEquals(6, args.size());
+        assertEquals(List.of(2, 1), args.subList(0, 2));
     }
 }
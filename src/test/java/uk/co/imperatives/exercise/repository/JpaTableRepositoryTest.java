@@ -4,21 +4,21 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import uk.co.imperatives.exercise.configuration.TestConfig;
 import uk.co.imperatives.exercise.exception.ExerciseServiceException;
 import uk.co.imperatives.exercise.repository.entity.Table;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
@@ -31,6 +31,9 @@ public class JpaTableRepositoryTest {
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
     @InjectMocks
     private JpaTableRepository repository;
 
@@ -40,21 +43,13 @@ public class JpaTableRepositoryTest {
      */
     @Test
     public void givenTablesExistInDB_ReturnTablesList() {
-        List<Map<String, Object>> rows = new ArrayList<>();
-        Map<String, Object> row1 = new HashMap<>();
-        row1.put("id", 1);
-        row1.put("capacity", 2);
-        rows.add(row1);
-        Map<String, Object> row2 = new HashMap<>();
-        row2.put("id", 2);
-        row2.put("capacity", 3);
-        rows.add(row2);
-        given(jdbcTemplate.queryForList(anyString())).willReturn(rows);
-        List<Table> tableList = repository.getTableList();
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.TABLE), eq(1)))
+                .willReturn(List.of(new Table(1, 2), new Table(2, 3)));
+        List<Table> tableList = repository.getTableList(1);
         assertEquals(2, tableList.size());
         assertTrue(tableList.stream().anyMatch(table -> 1 == table.getId() && 2 == table.getCapacity()));
         assertTrue(tableList.stream().anyMatch(table -> 2 == table.getId() && 3 == table.getCapacity()));
-        verify(jdbcTemplate, times(1)).queryForList(anyString());
+        verify(jdbcTemplate, times(1)).query(anyString(), eq(RowMappers.TABLE), eq(1));
     }
 
     /**
@@ -63,8 +58,8 @@ public class JpaTableRepositoryTest {
      */
     @Test
     public void givenTablesDoesNotExistInDB_ReturnEmptyList() {
-        given(jdbcTemplate.queryForList(anyString())).willThrow(new EmptyResultDataAccessException(1));
-        assertTrue(repository.getTableList().isEmpty());
+        given(jdbcTemplate.query(anyString(), eq(RowMappers.TABLE), eq(1))).willReturn(List.of());
+        assertTrue(repository.getTableList(1).isEmpty());
     }
 
     /**
@@ -75,9 +70,9 @@ public class JpaTableRepositoryTest {
     @Test
     public void givenTableIdForExistedTable_ReturnTrue() {
         int tableId = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(tableId))).willReturn(true);
-        assertTrue(repository.exists(tableId));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(tableId));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(tableId))).willReturn(true);
+        assertTrue(repository.exists(1, tableId));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(tableId));
     }
 
     /**
@@ -88,9 +83,9 @@ public class JpaTableRepositoryTest {
     @Test
     public void givenTableIdForNotExistedTable_ReturnFalse() {
         int tableId = 1;
-        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(tableId))).willReturn(null);
-        assertFalse(repository.exists(tableId));
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(tableId));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq(1), eq(tableId))).willReturn(null);
+        assertFalse(repository.exists(1, tableId));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Boolean.class), eq(1), eq(tableId));
     }
 
     /**
@@ -101,9 +96,9 @@ public class JpaTableRepositoryTest {
     @Test
     public void givenCorrectTableCapacityUpdate_ReturnOneUpdatedRow() {
         Table table = new Table(1, 2);
-        given(jdbcTemplate.update(anyString(), eq(table.getCapacity()), eq(table.getId()))).willReturn(1);
-        assertEquals(1, repository.updateTable(table));
-        verify(jdbcTemplate, times(1)).update(anyString(), eq(table.getCapacity()), eq(table.getId()));
+        given(jdbcTemplate.update(anyString(), eq(table.getCapacity()), eq(1), eq(table.getId()))).willReturn(1);
+        assertEquals(1, repository.updateTable(1, table));
+        verify(jdbcTemplate, times(1)).update(anyString(), eq(table.getCapacity()), eq(1), eq(table.getId()));
     }
 
     /**
@@ -114,9 +109,9 @@ public class JpaTableRepositoryTest {
     @Test
     public void givenIncorrectTableCapacityUpdate_ReturnZeroUpdatedRows() {
         Table table = new Table(1, 2);
-        given(jdbcTemplate.update(anyString(), eq(table.getCapacity()), eq(table.getId()))).willReturn(0);
-        assertEquals(0, repository.updateTable(table));
-        verify(jdbcTemplate, times(1)).update(anyString(), eq(table.getCapacity()), eq(table.getId()));
+        given(jdbcTemplate.update(anyString(), eq(table.getCapacity()), eq(1), eq(table.getId()))).willReturn(0);
+        assertEquals(0, repository.updateTable(1, table));
+        verify(jdbcTemplate, times(1)).update(anyString(), eq(table.getCapacity()), eq(1), eq(table.getId()));
     }
 
     /**
@@ -126,9 +121,9 @@ public class JpaTableRepositoryTest {
      */
     @Test
     public void givenAvailableSeats_ReturnSeatsCount() {
-        given(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).willReturn(5);
-        assertEquals(5, repository.getAvailableSeats());
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Integer.class));
+        given(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(1), eq(1))).willReturn(5);
+        assertEquals(5, repository.getAvailableSeats(1));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Integer.class), eq(1), eq(1));
     }
 
     /**
@@ -138,9 +133,56 @@ public class JpaTableRepositoryTest {
      */
     @Test
     public void givenJdbcTemplateReturnsNullForAvailableSeats_TrowException() {
-        given(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).willReturn(null);
-        Exception exception = assertThrows(ExerciseServiceException.class, () -> repository.getAvailableSeats());
+        given(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq(1), eq(1))).willReturn(null);
+        Exception exception = assertThrows(ExerciseServiceException.class, () -> repository.getAvailableSeats(1));
         assertEquals("Something goes wrong while calculating available seats", exception.getMessage());
-        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Integer.class));
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(Integer.class), eq(1), eq(1));
+    }
+
+    /**
+     * Input: There is 1 table in DB with 3 booked and 2 arrived people
+     * Output: list with occupancy of this table
+     */
+    @Test
+    public void givenTablesExistInDB_ReturnTableOccupancy() {
+        given(namedParameterJdbcTemplate.query(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.TABLE_OCCUPANCY)))
+                .willReturn(List.of(new TableOccupancy(1, 5, 3, 2)));
+        List<TableOccupancy> occupancyList = repository.getTableOccupancy(1);
+        assertEquals(1, occupancyList.size());
+        assertEquals(5, occupancyList.get(0).getCapacity());
+        assertEquals(3, occupancyList.get(0).getBooked());
+        assertEquals(2, occupancyList.get(0).getArrived());
+    }
+
+    /**
+     * Input: table 1 with 3 booked and 2 arrived people is requested, table 2 does not exist
+     * Output: occupancy of the table 1, empty result for the table 2
+     */
+    @Test
+    public void givenTableId_ReturnOccupancyOfThisTable() {
+        given(namedParameterJdbcTemplate.query(anyString(), any(SqlParameterSource.class),
+                eq(RowMappers.TABLE_OCCUPANCY)))
+                .willReturn(List.of(new TableOccupancy(1, 5, 3, 2)))
+                .willReturn(List.of());
+        var occupancy = repository.getTableOccupancy(1, 1);
+        assertTrue(occupancy.isPresent());
+        assertEquals(3, occupancy.get().getBooked());
+        assertEquals(2, occupancy.get().getArrived());
+        assertTrue(repository.getTableOccupancy(1, 2).isEmpty());
+    }
+
+    /**
+     * Input: tables 1 and 2 are requested to lock, only table 1 exists
+     * Output: capacity and booked places of the table 1
+     */
+    @Test
+    public void givenTableIds_LockAndReturnBookings() {
+        given(namedParameterJdbcTemplate.query(anyString(), any(SqlParameterSource.class), eq(RowMappers.TABLE_BOOKINGS)))
+                .willReturn(List.of(new TableOccupancy(1, 10, 4, null)));
+        List<TableOccupancy> bookings = repository.lockTableBookings(1, List.of(1, 2));
+        assertEquals(1, bookings.size());
+        assertEquals(10, bookings.get(0).getCapacity());
+        assertEquals(4, bookings.get(0).getBooked());
     }
 }
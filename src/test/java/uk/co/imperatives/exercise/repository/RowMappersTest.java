@@ -0,0 +1,82 @@
+package uk.co.imperatives.exercise.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for RowMappers. Columns are read by index.
+ */
+public class RowMappersTest {
+
+    private final ResultSet resultSet = mock(ResultSet.class);
+
+    /**
+     * Input: row (name, table_number, total_guests) = ("Jon Snow", 1, 3).
+     * Output: guest with the same values.
+     */
+    @Test
+    public void givenGuestRow_MapToGuest() throws SQLException {
+        given(resultSet.getString(1)).willReturn("Jon Snow");
+        given(resultSet.getInt(2)).willReturn(1);
+        given(resultSet.getInt(3)).willReturn(3);
+        var guest = RowMappers.GUEST.mapRow(resultSet, 0);
+        assertEquals("Jon Snow", guest.getName());
+        assertEquals(1, guest.getTableNumber());
+        assertEquals(3, guest.getTotalGuests());
+    }
+
+    /**
+     * Input: row (name, count, time_arrived) = ("Jon Snow", 2, now).
+     * Output: arrived guest with the same values.
+     */
+    @Test
+    public void givenArrivedGuestRow_MapToGuest() throws SQLException {
+        var timeArrived = new Timestamp(System.currentTimeMillis());
+        given(resultSet.getString(1)).willReturn("Jon Snow");
+        given(resultSet.getInt(2)).willReturn(2);
+        given(resultSet.getTimestamp(3)).willReturn(timeArrived);
+        var guest = RowMappers.ARRIVED_GUEST.mapRow(resultSet, 0);
+        assertEquals("Jon Snow", guest.getName());
+        assertEquals(2, guest.getTotalGuests());
+        assertEquals(timeArrived, guest.getTimeArrived());
+        assertNull(guest.getTableNumber());
+    }
+
+    /**
+     * Input: row (id, capacity, booked, arrived) = (1, 5, 3, 2).
+     * Output: table occupancy with the same values.
+     */
+    @Test
+    public void givenTableOccupancyRow_MapToTableOccupancy() throws SQLException {
+        given(resultSet.getInt(1)).willReturn(1);
+        given(resultSet.getInt(2)).willReturn(5);
+        given(resultSet.getInt(3)).willReturn(3);
+        given(resultSet.getInt(4)).willReturn(2);
+        var occupancy = RowMappers.TABLE_OCCUPANCY.mapRow(resultSet, 0);
+        assertEquals(1, occupancy.getId());
+        assertEquals(5, occupancy.getCapacity());
+        assertEquals(3, occupancy.getBooked());
+        assertEquals(2, occupancy.getArrived());
+    }
+
+    /**
+     * Input: row (status, table_number) = ("NOT_BOOKED", null).
+     * Output: check-in result with status NOT_BOOKED and without table number.
+     */
+    @Test
+    public void givenCheckInRowWithoutTable_MapToCheckInResult() throws SQLException {
+        given(resultSet.getString(1)).willReturn("NOT_BOOKED");
+        given(resultSet.getObject(2, Integer.class)).willReturn(null);
+        var result = RowMappers.CHECK_IN_RESULT.mapRow(resultSet, 0);
+        assertEquals(CheckInStatus.NOT_BOOKED, result.getStatus());
+        assertNull(result.getTableNumber());
+    }
+}
@@ -0,0 +1,182 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for ArrivalJournal
+ */
+public class ArrivalJournalTest {
+
+    private final JpaGuestRepository guestRepository = mock(JpaGuestRepository.class);
+
+    private final JpaTableRepository tableRepository = mock(JpaTableRepository.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        willAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any());
+    }
+
+    /**
+     * Input: "Jon Snow" arrives at table 1 with 1 friend, "Arya Stark" arrives at table 2 with 2 friends.
+     * Output: both arrivals are pending until the flush, the flush stores them and the arrived people
+     * of both tables in DB, the journal is truncated.
+     */
+    @Test
+    public void givenArrivals_FlushToDbAndTruncateJournal() throws Exception {
+        given(guestRepository.saveArrivals(anyInt(), anyList())).willReturn(new int[]{1, 1});
+        var journal = newJournal(true);
+        journal.start();
+
+        journal.append(1, new Guest("Jon Snow", 1, 2, new Date()));
+        journal.append(1, new Guest("Arya Stark", 2, 3, new Date()));
+        assertTrue(journal.isPending(1, "Jon Snow"));
+        assertTrue(Files.size(journalPath()) > 0);
+        journal.flush();
+        journal.stop();
+
+        verify(guestRepository, times(1)).saveArrivals(eq(1), argThat(arrivals -> arrivals.size() == 2
+                && "Jon Snow".equals(arrivals.get(0).getName()) && "Arya Stark".equals(arrivals.get(1).getName())));
+        verify(tableRepository, times(1)).addArrivedSeats(1, Map.of(1, 2, 2, 3));
+        assertFalse(journal.isPending(1, "Jon Snow"));
+        assertEquals(0, Files.size(journalPath()));
+    }
+
+    /**
+     * Input: "Jon Snow" arrives at table 1 of the party 1 with 1 friend and at table 1 of the party 2 with 2 friends.
+     * Output: the arrival is pending only at its party, the flush stores arrivals and arrived people of every party
+     * in its own DB batch.
+     */
+    @Test
+    public void givenArrivalsOfSeveralParties_FlushEveryParty() throws Exception {
+        given(guestRepository.saveArrivals(anyInt(), anyList())).willReturn(new int[]{1});
+        var journal = newJournal(true);
+        journal.start();
+
+        journal.append(1, new Guest("Jon Snow", 1, 2, new Date()));
+        assertTrue(journal.isPending(1, "Jon Snow"));
+        assertFalse(journal.isPending(2, "Jon Snow"));
+        journal.append(2, new Guest("Jon Snow", 1, 3, new Date()));
+        journal.flush();
+        journal.stop();
+
+        verify(guestRepository, times(1)).saveArrivals(eq(1), argThat(arrivals -> arrivals.size() == 1
+                && 2 == arrivals.get(0).getTotalGuests()));
+        verify(guestRepository, times(1)).saveArrivals(eq(2), argThat(arrivals -> arrivals.size() == 1
+                && 3 == arrivals.get(0).getTotalGuests()));
+        verify(tableRepository, times(1)).addArrivedSeats(1, Map.of(1, 2));
+        verify(tableRepository, times(1)).addArrivedSeats(2, Map.of(1, 3));
+    }
+
+    /**
+     * Input: "Jon Snow" arrival is stored in DB, but the checkpoint is not written (the writer thread stops).
+     * Output: the flush fails and the arrival stays pending, so the guest can not leave before the arrival
+     * is checkpointed, the flush on stop stores it again and fails, the next start replays it and DB skips it.
+     */
+    @Test
+    public void givenCheckpointNotWritten_KeepArrivalPending() throws Exception {
+        given(guestRepository.saveArrivals(anyInt(), anyList())).willAnswer(invocation -> {
+            for (var thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().startsWith("arrival-journal-writer-")) {
+                    thread.interrupt();
+                    thread.join();
+                }
+            }
+            return new int[]{1};
+        }).willReturn(new int[]{0});
+        var journal = newJournal(true);
+        journal.start();
+        journal.append(1, new Guest("Jon Snow", 1, 2, new Date()));
+
+        assertThrows(ExerciseServiceException.class, journal::flush);
+        assertTrue(journal.isPending(1, "Jon Snow"));
+        assertThrows(ExerciseServiceException.class, journal::stop);
+        newJournal(false).start();
+
+        // The failed flush, the flush on stop and the replay
+        verify(guestRepository, times(3)).saveArrivals(eq(1), argThat(arrivals -> arrivals.size() == 1
+                && "Jon Snow".equals(arrivals.get(0).getName())));
+        verify(tableRepository, times(1)).addArrivedSeats(1, Map.of(1, 2));
+        assertFalse(Files.exists(journalPath()));
+    }
+
+    /**
+     * Input: "Jon Snow" arrival is journaled, DB is not available until the application stops,
+     * the last record in the journal is torn.
+     * Output: the next start stores the arrival in DB, skips the torn record and removes the journal.
+     */
+    @Test
+    public void givenArrivalNotInDbAndTornRecord_ReplayOnStart() throws Exception {
+        given(guestRepository.saveArrivals(anyInt(), anyList()))
+                .willThrow(new QueryTimeoutException("DB is not available"));
+        var journal = newJournal(true);
+        journal.start();
+        journal.append(1, new Guest("Jon Snow", 1, 2, new Date()));
+        assertThrows(QueryTimeoutException.class, journal::stop);
+        appendTornRecord();
+
+        willReturn(new int[]{1}).given(guestRepository).saveArrivals(anyInt(), anyList());
+        newJournal(false).start();
+
+        // The failed flush and the replay
+        verify(guestRepository, times(2)).saveArrivals(eq(1), argThat(arrivals -> arrivals.size() == 1
+                && "Jon Snow".equals(arrivals.get(0).getName()) && 2 == arrivals.get(0).getTotalGuests()));
+        verify(tableRepository, times(1)).addArrivedSeats(1, Map.of(1, 2));
+        assertFalse(Files.exists(journalPath()));
+    }
+
+    private ArrivalJournal newJournal(boolean enabled) {
+        return new ArrivalJournal(enabled, journalPath(), 60_000, 1000, 200, guestRepository, tableRepository,
+                transactionTemplate, new SimpleMeterRegistry());
+    }
+
+    private Path journalPath() {
+        return directory.resolve("arrivals.journal");
+    }
+
+    private void appendTornRecord() throws IOException {
+        // Header of a 40 bytes record with 3 bytes of its body
+        Files.write(journalPath(), new byte[]{0, 0, 0, 40, 1, 2, 3, 4, 'A', 0, 0}, StandardOpenOption.APPEND);
+    }
+}
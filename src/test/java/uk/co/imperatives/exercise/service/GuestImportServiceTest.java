@@ -0,0 +1,159 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for GuestImportService
+ */
+public class GuestImportServiceTest {
+
+    private final JpaGuestRepository guestRepository = mock(JpaGuestRepository.class);
+
+    private final JpaTableRepository tableRepository = mock(JpaTableRepository.class);
+
+    private final SeatLedger seatLedger = mock(SeatLedger.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final GuestNameIndex guestNameIndex = mock(GuestNameIndex.class);
+
+    private final PartyProjection partyProjection = mock(PartyProjection.class);
+
+    private final GuestImportService guestImportService = new GuestImportService(guestRepository, tableRepository,
+            seatLedger, transactionTemplate, guestNameIndex, partyProjection, 5);
+
+    /**
+     * Input: 5 rows: a new guest, a guest which already exists in DB, a guest for unknown table,
+     * a guest for the full table and an invalid row.
+     * Output: only the first guest is stored, added to the booked counter of the table and booked in the seat ledger,
+     * other rows get their statuses.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenMixedRows_ImportValidRowsAndReturnStatuses() {
+        var guests = List.of(new Guest("Jon Snow", 1, 3), new Guest("Arya Stark", 1, 1),
+                new Guest("Sansa Stark", 7, 1), new Guest("Bran Stark", 1, 2), new Guest(" ", 1, 1));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        given(tableRepository.lockTableBookings(anyInt(), anyCollection()))
+                .willReturn(List.of(new TableOccupancy(1, 6, 2, null)));
+        given(guestRepository.findExistingNames(anyInt(), anyCollection())).willReturn(Set.of("Arya Stark"));
+        given(guestRepository.saveGuests(eq(1), argThat(list -> list.size() == 1))).willReturn(new int[]{1});
+
+        var statuses = guestImportService.importGuests(1, guests);
+
+        assertEquals(List.of(RegistrationStatus.OK, RegistrationStatus.DUPLICATE_NAME, RegistrationStatus.UNKNOWN_TABLE,
+                RegistrationStatus.NO_CAPACITY, RegistrationStatus.INVALID), statuses);
+        verify(tableRepository, times(1)).addBookedSeats(1, Map.of(1, 3));
+        verify(seatLedger, times(1)).book(1, 1, 3);
+        verify(guestNameIndex, times(1)).book(1, "Jon Snow", 1);
+        verify(partyProjection, times(1)).book(eq(1), argThat(guest -> "Jon Snow".equals(guest.getName())));
+    }
+
+    /**
+     * Input: 2 rows, the first guest is in the guest name index, the second one is new.
+     * Output: the first row is a duplicate, only the second name is checked in DB.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenNameFromIndex_CheckOnlyUnknownNamesInDb() {
+        var guests = List.of(new Guest("Jon Snow", 1, 1), new Guest("Arya Stark", 1, 1));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        given(tableRepository.lockTableBookings(anyInt(), anyCollection()))
+                .willReturn(List.of(new TableOccupancy(1, 10, 0, null)));
+        given(guestNameIndex.isBooked(1, "Jon Snow")).willReturn(true);
+        given(guestRepository.findExistingNames(anyInt(), anyCollection())).willReturn(Set.of());
+        given(guestRepository.saveGuests(anyInt(), any())).willReturn(new int[]{1});
+
+        var statuses = guestImportService.importGuests(1, guests);
+
+        assertEquals(List.of(RegistrationStatus.DUPLICATE_NAME, RegistrationStatus.OK), statuses);
+        verify(guestRepository, times(1)).findExistingNames(1, Set.of("Arya Stark"));
+    }
+
+    /**
+     * Input: the same name twice in the import, the second insert is skipped by DB.
+     * Output: the second row is a duplicate, a row skipped by DB is a duplicate too.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenDuplicateNames_ReturnDuplicateStatus() {
+        var guests = List.of(new Guest("Jon Snow", 1, 1), new Guest("Jon Snow", 1, 1), new Guest("Arya Stark", 1, 1));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        given(tableRepository.lockTableBookings(anyInt(), anyCollection()))
+                .willReturn(List.of(new TableOccupancy(1, 10, 0, null)));
+        given(guestRepository.findExistingNames(anyInt(), anyCollection())).willReturn(Set.of());
+        given(guestRepository.saveGuests(anyInt(), any())).willReturn(new int[]{1, 0});
+
+        var statuses = guestImportService.importGuests(1, guests);
+
+        assertEquals(List.of(RegistrationStatus.OK, RegistrationStatus.DUPLICATE_NAME, RegistrationStatus.DUPLICATE_NAME),
+                statuses);
+        verify(seatLedger, times(1)).book(anyInt(), anyInt(), anyInt());
+    }
+
+    /**
+     * Input: 3 rows: a new guest, a guest with a name longer than the name column and a guest with a name
+     * of the maximum length.
+     * Output: the long name is invalid and not stored, the other rows are stored.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void givenOverlongName_ReturnInvalidStatusAndImportOtherRows() {
+        var longestName = "A".repeat(GuestImportService.MAX_NAME_LENGTH);
+        var guests = List.of(new Guest("Jon Snow", 1, 1), new Guest(longestName + "A", 1, 1),
+                new Guest(longestName, 1, 1));
+        given(transactionTemplate.execute(any()))
+                .willAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        given(tableRepository.lockTableBookings(anyInt(), anyCollection()))
+                .willReturn(List.of(new TableOccupancy(1, 10, 0, null)));
+        given(guestRepository.findExistingNames(anyInt(), anyCollection())).willReturn(Set.of());
+        given(guestRepository.saveGuests(anyInt(), any())).willReturn(new int[]{1, 1});
+
+        var statuses = guestImportService.importGuests(1, guests);
+
+        assertEquals(List.of(RegistrationStatus.OK, RegistrationStatus.INVALID, RegistrationStatus.OK), statuses);
+        verify(guestRepository, times(1)).saveGuests(eq(1), argThat(list -> list.size() == 2
+                && list.stream().noneMatch(guest -> guest.getName().length() > GuestImportService.MAX_NAME_LENGTH)));
+        verify(tableRepository, times(1)).addBookedSeats(1, Map.of(1, 2));
+    }
+
+    /**
+     * Input: more rows than allowed.
+     * Output: ExerciseServiceBadRequestException, nothing is stored.
+     */
+    @Test
+    public void givenTooManyRows_ThrowBadRequestException() {
+        var guests = List.of(new Guest("1", 1, 1), new Guest("2", 1, 1), new Guest("3", 1, 1),
+                new Guest("4", 1, 1), new Guest("5", 1, 1), new Guest("6", 1, 1));
+        assertThrows(ExerciseServiceBadRequestException.class, () -> guestImportService.importGuests(1, guests));
+        verify(guestRepository, never()).saveGuests(anyInt(), any());
+    }
+}
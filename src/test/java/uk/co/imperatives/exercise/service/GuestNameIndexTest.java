@@ -0,0 +1,133 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.repository.JpaGuestRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for GuestNameIndex
+ */
+public class GuestNameIndexTest {
+
+    private final JpaGuestRepository guestRepository = mock(JpaGuestRepository.class);
+
+    private final JpaPartyRepository partyRepository = mock(JpaPartyRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final GuestNameIndex guestNameIndex = new GuestNameIndex(guestRepository, partyRepository, meterRegistry);
+
+    /**
+     * Input: guests "Jon Snow" and "Arya Stark" booked tables 1 and 2 in DB, "Jon Snow" arrived.
+     * Output: the index is rebuilt with both booked names, their tables and one arrived name, lookups are counted.
+     */
+    @Test
+    public void givenGuestsInDb_RebuildIndexAndCountLookups() {
+        given(guestRepository.getGuestList(1))
+                .willReturn(List.of(new Guest("Jon Snow", 1, 2), new Guest("Arya Stark", 2, 1)));
+        given(guestRepository.getArrivedGuestNames(1)).willReturn(List.of("Jon Snow"));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        guestNameIndex.rebuild();
+
+        assertTrue(guestNameIndex.isBooked(1, "Arya Stark"));
+        assertFalse(guestNameIndex.isBooked(1, "Sansa Stark"));
+        assertTrue(guestNameIndex.isArrived(1, "Jon Snow"));
+        assertFalse(guestNameIndex.isArrived(1, "Arya Stark"));
+        assertEquals(2, guestNameIndex.getTable(1, "Arya Stark"));
+        assertNull(guestNameIndex.getTable(1, "Sansa Stark"));
+        assertEquals(1.0, meterRegistry.get("party.guest-names.lookups")
+                .tag("index", "booked").tag("result", "miss").counter().count());
+        assertEquals(2.0, meterRegistry.get("party.guest-names.size").tag("index", "booked").gauge().value());
+    }
+
+    /**
+     * Input: "Jon Snow" is booked, the index is rebuilt and DB returns "Arya Stark" only.
+     * Output: while DB is read "Jon Snow" is still booked, after the rebuild only "Arya Stark" is booked.
+     */
+    @Test
+    public void givenRebuild_KeepPreviousIndexUntilLoaded() {
+        guestNameIndex.book(1, "Jon Snow", 1);
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        given(guestRepository.getGuestList(1)).willAnswer(invocation -> {
+            assertTrue(guestNameIndex.isBooked(1, "Jon Snow"));
+            return List.of(new Guest("Arya Stark", 2, 1));
+        });
+        guestNameIndex.rebuild();
+
+        assertFalse(guestNameIndex.isBooked(1, "Jon Snow"));
+        assertTrue(guestNameIndex.isBooked(1, "Arya Stark"));
+        assertEquals(1.0, meterRegistry.get("party.guest-names.size").tag("index", "booked").gauge().value());
+    }
+
+    /**
+     * Input: a guest books a table, arrives and leaves the party.
+     * Output: the guest stays booked, but is not arrived after leaving.
+     */
+    @Test
+    public void givenArrivalAndDeparture_KeepBookingAndRemoveArrival() {
+        guestNameIndex.book(1, "Jon Snow", 1);
+        guestNameIndex.arrive(1, "Jon Snow");
+        assertTrue(guestNameIndex.isArrived(1, "Jon Snow"));
+
+        guestNameIndex.leave(1, "Jon Snow");
+        assertTrue(guestNameIndex.isBooked(1, "Jon Snow"));
+        assertFalse(guestNameIndex.isArrived(1, "Jon Snow"));
+    }
+
+    /**
+     * Input: the arrived guest was not found in DB.
+     * Output: the name is removed from arrived guests only, the false positive is counted.
+     */
+    @Test
+    public void givenNameMissingInDb_EvictAndCountFalsePositive() {
+        guestNameIndex.book(1, "Jon Snow", 1);
+        guestNameIndex.arrive(1, "Jon Snow");
+
+        guestNameIndex.evict(1, "Jon Snow", true);
+        assertFalse(guestNameIndex.isArrived(1, "Jon Snow"));
+        assertTrue(guestNameIndex.isBooked(1, "Jon Snow"));
+        assertEquals(1.0, meterRegistry.get("party.guest-names.false-positives").counter().count());
+    }
+
+    /**
+     * Input: "Jon Snow" books the table 1 and "Arya Stark" the table 2, both bookings of the table 1 are cancelled.
+     * Output: "Jon Snow" is not booked, the booking of "Arya Stark" at another table stays.
+     */
+    @Test
+    public void givenCancelledBooking_RemoveOnlyBookingOfTable() {
+        guestNameIndex.book(1, "Jon Snow", 1);
+        guestNameIndex.book(1, "Arya Stark", 2);
+        guestNameIndex.cancel(1, "Jon Snow", 1);
+        guestNameIndex.cancel(1, "Arya Stark", 1);
+
+        assertFalse(guestNameIndex.isBooked(1, "Jon Snow"));
+        assertTrue(guestNameIndex.isBooked(1, "Arya Stark"));
+        assertEquals(2, guestNameIndex.getTable(1, "Arya Stark"));
+    }
+
+    /**
+     * Input: "Jon Snow" books a table and arrives at the party 1.
+     * Output: the name is neither booked nor arrived at the party 2.
+     */
+    @Test
+    public void givenSeveralParties_KeepNamesOfEveryPartySeparately() {
+        guestNameIndex.book(1, "Jon Snow", 1);
+        guestNameIndex.arrive(1, "Jon Snow");
+
+        assertFalse(guestNameIndex.isBooked(2, "Jon Snow"));
+        assertFalse(guestNameIndex.isArrived(2, "Jon Snow"));
+        assertNull(guestNameIndex.getTable(2, "Jon Snow"));
+        assertTrue(guestNameIndex.isArrived(1, "Jon Snow"));
+    }
+}
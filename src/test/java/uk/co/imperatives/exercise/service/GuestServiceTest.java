@@ -1,31 +1,56 @@
 package uk.co.imperatives.exercise.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import uk.co.imperatives.exercise.configuration.TestConfig;
 import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNoCapacityException;
 import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
 import uk.co.imperatives.exercise.exception.ExerciseServiceException;
+import uk.co.imperatives.exercise.jfr.GuestRegistrationEvent;
+import uk.co.imperatives.exercise.repository.CheckInResult;
+import uk.co.imperatives.exercise.repository.CheckInStatus;
+import uk.co.imperatives.exercise.repository.GuestFilter;
 import uk.co.imperatives.exercise.repository.JpaGuestRepository;
-import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
 import uk.co.imperatives.exercise.repository.entity.Guest;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -39,42 +64,65 @@ public class GuestServiceTest {
     private JpaGuestRepository guestRepository;
 
     @Mock
-    private JpaTableRepository tableRepository;
+    private SeatLedger seatLedger;
+
+    @Mock
+    private PartyEventBroadcaster partyEvents;
+
+    @Mock
+    private GuestNameIndex guestNameIndex;
+
+    @Spy
+    private TableLocks tableLocks = new TableLocks(64, 1000, new SimpleMeterRegistry());
+
+    @Mock
+    private ArrivalJournal arrivalJournal;
+
+    @Mock
+    private PartyProjection partyProjection;
 
     @InjectMocks
     private GuestService guestService;
 
+    @BeforeEach
+    public void setUp() {
+        given(seatLedger.tryBook(anyInt(), anyInt(), anyInt())).willReturn(RegistrationStatus.OK);
+        given(seatLedger.tryArrive(anyInt(), anyInt(), anyInt())).willReturn(true);
+    }
+
     /**
      * Test for the addGuest() method.
      * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1, available seats on table 1 is 2.
      * //
-     * The guestRepository will return false while check that guest exists.
-     * The tableRepository will return true while check if table exists.
-     * The guestRepository will return 1 update row while calling saveGuest() method.
-     * Output: correct guest name without exceptions.
+     * The guestRepository will return status OK while calling saveGuest() method.
+     * Output: correct guest name without exceptions, the booking is reserved in the seat ledger and the name
+     * in the name index under the table lock, the lock is released before the DB statement.
      */
     @Test
     public void givenGuestInfo_AvailableSeats_SaveToDbAndReturnName() {
         var guestName = "Jon Snow";
         int tableId = 1;
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(false);
-        given(tableRepository.exists(eq(tableId))).willReturn(true);
-        given(guestRepository.saveGuest(any(Guest.class))).willReturn(1);
+        willAnswer(invocation -> {
+            assertFalse(tableLocks.getLock(1, tableId).isHeldByCurrentThread());
+            return RegistrationStatus.OK;
+        }).given(guestRepository).saveGuest(anyInt(), any(Guest.class));
         //
-        assertThat(guestService.addGuest(guestName, tableId, accompanyingGuests), equalTo(guestName));
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(tableRepository, times(1)).exists(eq(tableId));
-        verify(guestRepository, times(1)).saveGuest(any(Guest.class));
+        assertThat(guestService.addGuest(1, guestName, tableId, accompanyingGuests), equalTo(guestName));
+        verify(guestRepository, times(1)).saveGuest(anyInt(), any(Guest.class));
+        verify(guestRepository, times(0)).exists(anyInt(), any(Guest.class));
+        verify(seatLedger, times(1)).tryBook(eq(1), eq(tableId), eq(accompanyingGuests + 1));
+        verify(seatLedger, times(0)).unbook(anyInt(), anyInt(), anyInt());
+        verify(guestNameIndex, times(2)).book(1, guestName, tableId);
+        verify(guestNameIndex, times(0)).cancel(anyInt(), any(), anyInt());
+        verify(tableLocks, times(1)).withLock(eq(1), eq(tableId), any());
     }
 
     /**
      * Test for the addGuest() method.
      * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1, available seats on table 1 is 1.
      * //
-     * The guestRepository will return false while check that guest exists.
-     * The tableRepository will return true while check if table exists.
-     * The guestRepository will return 0 update row while calling saveGuest() method.
+     * The guestRepository will return status NO_CAPACITY while calling saveGuest() method.
      * Output: an ExerciseServiceBadRequestException exception must be thrown.
      */
     @Test
@@ -82,65 +130,123 @@ public class GuestServiceTest {
         var guestName = "Jon Snow";
         int tableId = 1;
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(false);
-        given(tableRepository.exists(eq(tableId))).willReturn(true);
-        given(guestRepository.saveGuest(any(Guest.class))).willReturn(0);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(RegistrationStatus.NO_CAPACITY);
         //
         Exception exception = assertThrows(ExerciseServiceBadRequestException.class,
-                () -> guestService.addGuest(guestName, tableId, accompanyingGuests)
+                () -> guestService.addGuest(1, guestName, tableId, accompanyingGuests)
         );
         assertEquals(String.format("There is no free space at the table with ID = %d", tableId), exception.getMessage());
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(tableRepository, times(1)).exists(eq(tableId));
-        verify(guestRepository, times(1)).saveGuest(any(Guest.class));
+        verify(guestRepository, times(1)).saveGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(1)).unbook(1, tableId, accompanyingGuests + 1);
     }
 
     /**
      * Test for the addGuest() method.
      * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1.
      * //
-     * The guestRepository will return true while check that guest exists.
-     * Output: an ExerciseServiceBadRequestException exception must be thrown.
+     * The seat ledger does not have 2 seats at the table 1 for the booking.
+     * Output: an ExerciseNoCapacityException exception must be thrown without a DB call.
+     */
+    @Test
+    public void givenFullTableInLedger_ThrowAnExceptionWithoutDb() {
+        given(seatLedger.tryBook(1, 1, 2)).willReturn(RegistrationStatus.NO_CAPACITY);
+        //
+        assertThrows(ExerciseNoCapacityException.class, () -> guestService.addGuest(1, "Jon Snow", 1, 1));
+        verify(guestRepository, times(0)).saveGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(0)).unbook(anyInt(), anyInt(), anyInt());
+    }
+
+    /**
+     * Test for the addGuest() method.
+     * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1.
+     * //
+     * The guestRepository will return status DUPLICATE_NAME while calling saveGuest() method.
+     * Output: an ExerciseAlreadyExistsException exception must be thrown.
      */
     @Test
     public void givenExistedGuestName_ThrowAnException() {
         var guestName = "Jon Snow";
         int tableId = 1;
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(true);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(RegistrationStatus.DUPLICATE_NAME);
+        //
+        Exception exception = assertThrows(ExerciseAlreadyExistsException.class,
+                () -> guestService.addGuest(1, guestName, tableId, accompanyingGuests)
+        );
+        assertEquals(String.format("Guest with name %s already exists", guestName), exception.getMessage());
+        verify(guestRepository, times(1)).saveGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(1)).unbook(1, tableId, accompanyingGuests + 1);
+        verify(guestNameIndex, times(1)).cancel(1, guestName, tableId);
+        verify(guestNameIndex, times(1)).book(1, guestName);
+    }
+
+    /**
+     * Test for the addGuest() method.
+     * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1.
+     * //
+     * The guest name index already contains the name.
+     * Output: an ExerciseAlreadyExistsException exception must be thrown without a DB call.
+     */
+    @Test
+    public void givenIndexedGuestName_ThrowAnExceptionWithoutDb() {
+        var guestName = "Jon Snow";
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
         //
         Exception exception = assertThrows(ExerciseAlreadyExistsException.class,
-                () -> guestService.addGuest(guestName, tableId, accompanyingGuests)
+                () -> guestService.addGuest(1, guestName, 1, 1)
         );
         assertEquals(String.format("Guest with name %s already exists", guestName), exception.getMessage());
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(tableRepository, times(0)).exists(anyInt());
-        verify(guestRepository, times(0)).saveGuest(any(Guest.class));
+        verify(guestRepository, times(0)).saveGuest(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Test for the addGuest() method.
+     * Input: guest name "Jon Snow" registers at the table 1 twice at once, the guest name index is not mocked.
+     * //
+     * The second registration comes while the first one reserves seats in the seat ledger under the table lock.
+     * Output: the second registration waits for the lock, then finds the name registered by the first one
+     * and is rejected as a duplicate without reserving seats or a DB call.
+     */
+    @Test
+    public void givenConcurrentRegistrationsOfName_AdmitOneUnderTableLock() throws Exception {
+        var guestName = "Jon Snow";
+        var service = newGuestService(newGuestNameIndex());
+        var second = new AtomicReference<CompletableFuture<String>>();
+        willAnswer(invocation -> {
+            assertTrue(tableLocks.getLock(1, 1).isHeldByCurrentThread());
+            second.set(CompletableFuture.supplyAsync(() -> service.addGuest(1, guestName, 1, 1)));
+            awaitWaitingRequest(tableLocks.getLock(1, 1));
+            return RegistrationStatus.OK;
+        }).given(seatLedger).tryBook(1, 1, 2);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(RegistrationStatus.OK);
+        //
+        assertEquals(guestName, service.addGuest(1, guestName, 1, 1));
+        var exception = assertThrows(ExecutionException.class, () -> second.get().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ExerciseAlreadyExistsException.class, exception.getCause());
+        verify(seatLedger, times(1)).tryBook(anyInt(), anyInt(), anyInt());
+        verify(guestRepository, times(1)).saveGuest(anyInt(), any(Guest.class));
     }
 
     /**
      * Test for the addGuest() method.
      * Input: guest Name = "Jon Snow", tableId = 1, accompanying guests = 1, available seats on table 1 is 2.
      * //
-     * The guestRepository will return false while check that guest exists.
-     * The tableRepository will return false while check if table exists.
-     * Output: an ExerciseServiceException exception must be thrown.
+     * The guestRepository will return status UNKNOWN_TABLE while calling saveGuest() method.
+     * Output: an ExerciseServiceBadRequestException exception must be thrown.
      */
     @Test
     public void givenNotExistedTableWhileSavingGuest_ThrowAnException() {
         var guestName = "Jon Snow";
         int tableId = 1;
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(false);
-        given(tableRepository.exists(eq(tableId))).willReturn(false);
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(RegistrationStatus.UNKNOWN_TABLE);
         //
         Exception exception = assertThrows(ExerciseServiceBadRequestException.class,
-                () -> guestService.addGuest(guestName, tableId, accompanyingGuests)
+                () -> guestService.addGuest(1, guestName, tableId, accompanyingGuests)
         );
         assertEquals(String.format("There is no table with ID = %d", tableId), exception.getMessage());
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(tableRepository, times(1)).exists(anyInt());
-        verify(guestRepository, times(0)).saveGuest(any(Guest.class));
+        verify(guestRepository, times(1)).saveGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(1)).unbook(1, tableId, accompanyingGuests + 1);
     }
 
     /**
@@ -149,18 +255,16 @@ public class GuestServiceTest {
      * guest 1 (name:"Jon Snow", tableID: 1, accompanying guests: 2);
      * guest 2 (name:"Arya Stark", tableID: 2, accompanying guests: 7)
      * //
-     * The guestRepository will return a list of guests.
-     * Output: the guest service returns a list of Guest objects with correct information.
+     * The party projection will return a list of guests.
+     * Output: the guest service returns a list of Guest objects with correct information without DB.
      */
     @Test
     public void givenRequestForGuestList_ReturnTheCorrectListOfGuests() {
         var guest1 = new Guest("Jon Snow", 1, 2);
         var guest2 = new Guest("Arya Stark", 2, 7);
-        List<Guest> guestList = new ArrayList<>(2);
-        guestList.add(guest1);
-        guestList.add(guest2);
-        given(guestRepository.getGuestList()).willReturn(guestList);
-        List<Guest> resultList = guestService.getGuestList();
+        given(partyProjection.isEnabled()).willReturn(true);
+        given(partyProjection.streamGuests(anyInt(), any())).willReturn(Stream.of(guest1, guest2));
+        List<Guest> resultList = guestService.getGuestList(1);
         assertEquals(2, resultList.size());
         assertTrue(resultList.stream().anyMatch(guest -> "Jon Snow".equals(guest.getName())
                 && 1 == guest.getTableNumber() && 2 == guest.getTotalGuests())
@@ -168,58 +272,282 @@ public class GuestServiceTest {
         assertTrue(resultList.stream().anyMatch(guest -> "Arya Stark".equals(guest.getName())
                 && 2 == guest.getTableNumber() && 7 == guest.getTotalGuests())
         );
-        verify(guestRepository, times(1)).getGuestList();
+        verify(guestRepository, times(0)).getGuestList(anyInt());
+    }
+
+    /**
+     * Test for the streamGuestList() method.
+     * Input: the party projection streams 2 guests for the filter.
+     * Output: the consumer receives both guests, DB is not called.
+     */
+    @Test
+    public void givenRequestForGuestStream_PassGuestsFromProjectionToConsumer() {
+        var filter = new GuestFilter();
+        given(partyProjection.isEnabled()).willReturn(true);
+        given(partyProjection.streamGuests(1, filter))
+                .willReturn(Stream.of(new Guest("Jon Snow", 1, 2), new Guest("Arya Stark", 2, 7)));
+        List<Guest> resultList = new ArrayList<>();
+        guestService.streamGuestList(1, filter, resultList::add);
+        assertEquals(2, resultList.size());
+        verify(guestRepository, times(0)).streamGuestList(anyInt(), any(), any());
+    }
+
+    /**
+     * Test for the getGuestList() and streamGuestList() methods with the disabled party projection.
+     * Input: the repository returns 2 guests in the order of DB.
+     * Output: the list and the consumer get the guests from DB in the same order, the projection is not read.
+     */
+    @Test
+    public void givenDisabledProjection_ReadGuestListFromDb() {
+        var guests = List.of(new Guest("arya Stark", 2, 7), new Guest("Jon Snow", 1, 2));
+        var filter = new GuestFilter();
+        given(guestRepository.getGuestList(1)).willReturn(guests);
+        willAnswer(invocation -> {
+            guests.forEach(invocation.<Consumer<Guest>>getArgument(2));
+            return null;
+        }).given(guestRepository).streamGuestList(eq(1), eq(filter), any());
+
+        assertEquals(guests, guestService.getGuestList(1));
+        List<Guest> resultList = new ArrayList<>();
+        guestService.streamGuestList(1, filter, resultList::add);
+        assertEquals(guests, resultList);
+        verify(partyProjection, times(0)).streamGuests(anyInt(), any());
     }
 
     /**
      * Test for method checkInGuest()
-     * Input: guest name "Jon Snow" and accompanying guest = 2.
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
      * //
-     * Guest repository returns true while checks that the guest booked a table and exists in DB.
-     * Guest repository returns 1 updated row while checks availability of the table's space and
-     * change information about arrived guest.
-     * Guest repository returns guest name the second time if everything is OK.
-     * Output: service returns guest's name.
+     * The table of the guest is not in the name index, guest repository checks in the guest at the table 1
+     * and returns status OK.
+     * Output: service returns guest's name, the statement decides the check-in without the table lock and
+     * reservation, the arrival is registered in the seat ledger, the projection and published.
      */
     @Test
     public void givenArrivedGuest_TableHasSpace_ReturnGuestName() {
         var guestName = "Jon Snow";
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(true);
-        given(guestRepository.updateArrivedGuest(any(Guest.class))).willReturn(1);
-        assertThat(guestService.checkInGuest(guestName, accompanyingGuests), equalTo(guestName));
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(guestRepository, times(1)).updateArrivedGuest(any(Guest.class));
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.getTable(1, guestName)).willReturn(null);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.OK, 1));
+        assertThat(guestService.checkInGuest(1, guestName, accompanyingGuests), equalTo(guestName));
+        verify(guestRepository, times(1)).checkInGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(1)).arrive(eq(1), eq(1), eq(accompanyingGuests + 1));
+        verify(partyEvents, times(1)).guestArrived(eq(1), eq(guestName), eq(1), eq(accompanyingGuests + 1));
+        verify(guestNameIndex, times(1)).arrive(1, guestName);
+        verify(partyProjection, times(1)).arrive(eq(1), argThat(guest -> guestName.equals(guest.getName())
+                && guest.getTimeArrived() != null));
+        verify(tableLocks, times(0)).withLock(anyInt(), any(), any());
+        verify(seatLedger, times(0)).tryArrive(anyInt(), anyInt(), anyInt());
     }
 
     /**
      * Test for method checkInGuest()
-     * Input: guest name "Jon Snow" and accompanying guest = 2.
+     * Input: guest name "Jon Snow" booked table 1 and accompanying guest = 1.
      * //
-     * Guest repository returns false while checks that the guest booked a table and exists in DB.
-     * Service throws a correct exception for this case.
-     * Output: an ExerciseServiceBadRequestException exception must be thrown.
+     * Guest repository checks in the guest and returns status OK.
+     * Output: service returns guest's name, the seats are reserved in the seat ledger and the arrival in the name index
+     * under the table lock, the lock is released before the DB statement.
+     */
+    @Test
+    public void givenBookedTable_TableHasSpace_ReserveSeatsAndReturnGuestName() {
+        var guestName = "Jon Snow";
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.getTable(1, guestName)).willReturn(1);
+        willAnswer(invocation -> {
+            assertFalse(tableLocks.getLock(1, 1).isHeldByCurrentThread());
+            return new CheckInResult(CheckInStatus.OK, 1);
+        }).given(guestRepository).checkInGuest(anyInt(), any(Guest.class));
+        assertThat(guestService.checkInGuest(1, guestName, 1), equalTo(guestName));
+        verify(tableLocks, times(1)).withLock(eq(1), eq(1), any());
+        verify(seatLedger, times(1)).tryArrive(1, 1, 2);
+        verify(seatLedger, times(0)).arrive(anyInt(), anyInt(), anyInt());
+        verify(seatLedger, times(0)).leave(anyInt(), anyInt(), anyInt());
+        verify(guestNameIndex, times(2)).arrive(1, guestName);
+        verify(guestNameIndex, times(0)).leave(anyInt(), any());
+        verify(partyEvents, times(1)).guestArrived(1, guestName, 1, 2);
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" booked table 1 and checks in twice at once, the guest name index is not mocked.
+     * //
+     * The second check-in comes while the first one reserves seats in the seat ledger under the table lock.
+     * Output: the second check-in waits for the lock, then finds the arrival registered by the first one
+     * and is rejected without reserving seats or a DB call.
+     */
+    @Test
+    public void givenConcurrentCheckInsOfGuest_AdmitOneUnderTableLock() throws Exception {
+        var guestName = "Jon Snow";
+        var nameIndex = newGuestNameIndex();
+        nameIndex.book(1, guestName, 1);
+        var service = newGuestService(nameIndex);
+        var second = new AtomicReference<CompletableFuture<String>>();
+        willAnswer(invocation -> {
+            assertTrue(tableLocks.getLock(1, 1).isHeldByCurrentThread());
+            second.set(CompletableFuture.supplyAsync(() -> service.checkInGuest(1, guestName, 1)));
+            awaitWaitingRequest(tableLocks.getLock(1, 1));
+            return true;
+        }).given(seatLedger).tryArrive(1, 1, 2);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.OK, 1));
+        //
+        assertEquals(guestName, service.checkInGuest(1, guestName, 1));
+        var exception = assertThrows(ExecutionException.class, () -> second.get().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ExerciseAlreadyExistsException.class, exception.getCause());
+        verify(seatLedger, times(1)).tryArrive(anyInt(), anyInt(), anyInt());
+        verify(guestRepository, times(1)).checkInGuest(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" booked table 1 and accompanying guest = 1.
+     * //
+     * The seat ledger does not have 2 free seats at the table 1.
+     * Output: an ExerciseNoCapacityException exception must be thrown without a DB call.
+     */
+    @Test
+    public void givenBookedTable_FullTableInLedger_ThrowExceptionWithoutDb() {
+        var guestName = "Jon Snow";
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.getTable(1, guestName)).willReturn(1);
+        given(seatLedger.tryArrive(1, 1, 2)).willReturn(false);
+        assertThrows(ExerciseNoCapacityException.class, () -> guestService.checkInGuest(1, guestName, 1));
+        verify(guestRepository, times(0)).checkInGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(0)).leave(anyInt(), anyInt(), anyInt());
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" booked table 1 and accompanying guest = 1.
+     * //
+     * The seats are reserved in the seat ledger, but guest repository returns status NO_CAPACITY.
+     * Output: an ExerciseNoCapacityException exception must be thrown, the reserved seats and the arrival are released.
+     */
+    @Test
+    public void givenBookedTable_NoCapacityInDb_ReleaseReservedSeats() {
+        var guestName = "Jon Snow";
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.getTable(1, guestName)).willReturn(1);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.NO_CAPACITY, 1));
+        assertThrows(ExerciseNoCapacityException.class, () -> guestService.checkInGuest(1, guestName, 1));
+        verify(seatLedger, times(1)).tryArrive(1, 1, 2);
+        verify(seatLedger, times(1)).leave(1, 1, 2);
+        verify(guestNameIndex, times(1)).arrive(1, guestName);
+        verify(guestNameIndex, times(1)).leave(1, guestName);
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" booked table 1 and accompanying guest = 1, the arrival journal is enabled.
+     * //
+     * The seat ledger has space at the table 1.
+     * Output: service returns guest's name, the arrival is journaled and published without the check-in statement.
+     */
+    @Test
+    public void givenArrivalJournal_TableHasSpace_JournalArrivalWithoutDb() {
+        var guestName = "Jon Snow";
+        given(arrivalJournal.isEnabled()).willReturn(true);
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.getTable(1, guestName)).willReturn(1);
+        given(seatLedger.tryArrive(1, 1, 2)).willReturn(true);
+        assertThat(guestService.checkInGuest(1, guestName, 1), equalTo(guestName));
+        verify(arrivalJournal, times(1)).append(eq(1), argThat(arrival -> guestName.equals(arrival.getName())
+                && 1 == arrival.getTableNumber() && 2 == arrival.getTotalGuests() && arrival.getTimeArrived() != null));
+        verify(guestRepository, times(0)).checkInGuest(anyInt(), any(Guest.class));
+        verify(guestNameIndex, times(1)).arrive(1, guestName);
+        verify(partyEvents, times(1)).guestArrived(1, guestName, 1, 2);
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
+     * //
+     * The guest name index contains the name, but guest repository returns status NOT_BOOKED.
+     * Service throws a correct exception for this case and evicts the name from the index.
+     * Output: an ExerciseNotFoundException exception must be thrown.
      */
     @Test
     public void givenArrivedGuest_GuestDidNotBookTable_ThrowException() {
         var guestName = "Jon Snow";
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(false);
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.NOT_BOOKED, null));
+        Exception exception = assertThrows(ExerciseNotFoundException.class,
+                () -> guestService.checkInGuest(1, guestName, accompanyingGuests)
+        );
+        assertEquals(String.format("Guest with name %s did not book a table", guestName), exception.getMessage());
+        verify(guestRepository, times(1)).checkInGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(0)).arrive(anyInt(), anyInt(), anyInt());
+        verify(guestNameIndex, times(1)).evict(1, guestName, false);
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
+     * //
+     * The guest name index does not contain the name.
+     * Output: an ExerciseNotFoundException exception must be thrown without a DB call.
+     */
+    @Test
+    public void givenArrivedGuest_GuestNotInIndex_ThrowExceptionWithoutDb() {
+        var guestName = "Jon Snow";
         Exception exception = assertThrows(ExerciseNotFoundException.class,
-                () -> guestService.checkInGuest(guestName, accompanyingGuests)
+                () -> guestService.checkInGuest(1, guestName, 1)
         );
         assertEquals(String.format("Guest with name %s did not book a table", guestName), exception.getMessage());
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(guestRepository, times(0)).updateArrivedGuest(any(Guest.class));
+        verify(guestRepository, times(0)).checkInGuest(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
+     * //
+     * The guest name index contains the name in booked and arrived guests.
+     * Output: an ExerciseAlreadyExistsException exception must be thrown without a DB call.
+     */
+    @Test
+    public void givenArrivedGuest_GuestArrivedInIndex_ThrowExceptionWithoutDb() {
+        var guestName = "Jon Snow";
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestNameIndex.isArrived(1, guestName)).willReturn(true);
+        Exception exception = assertThrows(ExerciseAlreadyExistsException.class,
+                () -> guestService.checkInGuest(1, guestName, 1)
+        );
+        assertEquals(String.format("Guest with name %s already arrived to the party", guestName), exception.getMessage());
+        verify(guestRepository, times(0)).checkInGuest(anyInt(), any(Guest.class));
+    }
+
+    /**
+     * Test for method checkInGuest()
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
+     * //
+     * Guest repository returns status ALREADY_ARRIVED.
+     * Service throws a correct exception for this case.
+     * Output: an ExerciseAlreadyExistsException exception must be thrown.
+     */
+    @Test
+    public void givenArrivedGuest_GuestAlreadyArrived_ThrowException() {
+        var guestName = "Jon Snow";
+        int accompanyingGuests = 1;
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.ALREADY_ARRIVED, 1));
+        Exception exception = assertThrows(ExerciseAlreadyExistsException.class,
+                () -> guestService.checkInGuest(1, guestName, accompanyingGuests)
+        );
+        assertEquals(String.format("Guest with name %s already arrived to the party", guestName), exception.getMessage());
+        verify(seatLedger, times(0)).arrive(anyInt(), anyInt(), anyInt());
     }
 
     /**
      * Test for method checkInGuest()
-     * Input: guest name "Jon Snow" and accompanying guest = 2.
+     * Input: guest name "Jon Snow" and accompanying guest = 1.
      * //
-     * Guest repository returns true while checks that the guest booked a table and exists in DB.
-     * Guest repository returns 0 updated row while checks availability of the table's space and
-     * change information about arrived guest.
+     * Guest repository returns status NO_CAPACITY.
      * Service throws a correct exception for this case.
      * Output: an ExerciseServiceBadRequestException exception must be thrown.
      */
@@ -227,78 +555,82 @@ public class GuestServiceTest {
     public void givenArrivedGuest_NotAvailableTableSpace_ThrowException() {
         var guestName = "Jon Snow";
         int accompanyingGuests = 1;
-        given(guestRepository.exists(any(Guest.class))).willReturn(true);
-        given(guestRepository.updateArrivedGuest(any(Guest.class))).willReturn(0);
+        given(guestNameIndex.isBooked(1, guestName)).willReturn(true);
+        given(guestRepository.checkInGuest(anyInt(), any(Guest.class)))
+                .willReturn(new CheckInResult(CheckInStatus.NO_CAPACITY, 1));
         Exception exception = assertThrows(ExerciseServiceBadRequestException.class,
-                () -> guestService.checkInGuest(guestName, accompanyingGuests)
+                () -> guestService.checkInGuest(1, guestName, accompanyingGuests)
         );
         assertEquals(
                 String.format("Booked table does not have available space for %d people (main guest name is %s)",
                         accompanyingGuests + 1, guestName),
                 exception.getMessage()
         );
-        verify(guestRepository, times(1)).exists(any(Guest.class));
-        verify(guestRepository, times(1)).updateArrivedGuest(any(Guest.class));
+        verify(guestRepository, times(1)).checkInGuest(anyInt(), any(Guest.class));
+        verify(seatLedger, times(0)).arrive(anyInt(), anyInt(), anyInt());
     }
 
     /**
      * Test for method delete().
      * Input: guest with name Jon Snow
      * //
-     * Guest repository returns true while checks that the guest booked a table and exists in DB.
+     * The guest name index contains the name of the arrived guest.
      * Guest repository returns 1 removed row while delete a guest from DB.
-     * Output: guest's name
+     * Output: guest's name, seats are released in the seat ledger without the table lock, the departure is published.
      */
     @Test
     public void givenExistedGuest_RemoveGuestAndReturnName() {
         var guestName = "Jon Snow";
-        given(guestRepository.arrived(any(Guest.class))).willReturn(true);
-        given(guestRepository.deleteGuest(any(Guest.class))).willReturn(1);
-        assertThat(guestService.delete(guestName), equalTo(guestName));
-        verify(guestRepository, times(1)).arrived(any(Guest.class));
-        verify(guestRepository, times(1)).deleteGuest(any(Guest.class));
+        given(guestNameIndex.isArrived(1, guestName)).willReturn(true);
+        given(guestRepository.deleteGuest(anyInt(), any(Guest.class))).willReturn(List.of(new Guest(guestName, 1, 3)));
+        assertThat(guestService.delete(1, guestName), equalTo(guestName));
+        verify(guestRepository, times(0)).arrived(anyInt(), any(Guest.class));
+        verify(guestRepository, times(1)).deleteGuest(anyInt(), any(Guest.class));
+        verify(guestNameIndex, times(1)).leave(1, guestName);
+        verify(seatLedger, times(1)).leave(eq(1), eq(1), eq(3));
+        verify(partyEvents, times(1)).guestLeft(eq(1), eq(guestName), eq(1), eq(3));
+        verify(tableLocks, times(0)).withLock(anyInt(), any(), any());
     }
 
     /**
      * Test for method delete().
      * Input: guest with name Jon Snow
      * //
-     * Guest repository returns false while checks that the guest booked a table and exists in DB.
-     * Output: an ExerciseServiceBadRequestException exception must be thrown.
+     * The guest name index does not contain the name of the arrived guest.
+     * Output: an ExerciseNotFoundException exception must be thrown without a DB call.
      */
     @Test
     public void givenNotArrivedGuest_ThrowException() {
         var guestName = "Jon Snow";
-        given(guestRepository.arrived(any(Guest.class))).willReturn(false);
+        given(guestNameIndex.isArrived(1, guestName)).willReturn(false);
         Exception exception = assertThrows(ExerciseNotFoundException.class,
-                () -> guestService.delete(guestName)
+                () -> guestService.delete(1, guestName)
         );
         assertEquals(String.format("Guest with name %s did not arrive to the party", guestName), exception.getMessage());
-        verify(guestRepository, times(1)).arrived(any(Guest.class));
-        verify(guestRepository, times(0)).deleteGuest(any(Guest.class));
+        verify(guestRepository, times(0)).deleteGuest(anyInt(), any(Guest.class));
     }
 
     /**
      * Test for method delete().
      * Input: guest with name Jon Snow
      * //
-     * Guest repository returns true while checks that the guest booked a table and exists in DB.
-     * Guest repository returns 0 removed row while delete a guest from DB.
+     * The guest name index contains the name of the arrived guest.
+     * Guest repository returns no removed rows while delete a guest from DB.
      * Output: an ExerciseServiceException exception must be thrown.
      */
     @Test
     public void givenNotExistedGuest_ThrowException() {
         var guestName = "Jon Snow";
-        given(guestRepository.arrived(any(Guest.class))).willReturn(true);
-        given(guestRepository.deleteGuest(any(Guest.class))).willReturn(0);
+        given(guestNameIndex.isArrived(1, guestName)).willReturn(true);
+        given(guestRepository.deleteGuest(anyInt(), any(Guest.class))).willReturn(List.of());
         Exception exception = assertThrows(ExerciseServiceException.class,
-                () -> guestService.delete(guestName)
+                () -> guestService.delete(1, guestName)
         );
         assertEquals(String.format("Some errors occurs while removing the guest with name = %s", guestName),
                 exception.getMessage()
         );
-        verify(guestRepository, times(1)).arrived(any(Guest.class));
-        verify(guestRepository, times(1)).deleteGuest(any(Guest.class));
+        verify(guestRepository, times(1)).deleteGuest(anyInt(), any(Guest.class));
+        verify(guestNameIndex, times(1)).evict(1, guestName, true);
     }
 
     /**
@@ -307,8 +639,8 @@ public class GuestServiceTest {
      * guest 1 (name:"Jon Snow", accompanying guests: 2, time arrived: date1);
      * guest 2 (name:"Arya Stark", accompanying guests: 7, time arrived: date2)
      * //
-     * The guestRepository will return a list of arrived guests.
-     * Output: the guest service returns a list of Guest objects with correct information.
+     * The party projection will return a list of arrived guests.
+     * Output: the guest service returns a list of Guest objects with correct information without DB.
      */
     @Test
     public void givenRequestForArrivedGuestsList_ReturnTheCorrectListOfGuests() {
@@ -316,11 +648,9 @@ public class GuestServiceTest {
         var guest1 = new Guest("Jon Snow", 2, date1);
         var date2 = new Date();
         var guest2 = new Guest("Arya Stark", 7, date2);
-        List<Guest> guestList = new ArrayList<>(2);
-        guestList.add(guest1);
-        guestList.add(guest2);
-        given(guestRepository.getArrivedGuestList()).willReturn(guestList);
-        List<Guest> resultList = guestService.getArrivedGuestList();
+        given(partyProjection.isEnabled()).willReturn(true);
+        given(partyProjection.streamArrivals(anyInt(), any())).willReturn(Stream.of(guest1, guest2));
+        List<Guest> resultList = guestService.getArrivedGuestList(1);
         assertEquals(2, resultList.size());
         assertTrue(resultList.stream().anyMatch(guest -> "Jon Snow".equals(guest.getName())
                 && 2 == guest.getTotalGuests() && date1.equals(guest.getTimeArrived()))
@@ -328,18 +658,62 @@ public class GuestServiceTest {
         assertTrue(resultList.stream().anyMatch(guest -> "Arya Stark".equals(guest.getName())
                 && 7 == guest.getTotalGuests() && date2.equals(guest.getTimeArrived()))
         );
-        verify(guestRepository, times(1)).getArrivedGuestList();
+        verify(guestRepository, times(0)).getArrivedGuestList(anyInt());
     }
 
     /**
      * Test for the getAvailableSeats() method
-     * Table repository returns count of available seats.
-     * Output: returns correct count of available seats.
+     * Seat ledger returns count of available seats.
+     * Output: returns correct count of available seats without a call to DB.
      */
     @Test
     public void givenRequestForAvailableSeats_ReturnSeatsCount() {
-        given(tableRepository.getAvailableSeats()).willReturn(2);
-        assertEquals(2, guestService.getAvailableSeats());
-        verify(tableRepository, times(1)).getAvailableSeats();
+        given(seatLedger.getAvailableSeats(1)).willReturn(2);
+        assertEquals(2, guestService.getAvailableSeats(1));
+        verify(seatLedger, times(1)).getAvailableSeats(1);
+    }
+
+    /**
+     * Test for the Flight Recorder event of the addGuest() method.
+     * Input: guest Name = "Jon Snow", tableId = 1, table 1 does not have available seats, the event is recorded.
+     * Output: the GuestRegistration event has the party ID, the table ID, the hash of the name
+     * and the NO_CAPACITY outcome.
+     */
+    @Test
+    public void givenRecording_NoSeats_RecordRegistrationEvent() throws IOException {
+        given(guestRepository.saveGuest(anyInt(), any(Guest.class))).willReturn(RegistrationStatus.NO_CAPACITY);
+        var file = Files.createTempFile("guest-service", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable(GuestRegistrationEvent.class);
+            recording.start();
+            assertThrows(ExerciseNoCapacityException.class, () -> guestService.addGuest(1, "Jon Snow", 1, 1));
+            recording.stop();
+            recording.dump(file);
+            var events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals(1, events.get(0).getInt("partyId"));
+            assertEquals(1, events.get(0).getInt("tableId"));
+            assertEquals("Jon Snow".hashCode(), events.get(0).getInt("guestNameHash"));
+            assertEquals(RegistrationStatus.NO_CAPACITY.name(), events.get(0).getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private GuestNameIndex newGuestNameIndex() {
+        return new GuestNameIndex(guestRepository, mock(JpaPartyRepository.class), new SimpleMeterRegistry());
+    }
+
+    private GuestService newGuestService(GuestNameIndex nameIndex) {
+        return new GuestService(guestRepository, seatLedger, partyEvents, nameIndex, tableLocks, arrivalJournal,
+                partyProjection);
+    }
+
+    private static void awaitWaitingRequest(ReentrantLock lock) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!lock.hasQueuedThreads()) {
+            assertTrue(System.nanoTime() < deadline, "No request is waiting for the table lock");
+            Thread.sleep(1);
+        }
     }
 }
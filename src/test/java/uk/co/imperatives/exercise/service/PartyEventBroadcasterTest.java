@@ -0,0 +1,112 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.dto.GuestRequest;
+import uk.co.imperatives.exercise.dto.SeatsResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for PartyEventBroadcaster
+ */
+public class PartyEventBroadcasterTest {
+
+    private final SeatLedger seatLedger = mock(SeatLedger.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * Sender tasks are run by the test.
+     */
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private final PartyEventBroadcaster broadcaster = new PartyEventBroadcaster(seatLedger, meterRegistry, 2,
+            tasks::add);
+
+    private final List<String> events = new ArrayList<>();
+
+    /**
+     * Input: a client subscribes, the guest arrives and leaves, another guest arrives before events are sent.
+     * Output: one sender task, the last event of every guest is sent and then the current count of seats once.
+     */
+    @Test
+    public void givenSlowClient_CoalesceEventsPerGuest() {
+        given(seatLedger.getAvailableSeats(1)).willReturn(7);
+        broadcaster.subscribe(1, this::record);
+        broadcaster.guestArrived(1, "Jon Snow", 1, 2);
+        broadcaster.guestArrived(1, "Arya Stark", 2, 1);
+        broadcaster.guestLeft(1, "Jon Snow", 1, 2);
+        runTasks();
+        assertEquals(List.of("arrival Arya Stark", "departure Jon Snow", "seats 7"), events);
+        assertEquals(1.0, meterRegistry.get("party.events.coalesced").counter().count());
+    }
+
+    /**
+     * Input: maximum is 2 pending guests, 3 guests arrive before events are sent.
+     * Output: guest events are dropped, the client gets "reset" and the current count of seats.
+     */
+    @Test
+    public void givenTooManyPendingEvents_SendReset() {
+        given(seatLedger.getAvailableSeats(1)).willReturn(3);
+        broadcaster.subscribe(1, this::record);
+        broadcaster.guestArrived(1, "Jon Snow", 1, 1);
+        broadcaster.guestArrived(1, "Arya Stark", 1, 1);
+        broadcaster.guestArrived(1, "Sansa Stark", 1, 1);
+        runTasks();
+        assertEquals(List.of("reset", "seats 3"), events);
+        assertEquals(1.0, meterRegistry.get("party.events.resets").counter().count());
+    }
+
+    /**
+     * Input: a client subscribes to the party 1, a guest arrives at the party 2.
+     * Output: the client gets only the current count of seats of its party.
+     */
+    @Test
+    public void givenEventOfOtherParty_SendOnlyEventsOfSubscribedParty() {
+        given(seatLedger.getAvailableSeats(1)).willReturn(5);
+        broadcaster.subscribe(1, this::record);
+        runTasks();
+        broadcaster.guestArrived(2, "Jon Snow", 1, 2);
+        broadcaster.seatsChanged(2);
+        runTasks();
+        assertEquals(List.of("seats 5"), events);
+    }
+
+    /**
+     * Input: the client is disconnected, so sending fails.
+     * Output: the client is unsubscribed and does not get further events.
+     */
+    @Test
+    public void givenDisconnectedClient_Unsubscribe() {
+        broadcaster.subscribe(1, (name, data) -> {
+            throw new IOException("Broken pipe");
+        });
+        runTasks();
+        assertEquals(0.0, meterRegistry.get("party.events.subscribers").gauge().value());
+        broadcaster.seatsChanged(1);
+        assertEquals(List.of(), tasks);
+    }
+
+    private void record(String name, Object data) {
+        if (data instanceof GuestRequest guest) {
+            events.add(name + " " + guest.getName());
+        } else if (data instanceof SeatsResponse seats) {
+            events.add(name + " " + seats.getSeatsEmpty());
+        } else {
+            events.add(name);
+        }
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
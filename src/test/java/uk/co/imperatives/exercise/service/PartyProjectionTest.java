@@ -0,0 +1,277 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import uk.co.imperatives.exercise.repository.GuestFilter;
+import uk.co.imperatives.exercise.repository.JpaPartyEventRepository;
+import uk.co.imperatives.exercise.repository.PartyEventType;
+import uk.co.imperatives.exercise.repository.entity.Guest;
+import uk.co.imperatives.exercise.repository.entity.PartyEvent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for PartyProjection
+ */
+public class PartyProjectionTest {
+
+    private static final Timestamp TIME = Timestamp.valueOf("2024-01-01 20:00:00.000001");
+
+    private final JpaPartyEventRepository eventRepository = mock(JpaPartyEventRepository.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final List<PartyEvent> events = List.of(
+            new PartyEvent(1, 1, PartyEventType.TABLE_ADDED, 1, 10, null, null, TIME),
+            new PartyEvent(2, 1, PartyEventType.GUEST_BOOKED, 1, null, "Jon Snow", 2, TIME),
+            new PartyEvent(3, 1, PartyEventType.GUEST_BOOKED, 1, null, "Arya Stark", 1, TIME),
+            new PartyEvent(4, 1, PartyEventType.GUEST_BOOKED, 1, null, "Sansa Stark", 3, TIME),
+            new PartyEvent(5, 1, PartyEventType.GUEST_ARRIVED, null, null, "Jon Snow", 2, TIME),
+            new PartyEvent(6, 1, PartyEventType.GUEST_ARRIVED, null, null, "Arya Stark", 1, TIME),
+            new PartyEvent(7, 1, PartyEventType.GUEST_LEFT, null, null, "Jon Snow", 2, TIME),
+            new PartyEvent(8, 1, PartyEventType.GUEST_ARRIVED, null, null, "Sansa Stark", 3,
+                    Timestamp.valueOf("2024-01-01 19:00:00")));
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        willAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null))
+                .given(transactionTemplate).execute(any());
+        willAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any());
+        willAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            Consumer<PartyEvent> consumer = invocation.getArgument(2);
+            events.stream().filter(event -> event.getSeq() > after && event.getSeq() <= to).forEach(consumer);
+            return null;
+        }).given(eventRepository).streamEvents(anyLong(), anyLong(), any());
+        given(eventRepository.isEnabled()).willReturn(true);
+    }
+
+    /**
+     * Input: the log has 6 events, the projection is loaded without a snapshot, 2 more events are added
+     * and the projection is loaded again.
+     * Output: the first load replays the whole log and writes a snapshot, the second load reads the snapshot
+     * and replays only the events after it. Arrivals are ordered by arrival time with microseconds.
+     */
+    @Test
+    public void givenSnapshot_ReplayOnlyEventsAfterIt() {
+        given(eventRepository.getLastSequence()).willReturn(6L);
+        newProjection().load();
+        assertTrue(Files.exists(snapshotPath()));
+
+        given(eventRepository.getLastSequence()).willReturn(8L);
+        var projection = newProjection();
+        projection.load();
+
+        verify(eventRepository).streamEvents(eq(0L), eq(6L), any());
+        verify(eventRepository).streamEvents(eq(6L), eq(8L), any());
+        verify(eventRepository).prune(6L);
+        verify(eventRepository).prune(8L);
+        verify(eventRepository, never()).restart();
+        assertEquals(List.of("Arya Stark", "Jon Snow", "Sansa Stark"),
+                projection.streamGuests(1, new GuestFilter()).map(Guest::getName).toList());
+        var arrivals = projection.streamArrivals(1, new GuestFilter()).toList();
+        assertEquals(List.of("Sansa Stark", "Arya Stark"), arrivals.stream().map(Guest::getName).toList());
+        assertEquals(TIME, arrivals.get(1).getTimeArrived());
+    }
+
+    /**
+     * Input: the snapshot file is corrupted.
+     * Output: the whole log is replayed.
+     */
+    @Test
+    public void givenCorruptedSnapshot_ReplayWholeLog() throws Exception {
+        given(eventRepository.getLastSequence()).willReturn(8L);
+        Files.write(snapshotPath(), new byte[]{0x50, 0x53, 0x4E, 0x31, 1, 2, 3});
+        var projection = newProjection();
+        projection.load();
+
+        verify(eventRepository).streamEvents(eq(0L), eq(8L), any());
+        assertEquals(2, projection.streamArrivals(1, new GuestFilter()).count());
+    }
+
+    /**
+     * Input: booked guests and arrivals are added to the loaded projection, lists are requested with the filters
+     * and keyset positions of the guest list queries.
+     * Output: the lists have the same guests and order as the queries, the snapshot does not change without
+     * new events in the log.
+     */
+    @Test
+    public void givenFilters_StreamListsLikeQueries() throws Exception {
+        given(eventRepository.getLastSequence()).willReturn(8L);
+        var projection = newProjection();
+        projection.load();
+        var snapshot = Files.readAllBytes(snapshotPath());
+        projection.book(1, new Guest("Arya Snow", 2, 1));
+        projection.arrive(1, new Guest("Arya Snow", 1, Timestamp.valueOf("2024-01-01 21:00:00")));
+
+        var filter = new GuestFilter();
+        filter.setNamePrefix("Arya");
+        assertEquals(List.of("Arya Snow", "Arya Stark"), guestNames(projection, filter));
+        filter.setAfterName("Arya Snow");
+        assertEquals(List.of("Arya Stark"), guestNames(projection, filter));
+        filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setAfterName("Arya Stark");
+        filter.setLimit(1);
+        assertEquals(List.of("Jon Snow"), guestNames(projection, filter));
+
+        filter = new GuestFilter();
+        filter.setArrivedFrom(TIME);
+        assertEquals(List.of("Arya Stark", "Arya Snow"), arrivalNames(projection, filter));
+        filter.setArrivedTo(Timestamp.valueOf("2024-01-01 21:00:00"));
+        assertEquals(List.of("Arya Stark"), arrivalNames(projection, filter));
+        filter = new GuestFilter();
+        filter.setTableNumber(1);
+        filter.setAfterTimeArrived(Timestamp.valueOf("2024-01-01 19:00:00"));
+        filter.setAfterName("Sansa Stark");
+        assertEquals(List.of("Arya Stark"), arrivalNames(projection, filter));
+
+        projection.snapshot();
+        verify(eventRepository, never()).streamEvents(eq(8L), anyLong(), any());
+        assertArrayEquals(snapshot, Files.readAllBytes(snapshotPath()));
+    }
+
+    /**
+     * Input: the log has events of 2 parties, the projection is loaded from the log and then from its snapshot.
+     * Output: every party has only its own guests and arrivals, the snapshot keeps both parties.
+     */
+    @Test
+    public void givenEventsOfSeveralParties_KeepPartiesApart() {
+        var partyEvents = new ArrayList<>(events);
+        partyEvents.add(new PartyEvent(9, 2, PartyEventType.TABLE_ADDED, 1, 5, null, null, TIME));
+        partyEvents.add(new PartyEvent(10, 2, PartyEventType.GUEST_BOOKED, 1, null, "Jon Snow", 4, TIME));
+        partyEvents.add(new PartyEvent(11, 2, PartyEventType.GUEST_ARRIVED, null, null, "Jon Snow", 4, TIME));
+        willAnswer(invocation -> {
+            long after = invocation.getArgument(0);
+            long to = invocation.getArgument(1);
+            Consumer<PartyEvent> consumer = invocation.getArgument(2);
+            partyEvents.stream().filter(event -> event.getSeq() > after && event.getSeq() <= to).forEach(consumer);
+            return null;
+        }).given(eventRepository).streamEvents(anyLong(), anyLong(), any());
+        given(eventRepository.getLastSequence()).willReturn(11L);
+        newProjection().load();
+        var projection = newProjection();
+        projection.load();
+
+        verify(eventRepository).streamEvents(eq(0L), eq(11L), any());
+        assertEquals(List.of("Arya Stark", "Jon Snow", "Sansa Stark"), guestNames(projection, new GuestFilter()));
+        assertEquals(List.of("Sansa Stark", "Arya Stark"), arrivalNames(projection, new GuestFilter()));
+        var guests = projection.streamGuests(2, new GuestFilter()).toList();
+        assertEquals(1, guests.size());
+        assertEquals(4, guests.get(0).getTotalGuests());
+        assertEquals(List.of("Jon Snow"),
+                projection.streamArrivals(2, new GuestFilter()).map(Guest::getName).toList());
+        assertEquals(0, projection.streamGuests(3, new GuestFilter()).count());
+    }
+
+    /**
+     * Input: the snapshot is at event 4, then events up to 6 were pruned.
+     * Output: the log does not continue the snapshot, so the log is restarted and the projection is loaded
+     * from the restarted log without the snapshot.
+     */
+    @Test
+    public void givenPrunedEventsAfterSnapshot_RestartLog() {
+        given(eventRepository.getLastSequence()).willReturn(4L);
+        newProjection().load();
+        given(eventRepository.getPrunedSequence()).willReturn(6L);
+        given(eventRepository.getLastSequence()).willReturn(8L);
+        var projection = newProjection();
+        projection.load();
+
+        verify(eventRepository).restart();
+        verify(eventRepository).streamEvents(eq(0L), eq(8L), any());
+        assertEquals(List.of("Arya Stark", "Jon Snow", "Sansa Stark"), guestNames(projection, new GuestFilter()));
+    }
+
+    /**
+     * Input: the event triggers were stopped while the projection was disabled, the projection is enabled again.
+     * Output: the log is restarted before the snapshot is read.
+     */
+    @Test
+    public void givenStoppedLog_RestartLog() {
+        given(eventRepository.isEnabled()).willReturn(false);
+        given(eventRepository.getLastSequence()).willReturn(8L);
+        newProjection().load();
+
+        verify(eventRepository).restart();
+        verify(eventRepository).streamEvents(eq(0L), eq(8L), any());
+    }
+
+    /**
+     * Input: the projection is disabled.
+     * Output: the event log is stopped, the log is not read.
+     */
+    @Test
+    public void givenDisabledProjection_StopLog() {
+        new PartyProjection(false, snapshotPath(), eventRepository, transactionTemplate, new SimpleMeterRegistry())
+                .load();
+
+        verify(eventRepository).stop();
+        verify(eventRepository, never()).getLastSequence();
+        verify(eventRepository, never()).streamEvents(anyLong(), anyLong(), any());
+    }
+
+    /**
+     * Input: guests whose names differ in a character of the basic plane after the surrogates and
+     * in a supplementary character.
+     * Output: the guests are ordered by code points like the C collation, not by UTF-16 chars.
+     */
+    @Test
+    public void givenSupplementaryCharacters_OrderNamesByCodePoints() {
+        given(eventRepository.getLastSequence()).willReturn(0L);
+        var projection = newProjection();
+        projection.load();
+        projection.book(1, new Guest("Jon \uD83D\uDE00", 1, 1));
+        projection.book(1, new Guest("Jon \uFB01", 1, 1));
+
+        assertEquals(List.of("Jon \uFB01", "Jon \uD83D\uDE00"), guestNames(projection, new GuestFilter()));
+        var filter = new GuestFilter();
+        filter.setAfterName("Jon \uFB01");
+        assertEquals(List.of("Jon \uD83D\uDE00"), guestNames(projection, filter));
+    }
+
+    private static List<String> guestNames(PartyProjection projection, GuestFilter filter) {
+        return projection.streamGuests(1, filter).map(Guest::getName).toList();
+    }
+
+    private static List<String> arrivalNames(PartyProjection projection, GuestFilter filter) {
+        return projection.streamArrivals(1, filter).map(Guest::getName).toList();
+    }
+
+    private PartyProjection newProjection() {
+        return new PartyProjection(true, snapshotPath(), eventRepository, transactionTemplate, new SimpleMeterRegistry());
+    }
+
+    private Path snapshotPath() {
+        return directory.resolve("party.snapshot");
+    }
+}
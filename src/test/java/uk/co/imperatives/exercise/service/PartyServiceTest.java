@@ -0,0 +1,88 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.exception.ExerciseAlreadyExistsException;
+import uk.co.imperatives.exercise.exception.ExerciseNotFoundException;
+import uk.co.imperatives.exercise.exception.ExerciseServiceBadRequestException;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for PartyService
+ */
+public class PartyServiceTest {
+
+    private final JpaPartyRepository partyRepository = mock(JpaPartyRepository.class);
+
+    private final PartyService partyService = new PartyService(partyRepository);
+
+    @BeforeEach
+    public void setUp() {
+        given(partyRepository.getPartyIds()).willReturn(List.of(1, 2));
+        partyService.load();
+    }
+
+    /**
+     * Input: party ID = 3, there is no party with ID = 3 in DB.
+     * Output: the party is saved, its ID is returned and it is known without DB.
+     */
+    @Test
+    public void givenNewParty_SaveAndReturnId() {
+        given(partyRepository.saveParty(3)).willReturn(true);
+        assertEquals(3, partyService.addParty(3));
+        assertEquals(List.of(1, 2, 3), partyService.getPartyIds());
+        assertDoesNotThrow(() -> partyService.requireParty(3));
+        verify(partyRepository, never()).exists(anyInt());
+    }
+
+    /**
+     * Input: party ID = 2 which is loaded from DB, and party ID = 3 which was added by another instance.
+     * Output: ExerciseAlreadyExistsException is thrown for both, DB is not called for the loaded party.
+     */
+    @Test
+    public void givenExistingParty_ThrowAlreadyExists() {
+        given(partyRepository.saveParty(3)).willReturn(false);
+        assertThrows(ExerciseAlreadyExistsException.class, () -> partyService.addParty(2));
+        assertThrows(ExerciseAlreadyExistsException.class, () -> partyService.addParty(3));
+        verify(partyRepository, never()).saveParty(2);
+        verify(partyRepository, times(1)).saveParty(3);
+    }
+
+    /**
+     * Input: party ID = 0.
+     * Output: ExerciseServiceBadRequestException is thrown, DB is not called.
+     */
+    @Test
+    public void givenNotPositivePartyId_ThrowBadRequest() {
+        assertThrows(ExerciseServiceBadRequestException.class, () -> partyService.addParty(0));
+        verify(partyRepository, never()).saveParty(anyInt());
+    }
+
+    /**
+     * Input: party 1 is loaded, party 4 was added by another instance, party 5 does not exist.
+     * Output: parties 1 and 4 are accepted, DB is checked once for party 4, party 5 is not found.
+     */
+    @Test
+    public void givenPartyIds_RequireExistingParties() {
+        given(partyRepository.exists(4)).willReturn(true);
+        given(partyRepository.exists(5)).willReturn(false);
+        assertDoesNotThrow(() -> partyService.requireParty(1));
+        assertDoesNotThrow(() -> partyService.requireParty(4));
+        assertDoesNotThrow(() -> partyService.requireParty(4));
+        assertThrows(ExerciseNotFoundException.class, () -> partyService.requireParty(5));
+        verify(partyRepository, never()).exists(1);
+        verify(partyRepository, times(1)).exists(4);
+    }
+}
@@ -0,0 +1,61 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for SeatLedgerReconciler
+ */
+public class SeatLedgerReconcilerTest {
+
+    private final JpaTableRepository tableRepository = mock(JpaTableRepository.class);
+
+    private final JpaPartyRepository partyRepository = mock(JpaPartyRepository.class);
+
+    private final SeatLedger seatLedger = mock(SeatLedger.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SeatLedgerReconciler reconciler = new SeatLedgerReconciler(tableRepository, partyRepository,
+            seatLedger, meterRegistry);
+
+    /**
+     * Input: seat ledger has 10 available seats at the party 1 and 5 at the party 2,
+     * DB aggregates return 8 and 6.
+     * Output: drift 3 (summed over parties) is reported by the gauge and the counter is incremented.
+     */
+    @Test
+    public void givenLedgerDiffersFromDB_ReportDrift() {
+        given(partyRepository.getPartyIds()).willReturn(List.of(1, 2));
+        given(seatLedger.getAvailableSeats(1)).willReturn(10);
+        given(tableRepository.getAvailableSeats(1)).willReturn(8);
+        given(seatLedger.getAvailableSeats(2)).willReturn(5);
+        given(tableRepository.getAvailableSeats(2)).willReturn(6);
+        reconciler.reconcile();
+        assertEquals(3, reconciler.getDrift());
+        assertEquals(3.0, meterRegistry.get("party.seats.drift").gauge().value());
+        assertEquals(1.0, meterRegistry.get("party.seats.drift.detected").counter().count());
+    }
+
+    /**
+     * Input: seat ledger and DB aggregate both return 8 available seats.
+     * Output: no drift is reported.
+     */
+    @Test
+    public void givenLedgerEqualsDB_ReportNoDrift() {
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        given(seatLedger.getAvailableSeats(1)).willReturn(8);
+        given(tableRepository.getAvailableSeats(1)).willReturn(8);
+        reconciler.reconcile();
+        assertEquals(0, reconciler.getDrift());
+        assertEquals(0.0, meterRegistry.get("party.seats.drift.detected").counter().count());
+    }
+}
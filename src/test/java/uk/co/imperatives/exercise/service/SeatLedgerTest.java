@@ -0,0 +1,229 @@
+package uk.co.imperatives.exercise.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import uk.co.imperatives.exercise.configuration.TestConfig;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.RegistrationStatus;
+import uk.co.imperatives.exercise.repository.entity.TableOccupancy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for SeatLedger
+ */
+@SpringBootTest(classes = TestConfig.class)
+public class SeatLedgerTest {
+
+    @Mock
+    private JpaTableRepository tableRepository;
+
+    @Mock
+    private JpaPartyRepository partyRepository;
+
+    @InjectMocks
+    private SeatLedger seatLedger;
+
+    /**
+     * Input: table 1 with capacity 5 and 3 arrived people in DB.
+     * Arrival of 2 people fits, arrival of 1 more person does not fit.
+     * Output: true for the first arrival, false for the second one.
+     */
+    @Test
+    public void givenTableWithFreeSeats_ReserveOnlyAvailableSeats() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 4, 3)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        assertTrue(seatLedger.tryArrive(1, 1, 2));
+        assertFalse(seatLedger.tryArrive(1, 1, 1));
+        assertEquals(0, seatLedger.getAvailableSeats(1, 1));
+        assertEquals(0, seatLedger.getAvailableSeats(1));
+    }
+
+    /**
+     * Input: table 1 with capacity 5 and 4 booked people in DB, bookings of 2 people and 1 person are reserved,
+     * then the reserved person is released and a booking at the unknown table 7 is reserved.
+     * Output: OK for the booking which fits, NO_CAPACITY for the one which does not fit, the released seat can be
+     * booked again, UNKNOWN_TABLE for the unknown table. Bookings do not change the available seats of the party.
+     */
+    @Test
+    public void givenTableWithFreeSeats_ReserveOnlyAvailableBookings() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 4, 3)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        assertEquals(RegistrationStatus.NO_CAPACITY, seatLedger.tryBook(1, 1, 2));
+        assertEquals(RegistrationStatus.OK, seatLedger.tryBook(1, 1, 1));
+        seatLedger.unbook(1, 1, 1);
+        assertEquals(RegistrationStatus.OK, seatLedger.tryBook(1, 1, 1));
+        assertEquals(RegistrationStatus.NO_CAPACITY, seatLedger.tryBook(1, 1, 1));
+        assertEquals(RegistrationStatus.UNKNOWN_TABLE, seatLedger.tryBook(1, 7, 1));
+        assertEquals(2, seatLedger.getAvailableSeats(1));
+    }
+
+    /**
+     * Input: table 1 with capacity 5 and 5 arrived people in DB.
+     * 2 people leave the table and the table capacity grows to 6.
+     * Output: 3 available seats at the table.
+     */
+    @Test
+    public void givenLeaveAndResize_UpdateAvailableSeats() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 5, 5)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        seatLedger.leave(1, 1, 2);
+        seatLedger.putTable(1, 1, 6);
+        assertEquals(3, seatLedger.getAvailableSeats(1, 1));
+        assertEquals(3, seatLedger.getAvailableSeats(1));
+    }
+
+    /**
+     * Input: tables 1 (capacity 5, 2 arrived) and 2 (capacity 10, 0 arrived) in DB.
+     * A new table 3 with capacity 4 is added, 3 people arrive at the table 2, 1 person leaves the table 1,
+     * 1 person checked in at the table 3.
+     * Output: 14 available seats at the party.
+     */
+    @Test
+    public void givenChangesAtSeveralTables_MaintainPartyAvailableSeats() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 2, 2),
+                new TableOccupancy(2, 10, 0, 0)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        assertEquals(13, seatLedger.getAvailableSeats(1));
+        seatLedger.putTable(1, 3, 4);
+        assertTrue(seatLedger.tryArrive(1, 2, 3));
+        seatLedger.leave(1, 1, 1);
+        seatLedger.arrive(1, 3, 1);
+        assertEquals(14, seatLedger.getAvailableSeats(1));
+        assertEquals(3, seatLedger.getAvailableSeats(1, 3));
+    }
+
+    /**
+     * Input: table 1 with capacity 5 at the party 1 and table 1 with capacity 3 at the party 2 in DB.
+     * 3 people arrive at the table 1 of the party 2.
+     * Output: available seats of the party 1 are not changed, the party 2 has no available seats.
+     */
+    @Test
+    public void givenSeveralParties_KeepSeatsOfEveryPartySeparately() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 0, 0)));
+        given(tableRepository.getTableOccupancy(2)).willReturn(List.of(new TableOccupancy(1, 3, 0, 0)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1, 2));
+        seatLedger.rebuild();
+        assertTrue(seatLedger.tryArrive(2, 1, 3));
+        assertFalse(seatLedger.tryArrive(2, 1, 1));
+        assertEquals(5, seatLedger.getAvailableSeats(1));
+        assertEquals(0, seatLedger.getAvailableSeats(2));
+        assertEquals(0, seatLedger.getAvailableSeats(3));
+    }
+
+    /**
+     * Input: table 1 with capacity 5 is loaded, the ledger is rebuilt and DB returns capacity 8 for it.
+     * Output: while DB is read the previous seats are available, after the rebuild the seats from DB.
+     */
+    @Test
+    public void givenRebuild_KeepPreviousLedgerUntilLoaded() {
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 0, 0)));
+        seatLedger.rebuild();
+        given(tableRepository.getTableOccupancy(1)).willAnswer(invocation -> {
+            assertEquals(5, seatLedger.getAvailableSeats(1));
+            return List.of(new TableOccupancy(1, 8, 0, 0));
+        });
+        seatLedger.rebuild();
+        assertEquals(8, seatLedger.getAvailableSeats(1));
+    }
+
+    /**
+     * Input: unknown table ID, arrivals at it are requested twice.
+     * Output: arrivals are rejected, only the requested table is read from DB, the party is not aggregated again.
+     */
+    @Test
+    public void givenUnknownTable_RejectArrival() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of());
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        assertFalse(seatLedger.tryArrive(1, 7, 1));
+        assertFalse(seatLedger.tryArrive(1, 7, 1));
+        verify(tableRepository, times(1)).getTableOccupancy(1);
+        verify(tableRepository, times(2)).getTableOccupancy(1, 7);
+    }
+
+    /**
+     * Input: table 2 (capacity 4, 1 arrived) is added to DB after the ledger was loaded.
+     * Output: the table is loaded by its ID on the first arrival and added to the available seats of the party.
+     */
+    @Test
+    public void givenTableAddedAfterRebuild_LoadOnlyThisTable() {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 5, 0, 0)));
+        given(tableRepository.getTableOccupancy(1, 2)).willReturn(Optional.of(new TableOccupancy(2, 4, 1, 1)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        assertTrue(seatLedger.tryArrive(1, 2, 3));
+        assertFalse(seatLedger.tryArrive(1, 2, 1));
+        assertEquals(5, seatLedger.getAvailableSeats(1));
+        verify(tableRepository, times(1)).getTableOccupancy(1, 2);
+    }
+
+    /**
+     * Input: table 2 (capacity 4, 1 arrived) is read by the caller and loaded twice, the second time with 2 arrived.
+     * Output: the table is in the ledger without a DB call, the second load does not change it.
+     */
+    @Test
+    public void givenLoadedTable_KeepFirstLoadWithoutDb() {
+        assertFalse(seatLedger.contains(1, 2));
+        seatLedger.load(1, new TableOccupancy(2, 4, 1, 1));
+        seatLedger.load(1, new TableOccupancy(2, 4, 2, 2));
+        assertTrue(seatLedger.contains(1, 2));
+        assertEquals(3, seatLedger.getAvailableSeats(1));
+        assertEquals(3, seatLedger.getAvailableSeats(1, 2));
+        verify(tableRepository, times(0)).getTableOccupancy(1, 2);
+    }
+
+    /**
+     * Input: table 1 with capacity 100, 8 threads try to seat 1 person 50 times each.
+     * Output: exactly 100 reservations succeed.
+     */
+    @Test
+    public void givenConcurrentArrivals_NeverOverbookTable() throws Exception {
+        given(tableRepository.getTableOccupancy(1)).willReturn(List.of(new TableOccupancy(1, 100, 0, 0)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        seatLedger.rebuild();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    int reserved = 0;
+                    for (int j = 0; j < 50; j++) {
+                        if (seatLedger.tryArrive(1, 1, 1)) {
+                            reserved++;
+                        }
+                    }
+                    return reserved;
+                }));
+            }
+            int reserved = 0;
+            for (Future<Integer> future : futures) {
+                reserved += future.get();
+            }
+            assertEquals(100, reserved);
+            assertEquals(0, seatLedger.getAvailableSeats(1, 1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
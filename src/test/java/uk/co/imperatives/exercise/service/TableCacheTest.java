@@ -0,0 +1,98 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.repository.JpaPartyRepository;
+import uk.co.imperatives.exercise.repository.JpaTableRepository;
+import uk.co.imperatives.exercise.repository.entity.Table;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for TableCache
+ */
+public class TableCacheTest {
+
+    private final JpaTableRepository tableRepository = mock(JpaTableRepository.class);
+
+    private final JpaPartyRepository partyRepository = mock(JpaPartyRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TableCache tableCache = new TableCache(tableRepository, partyRepository, meterRegistry);
+
+    /**
+     * Input: tables 3, 1 and 2 in DB, lookups of table 2 and missing table 4.
+     * Output: tables are ordered by ID, one hit and one miss, hit ratio is 0.5.
+     */
+    @Test
+    public void givenTablesInDb_RebuildCacheAndCountLookups() {
+        given(tableRepository.getTableList(1)).willReturn(List.of(new Table(3, 15), new Table(1, 5), new Table(2, 10)));
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        tableCache.rebuild();
+
+        assertEquals(List.of(1, 2, 3), tableCache.getTables(1).stream().map(Table::getId).toList());
+        assertTrue(tableCache.contains(1, 2));
+        assertFalse(tableCache.contains(1, 4));
+        assertEquals(0.5, meterRegistry.get("party.tables.cache.hit-ratio").gauge().value());
+    }
+
+    /**
+     * Input: table 1 is in the cache, the cache is rebuilt and DB returns table 2 only.
+     * Output: while DB is read table 1 is still in the cache, after the rebuild only table 2 is in the cache.
+     */
+    @Test
+    public void givenRebuild_KeepPreviousTablesUntilLoaded() {
+        tableCache.putTable(1, 1, 4);
+        given(partyRepository.getPartyIds()).willReturn(List.of(1));
+        given(tableRepository.getTableList(1)).willAnswer(invocation -> {
+            assertTrue(tableCache.contains(1, 1));
+            return List.of(new Table(2, 6));
+        });
+        tableCache.rebuild();
+
+        assertFalse(tableCache.contains(1, 1));
+        assertTrue(tableCache.contains(1, 2));
+        assertEquals(1.0, meterRegistry.get("party.tables.cache.size").gauge().value());
+    }
+
+    /**
+     * Input: table 5 is added between tables 1 and 9, capacity of table 1 is changed to 8.
+     * Output: pages of the list contain the new table and the new capacity in ID order.
+     */
+    @Test
+    public void givenChangedTables_ReturnPagesOfNewSnapshot() {
+        tableCache.putTable(1, 9, 2);
+        tableCache.putTable(1, 1, 4);
+        tableCache.putTable(1, 5, 6);
+        tableCache.putTable(1, 1, 8);
+
+        var firstPage = tableCache.getTables(1, Integer.MIN_VALUE, 2);
+        assertEquals(List.of(1, 5), firstPage.stream().map(Table::getId).toList());
+        assertEquals(8, firstPage.get(0).getCapacity());
+        assertEquals(List.of(9), tableCache.getTables(1, 5, 2).stream().map(Table::getId).toList());
+        assertEquals(List.of(), tableCache.getTables(1, 9, 2));
+    }
+
+    /**
+     * Input: table 1 is added to the party 1, table 2 is added to the party 2.
+     * Output: every party contains only its own table.
+     */
+    @Test
+    public void givenSeveralParties_KeepTablesOfEveryPartySeparately() {
+        tableCache.putTable(1, 1, 4);
+        tableCache.putTable(2, 2, 6);
+
+        assertEquals(List.of(1), tableCache.getTables(1).stream().map(Table::getId).toList());
+        assertEquals(List.of(2), tableCache.getTables(2).stream().map(Table::getId).toList());
+        assertFalse(tableCache.contains(1, 2));
+        assertTrue(tableCache.contains(2, 2));
+        assertEquals(List.of(), tableCache.getTables(3));
+    }
+}
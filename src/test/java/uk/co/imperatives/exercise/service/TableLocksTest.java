@@ -0,0 +1,75 @@
+package uk.co.imperatives.exercise.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import uk.co.imperatives.exercise.exception.ExerciseServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for TableLocks
+ */
+public class TableLocksTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TableLocks tableLocks = new TableLocks(64, 50, meterRegistry);
+
+    /**
+     * Input: table 1 is locked by another request for longer than the timeout.
+     * Output: the request for table 1 is rejected, the request for table 2 runs, acquisitions are counted.
+     */
+    @Test
+    public void givenBusyTable_RejectRequestAndRunOtherTable() throws Exception {
+        var locked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var holder = CompletableFuture.runAsync(() -> tableLocks.withLock(1, 1, () -> {
+            locked.countDown();
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        locked.await();
+
+        Exception exception = assertThrows(ExerciseServiceUnavailableException.class,
+                () -> tableLocks.withLock(1, 1, () -> "Jon Snow"));
+        assertEquals("Table with ID = 1 is busy, request timed out after 50 ms", exception.getMessage());
+        assertEquals("Arya Stark", tableLocks.withLock(1, 2, () -> "Arya Stark"));
+        release.countDown();
+        holder.get();
+
+        assertEquals(2.0, meterRegistry.get("party.table-locks.acquisitions").tag("result", "uncontended")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get("party.table-locks.acquisitions").tag("result", "contended")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get("party.table-locks.acquisitions").tag("result", "timeout")
+                .counter().count());
+        assertEquals(1, meterRegistry.get("party.table-locks.wait").timer().count());
+    }
+
+    /**
+     * Input: 100 stripes are requested, tables 1 and 2 of the party 1, table 1 of the party 2
+     * and an unknown table (null).
+     * Output: 128 stripes are created, tables 1 and 2 have different locks, table 1 has different locks
+     * at different parties, the unknown table runs without a lock.
+     */
+    @Test
+    public void givenStripes_RoundUpAndSpreadTables() {
+        var locks = new TableLocks(100, 50, new SimpleMeterRegistry());
+
+        assertNotSame(locks.getLock(1, 1), locks.getLock(1, 2));
+        assertSame(locks.getLock(1, 1), locks.getLock(1, 129));
+        assertNotSame(locks.getLock(1, 1), locks.getLock(2, 1));
+        assertEquals("Jon Snow", locks.withLock(1, null, () -> "Jon Snow"));
+        assertEquals(0, locks.getWaiting());
+    }
+}
@@ -10,6 +10,8 @@ import uk.co.imperatives.exercise.exception.ExerciseServiceException;
 import uk.co.imperatives.exercise.repository.JpaTableRepository;
 import uk.co.imperatives.exercise.repository.entity.Table;
 
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -30,6 +32,15 @@ public class TableServiceTest {
     @Mock
     private JpaTableRepository tableRepository;
 
+    @Mock
+    private SeatLedger seatLedger;
+
+    @Mock
+    private PartyEventBroadcaster partyEvents;
+
+    @Mock
+    private TableCache tableCache;
+
     @InjectMocks
     private TableService tableService;
 
@@ -44,12 +55,29 @@ public class TableServiceTest {
     public void givenTableInfo_SaveToDbAndReturnName() {
         var tableId = 1;
         var capacity = 2;
-        given(tableRepository.exists(eq(tableId))).willReturn(false);
-        given(tableRepository.saveTable(any(Table.class))).willReturn(1);
+        given(tableRepository.exists(eq(1), eq(tableId))).willReturn(false);
+        given(tableRepository.saveTable(anyInt(), any(Table.class))).willReturn(1);
+        //
+        assertThat(tableService.addTable(1, tableId, capacity), equalTo(1));
+        verify(tableRepository, times(1)).exists(anyInt(), anyInt());
+        verify(tableRepository, times(1)).saveTable(anyInt(), any(Table.class));
+        verify(seatLedger, times(1)).putTable(eq(1), eq(tableId), eq(capacity));
+        verify(tableCache, times(1)).putTable(eq(1), eq(tableId), eq(capacity));
+    }
+
+    /**
+     * Input: table id = 1, capacity = 2, the table with id = 1 is in the table cache.
+     * //
+     * Output: an ExerciseAlreadyExistsException exception was thrown, DB is not called.
+     */
+    @Test
+    public void givenCachedTable_NotUniq_ThrowErrorWithoutDb() {
+        var tableId = 1;
+        given(tableCache.contains(eq(1), eq(tableId))).willReturn(true);
         //
-        assertThat(tableService.addTable(tableId, capacity), equalTo(1));
-        verify(tableRepository, times(1)).exists(anyInt());
-        verify(tableRepository, times(1)).saveTable(any(Table.class));
+        assertThrows(ExerciseAlreadyExistsException.class, () -> tableService.addTable(1, tableId, 2));
+        verify(tableRepository, times(0)).exists(anyInt(), anyInt());
+        verify(tableRepository, times(0)).saveTable(anyInt(), any(Table.class));
     }
 
     /**
@@ -63,13 +91,13 @@ public class TableServiceTest {
     public void givenTableInfo_NotUniq_ThrowError() {
         var tableId = 1;
         var capacity = 2;
-        given(tableRepository.exists(eq(tableId))).willReturn(true);
+        given(tableRepository.exists(eq(1), eq(tableId))).willReturn(true);
         //
         Exception exception = assertThrows(ExerciseAlreadyExistsException.class,
-                () -> tableService.addTable(tableId, capacity));
+                () -> tableService.addTable(1, tableId, capacity));
         assertEquals(String.format("Table with ID = %d already exists", tableId), exception.getMessage());
-        verify(tableRepository, times(1)).exists(anyInt());
-        verify(tableRepository, times(0)).saveTable(any(Table.class));
+        verify(tableRepository, times(1)).exists(anyInt(), anyInt());
+        verify(tableRepository, times(0)).saveTable(anyInt(), any(Table.class));
     }
 
     /**
@@ -84,12 +112,45 @@ public class TableServiceTest {
     public void givenTableInfo_NotSaved_ThrowError() {
         var tableId = 1;
         var capacity = 2;
-        given(tableRepository.exists(eq(tableId))).willReturn(false);
-        given(tableRepository.saveTable(any(Table.class))).willReturn(0);
+        given(tableRepository.exists(eq(1), eq(tableId))).willReturn(false);
+        given(tableRepository.saveTable(anyInt(), any(Table.class))).willReturn(0);
         //
-        Exception exception = assertThrows(ExerciseServiceException.class, () -> tableService.addTable(tableId, capacity));
+        Exception exception = assertThrows(ExerciseServiceException.class, () -> tableService.addTable(1, tableId, capacity));
         assertEquals("An error occurs while saving a new table", exception.getMessage());
-        verify(tableRepository, times(1)).exists(anyInt());
-        verify(tableRepository, times(1)).saveTable(any(Table.class));
+        verify(tableRepository, times(1)).exists(anyInt(), anyInt());
+        verify(tableRepository, times(1)).saveTable(anyInt(), any(Table.class));
+    }
+
+    /**
+     * Input: table id = 1, new capacity = 4, there is a table with id = 1 in DB.
+     * //
+     * The tableRepository will return 1 as updated rows while calling updateTable() method.
+     * Output: correct table ID, seat ledger gets the new capacity.
+     */
+    @Test
+    public void givenTableInfo_UpdateCapacityAndReturnId() {
+        var tableId = 1;
+        var capacity = 4;
+        given(tableRepository.exists(eq(1), eq(tableId))).willReturn(true);
+        given(tableRepository.updateTable(anyInt(), any(Table.class))).willReturn(1);
+        //
+        assertThat(tableService.updateTable(1, tableId, capacity), equalTo(tableId));
+        verify(tableRepository, times(1)).updateTable(anyInt(), any(Table.class));
+        verify(seatLedger, times(1)).putTable(eq(1), eq(tableId), eq(capacity));
+        verify(tableCache, times(1)).putTable(eq(1), eq(tableId), eq(capacity));
+    }
+
+    /**
+     * Input: the table cache contains tables 1 and 2.
+     * //
+     * Output: tables from the table cache, DB is not called.
+     */
+    @Test
+    public void givenCachedTables_ReturnTableListWithoutDb() {
+        var tables = List.of(new Table(1, 5), new Table(2, 10));
+        given(tableCache.getTables(1)).willReturn(tables);
+        //
+        assertThat(tableService.getTablesList(1), equalTo(tables));
+        verify(tableRepository, times(0)).getTableList(anyInt());
     }
 }